@@ -0,0 +1,205 @@
+package au.csiro.casda.datadeposit.catalogue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.collections4.CollectionUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import au.csiro.casda.datadeposit.catalogue.continuum.ContinuumComponentVoTableVisitor;
+import au.csiro.casda.datadeposit.catalogue.continuum.ContinuumIslandVoTableVisitor;
+import au.csiro.casda.datadeposit.catalogue.continuum.PolarisationComponentVoTableVisitor;
+import au.csiro.casda.datadeposit.catalogue.spectralline.SpectralLineAbsorptionVoTableVisitor;
+import au.csiro.casda.datadeposit.catalogue.spectralline.SpectralLineEmissionVoTableVisitor;
+import au.csiro.casda.datadeposit.observation.jpa.repository.ContinuumComponentRepository;
+import au.csiro.casda.datadeposit.observation.jpa.repository.ContinuumIslandRepository;
+import au.csiro.casda.datadeposit.observation.jpa.repository.PolarisationComponentRepository;
+import au.csiro.casda.datadeposit.observation.jpa.repository.SpectralLineAbsorptionRepository;
+import au.csiro.casda.datadeposit.observation.jpa.repository.SpectralLineEmissionRepository;
+import au.csiro.casda.datadeposit.votable.parser.AbstractVoTableElementVisitor;
+import au.csiro.casda.datadeposit.votable.parser.SyntheticVoTable;
+import au.csiro.casda.datadeposit.votable.parser.ValidatingVoTableVisitor;
+import au.csiro.casda.entity.observation.Catalogue;
+import au.csiro.casda.entity.observation.CatalogueType;
+import au.csiro.casda.entity.observation.ImageCube;
+import au.csiro.casda.entity.observation.Observation;
+import au.csiro.casda.entity.observation.Project;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * Benchmarks the catalogue visitors on a synthetic catalogue, without reading any XML and without a database:
+ * <ul>
+ * <li>validateRows - validates every cell against the catalogue type's constraints but does nothing with the rows</li>
+ * <li>validateAndMapRows - the catalogue type's visitor, which also maps each row to an entity through its APPLIERS
+ * and writes the entities to a repository that discards them</li>
+ * </ul>
+ * The difference between the two is the cost of the entity mapping.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CatalogueVisitorBenchmark
+{
+    private static final String IMAGE_FILENAME = "image.i.clean.restored.fits";
+
+    @Param({ "1000", "100000", "1000000" })
+    private int rows;
+
+    @Param({ "continuum_island", "continuum_component", "polarisation_component", "spectral_line_absorption",
+            "spectral_line_emission" })
+    private String catalogueType;
+
+    private SyntheticVoTable table;
+
+    /**
+     * Creates the synthetic catalogue and checks that it is valid, so that only the normal (error free) path is
+     * measured.
+     */
+    @Setup
+    public void createTable()
+    {
+        table = new SyntheticVoTable(getConstraintsYmlPath()).setParamValue("imageFile", IMAGE_FILENAME);
+        AbstractVoTableElementVisitor visitor = createCatalogueVisitor();
+        table.accept(visitor, 1);
+        if (CollectionUtils.isNotEmpty(visitor.getErrors()))
+        {
+            throw new IllegalStateException("Synthetic " + catalogueType + " catalogue is not valid: "
+                    + visitor.getErrors());
+        }
+    }
+
+    /**
+     * @return the number of rows processed
+     */
+    @Benchmark
+    public long validateRows()
+    {
+        ValidatingVoTableVisitor visitor = new ValidatingVoTableVisitor(getConstraintsYmlPath());
+        table.accept(visitor, rows);
+        return visitor.getRowCount();
+    }
+
+    /**
+     * @return the visitor, so that its work can't be optimised away
+     */
+    @Benchmark
+    public Object validateAndMapRows()
+    {
+        AbstractVoTableElementVisitor visitor = createCatalogueVisitor();
+        table.accept(visitor, rows);
+        return visitor;
+    }
+
+    private String getConstraintsYmlPath()
+    {
+        return "schemas/" + catalogueType + "_metadata.yml";
+    }
+
+    private AbstractCatalogueVoTableVisitor createCatalogueVisitor()
+    {
+        AbstractCatalogueVoTableVisitor visitor;
+        switch (catalogueType)
+        {
+        case "continuum_island":
+            visitor = new ContinuumIslandVoTableVisitor(createDiscardingRepository(ContinuumIslandRepository.class));
+            break;
+        case "continuum_component":
+            visitor = new ContinuumComponentVoTableVisitor(
+                    createDiscardingRepository(ContinuumComponentRepository.class));
+            break;
+        case "polarisation_component":
+            visitor = new PolarisationComponentVoTableVisitor(
+                    createDiscardingRepository(PolarisationComponentRepository.class));
+            break;
+        case "spectral_line_absorption":
+            visitor = new SpectralLineAbsorptionVoTableVisitor(
+                    createDiscardingRepository(SpectralLineAbsorptionRepository.class));
+            break;
+        case "spectral_line_emission":
+            visitor = new SpectralLineEmissionVoTableVisitor(
+                    createDiscardingRepository(SpectralLineEmissionRepository.class));
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown catalogue type '" + catalogueType + "'");
+        }
+        visitor.setCatalogue(createCatalogue(CatalogueType.valueOf(catalogueType.toUpperCase())));
+        return visitor;
+    }
+
+    private static Catalogue createCatalogue(CatalogueType type)
+    {
+        Project project = new Project("AS007");
+        Observation observation = new Observation();
+        observation.setSbid(12345);
+        ImageCube imageCube = new ImageCube();
+        imageCube.setFilename(IMAGE_FILENAME);
+        imageCube.setParent(observation);
+        observation.addImageCube(imageCube);
+        Catalogue catalogue = new Catalogue(type);
+        catalogue.setProject(project);
+        catalogue.setParent(observation);
+        observation.addCatalogue(catalogue);
+        return catalogue;
+    }
+
+    /*
+     * Creates a repository that accepts saves but doesn't keep anything, ie: a persistence-free sink for the visitors.
+     */
+    private static <R> R createDiscardingRepository(Class<R> repositoryInterface)
+    {
+        return repositoryInterface.cast(Proxy.newProxyInstance(repositoryInterface.getClassLoader(),
+                new Class<?>[] { repositoryInterface }, (proxy, method, args) -> {
+                    switch (method.getName())
+                    {
+                    case "save":
+                        if (args[0] instanceof Iterable)
+                        {
+                            List<Object> saved = new ArrayList<>();
+                            ((Iterable<?>) args[0]).forEach(saved::add);
+                            return saved;
+                        }
+                        return args[0];
+                    case "flush":
+                        return null;
+                    case "countByCatalogue":
+                        return 0L;
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    case "toString":
+                        return "Discarding " + repositoryInterface.getSimpleName();
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                }));
+    }
+}
@@ -0,0 +1,185 @@
+package au.csiro.casda.datadeposit.catalogue.level7;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.collections4.CollectionUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import au.csiro.casda.datadeposit.observation.jdbc.repository.SimpleJdbcRepository;
+import au.csiro.casda.datadeposit.votable.parser.SyntheticVoTable;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * Benchmarks the Level7VoTableVisitor on a synthetic level 7 catalogue, ie: validating the rows and rendering the DDL
+ * and COPY data for them. The SQL is consumed by a repository that discards it, so no database is needed.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class Level7VoTableVisitorBenchmark
+{
+    private static final int DESCRIPTION_MAX_LENGTH = 255;
+
+    @Param({ "1000", "100000", "1000000" })
+    private int rows;
+
+    private SyntheticVoTable table;
+
+    /**
+     * Creates the synthetic catalogue (the mandatory fields plus a typical mix of other columns) and checks that it
+     * is valid, so that only the normal (error free) path is measured.
+     */
+    @Setup
+    public void createTable()
+    {
+        table = new SyntheticVoTable("schemas/level7_metadata.yml") //
+                .addField("flux_peak", "double", null, 11, "3") //
+                .addField("flux_int", "double", null, 11, "3") //
+                .addField("maj_axis", "float", null, 7, "2") //
+                .addField("min_axis", "float", null, 7, "2") //
+                .addField("n_components", "int", null, 5, null) //
+                .addField("has_siblings", "boolean", null, null, null) //
+                .addField("comment", "char", "255", null, null) //
+                .setDescription("A synthetic level 7 catalogue");
+        List<String> fieldNames = table.getFieldNames();
+        table.setParamValue("Catalogue Name", "benchmark_catalogue")
+                .setParamValue("Indexed Fields", fieldNames.get(0) + "," + fieldNames.get(1))
+                .setParamValue("Principal Fields", String.join(",", fieldNames));
+
+        Level7VoTableVisitor visitor = createVisitor(new DiscardingJdbcRepository());
+        table.accept(visitor, 1);
+        if (CollectionUtils.isNotEmpty(visitor.getErrors()))
+        {
+            throw new IllegalStateException("Synthetic level 7 catalogue is not valid: " + visitor.getErrors());
+        }
+    }
+
+    /**
+     * @return the number of characters of COPY data rendered
+     */
+    @Benchmark
+    public long validateAndRenderSql()
+    {
+        DiscardingJdbcRepository repository = new DiscardingJdbcRepository();
+        table.accept(createVisitor(repository), rows);
+        return repository.copyInLength;
+    }
+
+    private static Level7VoTableVisitor createVisitor(SimpleJdbcRepository repository)
+    {
+        Level7VoTableVisitor visitor = new Level7VoTableVisitor(repository, new Date(), DESCRIPTION_MAX_LENGTH);
+        visitor.setProjectCode("AS007");
+        visitor.setLevel7CollectionId(1L);
+        visitor.setDcCommonId(1);
+        visitor.setFilename("benchmark_catalogue.xml");
+        return visitor;
+    }
+
+    /**
+     * A SimpleJdbcRepository that discards the statements it is given, except for reading the COPY data (which is
+     * rendered lazily by some Readers).
+     */
+    private static final class DiscardingJdbcRepository extends SimpleJdbcRepository
+    {
+        private final char[] buffer = new char[8192];
+
+        private long statementsLength;
+
+        private long copyInLength;
+
+        @Override
+        public void executeStatement(String statement)
+        {
+            statementsLength += statement.length();
+        }
+
+        @Override
+        public long copyIn(String copyStatement, Reader data)
+        {
+            long rowCount = 0;
+            try
+            {
+                for (int read = data.read(buffer); read != -1; read = data.read(buffer))
+                {
+                    copyInLength += read;
+                    for (int i = 0; i < read; i++)
+                    {
+                        if (buffer[i] == '\n')
+                        {
+                            rowCount++;
+                        }
+                    }
+                }
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+            return rowCount;
+        }
+
+        @Override
+        public long getDerivedCatalogueId(String entriesTableName)
+        {
+            return 1L;
+        }
+
+        @Override
+        public boolean tableExists(String tableName)
+        {
+            return false;
+        }
+
+        @Override
+        public List<Map<String, Object>> findTableVersions(String baseTableName)
+        {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public List<String> getImageTypes()
+        {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public String toString()
+        {
+            return "DiscardingJdbcRepository[statementsLength=" + statementsLength + ", copyInLength="
+                    + copyInLength + "]";
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package au.csiro.casda.datadeposit.votable.parser;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.ivoa.vo.DataType;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * Benchmarks the validation of a single cell, per FieldDatatype, in the way AbstractVoTableElementVisitor validates
+ * each cell of a row: the value is validated and parsed against the field and its constraint (including any width and
+ * precision limits) and then converted to the String that is kept for the row. The time reported is per cell.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FieldDatatypeBenchmark
+{
+    private static final int CELLS = 1024;
+
+    @Param({ "boolean", "short", "int", "long", "float", "double", "char" })
+    private String datatype;
+
+    private FieldDatatype fieldDatatype;
+
+    private VisitableVoTableField field;
+
+    private FieldConstraint constraint;
+
+    private String[] values;
+
+    /**
+     * Creates a field of the datatype (constrained as the catalogue fields of that datatype typically are) and some
+     * valid values for it.
+     *
+     * @throws FieldFormatException
+     *             if the field is not valid
+     */
+    @Setup
+    public void createField() throws FieldFormatException
+    {
+        field = new VisitableVoTableField();
+        field.setName("benchmark");
+        field.setDatatype(DataType.fromValue(datatype));
+        constraint = new FieldConstraint();
+        constraint.setName("benchmark");
+        constraint.setDatatype(datatype);
+        switch (field.getDatatype())
+        {
+        case CHAR:
+            field.setArraysize("255");
+            constraint.setMaxarraysize("255");
+            break;
+        case FLOAT:
+        case DOUBLE:
+            field.setWidth(BigInteger.valueOf(11));
+            field.setPrecision("3");
+            constraint.setMaxwidth("11");
+            constraint.setMaxprecision("3");
+            break;
+        case BOOLEAN:
+            break;
+        default:
+            field.setWidth(BigInteger.valueOf(10));
+            constraint.setMaxwidth("10");
+            break;
+        }
+        fieldDatatype = FieldDatatype.getFieldDatatypeForField(field);
+        fieldDatatype.validateFieldAttributes(field, constraint);
+
+        values = new String[CELLS];
+        for (int i = 0; i < CELLS; i++)
+        {
+            values[i] = SyntheticVoTable.getValue(field, i);
+        }
+    }
+
+    /**
+     * @param blackhole
+     *            consumes the parsed values
+     * @throws FieldValidationException
+     *             if a value is not valid
+     */
+    @Benchmark
+    @OperationsPerInvocation(CELLS)
+    public void validateCells(Blackhole blackhole) throws FieldValidationException
+    {
+        for (String value : values)
+        {
+            blackhole.consume(fieldDatatype.parseFieldValue(field, constraint, value));
+            blackhole.consume(fieldDatatype.convertFieldValue(value));
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package au.csiro.casda.datadeposit.votable.parser;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.validation.Schema;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xml.sax.SAXException;
+
+import au.csiro.casda.datadeposit.XmlBindingRegistry;
+import net.ivoa.vo.Field;
+import net.ivoa.vo.Table;
+import net.ivoa.vo.Td;
+import net.ivoa.vo.Tr;
+import net.ivoa.vo.VoTable;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * Benchmarks reading a catalogue file with the StreamingVoTableReader, as AbstractCatalogueParser.parseDatafile does,
+ * ie: parsing the XML and validating it against the VOTABLE schema. The visitor does nothing but count the cells, so
+ * that the cost of reading can be separated from the cost of validating the values and saving the catalogue entries.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StreamingVoTableReaderBenchmark
+{
+    @Param({ "1000", "100000", "1000000" })
+    private int rows;
+
+    @Param({ "continuum_component" })
+    private String catalogueType;
+
+    private Schema schema;
+
+    private File catalogueFile;
+
+    /**
+     * Writes the synthetic catalogue file that is read by the benchmark.
+     *
+     * @throws IOException
+     *             if the file could not be written
+     */
+    @Setup(Level.Trial)
+    public void writeCatalogueFile() throws IOException
+    {
+        schema = XmlBindingRegistry.getSchema(XmlBindingRegistry.VOTABLE_SCHEMA_RESOURCE_PATH);
+        catalogueFile = File.createTempFile(catalogueType, ".xml");
+        new SyntheticVoTable("schemas/" + catalogueType + "_metadata.yml").write(catalogueFile, rows);
+    }
+
+    /**
+     * Deletes the synthetic catalogue file.
+     */
+    @TearDown(Level.Trial)
+    public void deleteCatalogueFile()
+    {
+        catalogueFile.delete();
+    }
+
+    /**
+     * @return the number of cells read
+     * @throws IOException
+     *             if the file could not be read
+     * @throws XMLStreamException
+     *             if the file is not well-formed
+     * @throws SAXException
+     *             if the file is not valid
+     */
+    @Benchmark
+    public long readAndValidateXml() throws IOException, XMLStreamException, SAXException
+    {
+        CellCountingVisitor visitor = new CellCountingVisitor();
+        try (InputStream inputStream = new BufferedInputStream(new FileInputStream(catalogueFile)))
+        {
+            new StreamingVoTableReader(inputStream, schema, catalogueFile.toURI()).read(visitor);
+        }
+        return visitor.cells;
+    }
+
+    /**
+     * A VoTableElementVisitor that only counts the cells it visits.
+     */
+    private static final class CellCountingVisitor implements VoTableElementVisitor
+    {
+        private long cells;
+
+        @Override
+        public void visit(VoTable voTable)
+        {
+        }
+
+        @Override
+        public void visit(net.ivoa.vo.Param param)
+        {
+        }
+
+        @Override
+        public void visit(Field field)
+        {
+        }
+
+        @Override
+        public void visit(Table table)
+        {
+        }
+
+        @Override
+        public void visit(Tr tableRow)
+        {
+        }
+
+        @Override
+        public void visit(Td tableCell)
+        {
+            cells++;
+        }
+
+        @Override
+        public void stop()
+        {
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package au.csiro.casda.datadeposit.votable.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.StringEscapeUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import net.ivoa.vo.AnyTEXT;
+import net.ivoa.vo.CoordinateSystem;
+import net.ivoa.vo.DataType;
+import net.ivoa.vo.Field;
+import net.ivoa.vo.ObjectFactory;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * A synthetic, valid VOTABLE for benchmarking. Its PARAMs and FIELDs are generated from one of the constraints (yml)
+ * files, and every value is generated to satisfy its field's datatype, arraysize, width and precision. Rows are
+ * generated on demand, so a table of any size can be written to a file or visited directly without being held in
+ * memory.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+public class SyntheticVoTable
+{
+    private static final ObjectFactory OBJECT_FACTORY = new ObjectFactory();
+
+    private static final int MAX_CHAR_VALUE_LENGTH = 12;
+
+    private static final int MAX_DECIMAL_PLACES = 4;
+
+    private final Map<String, CoordinateSystem> coordinateSystems = new LinkedHashMap<>();
+
+    private final List<VisitableVoTableParam> params = new ArrayList<>();
+
+    private final List<VisitableVoTableField> fields = new ArrayList<>();
+
+    private String description;
+
+    /**
+     * Constructor
+     *
+     * @param constraintsYmlPath
+     *            the classpath resource path of the constraints file (eg: schemas/continuum_component_metadata.yml)
+     */
+    public SyntheticVoTable(String constraintsYmlPath)
+    {
+        List<ParamConstraint> paramConstraints = new ArrayList<>();
+        List<FieldConstraint> fieldConstraints = new ArrayList<>();
+        AbstractVoTableElementVisitor.loadConstraintsFile(constraintsYmlPath, paramConstraints, fieldConstraints);
+        for (ParamConstraint constraint : paramConstraints)
+        {
+            VisitableVoTableParam param = new VisitableVoTableParam();
+            populateField(param, constraint);
+            param.setValue(getValue(param, 0));
+            params.add(param);
+        }
+        for (FieldConstraint constraint : fieldConstraints)
+        {
+            /*
+             * A constraint without a name or ucd doesn't describe a field of its own (eg: a constraint that applies to
+             * all of the char fields of a level 7 catalogue).
+             */
+            if (StringUtils.isNotBlank(constraint.getConstraintForFieldKey(FieldKey.NAME))
+                    || StringUtils.isNotBlank(constraint.getConstraintForFieldKey(FieldKey.UCD)))
+            {
+                VisitableVoTableField field = new VisitableVoTableField();
+                populateField(field, constraint);
+                fields.add(field);
+            }
+        }
+    }
+
+    /**
+     * Sets the value of one of the PARAMs (eg: a PARAM whose value has to match something in the database).
+     *
+     * @param name
+     *            the name of the PARAM
+     * @param value
+     *            the value
+     * @return this SyntheticVoTable
+     */
+    public SyntheticVoTable setParamValue(String name, String value)
+    {
+        params.stream().filter((param) -> name.equals(param.getName())).findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("No PARAM named '" + name + "'")).setValue(value);
+        return this;
+    }
+
+    /**
+     * Adds a FIELD that is not described by the constraints file (eg: one of the free-form columns of a level 7
+     * catalogue).
+     *
+     * @param name
+     *            the name of the FIELD
+     * @param datatype
+     *            the datatype (eg: 'float')
+     * @param arraysize
+     *            the arraysize (or null)
+     * @param width
+     *            the width (or null)
+     * @param precision
+     *            the precision (or null)
+     * @return this SyntheticVoTable
+     */
+    public SyntheticVoTable addField(String name, String datatype, String arraysize, Integer width, String precision)
+    {
+        VisitableVoTableField field = new VisitableVoTableField();
+        field.setName(name);
+        field.setDatatype(DataType.fromValue(datatype));
+        field.setArraysize(arraysize);
+        field.setWidth(width == null ? null : BigInteger.valueOf(width));
+        field.setPrecision(precision);
+        fields.add(field);
+        return this;
+    }
+
+    /**
+     * Sets the DESCRIPTION of the TABLE.
+     *
+     * @param description
+     *            the description
+     * @return this SyntheticVoTable
+     */
+    public SyntheticVoTable setDescription(String description)
+    {
+        this.description = description;
+        return this;
+    }
+
+    /**
+     * @return the names of the FIELDs, in order
+     */
+    public List<String> getFieldNames()
+    {
+        return fields.stream().map(Field::getName).collect(Collectors.toList());
+    }
+
+    /**
+     * Visits the table with the given visitor, in the same order as {@link StreamingVoTableReader} would visit the
+     * table if it had been written to a file.
+     *
+     * @param visitor
+     *            the visitor
+     * @param rows
+     *            the number of rows in the table
+     */
+    public void accept(VoTableElementVisitor visitor, int rows)
+    {
+        visitor.visit(new VisitableVoTable());
+        VisitableVoTableTable table = new VisitableVoTableTable();
+        table.setName("synthetic");
+        if (description != null)
+        {
+            AnyTEXT text = new AnyTEXT();
+            text.getContent().add(description);
+            table.getContent().add(OBJECT_FACTORY.createTableDESCRIPTION(text));
+        }
+        visitor.visit(table);
+        for (VisitableVoTableParam param : params)
+        {
+            param.accept(visitor);
+        }
+        for (VisitableVoTableField field : fields)
+        {
+            field.accept(visitor);
+        }
+        for (int row = 0; row < rows; row++)
+        {
+            visitor.visit(new VisitableVoTableRow());
+            for (VisitableVoTableField field : fields)
+            {
+                VisitableVoTableCell cell = new VisitableVoTableCell();
+                cell.setValue(getValue(field, row));
+                cell.accept(visitor);
+            }
+        }
+        visitor.stop();
+    }
+
+    /**
+     * Writes the table to a file as a TABLEDATA serialised VOTABLE.
+     *
+     * @param file
+     *            the file
+     * @param rows
+     *            the number of rows in the table
+     * @throws IOException
+     *             if the file could not be written
+     */
+    public void write(File file, int rows) throws IOException
+    {
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8))
+        {
+            writer.write("<?xml version=\"1.0\"?>\n");
+            writer.write("<VOTABLE version=\"1.3\" xmlns=\"http://www.ivoa.net/xml/VOTable/v1.3\">\n");
+            for (String id : coordinateSystems.keySet())
+            {
+                writer.write("<COOSYS ID=\"" + escape(id) + "\" equinox=\"J2000\" system=\"eq_FK5\"/>\n");
+            }
+            writer.write("<RESOURCE name=\"synthetic\">\n<TABLE name=\"synthetic\">\n");
+            if (description != null)
+            {
+                writer.write("<DESCRIPTION>" + escape(description) + "</DESCRIPTION>\n");
+            }
+            for (VisitableVoTableParam param : params)
+            {
+                writer.write("<PARAM" + getAttributes(param) + " value=\"" + escape(param.getValue()) + "\"/>\n");
+            }
+            for (VisitableVoTableField field : fields)
+            {
+                writer.write("<FIELD" + getAttributes(field) + "/>\n");
+            }
+            writer.write("<DATA><TABLEDATA>\n");
+            for (int row = 0; row < rows; row++)
+            {
+                writer.write("<TR>");
+                for (VisitableVoTableField field : fields)
+                {
+                    writer.write("<TD>");
+                    writer.write(escape(getValue(field, row)));
+                    writer.write("</TD>");
+                }
+                writer.write("</TR>\n");
+            }
+            writer.write("</TABLEDATA></DATA>\n</TABLE>\n</RESOURCE>\n</VOTABLE>\n");
+        }
+    }
+
+    private void populateField(Field field, FieldConstraint constraint)
+    {
+        String name = constraint.getConstraintForFieldKey(FieldKey.NAME);
+        String ucd = constraint.getConstraintForFieldKey(FieldKey.UCD);
+        String datatype = constraint.getConstraintForFieldKey(FieldKey.DATATYPE);
+        field.setName(name == null ? ucd.replaceAll("[^A-Za-z0-9]+", "_") : name);
+        field.setUcd(ucd);
+        field.setUnit(constraint.getConstraintForFieldKey(FieldKey.UNIT));
+        field.setDatatype(DataType.fromValue(datatype == null ? "char" : datatype));
+        field.setArraysize(constraint.getConstraintForFieldKey(FieldKey.ARRAYSIZE));
+        String width = constraint.getConstraintForFieldKey(FieldKey.WIDTH);
+        field.setWidth(width == null ? null : new BigInteger(width));
+        field.setPrecision(constraint.getConstraintForFieldKey(FieldKey.PRECISION));
+        String ref = constraint.getConstraintForFieldKey(FieldKey.REF);
+        if (ref != null)
+        {
+            field.setRef(coordinateSystems.computeIfAbsent(ref, (id) -> {
+                CoordinateSystem coordinateSystem = new CoordinateSystem();
+                coordinateSystem.setID(id);
+                return coordinateSystem;
+            }));
+        }
+        if (field.getDatatype() == DataType.CHAR && field.getArraysize() == null)
+        {
+            field.setArraysize("*");
+        }
+    }
+
+    /**
+     * Returns the value of the given field for the given row. Values vary from row to row (so that nothing can be
+     * cached across rows) but always fit the field.
+     *
+     * @param field
+     *            a Field
+     * @param row
+     *            the row index
+     * @return the value
+     */
+    static String getValue(Field field, int row)
+    {
+        int width = field.getWidth() == null ? Integer.MAX_VALUE : field.getWidth().intValue();
+        switch (field.getDatatype())
+        {
+        case BOOLEAN:
+            return row % 2 == 0 ? "T" : "F";
+        case SHORT:
+        case INT:
+        case LONG:
+            return String.valueOf(row % (width < 2 ? 10 : 100));
+        case FLOAT:
+        case DOUBLE:
+            return getRealValue(field, width, row);
+        default:
+            String value = "s" + Integer.toString(row, Character.MAX_RADIX);
+            int maxLength = MAX_CHAR_VALUE_LENGTH;
+            Arraysize arraysize = new Arraysize(field.getArraysize() == null ? "1" : field.getArraysize());
+            if (arraysize.hasMaximum())
+            {
+                maxLength = Math.min(maxLength, arraysize.getMaximum().intValue());
+            }
+            return value.length() > maxLength ? value.substring(value.length() - maxLength) : value;
+        }
+    }
+
+    private static String getRealValue(Field field, int width, int row)
+    {
+        int decimalPlaces = Math.min(MAX_DECIMAL_PLACES, width - 3); // two integer digits and the decimal point
+        if (StringUtils.isNotBlank(field.getPrecision()))
+        {
+            Precision precision = new Precision(field.getPrecision());
+            decimalPlaces = Math.min(decimalPlaces, precision.usesSignificantDigits()
+                    ? precision.getNumSignificantDigits().intValue() - 2 : precision.getNumDecimalPlaces().intValue());
+        }
+        String integerPart = String.valueOf(row % 100);
+        if (decimalPlaces <= 0)
+        {
+            return integerPart;
+        }
+        int scale = (int) Math.pow(10, decimalPlaces);
+        return integerPart + "." + StringUtils.leftPad(String.valueOf((row * 7919) % scale), decimalPlaces, '0');
+    }
+
+    private static String getAttributes(Field field)
+    {
+        StringBuilder attributes = new StringBuilder();
+        appendAttribute(attributes, "name", field.getName());
+        appendAttribute(attributes, "ucd", field.getUcd());
+        appendAttribute(attributes, "unit", field.getUnit());
+        appendAttribute(attributes, "datatype", field.getDatatype().value());
+        appendAttribute(attributes, "arraysize", field.getArraysize());
+        appendAttribute(attributes, "width", field.getWidth() == null ? null : field.getWidth().toString());
+        appendAttribute(attributes, "precision", field.getPrecision());
+        appendAttribute(attributes, "ref",
+                field.getRef() == null ? null : ((CoordinateSystem) field.getRef()).getID());
+        return attributes.toString();
+    }
+
+    private static void appendAttribute(StringBuilder attributes, String name, String value)
+    {
+        if (value != null)
+        {
+            attributes.append(' ').append(name).append("=\"").append(escape(value)).append('"');
+        }
+    }
+
+    private static String escape(String value)
+    {
+        return StringEscapeUtils.escapeXml10(value);
+    }
+}
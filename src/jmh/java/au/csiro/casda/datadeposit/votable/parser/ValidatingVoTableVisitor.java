@@ -0,0 +1,80 @@
+package au.csiro.casda.datadeposit.votable.parser;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * An AbstractVoTableElementVisitor that validates a VOTABLE against the constraints in a constraints (yml) file, as a
+ * catalogue visitor would, but does nothing with the validated rows except count them. Benchmarks compare it with the
+ * catalogue visitors to separate the cost of validating the cells from the cost of turning rows into entities.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+public class ValidatingVoTableVisitor extends AbstractVoTableElementVisitor
+{
+    private final List<ParamConstraint> paramConstraints = new ArrayList<>();
+
+    private final List<FieldConstraint> fieldConstraints = new ArrayList<>();
+
+    private long rowCount;
+
+    /**
+     * Constructor
+     *
+     * @param constraintsYmlPath
+     *            the classpath resource path of the constraints file (eg: schemas/continuum_component_metadata.yml)
+     */
+    public ValidatingVoTableVisitor(String constraintsYmlPath)
+    {
+        loadConstraintsFile(constraintsYmlPath, paramConstraints, fieldConstraints);
+    }
+
+    /**
+     * @return the number of rows processed
+     */
+    public long getRowCount()
+    {
+        return rowCount;
+    }
+
+    @Override
+    protected List<ParamConstraint> getParamConstraints()
+    {
+        return paramConstraints;
+    }
+
+    @Override
+    protected List<FieldConstraint> getFieldConstraints()
+    {
+        return fieldConstraints;
+    }
+
+    @Override
+    protected void processParams(Collection<VisitableVoTableParam> params)
+    {
+    }
+
+    @Override
+    protected void processFields(List<VisitableVoTableField> fields)
+    {
+    }
+
+    @Override
+    protected void processRow(ParsedVoTableRow row)
+    {
+        rowCount++;
+    }
+}
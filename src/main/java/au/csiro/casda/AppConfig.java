@@ -25,7 +25,6 @@ import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Scope;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
-import org.springframework.web.client.RestTemplate;
 
 import au.csiro.casda.datadeposit.catalogue.level7.Level7CollectionRepository;
 import au.csiro.casda.datadeposit.observation.jdbc.repository.SimpleJdbcRepository;
@@ -73,12 +72,6 @@ public class AppConfig
         return new SynchronousProcessJobManager();
     }
 
-    @Bean
-    public RestTemplate getRestTemplate()
-    {
-        return new RestTemplate();
-    }
-
     /**
      * Return the factory which will create ProcessJob instance for us to run commands.
      * 
@@ -44,7 +44,9 @@ public class DownloaderCommandLineArgumentsParser extends
         @Parameter(names = "-name", description = "full destination file name", required = true)
         private String name;
 
-        @Parameter(names = "-checksum", description = "Download checksum file", required = false)
+        @Parameter(names = "-checksum",
+                description = "Verify the file against its checksum in NGAS and download the checksum file",
+                required = false)
         private boolean checksum;
 
         String getFileId()
@@ -11,12 +11,14 @@ import java.util.List;
 import org.apache.commons.collections4.ListUtils;
 import org.apache.http.Header;
 import org.apache.http.HeaderElement;
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.NameValuePair;
 import org.apache.http.StatusLine;
 import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.impl.client.CloseableHttpClient;
@@ -57,6 +59,7 @@ public class MiddlewareClientNgas implements MiddlewareClient
 
     private final URI ngasBaseUrl;
     private final CloseableHttpClient client;
+    private final RangedRetriever rangedRetriever;
 
     /**
      * Ngas commands
@@ -82,37 +85,86 @@ public class MiddlewareClientNgas implements MiddlewareClient
     }
 
     /**
-     * Create a new MiddlewareClientNgas that uses the given httpClient and baseUrl
+     * Create a new MiddlewareClientNgas that uses the given baseUrl. Files are retrieved as byte ranges of the given
+     * size, fetched over several connections at the same time, and an interrupted retrieval is resumed from the
+     * ranges already retrieved (see {@link RangedRetriever}). Files are retrieved in one stream if the server does not
+     * support ranges.
+     * <p>
+     * The connections are shared by all of the files being retrieved at the same time (eg: by
+     * {@link NgasBatchDownloader}), up to the given limits. A range waits for a connection once a host's limit is
+     * reached, so the limits cap the load on each NGAS node however many files are retrieved at once.
      * 
      * @param baseUrl
      *            The base URL to use for the NGAS Server.
+     * @param retrieveConnections
+     *            The number of connections to retrieve each file over
+     * @param retrieveRangeSize
+     *            The size in bytes of the ranges files are retrieved in
+     * @param maxConnectionsPerHost
+     *            The maximum number of connections open to each NGAS host at the same time
+     * @param maxConnections
+     *            The maximum number of connections open to all NGAS hosts at the same time
      * @throws URISyntaxException
      *             if unable to create ngas client
      */
     @Autowired
-    public MiddlewareClientNgas(@Value("${ngas.baseurl}") String baseUrl) throws URISyntaxException
+    public MiddlewareClientNgas(@Value("${ngas.baseurl}") String baseUrl,
+            @Value("${ngas.retrieve.connections:4}") int retrieveConnections,
+            @Value("${ngas.retrieve.range.size:67108864}") long retrieveRangeSize,
+            @Value("${ngas.max.connections.per.host:16}") int maxConnectionsPerHost,
+            @Value("${ngas.max.connections:64}") int maxConnections) throws URISyntaxException
     {
         this.client = HttpClientBuilder.create().setUserAgent("CASDA NGAS Middleware Client").useSystemProperties()
-                .build();
+                .setMaxConnPerRoute(maxConnectionsPerHost).setMaxConnTotal(maxConnections).build();
         this.ngasBaseUrl = new URI(baseUrl);
+        this.rangedRetriever = new RangedRetriever(client, retrieveConnections, retrieveRangeSize);
     }
 
     @Override
     public File retrieve(String fileId, RetrieveHandler callback) throws MiddlewareClientException
     {
+        List<NameValuePair> params = ListUtils.unmodifiableList(Arrays.asList(pair("file_id", fileId)));
         try
         {
-            HttpGet get = createNgasGet(Command.RETRIEVE, 
-                    ListUtils.unmodifiableList(Arrays.asList(pair("file_id", fileId))));
+            HttpGet rangedGet = createNgasGet(Command.RETRIEVE, params);
+            rangedGet.setHeader(HttpHeaders.RANGE, rangedRetriever.getFirstRangeHeader());
             logger.debug("Retrieving from NGAS file_id={}", fileId);
-            HttpResponse response = client.execute(get);
-            HttpEntity entity = checkResponse(get.getURI(), response);
-            logger.debug("Response from NGAS: {}", response.getStatusLine());
-            
-            try (InputStream is = entity.getContent())
+            try (CloseableHttpResponse response = client.execute(rangedGet))
             {
-                String filename = extractFilenameFromDisposition(response.getHeaders("Content-Disposition"));
-                return callback.onRetrieve(is, filename);
+                // An empty file has no ranges, so is retrieved below
+                if (response.getStatusLine().getStatusCode() != HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value())
+                {
+                    HttpEntity entity = checkResponse(rangedGet.getURI(), response);
+                    logger.debug("Response from NGAS: {}", response.getStatusLine());
+                    String filename = extractFilenameFromDisposition(response.getHeaders("Content-Disposition"));
+                    if (RangedRetriever.getContentRange(response) == null)
+                    {
+                        // The server ignored the Range header and sent the whole file
+                        try (InputStream is = entity.getContent())
+                        {
+                            return callback.onRetrieve(is, filename);
+                        }
+                    }
+                    File outputFile = callback.getOutputFile(filename);
+                    if (outputFile != null)
+                    {
+                        return rangedRetriever.retrieve(rangedGet.getURI(), response, outputFile,
+                                callback.getExpectedChecksum());
+                    }
+                }
+            }
+
+            // The file is empty, or the handler needs the whole file as a stream rather than in ranges
+            HttpGet get = createNgasGet(Command.RETRIEVE, params);
+            try (CloseableHttpResponse response = client.execute(get))
+            {
+                HttpEntity entity = checkResponse(get.getURI(), response);
+                logger.debug("Response from NGAS: {}", response.getStatusLine());
+                try (InputStream is = entity.getContent())
+                {
+                    String filename = extractFilenameFromDisposition(response.getHeaders("Content-Disposition"));
+                    return callback.onRetrieve(is, filename);
+                }
             }
         }
         catch (IOException e)
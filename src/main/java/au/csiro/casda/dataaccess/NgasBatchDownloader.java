@@ -0,0 +1,223 @@
+package au.csiro.casda.dataaccess;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Import;
+
+import au.csiro.casda.AppConfig;
+import au.csiro.casda.dataaccess.NgasBatchDownloaderCommandLineArgumentsParser.CommandLineArguments;
+import au.csiro.casda.datadeposit.ArgumentsDrivenCommandLineTool;
+import au.csiro.casda.datadeposit.DataDepositMessageBuilder;
+import au.csiro.casda.datadeposit.JobFileReader;
+import au.csiro.casda.datadeposit.ParallelJobRunner;
+import au.csiro.casda.logging.CasdaEvent;
+import au.csiro.casda.logging.DataLocation;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * Command line tool that downloads a list of files from NGAS (see {@link NgasDownloadJob}), several at the same time,
+ * as if each had been downloaded by {@link NgasDownloader}.
+ * <p>
+ * Each file is downloaded on a thread of a bounded pool, through the one MiddlewareClient and so over its pool of
+ * connections, which limits the number of connections open to each NGAS host however many files are downloaded at
+ * once. A file that fails to download is retried, waiting twice as long before each retry as before the last. As a
+ * retry resumes from the ranges already retrieved, only the part of the file that was missed is downloaded again. Each
+ * downloaded file is logged with the same event as ngas_download, followed by a summary of the throughput of the
+ * whole batch, and the tool exits with a failure code if any of the files could not be downloaded.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+@Import(AppConfig.class)
+public class NgasBatchDownloader extends
+        ArgumentsDrivenCommandLineTool<NgasBatchDownloaderCommandLineArgumentsParser.CommandLineArguments>
+{
+    /**
+     * The name of this tool.
+     */
+    public static final String TOOL_NAME = "ngas_batch_download";
+
+    private static final Logger logger = LoggerFactory.getLogger(NgasBatchDownloader.class);
+
+    private static final double BYTES_PER_MEGABYTE = 1024 * 1024;
+
+    private NgasBatchDownloaderCommandLineArgumentsParser commandLineArgumentsParser =
+            new NgasBatchDownloaderCommandLineArgumentsParser();
+
+    private final NgasDownloader downloader;
+
+    private final int defaultThreads;
+
+    private final int attempts;
+
+    private final long retryDelayMillis;
+
+    /**
+     * Constructor
+     * 
+     * @param downloader
+     *            the NgasDownloader used to download each file
+     * @param defaultThreads
+     *            the number of files to download at the same time, unless given on the command line
+     * @param attempts
+     *            the number of attempts made to download each file
+     * @param retryDelayMillis
+     *            the time to wait before the first retry of a file, in milliseconds (doubled for each further retry)
+     */
+    @Autowired
+    public NgasBatchDownloader(NgasDownloader downloader, @Value("${ngas.download.threads}") int defaultThreads,
+            @Value("${ngas.download.attempts}") int attempts,
+            @Value("${ngas.download.retry.delay.millis}") long retryDelayMillis)
+    {
+        super();
+        this.downloader = downloader;
+        this.defaultThreads = defaultThreads;
+        this.attempts = Math.max(attempts, 1);
+        this.retryDelayMillis = retryDelayMillis;
+    }
+
+    /**
+     * main method used to run this NgasBatchDownloader
+     *
+     * @param args
+     *            the command-line arguments
+     */
+    public static void main(String[] args)
+    {
+        runCommandLineTool(NgasBatchDownloader.class, logger, args);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run(String... args)
+    {
+        parseCommandLineArguments(logger, args);
+
+        CommandLineArguments arguments = commandLineArgumentsParser.getArgs();
+        int threads = arguments.getThreads() == null ? defaultThreads : arguments.getThreads();
+
+        List<NgasDownloadJob> jobs;
+        try
+        {
+            jobs = JobFileReader.readJobs(new File(arguments.getManifest()), NgasDownloadJob::parse);
+        }
+        catch (IOException | IllegalArgumentException e)
+        {
+            logger.error(
+                    CasdaDataAccessEvents.E100.messageBuilder().add(arguments.getManifest())
+                            .add(String.join(" ", args)).toString(), e);
+            System.exit(1);
+            return;
+        }
+
+        int failures = downloadFiles(jobs, threads, arguments.downloadChecksumFiles());
+
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    /**
+     * Downloads the given files, using up to the given number of threads, logging the outcome of each and then the
+     * throughput of them all.
+     *
+     * @param jobs
+     *            the files to download
+     * @param threads
+     *            the maximum number of files to download at the same time
+     * @param downloadChecksumFiles
+     *            if true, verifies each file against its checksum in NGAS and creates a checksum file for it
+     * @return the number of files that could not be downloaded
+     */
+    int downloadFiles(List<NgasDownloadJob> jobs, int threads, boolean downloadChecksumFiles)
+    {
+        if (jobs.isEmpty())
+        {
+            return 0;
+        }
+        Instant startTime = Instant.now();
+        List<Long> sizes = ParallelJobRunner.runAll(jobs, threads, job -> downloadFile(job, downloadChecksumFiles),
+                (job, e) -> null);
+        int succeeded = (int) sizes.stream().filter(Objects::nonNull).count();
+        long totalBytes = sizes.stream().filter(Objects::nonNull).mapToLong(Long::longValue).sum();
+
+        long elapsedMillis = Math.max(Duration.between(startTime, Instant.now()).toMillis(), 1);
+        logger.info(String.format("Downloaded %d of %d files (%d bytes) in %.1f s at %.1f MB/s", succeeded,
+                jobs.size(), totalBytes, elapsedMillis / 1000.0, totalBytes / BYTES_PER_MEGABYTE * 1000
+                        / elapsedMillis));
+        return jobs.size() - succeeded;
+    }
+
+    /*
+     * Downloads a single file, retrying with an increasing delay, and logs it in the same way as NgasDownloader.
+     * Returns the size of the file, or null if it could not be downloaded.
+     */
+    private Long downloadFile(NgasDownloadJob job, boolean downloadChecksumFile) throws InterruptedException
+    {
+        Instant startTime = Instant.now();
+        long delay = retryDelayMillis;
+        for (int attempt = 1; !downloader.downloadFileAndCreateChecksumFromNgas(job.getFileId(),
+                job.getDestination(), downloadChecksumFile); attempt++)
+        {
+            if (attempt >= attempts)
+            {
+                logger.error("Failed to download file {} after {} attempts", job, attempts);
+                return null;
+            }
+            logger.warn("Attempt {} to download file {} failed, retrying in {} ms", attempt, job, delay);
+            Thread.sleep(delay);
+            delay *= 2;
+        }
+        Instant endTime = Instant.now();
+
+        long filesizeInBytes = FileUtils.sizeOf(new File(job.getDestination()));
+        DataDepositMessageBuilder messageBuilder = CasdaDataAccessEvents.E134.messageBuilder() //
+                .add(job.getFileId()) //
+                .addStartTime(startTime) //
+                .addEndTime(endTime) //
+                .addSource(DataLocation.ARCHIVE) //
+                .addDestination(DataLocation.DATA_ACCESS) //
+                .addVolumeBytes(filesizeInBytes) //
+                .addFileId(job.getFileId());
+        logger.info(messageBuilder.toString());
+        return filesizeInBytes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public NgasBatchDownloaderCommandLineArgumentsParser getCommandLineArgumentsParser()
+    {
+        return commandLineArgumentsParser;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected CasdaEvent getMalformedParametersEvent()
+    {
+        return CasdaDataAccessEvents.E100;
+    }
+}
@@ -0,0 +1,127 @@
+package au.csiro.casda.dataaccess;
+
+import org.apache.commons.lang3.StringUtils;
+
+import au.csiro.casda.datadeposit.AbstractCommandLineArgumentsParser;
+import au.csiro.casda.datadeposit.CommonCommandLineArguments;
+import au.csiro.casda.logging.CasdaMessageBuilder;
+
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.ParameterException;
+import com.beust.jcommander.Parameters;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * Package-level helper class to support command line parameter parsing for NgasBatchDownloader.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+class NgasBatchDownloaderCommandLineArgumentsParser extends
+        AbstractCommandLineArgumentsParser<NgasBatchDownloaderCommandLineArgumentsParser.CommandLineArguments>
+{
+    /**
+     * Describes and holds argument values. See {@link com.beust.jcommander.JCommander}
+     * <p>
+     * Copyright 2016, CSIRO Australia. All rights reserved.
+     */
+    @Parameters(commandDescription = "Download several files from NGAS at the same time")
+    static class CommandLineArguments extends CommonCommandLineArguments
+    {
+        @Parameter(names = "-manifest", description = "a file listing the files to download, one per line as "
+                + "'file-id destination'", required = true)
+        private String manifest;
+
+        @Parameter(names = "-threads", description = "the number of files to download at the same time "
+                + "(defaults to ngas.download.threads)", required = false)
+        private String threads;
+
+        @Parameter(names = "-checksum",
+                description = "Verify each file against its checksum in NGAS and download its checksum file",
+                required = false)
+        private boolean checksum;
+
+        /**
+         * @return the manifest argument
+         */
+        public String getManifest()
+        {
+            return manifest;
+        }
+
+        /**
+         * @return the threads argument (if supplied)
+         */
+        public Integer getThreads()
+        {
+            if (threads == null)
+            {
+                return null;
+            }
+            return Integer.parseInt(threads);
+        }
+
+        /**
+         * @return whether the files should be verified and their checksum files downloaded
+         */
+        public boolean downloadChecksumFiles()
+        {
+            return checksum;
+        }
+    }
+
+    /**
+     * Package-visible Constructor.
+     */
+    NgasBatchDownloaderCommandLineArgumentsParser()
+    {
+        super(NgasBatchDownloader.TOOL_NAME, new CommandLineArguments());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void validate() throws ParameterException
+    {
+        Integer threads;
+        try
+        {
+            threads = getArgs().getThreads();
+        }
+        catch (NumberFormatException e)
+        {
+            throw new ParameterException("Parameter threads must be an integer");
+        }
+        if (threads != null && threads < 1)
+        {
+            throw new ParameterException("Parameter threads must be at least 1");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addArgumentValuesToMalformedParametersEvent(CasdaMessageBuilder<?> builder)
+    {
+        if (StringUtils.isBlank(this.getArgs().getManifest()))
+        {
+            builder.add("NOT-SPECIFIED");
+        }
+        else
+        {
+            builder.add(this.getArgs().getManifest());
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package au.csiro.casda.dataaccess;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * A single file to be downloaded by {@link NgasBatchDownloader}, ie: the values that would otherwise be given to
+ * {@link NgasDownloader} on the command line.
+ * <p>
+ * A manifest has one file per line, made up of the following whitespace separated values:
+ *
+ * <pre>
+ * file-id destination
+ * </pre>
+ *
+ * where the destination is the full name of the file to download to. Blank lines and lines starting with '#' are
+ * ignored.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+class NgasDownloadJob
+{
+    private final String fileId;
+
+    private final String destination;
+
+    /**
+     * Constructor
+     *
+     * @param fileId
+     *            the NGAS file id of the file to download
+     * @param destination
+     *            the full name of the destination file
+     */
+    NgasDownloadJob(String fileId, String destination)
+    {
+        this.fileId = fileId;
+        this.destination = destination;
+    }
+
+    /**
+     * Parses a single line of a manifest file.
+     *
+     * @param line
+     *            the line
+     * @return the job
+     * @throws IllegalArgumentException
+     *             if the line is not a valid job
+     */
+    static NgasDownloadJob parse(String line)
+    {
+        String[] values = line.trim().split("\\s+");
+        if (values.length != 2)
+        {
+            throw new IllegalArgumentException("expected 'file-id destination' but was '" + line.trim() + "'");
+        }
+        return new NgasDownloadJob(values[0], values[1]);
+    }
+
+    public String getFileId()
+    {
+        return fileId;
+    }
+
+    public String getDestination()
+    {
+        return destination;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return fileId + " " + destination;
+    }
+}
@@ -134,47 +134,61 @@ public class NgasDownloader extends
     }
 
     /**
-     * Downloads file from NGAS and creates the associated checksum file, if requested, by querying the status of the
-     * file from NGAS.
+     * Downloads file from NGAS and creates the associated checksum file, if requested. The checksum is taken from the
+     * status of the file in NGAS, which is queried first so that the checksum of the downloaded file can be calculated
+     * as it is written and checked against it. The download fails if they do not match.
      * 
      * @param fileId
      *            the NGAS file id of the file to download
      * @param name
      *            the full path to the destination filename
      * @param downloadChecksumFile
-     *            if true, creates a checksum file for the downloaded file, called name.checksum which will put it in
-     *            the same folder as the downloaded file
+     *            if true, verifies the downloaded file and creates a checksum file for it, called name.checksum which
+     *            will put it in the same folder as the downloaded file
      * @return boolean if successfully downloads file and creates checksum file
      */
     protected boolean downloadFileAndCreateChecksumFromNgas(String fileId, String name, boolean downloadChecksumFile)
     {
-        boolean success = true;
+        String checksum = null;
+        if (downloadChecksumFile)
+        {
+            try
+            {
+                checksum = getNgasChecksum(fileId);
+            }
+            catch (ServiceCallException e)
+            {
+                logger.error(CasdaLogMessageBuilderFactory.getCasdaMessageBuilder(LogEvent.UNKNOWN_EVENT).toString(),
+                        e);
+                return false;
+            }
+        }
 
         try
         {
-            downloadFileFromNgas(fileId, name);
+            downloadFileFromNgas(fileId, name, checksum);
         }
         catch (MiddlewareClientException e)
         {
             logger.error(CasdaDataAccessEvents.E030.messageBuilder().add("file").add(fileId).toString());
-            success = false;
+            return false;
         }
 
         if (downloadChecksumFile)
         {
             try
             {
-                createChecksumFile(fileId, name);
+                createFile(name + ".checksum", checksum);
             }
-            catch (IOException | ServiceCallException e)
+            catch (IOException e)
             {
-                logger.error(CasdaLogMessageBuilderFactory.getCasdaMessageBuilder(LogEvent.UNKNOWN_EVENT).toString(), e);
-                success = false;
+                logger.error(CasdaLogMessageBuilderFactory.getCasdaMessageBuilder(LogEvent.UNKNOWN_EVENT).toString(),
+                        e);
+                return false;
             }
         }
 
-        return success;
-
+        return true;
     }
 
     /**
@@ -185,36 +199,32 @@ public class NgasDownloader extends
      *            file id of the file to download
      * @param name
      *            full name of the destination file
+     * @param checksum
+     *            the checksum the downloaded file must have, or null if it is not to be verified
      * @throws MiddlewareClientException
-     *             if there is a problem downloading the file from NGAS
+     *             if there is a problem downloading the file from NGAS, or the downloaded file does not have the
+     *             given checksum
      */
-    protected void downloadFileFromNgas(String fileId, String name) throws MiddlewareClientException
+    protected void downloadFileFromNgas(String fileId, String name, String checksum) throws MiddlewareClientException
     {
         logger.debug("Downloading file {} to {}", fileId, name);
-        Retriever retriever = new Retriever(new File(name));
+        Retriever retriever = new Retriever(new File(name), checksum);
         middlewareClient.retrieve(fileId, retriever);
 
     }
 
     /**
-     * Creates a checksum file with the value retrieved from NGAS for a given fileId. The checksum filename will be
-     * fileId.checksum
+     * Gets the checksum of the file with the given id from its status in NGAS.
      * 
      * @param fileId
-     *            file id of the file to create the checksum for
-     * @param name
-     *            full name of the destination file
-     * 
+     *            file id of the file
+     * @return the checksum
      * @throws ServiceCallException
-     *             if there is a problem querying the status of the file from NGAS
-     * @throws IOException
-     *             if there is a problem writing the checksum file
+     *             if there is a problem querying the status of the file from NGAS, or the status has no checksum
      */
-    protected void createChecksumFile(String fileId, String name) throws ServiceCallException, IOException
+    protected String getNgasChecksum(String fileId) throws ServiceCallException
     {
-
         Status status = ngasService.getStatus(fileId);
-        String checksumFileId = name + ".checksum";
         if (status.wasSuccess())
         {
             String checksum = status.getChecksum();
@@ -222,7 +232,7 @@ public class NgasDownloader extends
             {
                 throw new ServiceCallException(String.format("Checksum empty for %s: %s", fileId, status.toString()));
             }
-            createFile(checksumFileId, checksum);
+            return checksum;
         }
         else
         {
@@ -0,0 +1,540 @@
+package au.csiro.casda.dataaccess;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import au.csiro.casda.datadeposit.service.StreamingChecksum;
+
+/**
+ * Retrieves a file over HTTP as a number of byte ranges, fetched at the same time over several (pooled) connections and
+ * written straight to their place in the output file.
+ * <p>
+ * The ranges that have been written are recorded in a progress file next to the output file (the output file's name
+ * with a '.progress' suffix), so that if a retrieval fails part way, or the process is killed, retrieving the same file
+ * again only fetches the ranges that are still missing. The progress file is deleted once the whole file has been
+ * retrieved.
+ * <p>
+ * If the file's checksum is known, the checksum of the retrieved file is calculated while the ranges are written (in
+ * file order, reading back the bytes other connections have just written while they are still cached), so the file
+ * does not have to be read again to verify it.
+ *
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+public class RangedRetriever
+{
+    private static final Logger logger = LoggerFactory.getLogger(RangedRetriever.class);
+
+    /** The suffix added to the output file's name to get the name of its progress file */
+    public static final String PROGRESS_FILE_SUFFIX = ".progress";
+
+    private static final int MAX_ATTEMPTS_PER_RANGE = 3;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final Pattern CONTENT_RANGE_PATTERN = Pattern.compile("bytes\\s+(\\d+)-(\\d+)/(\\d+)");
+
+    private final CloseableHttpClient client;
+
+    private final int connections;
+
+    private final long rangeSize;
+
+    /**
+     * Constructor
+     *
+     * @param client
+     *            the client used to request the ranges, which should allow (at least) the given number of connections
+     *            to the server at a time
+     * @param connections
+     *            the number of ranges to fetch at the same time
+     * @param rangeSize
+     *            the size in bytes of each range
+     */
+    public RangedRetriever(CloseableHttpClient client, int connections, long rangeSize)
+    {
+        if (connections < 1)
+        {
+            throw new IllegalArgumentException("expected connections >= 1");
+        }
+        if (rangeSize < 1)
+        {
+            throw new IllegalArgumentException("expected rangeSize >= 1");
+        }
+        this.client = client;
+        this.connections = connections;
+        this.rangeSize = rangeSize;
+    }
+
+    /**
+     * @return the value of a Range header requesting the first range of a file, ie: the first response to be passed to
+     *         {@link #retrieve(URI, CloseableHttpResponse, File, String)}
+     */
+    public String getFirstRangeHeader()
+    {
+        return rangeHeader(0, rangeSize - 1);
+    }
+
+    /**
+     * Retrieves the rest of a file, given the response to a request for its first range. Any ranges recorded as
+     * written in the output file's progress file (from an earlier, interrupted, retrieval of the same version of the
+     * file) are not fetched again.
+     *
+     * @param uri
+     *            the URI of the file
+     * @param firstResponse
+     *            the response to a request for the first range of the file (see {@link #getFirstRangeHeader()}), which
+     *            must have a Content-Range (see {@link #getContentRange(HttpResponse)}). This method closes it.
+     * @param outputFile
+     *            the file to write to
+     * @param expectedChecksum
+     *            the checksum the retrieved file must have (in the format described by
+     *            {@link au.csiro.casda.datadeposit.service.ChecksumService}), or null if it is not to be verified
+     * @return the output file
+     * @throws MiddlewareClientException
+     *             if any of the ranges could not be retrieved (after retrying) or written, in which case the output
+     *             file and its progress file are left for the next attempt to resume from, or if the retrieved file
+     *             does not have the expected checksum, in which case both are deleted
+     */
+    public File retrieve(URI uri, CloseableHttpResponse firstResponse, File outputFile, String expectedChecksum)
+            throws MiddlewareClientException
+    {
+        long length = getContentRange(firstResponse)[2];
+        File progressFile = new File(outputFile.getPath() + PROGRESS_FILE_SUFFIX);
+        int rangeCount = (int) ((length + rangeSize - 1) / rangeSize);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(connections, rangeCount));
+        String checksum;
+        try (FileChannel channel = FileChannel.open(outputFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE))
+        {
+            Progress progress = Progress.load(progressFile, length, rangeSize, getValidator(firstResponse));
+            if (channel.size() > length)
+            {
+                channel.truncate(length);
+            }
+            OrderedChecksum orderedChecksum =
+                    expectedChecksum == null ? null : new OrderedChecksum(length, rangeCount, progress);
+            logger.debug("Retrieving {} ({} bytes) in {} ranges, {} already retrieved", uri, length, rangeCount,
+                    progress.getCompletedCount());
+
+            AtomicBoolean failed = new AtomicBoolean(false);
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < rangeCount; i++)
+            {
+                if (progress.isCompleted(i))
+                {
+                    continue;
+                }
+                final int index = i;
+                final CloseableHttpResponse initialResponse = i == 0 ? firstResponse : null;
+                futures.add(executor.submit(() -> {
+                    try
+                    {
+                        retrieveRange(uri, index, length, initialResponse, channel, progress, orderedChecksum,
+                                failed);
+                    }
+                    catch (IOException | RuntimeException e)
+                    {
+                        failed.set(true);
+                        throw e;
+                    }
+                    return null;
+                }));
+            }
+            if (progress.isCompleted(0))
+            {
+                firstResponse.close();
+            }
+
+            for (Future<Void> future : futures)
+            {
+                try
+                {
+                    future.get();
+                }
+                catch (ExecutionException e)
+                {
+                    throw new MiddlewareClientException("Failed to retrieve " + uri + " to " + outputFile
+                            + ", retrieving it again will resume from the ranges already retrieved", e.getCause());
+                }
+            }
+            checksum = orderedChecksum == null ? null : orderedChecksum.finish(channel);
+            Files.deleteIfExists(progressFile.toPath());
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new MiddlewareClientException("Interrupted while retrieving " + uri, e);
+        }
+        catch (IOException e)
+        {
+            throw new MiddlewareClientException(e);
+        }
+        finally
+        {
+            executor.shutdownNow();
+            try
+            {
+                firstResponse.close();
+            }
+            catch (IOException e)
+            {
+                logger.debug("Failed to close response from {}", uri, e);
+            }
+        }
+        if (expectedChecksum != null)
+        {
+            Retriever.verifyChecksum(outputFile, expectedChecksum, checksum);
+        }
+        return outputFile;
+    }
+
+    /**
+     * Fetches one range of the file and writes it at its offset in the output file, resuming from where it got up to
+     * if the connection fails (up to {@value #MAX_ATTEMPTS_PER_RANGE} attempts in all). Stops early if another range
+     * has failed.
+     */
+    private void retrieveRange(URI uri, int index, long length, CloseableHttpResponse initialResponse,
+            FileChannel channel, Progress progress, OrderedChecksum orderedChecksum, AtomicBoolean failed)
+            throws IOException
+    {
+        long start = index * rangeSize;
+        long end = Math.min(start + rangeSize, length) - 1;
+        long position = start;
+        byte[] buffer = new byte[BUFFER_SIZE];
+        CloseableHttpResponse response = initialResponse;
+        int attempts = 0;
+        while (position <= end)
+        {
+            if (failed.get())
+            {
+                return;
+            }
+            attempts++;
+            try
+            {
+                if (response == null)
+                {
+                    HttpGet get = new HttpGet(uri);
+                    get.setHeader(HttpHeaders.RANGE, rangeHeader(position, end));
+                    response = client.execute(get);
+                }
+                long[] contentRange = getContentRange(response);
+                if (contentRange == null || contentRange[0] != position || contentRange[2] != length)
+                {
+                    throw new IOException("Expected bytes " + position + "-" + end + "/" + length + " of " + uri
+                            + " but got " + response.getStatusLine() + " with Content-Range "
+                            + response.getFirstHeader(HttpHeaders.CONTENT_RANGE));
+                }
+                long last = Math.min(contentRange[1], end);
+                InputStream in = response.getEntity().getContent();
+                while (position <= last)
+                {
+                    int read = in.read(buffer, 0, (int) Math.min(buffer.length, last - position + 1));
+                    if (read == -1)
+                    {
+                        throw new EOFException("Connection closed after " + (position - start) + " of "
+                                + (end - start + 1) + " bytes of range " + index + " of " + uri);
+                    }
+                    ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, read);
+                    while (bytes.hasRemaining())
+                    {
+                        position += channel.write(bytes, position);
+                    }
+                    if (orderedChecksum != null)
+                    {
+                        orderedChecksum.written(index, position, channel);
+                    }
+                }
+                if (last == contentRange[1])
+                {
+                    // Finish with the entity so the connection goes back to the pool rather than being closed
+                    EntityUtils.consume(response.getEntity());
+                }
+            }
+            catch (IOException e)
+            {
+                if (attempts >= MAX_ATTEMPTS_PER_RANGE)
+                {
+                    throw e;
+                }
+                logger.warn("Failed to retrieve range {} of {}, retrying from byte {}: {}", index, uri, position,
+                        e.getMessage());
+            }
+            finally
+            {
+                if (response != null)
+                {
+                    response.close();
+                    response = null;
+                }
+            }
+        }
+        // The range must be on disk before it is recorded as retrieved
+        channel.force(false);
+        progress.setCompleted(index);
+    }
+
+    /**
+     * Returns the Content-Range of a partial content response, as an array holding the first and last byte positions
+     * of the range and the length of the whole file.
+     *
+     * @param response
+     *            the response
+     * @return the content range, or null if the response is not a 206 (Partial Content) response with a
+     *         Content-Range giving the length of the file
+     */
+    public static long[] getContentRange(HttpResponse response)
+    {
+        Header header = response.getFirstHeader(HttpHeaders.CONTENT_RANGE);
+        if (response.getStatusLine().getStatusCode() != 206 || header == null)
+        {
+            return null;
+        }
+        Matcher matcher = CONTENT_RANGE_PATTERN.matcher(header.getValue().trim());
+        if (!matcher.matches())
+        {
+            return null;
+        }
+        return new long[] { Long.parseLong(matcher.group(1)), Long.parseLong(matcher.group(2)),
+                Long.parseLong(matcher.group(3)) };
+    }
+
+    private static String rangeHeader(long first, long last)
+    {
+        return "bytes=" + first + "-" + last;
+    }
+
+    /**
+     * @return the ETag or else the Last-Modified date of the response (or "" if it has neither), used to make sure
+     *         that ranges retrieved earlier come from the same version of the file
+     */
+    private static String getValidator(HttpResponse response)
+    {
+        Header header = response.getFirstHeader(HttpHeaders.ETAG);
+        if (header == null)
+        {
+            header = response.getFirstHeader(HttpHeaders.LAST_MODIFIED);
+        }
+        return header == null ? "" : header.getValue();
+    }
+
+    /**
+     * Calculates the checksum of the output file in file order while its ranges are written out of order. Each thread
+     * records how far its range has been written, and whichever thread gets the lock checksums the bytes that follow
+     * on from those already checksummed, reading them back from the output file. A thread that finds the lock taken
+     * carries on writing, leaving its bytes to the thread holding the lock or to {@link #finish(FileChannel)}.
+     */
+    private final class OrderedChecksum
+    {
+        private final StreamingChecksum checksum = new StreamingChecksum();
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        private final long length;
+
+        /** The position each range has been written up to (exclusive) */
+        private final AtomicLongArray writtenTo;
+
+        private long checksummedTo;
+
+        OrderedChecksum(long length, int rangeCount, Progress progress)
+        {
+            this.length = length;
+            this.writtenTo = new AtomicLongArray(rangeCount);
+            for (int i = 0; i < rangeCount; i++)
+            {
+                // Ranges retrieved by an earlier attempt have to be read back from the disk
+                writtenTo.set(i, progress.isCompleted(i) ? Math.min((i + 1) * rangeSize, length) : i * rangeSize);
+            }
+        }
+
+        void written(int index, long position, FileChannel channel) throws IOException
+        {
+            writtenTo.set(index, position);
+            if (lock.tryLock())
+            {
+                try
+                {
+                    update(channel);
+                }
+                finally
+                {
+                    lock.unlock();
+                }
+            }
+        }
+
+        String finish(FileChannel channel) throws IOException
+        {
+            lock.lock();
+            try
+            {
+                update(channel);
+                if (checksummedTo != length)
+                {
+                    throw new IllegalStateException("Only " + checksummedTo + " of " + length + " bytes checksummed");
+                }
+                return checksum.getChecksum();
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+
+        private void update(FileChannel channel) throws IOException
+        {
+            while (checksummedTo < length)
+            {
+                long available = writtenTo.get((int) (checksummedTo / rangeSize)) - checksummedTo;
+                if (available <= 0)
+                {
+                    return;
+                }
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), available));
+                int read = channel.read(buffer, checksummedTo);
+                if (read <= 0)
+                {
+                    throw new EOFException("Could not read back byte " + checksummedTo + " of the output file");
+                }
+                buffer.flip();
+                checksum.update(buffer);
+                checksummedTo += read;
+            }
+        }
+    }
+
+    /**
+     * The ranges of a file that have been written to the output file, saved to the progress file each time another
+     * range is written. The progress file is replaced atomically so that it always describes a consistent state.
+     */
+    private static final class Progress
+    {
+        private static final String LENGTH = "length";
+
+        private static final String RANGE_SIZE = "rangeSize";
+
+        private static final String VALIDATOR = "validator";
+
+        private static final String COMPLETED = "completed";
+
+        private final File progressFile;
+
+        private final Properties properties = new Properties();
+
+        private final BitSet completed = new BitSet();
+
+        private Progress(File progressFile, long length, long rangeSize, String validator)
+        {
+            this.progressFile = progressFile;
+            properties.setProperty(LENGTH, Long.toString(length));
+            properties.setProperty(RANGE_SIZE, Long.toString(rangeSize));
+            properties.setProperty(VALIDATOR, validator);
+        }
+
+        /**
+         * Loads the progress of an earlier retrieval of the file, if there is one for the same version of the file
+         * and the same range size, otherwise starts afresh.
+         */
+        static Progress load(File progressFile, long length, long rangeSize, String validator) throws IOException
+        {
+            Progress progress = new Progress(progressFile, length, rangeSize, validator);
+            if (!progressFile.exists())
+            {
+                return progress;
+            }
+            Properties saved = new Properties();
+            try (InputStream in = new FileInputStream(progressFile))
+            {
+                saved.load(in);
+            }
+            if (progress.properties.getProperty(LENGTH).equals(saved.getProperty(LENGTH))
+                    && progress.properties.getProperty(RANGE_SIZE).equals(saved.getProperty(RANGE_SIZE))
+                    && validator.equals(saved.getProperty(VALIDATOR)))
+            {
+                for (String index : StringUtils.split(saved.getProperty(COMPLETED, ""), ','))
+                {
+                    progress.completed.set(Integer.parseInt(index));
+                }
+            }
+            else
+            {
+                logger.info("Ignoring {} as it is for a different version of the file", progressFile);
+            }
+            return progress;
+        }
+
+        synchronized boolean isCompleted(int index)
+        {
+            return completed.get(index);
+        }
+
+        synchronized int getCompletedCount()
+        {
+            return completed.cardinality();
+        }
+
+        synchronized void setCompleted(int index) throws IOException
+        {
+            completed.set(index);
+            properties.setProperty(COMPLETED, StringUtils.join(completed.stream().iterator(), ','));
+            File tempFile = new File(progressFile.getPath() + ".tmp");
+            try (OutputStream out = new FileOutputStream(tempFile))
+            {
+                properties.store(out, null);
+            }
+            Files.move(tempFile.toPath(), progressFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+}
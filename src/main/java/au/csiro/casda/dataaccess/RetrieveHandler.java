@@ -37,4 +37,29 @@ public interface RetrieveHandler
      *             if there is an problem using Ngas
      */
     public File onRetrieve(@Nonnull InputStream inputStream, @Nonnull String filename) throws MiddlewareClientException;
+
+    /**
+     * Gives the file that the retrieved file would be saved to, so that a Middleware Client can write the file itself
+     * (eg: in ranges, over several connections) instead of calling {@link #onRetrieve(InputStream, String)}.
+     * 
+     * @param filename
+     *            The decoded file name as given by the server or "" if not supplied
+     * @return the file to write the retrieved file to, or null if the handler must be given the file's content as a
+     *         stream
+     */
+    public default File getOutputFile(@Nonnull String filename)
+    {
+        return null;
+    }
+
+    /**
+     * Gives the checksum that a file written by the Middleware Client itself (see {@link #getOutputFile(String)}) must
+     * have. The checksum is calculated as the file is written, and the retrieval fails if it does not match.
+     * 
+     * @return the expected checksum (in the format reported by NGAS), or null if the file is not to be verified
+     */
+    public default String getExpectedChecksum()
+    {
+        return null;
+    }
 }
@@ -17,11 +17,15 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import au.csiro.casda.datadeposit.service.StreamingChecksum;
 import au.csiro.casda.logging.CasdaLogMessageBuilderFactory;
 import au.csiro.casda.logging.LogEvent;
 
@@ -35,15 +39,33 @@ public class Retriever implements RetrieveHandler
 {
     private static final Logger logger = LoggerFactory.getLogger(MiddlewareClientLocal.class);
 
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     private File destination;
 
+    private String expectedChecksum;
+
     /**
      * @param destination
      *            full file name of the destination file
      */
     public Retriever(File destination)
+    {
+        this(destination, null);
+    }
+
+    /**
+     * @param destination
+     *            full file name of the destination file
+     * @param expectedChecksum
+     *            the checksum the retrieved file must have, as reported by NGAS, or null if it is not to be verified.
+     *            The checksum is calculated as the file is written, and the retrieved file is deleted if it does not
+     *            match.
+     */
+    public Retriever(File destination, String expectedChecksum)
     {
         this.destination = destination;
+        this.expectedChecksum = expectedChecksum;
     }
 
     /*
@@ -57,18 +79,30 @@ public class Retriever implements RetrieveHandler
     {
         try
         {
-            filename = filename.replaceAll("\\:", "_");
-            filename = filename.replaceAll("/", "_");
-
-            File dir = destination.getParentFile() ;
-            dir.mkdirs() ;
-            File outFile = new File(dir, filename);
+            File outFile = getOutputFile(filename);
 
             logger.debug( "Saving retrieved file to {}", outFile.getCanonicalPath());
+            if (expectedChecksum == null)
+            {
+                try (FileOutputStream outStream = new FileOutputStream(outFile))
+                {
+                    IOUtils.copyLarge(inputStream, outStream);
+                }
+                return outFile;
+            }
+
+            StreamingChecksum checksum = new StreamingChecksum();
+            byte[] buffer = new byte[BUFFER_SIZE];
             try (FileOutputStream outStream = new FileOutputStream(outFile))
             {
-                IOUtils.copyLarge(inputStream, outStream);
+                int read;
+                while ((read = inputStream.read(buffer)) != -1)
+                {
+                    checksum.update(ByteBuffer.wrap(buffer, 0, read));
+                    outStream.write(buffer, 0, read);
+                }
             }
+            verifyChecksum(outFile, expectedChecksum, checksum.getChecksum());
             return outFile;
         }
         catch (IOException e)
@@ -80,4 +114,56 @@ public class Retriever implements RetrieveHandler
 
     }
 
+    /**
+     * Saves the file to the destination's folder, under the name given by the server (with any ':' or '/' replaced).
+     *
+     * @param filename
+     *            The decoded file name as given by the server or "" if not supplied
+     * @return the file in the destination's folder
+     */
+    @Override
+    public File getOutputFile(String filename)
+    {
+        String sanitisedFilename = filename.replaceAll("\\:", "_");
+        sanitisedFilename = sanitisedFilename.replaceAll("/", "_");
+
+        File dir = destination.getParentFile();
+        dir.mkdirs();
+        return new File(dir, sanitisedFilename);
+    }
+
+    @Override
+    public String getExpectedChecksum()
+    {
+        return expectedChecksum;
+    }
+
+    /**
+     * Checks the checksum calculated while a file was retrieved against the checksum it should have, deleting the file
+     * if they do not match.
+     * 
+     * @param file
+     *            the retrieved file
+     * @param expectedChecksum
+     *            the checksum the file should have, as reported by NGAS
+     * @param checksum
+     *            the checksum of the bytes written to the file
+     * @throws MiddlewareClientException
+     *             if the checksums do not match
+     */
+    static void verifyChecksum(File file, String expectedChecksum, String checksum) throws MiddlewareClientException
+    {
+        if (!StringUtils.strip(expectedChecksum).equals(checksum))
+        {
+            FileUtils.deleteQuietly(file);
+            String message = String.format(
+                    "Checksum of retrieved file %s '%s' does not match the checksum in NGAS '%s'", file.getName(),
+                    checksum, expectedChecksum);
+            logger.error(CasdaLogMessageBuilderFactory.getCasdaMessageBuilder(LogEvent.UNKNOWN_EVENT).add(message)
+                    .toString());
+            throw new MiddlewareClientException(message);
+        }
+        logger.debug("Checksum of retrieved file {} matches the checksum in NGAS", file);
+    }
+
 }
@@ -0,0 +1,76 @@
+package au.csiro.casda.datadeposit;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.apache.commons.lang3.StringUtils;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * Reads the jobs file given to a batch command line tool, which has one job per line. Blank lines and lines starting
+ * with '#' are ignored.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+public final class JobFileReader
+{
+    private JobFileReader()
+    {
+    }
+
+    /**
+     * Reads the jobs from a jobs file.
+     *
+     * @param <T>
+     *            the type of job
+     * @param jobsFile
+     *            the jobs file
+     * @param parser
+     *            parses a single line of the file into a job, throwing an IllegalArgumentException if the line is not
+     *            a valid job
+     * @return the jobs, in the order they appear in the file
+     * @throws IOException
+     *             if the file could not be read
+     * @throws IllegalArgumentException
+     *             if any line of the file is not a valid job, with a message giving the line number and the reason
+     */
+    public static <T> List<T> readJobs(File jobsFile, Function<String, T> parser) throws IOException
+    {
+        List<T> jobs = new ArrayList<>();
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(jobsFile.toPath(), StandardCharsets.UTF_8))
+        {
+            lineNumber++;
+            if (StringUtils.isBlank(line) || line.trim().startsWith("#"))
+            {
+                continue;
+            }
+            try
+            {
+                jobs.add(parser.apply(line));
+            }
+            catch (IllegalArgumentException e)
+            {
+                throw new IllegalArgumentException(String.format("Line %d of %s: %s", lineNumber, jobsFile,
+                        e.getMessage()), e);
+            }
+        }
+        return jobs;
+    }
+}
@@ -0,0 +1,129 @@
+package au.csiro.casda.datadeposit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * Runs the jobs of a batch command line tool on a bounded pool of threads, and collects the result of each job in the
+ * same order as the jobs.
+ * <p>
+ * A job that fails with an unexpected exception does not stop the others. The exception is logged and the result of
+ * the job is instead given by the caller's failure function, as it is for any job not yet finished if the calling
+ * thread is interrupted.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+public final class ParallelJobRunner
+{
+    private static final Logger logger = LoggerFactory.getLogger(ParallelJobRunner.class);
+
+    /**
+     * The work done for a single job.
+     *
+     * @param <J>
+     *            the type of job
+     * @param <R>
+     *            the type of result
+     */
+    @FunctionalInterface
+    public interface Task<J, R>
+    {
+        /**
+         * Runs a single job.
+         *
+         * @param job
+         *            the job
+         * @return the result of the job
+         * @throws Exception
+         *             if the job failed unexpectedly
+         */
+        R run(J job) throws Exception;
+    }
+
+    private ParallelJobRunner()
+    {
+    }
+
+    /**
+     * Runs the given jobs, up to the given number at the same time, and waits for them all to finish.
+     *
+     * @param <J>
+     *            the type of job
+     * @param <R>
+     *            the type of result
+     * @param jobs
+     *            the jobs to run
+     * @param threads
+     *            the maximum number of jobs to run at the same time
+     * @param task
+     *            the work done for each job
+     * @param failure
+     *            gives the result of a job that threw an exception, or that was not finished because the calling
+     *            thread was interrupted, from the job and the exception
+     * @return the result of each job, in the same order as the jobs
+     */
+    public static <J, R> List<R> runAll(List<J> jobs, int threads, Task<J, R> task,
+            BiFunction<J, Throwable, R> failure)
+    {
+        List<R> results = new ArrayList<>();
+        if (jobs.isEmpty())
+        {
+            return results;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, jobs.size()));
+        try
+        {
+            List<Future<R>> futures = new ArrayList<>();
+            for (J job : jobs)
+            {
+                futures.add(executor.submit(() -> task.run(job)));
+            }
+            for (int i = 0; i < futures.size(); i++)
+            {
+                try
+                {
+                    results.add(futures.get(i).get());
+                }
+                catch (ExecutionException e)
+                {
+                    logger.error("Unexpected error running job: " + jobs.get(i), e.getCause());
+                    results.add(failure.apply(jobs.get(i), e.getCause()));
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            logger.error("Interrupted while running jobs", e);
+            for (int i = results.size(); i < jobs.size(); i++)
+            {
+                results.add(failure.apply(jobs.get(i), e));
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        return results;
+    }
+}
@@ -0,0 +1,209 @@
+package au.csiro.casda.datadeposit;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import javax.xml.XMLConstants;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.xml.sax.SAXException;
+
+import au.csiro.casda.datadeposit.observation.parser.DatasetXmlElementObjectFactory;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * A JVM-wide registry of compiled XML Schemas, JAXBContexts and pools of Unmarshallers.
+ * <p>
+ * Compiling a schema or building a JAXBContext is expensive compared to validating or unmarshalling a small document,
+ * but both objects are thread-safe and immutable once built, so each is built once (on first use, or by
+ * {@link #prewarm()}) and shared. Unmarshallers are not thread-safe, so they are handed out from a pool and must be
+ * released back to the pool once the caller has finished with them.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+public final class XmlBindingRegistry
+{
+    /**
+     * The classpath location of the VOTABLE 1.3 schema.
+     */
+    public static final String VOTABLE_SCHEMA_RESOURCE_PATH = "schemas/VOTable-1.3.xsd";
+
+    /**
+     * The classpath location of the RTC observation metadata schema.
+     */
+    public static final String OBSERVATION_METADATA_SCHEMA_RESOURCE_PATH = "schemas/observation_metadata.xsd";
+
+    private static final Logger logger = LoggerFactory.getLogger(XmlBindingRegistry.class);
+
+    private static final Map<String, Schema> SCHEMAS = new ConcurrentHashMap<>();
+
+    private static final Map<List<Class<?>>, JAXBContext> JAXB_CONTEXTS = new ConcurrentHashMap<>();
+
+    private static final Map<List<Object>, UnmarshallerPool> UNMARSHALLER_POOLS = new ConcurrentHashMap<>();
+
+    private XmlBindingRegistry()
+    {
+    }
+
+    /**
+     * Returns the compiled schema for the given classpath resource, compiling it if this is the first request for it.
+     *
+     * @param schemaResourcePath
+     *            the classpath location of the schema file
+     * @return a thread-safe Schema
+     */
+    public static Schema getSchema(String schemaResourcePath)
+    {
+        return SCHEMAS.computeIfAbsent(schemaResourcePath, XmlBindingRegistry::compileSchema);
+    }
+
+    /**
+     * Returns the JAXBContext for the given classes, creating it if this is the first request for it.
+     *
+     * @param classesToBeBound
+     *            the classes the context must be able to bind (see {@link JAXBContext#newInstance(Class...)})
+     * @return a thread-safe JAXBContext
+     */
+    public static JAXBContext getJaxbContext(Class<?>... classesToBeBound)
+    {
+        return JAXB_CONTEXTS.computeIfAbsent(Collections.unmodifiableList(Arrays.asList(classesToBeBound)),
+                XmlBindingRegistry::createJaxbContext);
+    }
+
+    /**
+     * Returns the pool of Unmarshallers for the given JAXB class that validate against the given schema.
+     *
+     * @param classToBeBound
+     *            the class the Unmarshallers must be able to bind (usually an ObjectFactory)
+     * @param schemaResourcePath
+     *            the classpath location of the schema file the Unmarshallers validate against
+     * @return an UnmarshallerPool
+     */
+    public static UnmarshallerPool getUnmarshallerPool(Class<?> classToBeBound, String schemaResourcePath)
+    {
+        return UNMARSHALLER_POOLS.computeIfAbsent(Arrays.asList(classToBeBound, schemaResourcePath),
+                key -> new UnmarshallerPool(getJaxbContext(classToBeBound), getSchema(schemaResourcePath)));
+    }
+
+    /**
+     * Compiles the schemas and builds the JAXBContexts used by the data deposit tools so that the first parse does not
+     * have to wait for them. Intended to be called once at start-up by long-lived processes.
+     */
+    public static void prewarm()
+    {
+        long start = System.currentTimeMillis();
+        getSchema(VOTABLE_SCHEMA_RESOURCE_PATH);
+        getUnmarshallerPool(DatasetXmlElementObjectFactory.class, OBSERVATION_METADATA_SCHEMA_RESOURCE_PATH);
+        logger.debug("Pre-warmed XML schemas and JAXB contexts in {} ms", System.currentTimeMillis() - start);
+    }
+
+    private static Schema compileSchema(String schemaResourcePath)
+    {
+        SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+        try (InputStream schemaFileInputStream = new ClassPathResource(schemaResourcePath).getInputStream())
+        {
+            return schemaFactory.newSchema(new StreamSource(schemaFileInputStream));
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException(String.format("Unexpected IOException accessing the resource '%s'",
+                    schemaResourcePath), e);
+        }
+        catch (SAXException e)
+        {
+            throw new RuntimeException(String.format("Unexpected SAXException reading the schema file resource '%s'",
+                    schemaResourcePath), e);
+        }
+    }
+
+    private static JAXBContext createJaxbContext(List<Class<?>> classesToBeBound)
+    {
+        try
+        {
+            return JAXBContext.newInstance(classesToBeBound.toArray(new Class<?>[classesToBeBound.size()]));
+        }
+        catch (JAXBException e)
+        {
+            throw new RuntimeException(String.format("Unexpected JAXBException creating a JAXBContext for %s",
+                    classesToBeBound), e);
+        }
+    }
+
+    /**
+     * A pool of Unmarshallers that share a JAXBContext and validate against the same Schema. Unmarshallers are created
+     * on demand, so the pool grows to the maximum number of Unmarshallers in use at any one time.
+     * <p>
+     * Callers should reset any properties or handlers they set on a borrowed Unmarshaller, or set them every time
+     * they borrow one, as they are seen by the next borrower.
+     */
+    public static final class UnmarshallerPool
+    {
+        private final JAXBContext jaxbContext;
+
+        private final Schema schema;
+
+        private final Queue<Unmarshaller> idle = new ConcurrentLinkedQueue<>();
+
+        private UnmarshallerPool(JAXBContext jaxbContext, Schema schema)
+        {
+            this.jaxbContext = jaxbContext;
+            this.schema = schema;
+        }
+
+        /**
+         * Takes an Unmarshaller from the pool, creating one if none is free. The Unmarshaller must be returned using
+         * {@link #release(Unmarshaller)} and must not be used by more than one thread at a time.
+         *
+         * @return an Unmarshaller that validates against the pool's schema
+         * @throws JAXBException
+         *             if a new Unmarshaller could not be created
+         */
+        public Unmarshaller borrow() throws JAXBException
+        {
+            Unmarshaller unmarshaller = idle.poll();
+            if (unmarshaller == null)
+            {
+                unmarshaller = jaxbContext.createUnmarshaller();
+                unmarshaller.setSchema(schema);
+            }
+            return unmarshaller;
+        }
+
+        /**
+         * Returns an Unmarshaller to the pool.
+         *
+         * @param unmarshaller
+         *            an Unmarshaller previously obtained from {@link #borrow()}
+         */
+        public void release(Unmarshaller unmarshaller)
+        {
+            idle.offer(unmarshaller);
+        }
+    }
+}
@@ -4,36 +4,33 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 import javax.transaction.Transactional;
-import javax.xml.XMLConstants;
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.JAXBException;
-import javax.xml.bind.Unmarshaller;
-import javax.xml.bind.ValidationEvent;
-import javax.xml.bind.ValidationEventHandler;
-import javax.xml.transform.stream.StreamSource;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.validation.Schema;
-import javax.xml.validation.SchemaFactory;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.xml.sax.SAXException;
 
 import au.csiro.casda.datadeposit.DepositStateImpl;
+import au.csiro.casda.datadeposit.XmlBindingRegistry;
 import au.csiro.casda.datadeposit.DepositState.Type;
 import au.csiro.casda.datadeposit.observation.jpa.repository.AbstractCatalogueEntryRepository;
 import au.csiro.casda.datadeposit.observation.jpa.repository.CatalogueRepository;
 import au.csiro.casda.datadeposit.observation.jpa.repository.ObservationRepository;
-import au.csiro.casda.datadeposit.votable.parser.VisitableVoTableElement;
-import au.csiro.casda.datadeposit.votable.parser.VoTableXmlElementObjectFactory;
+import au.csiro.casda.datadeposit.votable.parser.AbstractVoTableElementVisitor;
+import au.csiro.casda.datadeposit.votable.parser.StreamingVoTableReader;
+import au.csiro.casda.datadeposit.votable.parser.VoTableElementVisitor;
 import au.csiro.casda.entity.observation.Catalogue;
 import au.csiro.casda.entity.observation.Observation;
 
@@ -60,8 +57,6 @@ public abstract class AbstractCatalogueParser<T> implements CatalogueParser
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(AbstractCatalogueParser.class);
     
-    private static final String SCHEMA_FILE_RESOURCE_PATH = "schemas/VOTable-1.3.xsd";
-    
     private ObservationRepository observationRepository;
 
     private CatalogueRepository catalogueRepository;
@@ -69,6 +64,21 @@ public abstract class AbstractCatalogueParser<T> implements CatalogueParser
     private AbstractCatalogueVoTableVisitor catalogueVoTableVisitor;
     
     private AbstractCatalogueEntryRepository<T> catalogueEntryRepository;
+
+    @Autowired
+    @Value("${votable.max.recorded.row.errors:0}")
+    private int maxRecordedRowErrors;
+
+    @Autowired
+    @Value("${votable.conversion.threads:1}")
+    private int conversionThreads = 1;
+
+    @Autowired
+    @Value("${catalogue.entry.detach:false}")
+    private boolean detachCatalogueEntries;
+
+    @PersistenceContext
+    private EntityManager entityManager;
     
     
     /**
@@ -96,80 +106,76 @@ public abstract class AbstractCatalogueParser<T> implements CatalogueParser
     }   
     
     /**
-     * Helper methods for subclasses that need to load a VOTABLE XML Schema.
+     * @return the maximum number of row and cell errors the visitor should keep for reporting, or 0 for no limit
+     */
+    protected int getMaxRecordedRowErrors()
+    {
+        return maxRecordedRowErrors;
+    }
+
+    /**
+     * @return the number of threads the visitor should use to validate and parse the catalogue's rows
+     */
+    protected int getConversionThreads()
+    {
+        return conversionThreads;
+    }
+
+    /**
+     * Helper methods for subclasses that need to load a VOTABLE XML Schema. The schema is only compiled once per JVM.
      * 
      * @return a Schema
      */
     protected Schema getVoTableXmlSchema()
     {
-        SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-        try (InputStream schemaFileInputStream = new ClassPathResource(SCHEMA_FILE_RESOURCE_PATH).getInputStream())
-        {
-            return schemaFactory.newSchema(new StreamSource(schemaFileInputStream));
-        }
-        catch (IOException e)
-        {
-            throw new RuntimeException(String.format("Unexpected IOException accessing the resource '%s'",
-                    SCHEMA_FILE_RESOURCE_PATH), e);
-        }
-        catch (SAXException e)
-        {
-            throw new RuntimeException(String.format("Unexpected SAXException reading the schema file resource '%s'",
-                    SCHEMA_FILE_RESOURCE_PATH), e);
-        }
+        return XmlBindingRegistry.getSchema(XmlBindingRegistry.VOTABLE_SCHEMA_RESOURCE_PATH);
     }
     
     /**
-     * Parses the datafile and creates the Vo Table Object for the data in the file
-     * @param CatalogueDatafile the name/address of the data file
-     * @param schema the schema to use for parsing
-     * @return the VisitableVoTableElement
-     * @throws FileNotFoundException thrown if the file does not exist or cannot be accessed
-     * @throws CatalogueParser.MalformedFileException en exception thrown 
-     * if the data file does not match the expected format
+     * Parses the datafile, passing each element of the VOTABLE to the visitor as it is read. The datafile is validated
+     * against the schema in the same pass, so the document is never held in memory as a whole. With more than one
+     * conversion thread the datafile is read ahead on a thread of its own, while the visitor runs on this thread.
+     * 
+     * @param catalogueDatafile
+     *            the name/address of the data file
+     * @param schema
+     *            the schema to validate the data file against
+     * @param visitor
+     *            the visitor that will visit the elements of the VOTABLE
+     * @throws FileNotFoundException
+     *             thrown if the file does not exist or cannot be accessed
+     * @throws CatalogueParser.MalformedFileException
+     *             an exception thrown if the data file does not match the expected format
      */
-    protected VisitableVoTableElement parseDatafile(String CatalogueDatafile, Schema schema)
+    protected void parseDatafile(String catalogueDatafile, Schema schema, VoTableElementVisitor visitor)
             throws FileNotFoundException, CatalogueParser.MalformedFileException
     {
-        FileInputStream catalogueDatafileInputStream = new FileInputStream(CatalogueDatafile);
+        FileInputStream catalogueDatafileInputStream = new FileInputStream(catalogueDatafile);
         try
         {
-            JAXBContext jaxbContext = JAXBContext.newInstance(VoTableXmlElementObjectFactory.class);
-            Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
-            unmarshaller.setSchema(schema);
-            unmarshaller.setEventHandler(new ValidationEventHandler()
-            {
-                // The default XMLValidationEventHandler is too noisy
-                /**
-                 * {@inheritDoc}
-                 */
-                @Override
-                public boolean handleEvent(ValidationEvent event)
-                {
-                    return false;
-                }
-            });
-            unmarshaller.setProperty("com.sun.xml.internal.bind.ObjectFactory", new VoTableXmlElementObjectFactory());
-            return (VisitableVoTableElement) unmarshaller.unmarshal(catalogueDatafileInputStream);
+            StreamingVoTableReader reader = new StreamingVoTableReader(catalogueDatafileInputStream, schema,
+                    new File(catalogueDatafile).toURI());
+            reader.setReadAhead(conversionThreads > 1);
+            reader.read(visitor);
         }
-        catch (JAXBException e)
+        catch (XMLStreamException | SAXException e)
+        {
+            throw new CatalogueParser.MalformedFileException(e);
+        }
+        catch (AbstractVoTableElementVisitor.MalformedVoTableException e)
         {
             throw new CatalogueParser.MalformedFileException(e);
         }
         finally
         {
-            if (catalogueDatafileInputStream != null)
+            try
             {
-                try
-                {
-                    catalogueDatafileInputStream.close();
-                }
-                catch (IOException e)
-                {
-                    LOGGER.debug(
-                            "Encountered IOException closing a resource.  Ignoring in favour of any other exceptions",
-                            e);
-                }
+                catalogueDatafileInputStream.close();
+            }
+            catch (IOException e)
+            {
+                LOGGER.debug("Encountered IOException closing a resource.  Ignoring in favour of any other exceptions",
+                        e);
             }
         }
     }
@@ -208,18 +214,14 @@ public abstract class AbstractCatalogueParser<T> implements CatalogueParser
     {
         catalogueVoTableVisitor.setCatalogue(catalogue);
 
-        Schema schema = getVoTableXmlSchema();
-        VisitableVoTableElement table = parseDatafile(catalogueDatafile, schema);
-
         catalogueVoTableVisitor.setFailFast(mode != Mode.VALIDATE_ONLY);
-        try
-        {
-            table.accept(catalogueVoTableVisitor);
-        }
-        catch (AbstractCatalogueVoTableVisitor.MalformedVoTableException ex)
-        {
-            throw new CatalogueParser.MalformedFileException(ex);
-        }
+        catalogueVoTableVisitor.setMaxRecordedRowErrors(maxRecordedRowErrors);
+        catalogueVoTableVisitor.setConversionThreads(conversionThreads);
+        // Written entries are never read back during the import, so they can be dropped from the persistence context
+        // batch by batch and still be rolled back with the rest of the transaction.
+        catalogueVoTableVisitor.setEntityManager(detachCatalogueEntries ? entityManager : null);
+        parseDatafile(catalogueDatafile, getVoTableXmlSchema(), catalogueVoTableVisitor);
+
         List<Throwable> exceptions = catalogueVoTableVisitor.getErrors();
         if (CollectionUtils.isNotEmpty(exceptions))
         {
@@ -1,11 +1,16 @@
 package au.csiro.casda.datadeposit.catalogue;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+import javax.persistence.EntityManager;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
 import au.csiro.casda.datadeposit.votable.parser.AbstractVoTableElementVisitor;
 import au.csiro.casda.datadeposit.votable.parser.VisitableVoTableParam;
 import au.csiro.casda.entity.observation.Catalogue;
@@ -34,6 +39,8 @@ public abstract class AbstractCatalogueVoTableVisitor extends AbstractVoTableEle
 {
     private Catalogue catalogue;
 
+    private final List<BatchingCatalogueEntrySink<?>> catalogueEntrySinks = new ArrayList<>();
+
     /**
      * Sets the Catalogue that the Continuum data belongs to.
      * 
@@ -63,6 +70,39 @@ public abstract class AbstractCatalogueVoTableVisitor extends AbstractVoTableEle
         return catalogue;
     }
 
+    /**
+     * Sets the EntityManager that the catalogue entries written by this visitor are detached from after each batch is
+     * flushed (see {@link BatchingCatalogueEntrySink#setEntityManager(EntityManager)}).
+     * 
+     * @param entityManager
+     *            the EntityManager of the import's transaction, or null to keep the entries managed until it completes
+     */
+    public void setEntityManager(EntityManager entityManager)
+    {
+        for (BatchingCatalogueEntrySink<?> catalogueEntrySink : catalogueEntrySinks)
+        {
+            catalogueEntrySink.setEntityManager(entityManager);
+        }
+    }
+
+    /**
+     * Creates the sink that a subclass uses to write its catalogue entries.
+     * 
+     * @param <E>
+     *            the catalogue entry type
+     * @param repository
+     *            the repository used to save the entries
+     * @param batchSize
+     *            the number of entries to hold before they are saved
+     * @return a CatalogueEntrySink
+     */
+    protected <E> CatalogueEntrySink<E> createCatalogueEntrySink(JpaRepository<E, ?> repository, int batchSize)
+    {
+        BatchingCatalogueEntrySink<E> catalogueEntrySink = new BatchingCatalogueEntrySink<>(repository, batchSize);
+        catalogueEntrySinks.add(catalogueEntrySink);
+        return catalogueEntrySink;
+    }
+
     /**
      * Returns the number of entries in the given catalogue.
      * 
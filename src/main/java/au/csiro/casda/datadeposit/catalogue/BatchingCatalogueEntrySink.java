@@ -0,0 +1,125 @@
+package au.csiro.casda.datadeposit.catalogue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * CatalogueEntrySink that holds entries until a batch is full and then saves and flushes the whole batch through a JPA
+ * repository. With Hibernate's jdbc.batch_size set, each flush is sent to the database as batched INSERTs rather than
+ * one statement per entry.
+ * <p>
+ * Entries are written within the caller's transaction, so a rollback still discards every batch. If an EntityManager
+ * is set then each batch is also detached from the persistence context once it has been flushed, so that the context
+ * (and the work Hibernate does checking it for changes at each flush) stays the size of one batch however many entries
+ * are written.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ * 
+ * @param <T>
+ *            the catalogue entry type
+ */
+public class BatchingCatalogueEntrySink<T> implements CatalogueEntrySink<T>
+{
+    /**
+     * The batch size used when none is specified.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    private final JpaRepository<T, ?> repository;
+
+    private final int batchSize;
+
+    private final List<T> batch;
+
+    private EntityManager entityManager;
+
+    /**
+     * Constructs a BatchingCatalogueEntrySink with the default batch size.
+     * 
+     * @param repository
+     *            the repository used to save the entries
+     */
+    public BatchingCatalogueEntrySink(JpaRepository<T, ?> repository)
+    {
+        this(repository, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param repository
+     *            the repository used to save the entries
+     * @param batchSize
+     *            the number of entries to hold before they are saved
+     */
+    public BatchingCatalogueEntrySink(JpaRepository<T, ?> repository, int batchSize)
+    {
+        if (batchSize < 1)
+        {
+            throw new IllegalArgumentException("expected batchSize >= 1");
+        }
+        this.repository = repository;
+        this.batchSize = batchSize;
+        this.batch = new ArrayList<>(batchSize);
+    }
+
+    /**
+     * Sets the EntityManager that the entries are detached from once they have been flushed.
+     * 
+     * @param entityManager
+     *            the EntityManager of the caller's transaction, or null to leave the entries managed until the
+     *            transaction completes
+     */
+    public void setEntityManager(EntityManager entityManager)
+    {
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void add(T entry)
+    {
+        batch.add(entry);
+        if (batch.size() >= batchSize)
+        {
+            flush();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void flush()
+    {
+        if (batch.isEmpty())
+        {
+            return;
+        }
+        List<T> saved = repository.save(batch);
+        repository.flush();
+        if (entityManager != null)
+        {
+            saved.forEach(entityManager::detach);
+        }
+        batch.clear();
+    }
+}
@@ -0,0 +1,114 @@
+package au.csiro.casda.datadeposit.catalogue;
+
+import org.apache.commons.lang3.StringUtils;
+
+import au.csiro.casda.datadeposit.AbstractCommandLineArgumentsParser;
+import au.csiro.casda.datadeposit.CommonCommandLineArguments;
+import au.csiro.casda.logging.CasdaMessageBuilder;
+
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.ParameterException;
+import com.beust.jcommander.Parameters;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * Package-level helper class to support command line parameter parsing for CatalogueBatchCommandLineImporter.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+class CatalogueBatchCommandLineArgumentsParser extends
+        AbstractCommandLineArgumentsParser<CatalogueBatchCommandLineArgumentsParser.CommandLineArguments>
+{
+    /**
+     * Describes and holds argument values. See {@link com.beust.jcommander.JCommander}
+     * <p>
+     * Copyright 2016, CSIRO Australia. All rights reserved.
+     */
+    @Parameters(commandDescription = "Import several catalogue data files at the same time")
+    static class CommandLineArguments extends CommonCommandLineArguments
+    {
+        @Parameter(names = "-jobs-file", description = "a file listing the catalogues to import, one per line as "
+                + "'parent-id catalogue-type catalogue-filename [infile [dc-common-id]]'", required = true)
+        private String jobsFile;
+
+        @Parameter(names = "-threads", description = "the number of catalogue files to import at the same time "
+                + "(defaults to catalogue.import.threads)", required = false)
+        private String threads;
+
+        /**
+         * @return the jobs-file argument
+         */
+        public String getJobsFile()
+        {
+            return jobsFile;
+        }
+
+        /**
+         * @return the threads argument (if supplied)
+         */
+        public Integer getThreads()
+        {
+            if (threads == null)
+            {
+                return null;
+            }
+            return Integer.parseInt(threads);
+        }
+    }
+
+    /**
+     * Package-visible Constructor.
+     */
+    CatalogueBatchCommandLineArgumentsParser()
+    {
+        super(CatalogueBatchCommandLineImporter.TOOL_NAME, new CommandLineArguments());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void validate() throws ParameterException
+    {
+        Integer threads;
+        try
+        {
+            threads = getArgs().getThreads();
+        }
+        catch (NumberFormatException e)
+        {
+            throw new ParameterException("Parameter threads must be an integer");
+        }
+        if (threads != null && threads < 1)
+        {
+            throw new ParameterException("Parameter threads must be at least 1");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addArgumentValuesToMalformedParametersEvent(CasdaMessageBuilder<?> builder)
+    {
+        if (StringUtils.isBlank(this.getArgs().getJobsFile()))
+        {
+            builder.add("NOT-SPECIFIED");
+        }
+        else
+        {
+            builder.add(this.getArgs().getJobsFile());
+        }
+    }
+}
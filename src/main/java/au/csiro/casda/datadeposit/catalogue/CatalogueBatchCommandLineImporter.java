@@ -0,0 +1,210 @@
+package au.csiro.casda.datadeposit.catalogue;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Import;
+
+import au.csiro.casda.AppConfig;
+import au.csiro.casda.datadeposit.ArgumentsDrivenCommandLineTool;
+import au.csiro.casda.datadeposit.DataDepositMessageBuilder;
+import au.csiro.casda.datadeposit.JobFileReader;
+import au.csiro.casda.datadeposit.ParallelJobRunner;
+import au.csiro.casda.datadeposit.catalogue.CatalogueBatchCommandLineArgumentsParser.CommandLineArguments;
+import au.csiro.casda.entity.observation.Catalogue;
+import au.csiro.casda.logging.DataLocation;
+import au.csiro.logging.CasdaDataDepositEvents;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * Command line tool that imports a list of catalogue files (see {@link CatalogueImportJob}), several at the same
+ * time, as if each had been imported by {@link CatalogueCommandLineImporter}.
+ * <p>
+ * Each file is parsed on a thread of a bounded pool by its own CatalogueParser (and so its own visitor), in its own
+ * transaction, with the database connections shared through the application's connection pool. The number of threads
+ * should therefore be kept below the size of the connection pool. The outcome of each file is logged with the same
+ * events as catalogue_import, and the tool exits with a failure code if any of the files could not be imported.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+@Import(AppConfig.class)
+public class CatalogueBatchCommandLineImporter extends
+        ArgumentsDrivenCommandLineTool<CatalogueBatchCommandLineArgumentsParser.CommandLineArguments>
+{
+    /**
+     * The name of this tool.
+     */
+    public static final String TOOL_NAME = "catalogue_batch_import";
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogueBatchCommandLineImporter.class);
+
+    private CatalogueBatchCommandLineArgumentsParser commandLineArgumentsParser =
+            new CatalogueBatchCommandLineArgumentsParser();
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Value("${catalogue.import.threads}")
+    private int defaultThreads;
+
+    /**
+     * main method used to run this CommandLineImporter
+     *
+     * @param args
+     *            the command-line arguments
+     */
+    public static void main(String[] args)
+    {
+        runCommandLineTool(CatalogueBatchCommandLineImporter.class, logger, args);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run(String... args)
+    {
+        parseCommandLineArguments(logger, args);
+
+        CommandLineArguments arguments = commandLineArgumentsParser.getArgs();
+        int threads = arguments.getThreads() == null ? defaultThreads : arguments.getThreads();
+
+        List<CatalogueImportJob> jobs;
+        try
+        {
+            jobs = JobFileReader.readJobs(new File(arguments.getJobsFile()), CatalogueImportJob::parse);
+        }
+        catch (IOException | IllegalArgumentException e)
+        {
+            logger.error(
+                    CasdaDataDepositEvents.E055.messageBuilder().add(arguments.getJobsFile())
+                            .add(String.join(" ", args)).toString(), e);
+            System.exit(1);
+            return;
+        }
+
+        int failures = importCatalogues(jobs, threads);
+        logger.info("Imported {} of {} catalogue files listed in {}", jobs.size() - failures, jobs.size(),
+                arguments.getJobsFile());
+
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    /**
+     * Imports the given catalogue files, using up to the given number of threads, logging the outcome of each.
+     *
+     * @param jobs
+     *            the catalogue files to import
+     * @param threads
+     *            the maximum number of files to import at the same time
+     * @return the number of files that could not be imported
+     */
+    int importCatalogues(List<CatalogueImportJob> jobs, int threads)
+    {
+        List<Boolean> imported = ParallelJobRunner.runAll(jobs, threads, this::importCatalogue, (job, e) -> false);
+        return (int) imported.stream().filter(succeeded -> !succeeded).count();
+    }
+
+    /*
+     * Imports a single catalogue file, logging the outcome in the same way as CatalogueCommandLineImporter.
+     */
+    private boolean importCatalogue(CatalogueImportJob job)
+    {
+        Instant startTime = Instant.now();
+        CatalogueType catalogueType = job.getCatalogueType();
+        CatalogueParser parser = createParserForCatalogueType(catalogueType);
+        Catalogue catalogue;
+        try
+        {
+            catalogue = parser.parseFile(job.getParentId(), job.getCatalogueFilename(), job.getInfile(),
+                    CatalogueParser.Mode.NORMAL, job.getDcCommonId());
+        }
+        catch (FileNotFoundException e)
+        {
+            logger.error(CasdaDataDepositEvents.E056.messageBuilder().add(catalogueType.getDescription())
+                    .add(job.getInfile()).add(job.toString()).toString(), e);
+            return false;
+        }
+        catch (CatalogueParser.MalformedFileException e)
+        {
+            logger.error(CasdaDataDepositEvents.E057.messageBuilder().add(catalogueType.getDescription())
+                    .add(job.getInfile()).add(job.toString()).toString(), e);
+            return false;
+        }
+        catch (CatalogueParser.DatabaseException e)
+        {
+            logger.error(CasdaDataDepositEvents.E058.messageBuilder().add(catalogueType.getDescription())
+                    .add(job.getInfile()).add(job.toString()).toString(), e);
+            return false;
+        }
+        catch (CatalogueParser.ValidationModeSignal s)
+        {
+            throw new RuntimeException("ValidationModeSignal received when not in validation-only mode.", s);
+        }
+        Instant endTime = Instant.now();
+
+        DataDepositMessageBuilder messageBuilder = CasdaDataDepositEvents.E059.messageBuilder() //
+                .add(catalogueType.getDescription()) //
+                .add(job.getInfile()) //
+                .addStartTime(startTime) //
+                .addEndTime(endTime) //
+                .addSource(DataLocation.RTC) //
+                .addDestination(DataLocation.CASDA_DB) //
+                .addVolumeBytes(FileUtils.sizeOf(new File(job.getInfile()))) //
+                .addFileId(catalogue.getFileId());
+        logger.info(messageBuilder.toString());
+        return true;
+    }
+
+    /**
+     * Factory method that returns a new CatalogueParser implementation for the given CatalogueType. A new parser is
+     * created for every file so that no parsing state is shared between threads. (This method exists primarily to
+     * facilitate testing.)
+     *
+     * @param catalogueType
+     *            a CatalogueType
+     * @return a CatalogueParser
+     */
+    protected CatalogueParser createParserForCatalogueType(CatalogueType catalogueType)
+    {
+        return catalogueType.createParser(context);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CatalogueBatchCommandLineArgumentsParser getCommandLineArgumentsParser()
+    {
+        return commandLineArgumentsParser;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected CasdaDataDepositEvents getMalformedParametersEvent()
+    {
+        return CasdaDataDepositEvents.E055;
+    }
+}
@@ -0,0 +1,38 @@
+package au.csiro.casda.datadeposit.catalogue;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * Destination for the catalogue entries (eg: continuum components, validation metric values) created from the rows of a
+ * VOTABLE. Implementations may write entries as they are added or hold them until {@link #flush()} is called.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ * 
+ * @param <T>
+ *            the catalogue entry type
+ */
+public interface CatalogueEntrySink<T>
+{
+    /**
+     * Adds an entry to the sink.
+     * 
+     * @param entry
+     *            the catalogue entry
+     */
+    public void add(T entry);
+
+    /**
+     * Writes any entries that are being held by the sink.
+     */
+    public void flush();
+}
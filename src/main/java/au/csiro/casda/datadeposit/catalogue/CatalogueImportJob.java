@@ -0,0 +1,144 @@
+package au.csiro.casda.datadeposit.catalogue;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * A single catalogue file to be imported by {@link CatalogueBatchCommandLineImporter}, ie: the values that would
+ * otherwise be given to {@link CatalogueCommandLineImporter} on the command line.
+ * <p>
+ * A jobs file has one job per line, made up of the following whitespace separated values:
+ *
+ * <pre>
+ * parent-id catalogue-type catalogue-filename [infile [dc-common-id]]
+ * </pre>
+ *
+ * where the catalogue-type is written as for the catalogue_import tool (eg: continuum-component) and the infile
+ * defaults to the catalogue-filename. Blank lines and lines starting with '#' are ignored.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+class CatalogueImportJob
+{
+    private final Integer parentId;
+
+    private final CatalogueType catalogueType;
+
+    private final String catalogueFilename;
+
+    private final String infile;
+
+    private final Integer dcCommonId;
+
+    /**
+     * Constructor
+     *
+     * @param parentId
+     *            the scheduling block id of the Observation, or the Level 7 Collection id
+     * @param catalogueType
+     *            the kind of catalogue to import
+     * @param catalogueFilename
+     *            the filename of the catalogue file (used for looking up the catalogue)
+     * @param infile
+     *            the catalogue data file to import
+     * @param dcCommonId
+     *            the base collection id shared by all versions of a data collection (may be null)
+     */
+    CatalogueImportJob(Integer parentId, CatalogueType catalogueType, String catalogueFilename, String infile,
+            Integer dcCommonId)
+    {
+        this.parentId = parentId;
+        this.catalogueType = catalogueType;
+        this.catalogueFilename = catalogueFilename;
+        this.infile = infile;
+        this.dcCommonId = dcCommonId;
+    }
+
+    /**
+     * Parses a single line of a jobs file.
+     *
+     * @param line
+     *            the line
+     * @return the job
+     * @throws IllegalArgumentException
+     *             if the line is not a valid job
+     */
+    static CatalogueImportJob parse(String line)
+    {
+        String[] values = line.trim().split("\\s+");
+        if (values.length < 3 || values.length > 5)
+        {
+            throw new IllegalArgumentException("expected 'parent-id catalogue-type catalogue-filename "
+                    + "[infile [dc-common-id]]' but was '" + line.trim() + "'");
+        }
+        Integer parentId = parseInteger("parent-id", values[0]);
+        CatalogueType catalogueType;
+        try
+        {
+            catalogueType = CatalogueType.valueOf(values[1].toUpperCase().replace("-", "_"));
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new IllegalArgumentException("unknown catalogue-type '" + values[1] + "'");
+        }
+        String infile = values.length > 3 ? values[3] : values[2];
+        Integer dcCommonId = values.length > 4 ? parseInteger("dc-common-id", values[4]) : null;
+        return new CatalogueImportJob(parentId, catalogueType, values[2], infile, dcCommonId);
+    }
+
+    private static Integer parseInteger(String name, String value)
+    {
+        try
+        {
+            return Integer.parseInt(value);
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IllegalArgumentException(name + " must be an integer but was '" + value + "'");
+        }
+    }
+
+    public Integer getParentId()
+    {
+        return parentId;
+    }
+
+    public CatalogueType getCatalogueType()
+    {
+        return catalogueType;
+    }
+
+    public String getCatalogueFilename()
+    {
+        return catalogueFilename;
+    }
+
+    public String getInfile()
+    {
+        return infile;
+    }
+
+    public Integer getDcCommonId()
+    {
+        return dcCommonId;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return String.join(" ", String.valueOf(parentId), catalogueType.toString().toLowerCase().replace("_", "-"),
+                catalogueFilename, infile) + (dcCommonId == null ? "" : " " + dcCommonId);
+    }
+}
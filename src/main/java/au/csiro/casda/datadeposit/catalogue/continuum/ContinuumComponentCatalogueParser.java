@@ -1,6 +1,7 @@
 package au.csiro.casda.datadeposit.catalogue.continuum;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
@@ -66,12 +67,16 @@ public class ContinuumComponentCatalogueParser extends AbstractCatalogueParser<C
      * @param continuumComponentRepository
      *            a ContinuumComponentRepository to be used to manage the persistent ContinuumComponents associated with
      *            the parsed catalogue
+     * @param batchSize
+     *            the number of ContinuumComponent records to save in each batch
      */
     @Autowired
     public ContinuumComponentCatalogueParser(ObservationRepository observationRepository,
-            CatalogueRepository catalogueRepository, ContinuumComponentRepository continuumComponentRepository)
+            CatalogueRepository catalogueRepository, ContinuumComponentRepository continuumComponentRepository,
+            @Value("${catalogue.entry.batch.size}") int batchSize)
     {
         super(catalogueRepository, observationRepository, 
-                new ContinuumComponentVoTableVisitor(continuumComponentRepository), continuumComponentRepository);
+                new ContinuumComponentVoTableVisitor(continuumComponentRepository, batchSize),
+                continuumComponentRepository);
     }
 }
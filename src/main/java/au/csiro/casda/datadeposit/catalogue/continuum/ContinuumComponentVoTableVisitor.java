@@ -9,11 +9,15 @@ import java.util.Optional;
 import java.util.function.BiConsumer;
 
 import au.csiro.casda.datadeposit.catalogue.AbstractCatalogueVoTableVisitor;
+import au.csiro.casda.datadeposit.catalogue.BatchingCatalogueEntrySink;
+import au.csiro.casda.datadeposit.catalogue.CatalogueEntrySink;
 import au.csiro.casda.datadeposit.observation.jpa.repository.ContinuumComponentRepository;
 import au.csiro.casda.datadeposit.votable.parser.VisitableVoTableField;
 import au.csiro.casda.datadeposit.votable.parser.VisitableVoTableParam;
 import au.csiro.casda.datadeposit.votable.parser.FieldConstraint;
+import au.csiro.casda.datadeposit.votable.parser.FieldValueAppliers;
 import au.csiro.casda.datadeposit.votable.parser.ParamConstraint;
+import au.csiro.casda.datadeposit.votable.parser.ParsedVoTableRow;
 import au.csiro.casda.entity.observation.Catalogue;
 import au.csiro.casda.entity.observation.Observation;
 import au.csiro.casda.entity.sourcedetect.ContinuumComponent;
@@ -53,78 +57,85 @@ public class ContinuumComponentVoTableVisitor extends AbstractCatalogueVoTableVi
         loadConstraintsFile(CONTINUUM_METADATA_RESOURCE_PATH, PARAM_CONSTRAINTS, FIELD_CONSTRAINTS);
     }
 
-    private static final Map<String, BiConsumer<ContinuumComponent, String>> APPLIERS;
+    private static final Map<String, BiConsumer<ContinuumComponent, Object>> APPLIERS;
     static
     {
         APPLIERS = new HashMap<>();
-        APPLIERS.put("island_id", (continuumComponent, value) -> continuumComponent.setIslandId(value));
-        APPLIERS.put("component_id", (continuumComponent, value) -> continuumComponent.setComponentId(value));
-        APPLIERS.put("component_name", (continuumComponent, value) -> continuumComponent.setComponentName(value));
-        APPLIERS.put("ra_hms_cont", (continuumComponent, value) -> continuumComponent.setRaHmsCont(value));
-        APPLIERS.put("dec_dms_cont", (continuumComponent, value) -> continuumComponent.setDecDmsCont(value));
+        APPLIERS.put("island_id", (continuumComponent, value) -> continuumComponent.setIslandId(stringValue(value)));
+        APPLIERS.put("component_id",
+                (continuumComponent, value) -> continuumComponent.setComponentId(stringValue(value)));
+        APPLIERS.put("component_name",
+                (continuumComponent, value) -> continuumComponent.setComponentName(stringValue(value)));
+        APPLIERS.put("ra_hms_cont", (continuumComponent, value) -> continuumComponent.setRaHmsCont(stringValue(value)));
+        APPLIERS.put("dec_dms_cont",
+                (continuumComponent, value) -> continuumComponent.setDecDmsCont(stringValue(value)));
         APPLIERS.put("ra_deg_cont",
-                (continuumComponent, value) -> continuumComponent.setRaDegCont(Double.parseDouble(value)));
+                (continuumComponent, value) -> continuumComponent.setRaDegCont(doubleValue(value)));
         APPLIERS.put("dec_deg_cont",
-                (continuumComponent, value) -> continuumComponent.setDecDegCont(Double.parseDouble(value)));
-        APPLIERS.put("ra_err", (continuumComponent, value) -> continuumComponent.setRaErr(Float.parseFloat(value)));
-        APPLIERS.put("dec_err", (continuumComponent, value) -> continuumComponent.setDecErr(Float.parseFloat(value)));
-        APPLIERS.put("freq", (continuumComponent, value) -> continuumComponent.setFreq(Float.parseFloat(value)));
+                (continuumComponent, value) -> continuumComponent.setDecDegCont(doubleValue(value)));
+        APPLIERS.put("ra_err", (continuumComponent, value) -> continuumComponent.setRaErr(floatValue(value)));
+        APPLIERS.put("dec_err", (continuumComponent, value) -> continuumComponent.setDecErr(floatValue(value)));
+        APPLIERS.put("freq", (continuumComponent, value) -> continuumComponent.setFreq(floatValue(value)));
         APPLIERS.put("flux_peak",
-                (continuumComponent, value) -> continuumComponent.setFluxPeak(Float.parseFloat(value)));
+                (continuumComponent, value) -> continuumComponent.setFluxPeak(floatValue(value)));
         APPLIERS.put("flux_peak_err",
-                (continuumComponent, value) -> continuumComponent.setFluxPeakErr(Float.parseFloat(value)));
-        APPLIERS.put("flux_int", (continuumComponent, value) -> continuumComponent.setFluxInt(Float.parseFloat(value)));
+                (continuumComponent, value) -> continuumComponent.setFluxPeakErr(floatValue(value)));
+        APPLIERS.put("flux_int", (continuumComponent, value) -> continuumComponent.setFluxInt(floatValue(value)));
         APPLIERS.put("flux_int_err",
-                (continuumComponent, value) -> continuumComponent.setFluxIntErr(Float.parseFloat(value)));
-        APPLIERS.put("maj_axis", (continuumComponent, value) -> continuumComponent.setMajAxis(Float.parseFloat(value)));
-        APPLIERS.put("min_axis", (continuumComponent, value) -> continuumComponent.setMinAxis(Float.parseFloat(value)));
-        APPLIERS.put("pos_ang", (continuumComponent, value) -> continuumComponent.setPosAng(Float.parseFloat(value)));
+                (continuumComponent, value) -> continuumComponent.setFluxIntErr(floatValue(value)));
+        APPLIERS.put("maj_axis", (continuumComponent, value) -> continuumComponent.setMajAxis(floatValue(value)));
+        APPLIERS.put("min_axis", (continuumComponent, value) -> continuumComponent.setMinAxis(floatValue(value)));
+        APPLIERS.put("pos_ang", (continuumComponent, value) -> continuumComponent.setPosAng(floatValue(value)));
         APPLIERS.put("maj_axis_err",
-                (continuumComponent, value) -> continuumComponent.setMajAxisErr(Float.parseFloat(value)));
+                (continuumComponent, value) -> continuumComponent.setMajAxisErr(floatValue(value)));
         APPLIERS.put("min_axis_err",
-                (continuumComponent, value) -> continuumComponent.setMinAxisErr(Float.parseFloat(value)));
+                (continuumComponent, value) -> continuumComponent.setMinAxisErr(floatValue(value)));
         APPLIERS.put("pos_ang_err",
-                (continuumComponent, value) -> continuumComponent.setPosAngErr(Float.parseFloat(value)));
+                (continuumComponent, value) -> continuumComponent.setPosAngErr(floatValue(value)));
         APPLIERS.put("maj_axis_deconv",
-                (continuumComponent, value) -> continuumComponent.setMajAxisDeconv(Float.parseFloat(value)));
+                (continuumComponent, value) -> continuumComponent.setMajAxisDeconv(floatValue(value)));
         APPLIERS.put("min_axis_deconv",
-                (continuumComponent, value) -> continuumComponent.setMinAxisDeconv(Float.parseFloat(value)));
+                (continuumComponent, value) -> continuumComponent.setMinAxisDeconv(floatValue(value)));
         APPLIERS.put("pos_ang_deconv",
-                (continuumComponent, value) -> continuumComponent.setPosAngDeconv(Float.parseFloat(value)));
+                (continuumComponent, value) -> continuumComponent.setPosAngDeconv(floatValue(value)));
         APPLIERS.put("maj_axis_deconv_err",
-                (continuumComponent, value) -> continuumComponent.setMajAxisDeconvErr(Float.parseFloat(value)));
+                (continuumComponent, value) -> continuumComponent.setMajAxisDeconvErr(floatValue(value)));
         APPLIERS.put("min_axis_deconv_err",
-                (continuumComponent, value) -> continuumComponent.setMinAxisDeconvErr(Float.parseFloat(value)));
+                (continuumComponent, value) -> continuumComponent.setMinAxisDeconvErr(floatValue(value)));
         APPLIERS.put("pos_ang_deconv_err",
-                (continuumComponent, value) -> continuumComponent.setPosAngDeconvErr(Float.parseFloat(value)));
+                (continuumComponent, value) -> continuumComponent.setPosAngDeconvErr(floatValue(value)));
         APPLIERS.put("chi_squared_fit",
-                (continuumComponent, value) -> continuumComponent.setChiSquaredFit(Float.parseFloat(value)));
+                (continuumComponent, value) -> continuumComponent.setChiSquaredFit(floatValue(value)));
         APPLIERS.put("rms_fit_gauss",
-                (continuumComponent, value) -> continuumComponent.setRmsFitGauss(Float.parseFloat(value)));
+                (continuumComponent, value) -> continuumComponent.setRmsFitGauss(floatValue(value)));
         APPLIERS.put("spectral_index",
-                (continuumComponent, value) -> continuumComponent.setSpectralIndex(Float.parseFloat(value)));
+                (continuumComponent, value) -> continuumComponent.setSpectralIndex(floatValue(value)));
         APPLIERS.put("spectral_curvature",
-                (continuumComponent, value) -> continuumComponent.setSpectralCurvature(Float.parseFloat(value)));
+                (continuumComponent, value) -> continuumComponent.setSpectralCurvature(floatValue(value)));
         APPLIERS.put("spectral_index_err",
-                (continuumComponent, value) -> continuumComponent.setSpectralIndexErr(Float.parseFloat(value)));
+                (continuumComponent, value) -> continuumComponent.setSpectralIndexErr(floatValue(value)));
         APPLIERS.put("spectral_curvature_err",
-                (continuumComponent, value) -> continuumComponent.setSpectralCurvatureErr(Float.parseFloat(value)));
+                (continuumComponent, value) -> continuumComponent.setSpectralCurvatureErr(floatValue(value)));
         APPLIERS.put("rms_image",
-                (continuumComponent, value) -> continuumComponent.setRmsImage(Float.parseFloat(value)));
+                (continuumComponent, value) -> continuumComponent.setRmsImage(floatValue(value)));
         APPLIERS.put("has_siblings", 
-                (continuumComponent, value) -> continuumComponent.setHasSiblings(Short.parseShort(value)));
+                (continuumComponent, value) -> continuumComponent.setHasSiblings(shortValue(value)));
         APPLIERS.put("fit_is_estimate", 
-                (continuumComponent, value) -> continuumComponent.setFitIsEstimate(Short.parseShort(value)));
+                (continuumComponent, value) -> continuumComponent.setFitIsEstimate(shortValue(value)));
         // We have two aliases for the flag_c3 field for backwards compatibility
-        APPLIERS.put("flag_c3", (continuumComponent, value) -> continuumComponent.setFlagC3(Short.parseShort(value)));
+        APPLIERS.put("flag_c3", (continuumComponent, value) -> continuumComponent.setFlagC3(shortValue(value)));
         APPLIERS.put("spectral_index_from_tt",
-                (continuumComponent, value) -> continuumComponent.setFlagC3(Short.parseShort(value)));
-        APPLIERS.put("flag_c4", (continuumComponent, value) -> continuumComponent.setFlagC4(Short.parseShort(value)));
-        APPLIERS.put("comment", (continuumComponent, value) -> continuumComponent.setComment(value));
+                (continuumComponent, value) -> continuumComponent.setFlagC3(shortValue(value)));
+        APPLIERS.put("flag_c4", (continuumComponent, value) -> continuumComponent.setFlagC4(shortValue(value)));
+        APPLIERS.put("comment", (continuumComponent, value) -> continuumComponent.setComment(stringValue(value)));
     }
 
+    private final FieldValueAppliers<ContinuumComponent> appliers = new FieldValueAppliers<>(APPLIERS);
+
     private ContinuumComponentRepository continuumComponentRepository;
 
+    private CatalogueEntrySink<ContinuumComponent> continuumComponentSink;
+
     /**
      * Constructs a ContinuumComponentVoTableVisitor that uses the given ContinuumComponentRepository to perform any
      * operations associated with ContinuumComponent persistence.
@@ -133,8 +144,23 @@ public class ContinuumComponentVoTableVisitor extends AbstractCatalogueVoTableVi
      *            a ContinuumComponentRepository
      */
     public ContinuumComponentVoTableVisitor(ContinuumComponentRepository continuumComponentRepository)
+    {
+        this(continuumComponentRepository, BatchingCatalogueEntrySink.DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructs a ContinuumComponentVoTableVisitor that uses the given ContinuumComponentRepository to perform any
+     * operations associated with ContinuumComponent persistence.
+     * 
+     * @param continuumComponentRepository
+     *            a ContinuumComponentRepository
+     * @param batchSize
+     *            the number of ContinuumComponent records to save in each batch
+     */
+    public ContinuumComponentVoTableVisitor(ContinuumComponentRepository continuumComponentRepository, int batchSize)
     {
         this.continuumComponentRepository = continuumComponentRepository;
+        this.continuumComponentSink = createCatalogueEntrySink(continuumComponentRepository, batchSize);
     }
 
     /**
@@ -165,8 +191,8 @@ public class ContinuumComponentVoTableVisitor extends AbstractCatalogueVoTableVi
 
     /**
      * Implementation of template method
-     * {@link au.csiro.casda.datadeposit.votable.parser.AbstractVoTableElementVisitor#processFields(Map)} that doesn't
-     * do much right now.
+     * {@link au.csiro.casda.datadeposit.votable.parser.AbstractVoTableElementVisitor#processFields(List)} that
+     * looks up the appliers for the fields, so that each row can be applied by field ordinal.
      * 
      * @param fields
      *            a list of the Fields in the VOTABLE
@@ -175,35 +201,27 @@ public class ContinuumComponentVoTableVisitor extends AbstractCatalogueVoTableVi
     protected void processFields(List<VisitableVoTableField> fields)
     {
         // We don't really care about the fields as long as they match the defined ones.
+        // Look up the appliers once, so that each row can be applied by field ordinal.
+        this.appliers.compile(fields);
     }
 
     /**
      * Implementation of template method
-     * {@link au.csiro.casda.datadeposit.votable.parser.AbstractVoTableElementVisitor#processRow(Map)} that creates and
-     * saves a ContinuumComponent instance for the provided VoTable row.
+     * {@link au.csiro.casda.datadeposit.votable.parser.AbstractVoTableElementVisitor#processRow(ParsedVoTableRow)} that
+     * creates and saves a ContinuumComponent instance for the provided VoTable row.
      * 
      * @param row
-     *            a Map of the Tds in a VOTABLE row, keyed by their corresponding Field
+     *            the parsed cells of a VOTABLE row
      */
     @Override
-    protected void processRow(Map<VisitableVoTableField, String> row)
+    protected void processRow(ParsedVoTableRow row)
     {
         ContinuumComponent continuumComponent = new ContinuumComponent();
         continuumComponent.setCatalogue(getCatalogue());
         continuumComponent.setSbid(((Observation) getCatalogue().getParent()).getSbid());
         continuumComponent.setOtherSbids(formatOtherSbids(((Observation) getCatalogue().getParent()).getSbids()));
         continuumComponent.setProjectId(getCatalogue().getProject().getId());
-        for (VisitableVoTableField field : row.keySet())
-        {
-            if (row.get(field) != null)
-            {
-                BiConsumer<ContinuumComponent, String> applier = APPLIERS.get(field.getName());
-                if (applier != null) // Not all fields will be written to the ContinuumComponent
-                {
-                    applier.accept(continuumComponent, row.get(field));
-                }
-            }
-        }
+        this.appliers.apply(continuumComponent, row);
         
         double wavelen = AstroConversion.frequencyMhzToWavelength(continuumComponent.getFreq());
         Catalogue catalogue = getCatalogue();
@@ -216,7 +234,18 @@ public class ContinuumComponentVoTableVisitor extends AbstractCatalogueVoTableVi
             catalogue.setEmMax(wavelen);
         }
         
-        this.continuumComponentRepository.save(continuumComponent);
+        this.continuumComponentSink.add(continuumComponent);
+    }
+
+    /**
+     * Implementation of template method
+     * {@link au.csiro.casda.datadeposit.votable.parser.AbstractVoTableElementVisitor#processEnd()} that saves any
+     * ContinuumComponent records still waiting to be written.
+     */
+    @Override
+    protected void processEnd()
+    {
+        this.continuumComponentSink.flush();
     }
 
     @Override
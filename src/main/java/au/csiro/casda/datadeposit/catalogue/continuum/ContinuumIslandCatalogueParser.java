@@ -1,6 +1,7 @@
 package au.csiro.casda.datadeposit.catalogue.continuum;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
@@ -66,13 +67,16 @@ public class ContinuumIslandCatalogueParser extends AbstractCatalogueParser<Cont
      * @param continuumIslandRepository
      *            a ContinuumIslandRepository to be used to manage the persistent ContinuumIslands associated with
      *            the parsed catalogue
+     * @param batchSize
+     *            the number of ContinuumIsland records to save in each batch
      */
     @Autowired
     public ContinuumIslandCatalogueParser(ObservationRepository observationRepository,
-            CatalogueRepository catalogueRepository, ContinuumIslandRepository continuumIslandRepository)
+            CatalogueRepository catalogueRepository, ContinuumIslandRepository continuumIslandRepository,
+            @Value("${catalogue.entry.batch.size}") int batchSize)
     {
         super(catalogueRepository, observationRepository, 
-                new ContinuumIslandVoTableVisitor(continuumIslandRepository), continuumIslandRepository);
+                new ContinuumIslandVoTableVisitor(continuumIslandRepository, batchSize), continuumIslandRepository);
     }
 
 }
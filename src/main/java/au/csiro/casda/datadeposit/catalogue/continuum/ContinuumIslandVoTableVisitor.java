@@ -7,10 +7,14 @@ import java.util.Map;
 import java.util.function.BiConsumer;
 
 import au.csiro.casda.datadeposit.catalogue.AbstractCatalogueVoTableVisitor;
+import au.csiro.casda.datadeposit.catalogue.BatchingCatalogueEntrySink;
+import au.csiro.casda.datadeposit.catalogue.CatalogueEntrySink;
 import au.csiro.casda.datadeposit.observation.jpa.repository.ContinuumIslandRepository;
 import au.csiro.casda.datadeposit.votable.parser.VisitableVoTableField;
 import au.csiro.casda.datadeposit.votable.parser.FieldConstraint;
+import au.csiro.casda.datadeposit.votable.parser.FieldValueAppliers;
 import au.csiro.casda.datadeposit.votable.parser.ParamConstraint;
+import au.csiro.casda.datadeposit.votable.parser.ParsedVoTableRow;
 import au.csiro.casda.entity.observation.Catalogue;
 import au.csiro.casda.entity.observation.Observation;
 import au.csiro.casda.entity.sourcedetect.ContinuumIsland;
@@ -50,64 +54,68 @@ public class ContinuumIslandVoTableVisitor extends AbstractCatalogueVoTableVisit
         loadConstraintsFile(CONTINUUM_CONSTRAINTS_RESOURCE_PATH, PARAM_CONSTRAINTS, FIELD_CONSTRAINTS);
     }
 
-    private static final Map<String, BiConsumer<ContinuumIsland, String>> APPLIERS;
+    private static final Map<String, BiConsumer<ContinuumIsland, Object>> APPLIERS;
     static
     {
         APPLIERS = new HashMap<>();
-        APPLIERS.put("island_id", (continuumIsland, value) -> continuumIsland.setIslandId(value));
-        APPLIERS.put("island_name", (continuumIsland, value) -> continuumIsland.setIslandName(value));
+        APPLIERS.put("island_id", (continuumIsland, value) -> continuumIsland.setIslandId(stringValue(value)));
+        APPLIERS.put("island_name", (continuumIsland, value) -> continuumIsland.setIslandName(stringValue(value)));
         APPLIERS.put("n_components",
-                (continuumIsland, value) -> continuumIsland.setNumberComponents(Integer.parseInt(value)));
-        APPLIERS.put("ra_hms_cont", (continuumIsland, value) -> continuumIsland.setRaHmsCont(value));
-        APPLIERS.put("dec_dms_cont", (continuumIsland, value) -> continuumIsland.setDecDmsCont(value));
-        APPLIERS.put("ra_deg_cont", (continuumIsland, value) -> continuumIsland.setRaDegCont(Double.parseDouble(value)));
+                (continuumIsland, value) -> continuumIsland.setNumberComponents(intValue(value)));
+        APPLIERS.put("ra_hms_cont", (continuumIsland, value) -> continuumIsland.setRaHmsCont(stringValue(value)));
+        APPLIERS.put("dec_dms_cont", (continuumIsland, value) -> continuumIsland.setDecDmsCont(stringValue(value)));
+        APPLIERS.put("ra_deg_cont", (continuumIsland, value) -> continuumIsland.setRaDegCont(doubleValue(value)));
         APPLIERS.put("dec_deg_cont",
-                (continuumIsland, value) -> continuumIsland.setDecDegCont(Double.parseDouble(value)));
-        APPLIERS.put("freq", (continuumIsland, value) -> continuumIsland.setFreq(Float.parseFloat(value)));
-        APPLIERS.put("maj_axis", (continuumIsland, value) -> continuumIsland.setMajAxis(Float.parseFloat(value)));
-        APPLIERS.put("min_axis", (continuumIsland, value) -> continuumIsland.setMinAxis(Float.parseFloat(value)));
-        APPLIERS.put("pos_ang", (continuumIsland, value) -> continuumIsland.setPosAng(Float.parseFloat(value)));
-        APPLIERS.put("flux_int", (continuumIsland, value) -> continuumIsland.setFluxInt(Float.parseFloat(value)));
-        APPLIERS.put("flux_int_err", (continuumIsland, value) -> continuumIsland.setFluxIntErr(Float.parseFloat(value)));
-        APPLIERS.put("flux_peak", (continuumIsland, value) -> continuumIsland.setFluxPeak(Float.parseFloat(value)));
+                (continuumIsland, value) -> continuumIsland.setDecDegCont(doubleValue(value)));
+        APPLIERS.put("freq", (continuumIsland, value) -> continuumIsland.setFreq(floatValue(value)));
+        APPLIERS.put("maj_axis", (continuumIsland, value) -> continuumIsland.setMajAxis(floatValue(value)));
+        APPLIERS.put("min_axis", (continuumIsland, value) -> continuumIsland.setMinAxis(floatValue(value)));
+        APPLIERS.put("pos_ang", (continuumIsland, value) -> continuumIsland.setPosAng(floatValue(value)));
+        APPLIERS.put("flux_int", (continuumIsland, value) -> continuumIsland.setFluxInt(floatValue(value)));
+        APPLIERS.put("flux_int_err", (continuumIsland, value) -> continuumIsland.setFluxIntErr(floatValue(value)));
+        APPLIERS.put("flux_peak", (continuumIsland, value) -> continuumIsland.setFluxPeak(floatValue(value)));
         APPLIERS.put("mean_background",
-                (continuumIsland, value) -> continuumIsland.setMeanBackground(Float.parseFloat(value)));
+                (continuumIsland, value) -> continuumIsland.setMeanBackground(floatValue(value)));
         APPLIERS.put("background_noise",
-                (continuumIsland, value) -> continuumIsland.setBackgroundNoise(Float.parseFloat(value)));
+                (continuumIsland, value) -> continuumIsland.setBackgroundNoise(floatValue(value)));
         APPLIERS.put("max_residual",
-                (continuumIsland, value) -> continuumIsland.setMaxResidual(Float.parseFloat(value)));
+                (continuumIsland, value) -> continuumIsland.setMaxResidual(floatValue(value)));
         APPLIERS.put("min_residual",
-                (continuumIsland, value) -> continuumIsland.setMinResidual(Float.parseFloat(value)));
+                (continuumIsland, value) -> continuumIsland.setMinResidual(floatValue(value)));
         APPLIERS.put("mean_residual",
-                (continuumIsland, value) -> continuumIsland.setMeanResidual(Float.parseFloat(value)));
+                (continuumIsland, value) -> continuumIsland.setMeanResidual(floatValue(value)));
         APPLIERS.put("rms_residual",
-                (continuumIsland, value) -> continuumIsland.setRmsResidual(Float.parseFloat(value)));
+                (continuumIsland, value) -> continuumIsland.setRmsResidual(floatValue(value)));
         APPLIERS.put("stddev_residual",
-                (continuumIsland, value) -> continuumIsland.setStddevResidual(Float.parseFloat(value)));
-        APPLIERS.put("x_min", (continuumIsland, value) -> continuumIsland.setXMin(Integer.parseInt(value)));
-        APPLIERS.put("x_max", (continuumIsland, value) -> continuumIsland.setXMax(Integer.parseInt(value)));
-        APPLIERS.put("y_min", (continuumIsland, value) -> continuumIsland.setYMin(Integer.parseInt(value)));
-        APPLIERS.put("y_max", (continuumIsland, value) -> continuumIsland.setYMax(Integer.parseInt(value)));
-        APPLIERS.put("n_pix", (continuumIsland, value) -> continuumIsland.setNumPixels(Integer.parseInt(value)));
-        APPLIERS.put("x_ave", (continuumIsland, value) -> continuumIsland.setXAve(Float.parseFloat(value)));
-        APPLIERS.put("y_ave", (continuumIsland, value) -> continuumIsland.setYAve(Float.parseFloat(value)));
-        APPLIERS.put("x_cen", (continuumIsland, value) -> continuumIsland.setXCen(Float.parseFloat(value)));
-        APPLIERS.put("y_cen", (continuumIsland, value) -> continuumIsland.setYCen(Float.parseFloat(value)));
-        APPLIERS.put("x_peak", (continuumIsland, value) -> continuumIsland.setXPeak(Integer.parseInt(value)));
-        APPLIERS.put("y_peak", (continuumIsland, value) -> continuumIsland.setYPeak(Integer.parseInt(value)));
+                (continuumIsland, value) -> continuumIsland.setStddevResidual(floatValue(value)));
+        APPLIERS.put("x_min", (continuumIsland, value) -> continuumIsland.setXMin(intValue(value)));
+        APPLIERS.put("x_max", (continuumIsland, value) -> continuumIsland.setXMax(intValue(value)));
+        APPLIERS.put("y_min", (continuumIsland, value) -> continuumIsland.setYMin(intValue(value)));
+        APPLIERS.put("y_max", (continuumIsland, value) -> continuumIsland.setYMax(intValue(value)));
+        APPLIERS.put("n_pix", (continuumIsland, value) -> continuumIsland.setNumPixels(intValue(value)));
+        APPLIERS.put("x_ave", (continuumIsland, value) -> continuumIsland.setXAve(floatValue(value)));
+        APPLIERS.put("y_ave", (continuumIsland, value) -> continuumIsland.setYAve(floatValue(value)));
+        APPLIERS.put("x_cen", (continuumIsland, value) -> continuumIsland.setXCen(floatValue(value)));
+        APPLIERS.put("y_cen", (continuumIsland, value) -> continuumIsland.setYCen(floatValue(value)));
+        APPLIERS.put("x_peak", (continuumIsland, value) -> continuumIsland.setXPeak(intValue(value)));
+        APPLIERS.put("y_peak", (continuumIsland, value) -> continuumIsland.setYPeak(intValue(value)));
         APPLIERS.put("solid_angle",
-                (continuumIsland, value) -> continuumIsland.setSolidAngle(Float.parseFloat(value)));
+                (continuumIsland, value) -> continuumIsland.setSolidAngle(floatValue(value)));
         APPLIERS.put("beam_area",
-                (continuumIsland, value) -> continuumIsland.setBeamArea(Float.parseFloat(value)));
-        APPLIERS.put("flag_i1", (continuumIsland, value) -> continuumIsland.setFlagI1(Short.parseShort(value)));
-        APPLIERS.put("flag_i2", (continuumIsland, value) -> continuumIsland.setFlagI2(Short.parseShort(value)));
-        APPLIERS.put("flag_i3", (continuumIsland, value) -> continuumIsland.setFlagI3(Short.parseShort(value)));
-        APPLIERS.put("flag_i4", (continuumIsland, value) -> continuumIsland.setFlagI4(Short.parseShort(value)));
-        APPLIERS.put("comment", (continuumIsland, value) -> continuumIsland.setComment(value));
+                (continuumIsland, value) -> continuumIsland.setBeamArea(floatValue(value)));
+        APPLIERS.put("flag_i1", (continuumIsland, value) -> continuumIsland.setFlagI1(shortValue(value)));
+        APPLIERS.put("flag_i2", (continuumIsland, value) -> continuumIsland.setFlagI2(shortValue(value)));
+        APPLIERS.put("flag_i3", (continuumIsland, value) -> continuumIsland.setFlagI3(shortValue(value)));
+        APPLIERS.put("flag_i4", (continuumIsland, value) -> continuumIsland.setFlagI4(shortValue(value)));
+        APPLIERS.put("comment", (continuumIsland, value) -> continuumIsland.setComment(stringValue(value)));
     }
 
+    private final FieldValueAppliers<ContinuumIsland> appliers = new FieldValueAppliers<>(APPLIERS);
+
     private ContinuumIslandRepository continuumIslandRepository;
 
+    private CatalogueEntrySink<ContinuumIsland> continuumIslandSink;
+
     /**
      * Constructs a ContinuumIslandVoTableVisitor that uses the given ContinuumIslandRepository to perform any
      * operations associated with ContinuumIsland persistence.
@@ -116,8 +124,23 @@ public class ContinuumIslandVoTableVisitor extends AbstractCatalogueVoTableVisit
      *            a ContinuumIslandRepository
      */
     public ContinuumIslandVoTableVisitor(ContinuumIslandRepository continuumIslandRepository)
+    {
+        this(continuumIslandRepository, BatchingCatalogueEntrySink.DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructs a ContinuumIslandVoTableVisitor that uses the given ContinuumIslandRepository to perform any
+     * operations associated with ContinuumIsland persistence.
+     * 
+     * @param continuumIslandRepository
+     *            a ContinuumIslandRepository
+     * @param batchSize
+     *            the number of ContinuumIsland records to save in each batch
+     */
+    public ContinuumIslandVoTableVisitor(ContinuumIslandRepository continuumIslandRepository, int batchSize)
     {
         this.continuumIslandRepository = continuumIslandRepository;
+        this.continuumIslandSink = createCatalogueEntrySink(continuumIslandRepository, batchSize);
     }
 
     /**
@@ -140,8 +163,8 @@ public class ContinuumIslandVoTableVisitor extends AbstractCatalogueVoTableVisit
 
     /**
      * Implementation of template method
-     * {@link au.csiro.casda.datadeposit.votable.parser.AbstractVoTableElementVisitor#processFields(Map)} that doesn't
-     * do much right now.
+     * {@link au.csiro.casda.datadeposit.votable.parser.AbstractVoTableElementVisitor#processFields(List)} that
+     * looks up the appliers for the fields, so that each row can be applied by field ordinal.
      * 
      * @param fields
      *            a list of the Fields in the VOTABLE
@@ -150,35 +173,27 @@ public class ContinuumIslandVoTableVisitor extends AbstractCatalogueVoTableVisit
     protected void processFields(List<VisitableVoTableField> fields)
     {
         // We don't really care about the fields as long as they match the defined ones.
+        // Look up the appliers once, so that each row can be applied by field ordinal.
+        this.appliers.compile(fields);
     }
 
     /**
      * Implementation of template method
-     * {@link au.csiro.casda.datadeposit.votable.parser.AbstractVoTableElementVisitor#processRow(Map)} that creates and
-     * saves a ContinuumIsland instance for the provided VoTable row.
+     * {@link au.csiro.casda.datadeposit.votable.parser.AbstractVoTableElementVisitor#processRow(ParsedVoTableRow)} that
+     * creates and saves a ContinuumIsland instance for the provided VoTable row.
      * 
      * @param row
-     *            a Map of the Tds in a VOTABLE row, keyed by their corresponding Field
+     *            the parsed cells of a VOTABLE row
      */
     @Override
-    protected void processRow(Map<VisitableVoTableField, String> row)
+    protected void processRow(ParsedVoTableRow row)
     {
         ContinuumIsland continuumIsland = new ContinuumIsland();
         continuumIsland.setCatalogue(getCatalogue());
         continuumIsland.setSbid(((Observation) getCatalogue().getParent()).getSbid());
         continuumIsland.setOtherSbids(formatOtherSbids(((Observation) getCatalogue().getParent()).getSbids()));
         continuumIsland.setProjectId(getCatalogue().getProject().getId());
-        for (VisitableVoTableField field : row.keySet())
-        {
-            if (row.get(field) != null)
-            {
-                BiConsumer<ContinuumIsland, String> applier = APPLIERS.get(field.getName());
-                if (applier != null) // Not all fields will be written to the ContinuumComponent
-                {
-                    applier.accept(continuumIsland, row.get(field));
-                }
-            }
-        }
+        this.appliers.apply(continuumIsland, row);
         double wavelen = AstroConversion.frequencyMhzToWavelength(continuumIsland.getFreq());
         Catalogue catalogue = getCatalogue();
         if (wavelen > 0 && (catalogue.getEmMin() == null || wavelen < catalogue.getEmMin()))
@@ -190,7 +205,18 @@ public class ContinuumIslandVoTableVisitor extends AbstractCatalogueVoTableVisit
             catalogue.setEmMax(wavelen);
         }
         
-        this.continuumIslandRepository.save(continuumIsland);
+        this.continuumIslandSink.add(continuumIsland);
+    }
+
+    /**
+     * Implementation of template method
+     * {@link au.csiro.casda.datadeposit.votable.parser.AbstractVoTableElementVisitor#processEnd()} that saves any
+     * ContinuumIsland records still waiting to be written.
+     */
+    @Override
+    protected void processEnd()
+    {
+        this.continuumIslandSink.flush();
     }
 
     @Override
@@ -1,6 +1,7 @@
 package au.csiro.casda.datadeposit.catalogue.continuum;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
@@ -64,12 +65,16 @@ public class PolarisationComponentCatalogueParser  extends AbstractCataloguePars
      * @param polarisationComponentRepository
      *            a PolarisationComponentRepository to be used to manage the persistent 
      *            PolarisationComponents associated with the parsed catalogue
+     * @param batchSize
+     *            the number of PolarisationComponent records to save in each batch
      */
     @Autowired
     public PolarisationComponentCatalogueParser(ObservationRepository observationRepository,
-            CatalogueRepository catalogueRepository, PolarisationComponentRepository polarisationComponentRepository)
+            CatalogueRepository catalogueRepository, PolarisationComponentRepository polarisationComponentRepository,
+            @Value("${catalogue.entry.batch.size}") int batchSize)
     {
         super(catalogueRepository, observationRepository, 
-             new PolarisationComponentVoTableVisitor(polarisationComponentRepository), polarisationComponentRepository);
+                new PolarisationComponentVoTableVisitor(polarisationComponentRepository, batchSize),
+                polarisationComponentRepository);
     }
 }
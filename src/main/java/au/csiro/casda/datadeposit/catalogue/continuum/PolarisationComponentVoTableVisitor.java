@@ -7,10 +7,14 @@ import java.util.Map;
 import java.util.function.BiConsumer;
 
 import au.csiro.casda.datadeposit.catalogue.AbstractCatalogueVoTableVisitor;
+import au.csiro.casda.datadeposit.catalogue.BatchingCatalogueEntrySink;
+import au.csiro.casda.datadeposit.catalogue.CatalogueEntrySink;
 import au.csiro.casda.datadeposit.observation.jpa.repository.PolarisationComponentRepository;
 import au.csiro.casda.datadeposit.votable.parser.VisitableVoTableField;
 import au.csiro.casda.datadeposit.votable.parser.FieldConstraint;
+import au.csiro.casda.datadeposit.votable.parser.FieldValueAppliers;
 import au.csiro.casda.datadeposit.votable.parser.ParamConstraint;
+import au.csiro.casda.datadeposit.votable.parser.ParsedVoTableRow;
 import au.csiro.casda.entity.observation.Catalogue;
 import au.csiro.casda.entity.observation.Observation;
 import au.csiro.casda.entity.sourcedetect.PolarisationComponent;
@@ -46,94 +50,100 @@ public class PolarisationComponentVoTableVisitor extends AbstractCatalogueVoTabl
     {
         loadConstraintsFile(POLARISATION_CONSTRAINTS_RESOURCE_PATH, PARAM_CONSTRAINTS, FIELD_CONSTRAINTS);
     }
-    private static final Map<String, BiConsumer<PolarisationComponent, String>> APPLIERS;
+    private static final Map<String, BiConsumer<PolarisationComponent, Object>> APPLIERS;
     static
     {
         APPLIERS = new HashMap<>();
-        APPLIERS.put("sbid", (polarisationComponent, value) -> polarisationComponent.setSbid(Integer.parseInt(value)));
+        APPLIERS.put("sbid", (polarisationComponent, value) -> polarisationComponent.setSbid(intValue(value)));
         APPLIERS.put("project_id",
-                (polarisationComponent, value) -> polarisationComponent.setProjectId(Long.parseLong(value)));
-        APPLIERS.put("component_id", (polarisationComponent, value) -> polarisationComponent.setComponentId(value));
-        APPLIERS.put("component_name", (polarisationComponent, value) -> polarisationComponent.setComponentName(value));
+                (polarisationComponent, value) -> polarisationComponent.setProjectId(longValue(value)));
+        APPLIERS.put("component_id",
+                (polarisationComponent, value) -> polarisationComponent.setComponentId(stringValue(value)));
+        APPLIERS.put("component_name",
+                (polarisationComponent, value) -> polarisationComponent.setComponentName(stringValue(value)));
         APPLIERS.put("ra_deg_cont",
-                (polarisationComponent, value) -> polarisationComponent.setRaDegCont(Double.parseDouble(value)));
+                (polarisationComponent, value) -> polarisationComponent.setRaDegCont(doubleValue(value)));
         APPLIERS.put("dec_deg_cont",
-                (polarisationComponent, value) -> polarisationComponent.setDecDegCont(Double.parseDouble(value)));
+                (polarisationComponent, value) -> polarisationComponent.setDecDegCont(doubleValue(value)));
         APPLIERS.put("flux_I_median",
-                (polarisationComponent, value) -> polarisationComponent.setFluxIMedian(Double.parseDouble(value)));
+                (polarisationComponent, value) -> polarisationComponent.setFluxIMedian(doubleValue(value)));
         APPLIERS.put("flux_Q_median",
-                (polarisationComponent, value) -> polarisationComponent.setFluxQMedian(Double.parseDouble(value)));
+                (polarisationComponent, value) -> polarisationComponent.setFluxQMedian(doubleValue(value)));
         APPLIERS.put("flux_U_median",
-                (polarisationComponent, value) -> polarisationComponent.setFluxUMedian(Double.parseDouble(value)));
+                (polarisationComponent, value) -> polarisationComponent.setFluxUMedian(doubleValue(value)));
         APPLIERS.put("flux_V_median",
-                (polarisationComponent, value) -> polarisationComponent.setFluxVMedian(Double.parseDouble(value)));
+                (polarisationComponent, value) -> polarisationComponent.setFluxVMedian(doubleValue(value)));
         APPLIERS.put("rms_I",
-                (polarisationComponent, value) -> polarisationComponent.setRmsI(Double.parseDouble(value)));
+                (polarisationComponent, value) -> polarisationComponent.setRmsI(doubleValue(value)));
         APPLIERS.put("rms_Q",
-                (polarisationComponent, value) -> polarisationComponent.setRmsQ(Double.parseDouble(value)));
+                (polarisationComponent, value) -> polarisationComponent.setRmsQ(doubleValue(value)));
         APPLIERS.put("rms_U",
-                (polarisationComponent, value) -> polarisationComponent.setRmsU(Double.parseDouble(value)));
+                (polarisationComponent, value) -> polarisationComponent.setRmsU(doubleValue(value)));
         APPLIERS.put("rms_V",
-                (polarisationComponent, value) -> polarisationComponent.setRmsV(Double.parseDouble(value)));
-        APPLIERS.put("co_1", (polarisationComponent, value) -> polarisationComponent.setCo1(Double.parseDouble(value)));
-        APPLIERS.put("co_2", (polarisationComponent, value) -> polarisationComponent.setCo2(Double.parseDouble(value)));
-        APPLIERS.put("co_3", (polarisationComponent, value) -> polarisationComponent.setCo3(Double.parseDouble(value)));
-        APPLIERS.put("co_4", (polarisationComponent, value) -> polarisationComponent.setCo4(Double.parseDouble(value)));
-        APPLIERS.put("co_5", (polarisationComponent, value) -> polarisationComponent.setCo5(Double.parseDouble(value)));
+                (polarisationComponent, value) -> polarisationComponent.setRmsV(doubleValue(value)));
+        APPLIERS.put("co_1", (polarisationComponent, value) -> polarisationComponent.setCo1(doubleValue(value)));
+        APPLIERS.put("co_2", (polarisationComponent, value) -> polarisationComponent.setCo2(doubleValue(value)));
+        APPLIERS.put("co_3", (polarisationComponent, value) -> polarisationComponent.setCo3(doubleValue(value)));
+        APPLIERS.put("co_4", (polarisationComponent, value) -> polarisationComponent.setCo4(doubleValue(value)));
+        APPLIERS.put("co_5", (polarisationComponent, value) -> polarisationComponent.setCo5(doubleValue(value)));
         APPLIERS.put("lambda_ref_sq",
-                (polarisationComponent, value) -> polarisationComponent.setLambdaRefSq(Double.parseDouble(value)));
+                (polarisationComponent, value) -> polarisationComponent.setLambdaRefSq(doubleValue(value)));
         APPLIERS.put("rmsf_fwhm",
-                (polarisationComponent, value) -> polarisationComponent.setRmsfFwhm(Double.parseDouble(value)));
+                (polarisationComponent, value) -> polarisationComponent.setRmsfFwhm(doubleValue(value)));
         APPLIERS.put("pol_peak",
-                (polarisationComponent, value) -> polarisationComponent.setPolPeak(Double.parseDouble(value)));
+                (polarisationComponent, value) -> polarisationComponent.setPolPeak(doubleValue(value)));
         APPLIERS.put("pol_peak_debias",
-                (polarisationComponent, value) -> polarisationComponent.setPolPeakDebias(Double.parseDouble(value)));
+                (polarisationComponent, value) -> polarisationComponent.setPolPeakDebias(doubleValue(value)));
         APPLIERS.put("pol_peak_err",
-                (polarisationComponent, value) -> polarisationComponent.setPolPeakErr(Double.parseDouble(value)));
+                (polarisationComponent, value) -> polarisationComponent.setPolPeakErr(doubleValue(value)));
         APPLIERS.put("pol_peak_fit",
-                (polarisationComponent, value) -> polarisationComponent.setPolPeakFit(Double.parseDouble(value)));
+                (polarisationComponent, value) -> polarisationComponent.setPolPeakFit(doubleValue(value)));
         APPLIERS.put("pol_peak_fit_debias",
-                (polarisationComponent, value) -> polarisationComponent.setPolPeakFitDebias(Double.parseDouble(value)));
+                (polarisationComponent, value) -> polarisationComponent.setPolPeakFitDebias(doubleValue(value)));
         APPLIERS.put("pol_peak_fit_err",
-                (polarisationComponent, value) -> polarisationComponent.setPolPeakFitErr(Double.parseDouble(value)));
+                (polarisationComponent, value) -> polarisationComponent.setPolPeakFitErr(doubleValue(value)));
         APPLIERS.put("pol_peak_fit_snr",
-                (polarisationComponent, value) -> polarisationComponent.setPolPeakFitSnr(Double.parseDouble(value)));
+                (polarisationComponent, value) -> polarisationComponent.setPolPeakFitSnr(doubleValue(value)));
         APPLIERS.put("pol_peak_fit_snr_err",
-                (polarisationComponent, value) -> polarisationComponent.setPolPeakFitSnrErr(Double.parseDouble(value)));
+                (polarisationComponent, value) -> polarisationComponent.setPolPeakFitSnrErr(doubleValue(value)));
         APPLIERS.put("fd_peak",
-                (polarisationComponent, value) -> polarisationComponent.setFdPeak(Double.parseDouble(value)));
+                (polarisationComponent, value) -> polarisationComponent.setFdPeak(doubleValue(value)));
         APPLIERS.put("fd_peak_err",
-                (polarisationComponent, value) -> polarisationComponent.setFdPeakErr(Double.parseDouble(value)));
+                (polarisationComponent, value) -> polarisationComponent.setFdPeakErr(doubleValue(value)));
         APPLIERS.put("fd_peak_fit",
-                (polarisationComponent, value) -> polarisationComponent.setFdPeakFit(Double.parseDouble(value)));
+                (polarisationComponent, value) -> polarisationComponent.setFdPeakFit(doubleValue(value)));
         APPLIERS.put("fd_peak_fit_err",
-                (polarisationComponent, value) -> polarisationComponent.setFdPeakFitErr(Double.parseDouble(value)));
+                (polarisationComponent, value) -> polarisationComponent.setFdPeakFitErr(doubleValue(value)));
         APPLIERS.put("pol_ang_ref",
-                (polarisationComponent, value) -> polarisationComponent.setPolAngRef(Double.parseDouble(value)));
+                (polarisationComponent, value) -> polarisationComponent.setPolAngRef(doubleValue(value)));
         APPLIERS.put("pol_ang_ref_err",
-                (polarisationComponent, value) -> polarisationComponent.setPolAngRefErr(Double.parseDouble(value)));
+                (polarisationComponent, value) -> polarisationComponent.setPolAngRefErr(doubleValue(value)));
         APPLIERS.put("pol_ang_zero",
-                (polarisationComponent, value) -> polarisationComponent.setPolAngZero(Double.parseDouble(value)));
+                (polarisationComponent, value) -> polarisationComponent.setPolAngZero(doubleValue(value)));
         APPLIERS.put("pol_ang_zero_err",
-                (polarisationComponent, value) -> polarisationComponent.setPolAngZeroErr(Double.parseDouble(value)));
+                (polarisationComponent, value) -> polarisationComponent.setPolAngZeroErr(doubleValue(value)));
         APPLIERS.put("pol_frac",
-                (polarisationComponent, value) -> polarisationComponent.setPolFrac(Double.parseDouble(value)));
+                (polarisationComponent, value) -> polarisationComponent.setPolFrac(doubleValue(value)));
         APPLIERS.put("pol_frac_err",
-                (polarisationComponent, value) -> polarisationComponent.setPolFracErr(Double.parseDouble(value)));
+                (polarisationComponent, value) -> polarisationComponent.setPolFracErr(doubleValue(value)));
         APPLIERS.put("complex_1",
-                (polarisationComponent, value) -> polarisationComponent.setComplex1(Double.parseDouble(value)));
+                (polarisationComponent, value) -> polarisationComponent.setComplex1(doubleValue(value)));
         APPLIERS.put("complex_2",
-                (polarisationComponent, value) -> polarisationComponent.setComplex2(Double.parseDouble(value)));
+                (polarisationComponent, value) -> polarisationComponent.setComplex2(doubleValue(value)));
         APPLIERS.put("flag_is_detection",
-                (polarisationComponent, value) -> polarisationComponent.setFlagIsDetection(Integer.parseInt(value)));
+                (polarisationComponent, value) -> polarisationComponent.setFlagIsDetection(intValue(value)));
         APPLIERS.put("flag_edge",
-                (polarisationComponent, value) -> polarisationComponent.setFlagEdge(Integer.parseInt(value)));
-        APPLIERS.put("flag_p3", (polarisationComponent, value) -> polarisationComponent.setFlagP3(Integer.parseInt(value)));
-        APPLIERS.put("flag_p4", (polarisationComponent, value) -> polarisationComponent.setFlagP4(Integer.parseInt(value)));
+                (polarisationComponent, value) -> polarisationComponent.setFlagEdge(intValue(value)));
+        APPLIERS.put("flag_p3", (polarisationComponent, value) -> polarisationComponent.setFlagP3(intValue(value)));
+        APPLIERS.put("flag_p4", (polarisationComponent, value) -> polarisationComponent.setFlagP4(intValue(value)));
     }
 
+    private final FieldValueAppliers<PolarisationComponent> appliers = new FieldValueAppliers<>(APPLIERS);
+
     private PolarisationComponentRepository polarisationComponentRepository;
 
+    private CatalogueEntrySink<PolarisationComponent> polarisationComponentSink;
+
     /**
      * Constructs a PolarisationComponentVoTableVisitor that uses the given PolarisationComponentRepository to perform
      * any operations associated with PolarisationComponent persistence.
@@ -142,8 +152,24 @@ public class PolarisationComponentVoTableVisitor extends AbstractCatalogueVoTabl
      *            a polarisationComponentRepository
      */
     public PolarisationComponentVoTableVisitor(PolarisationComponentRepository polarisationComponentRepository)
+    {
+        this(polarisationComponentRepository, BatchingCatalogueEntrySink.DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructs a PolarisationComponentVoTableVisitor that uses the given PolarisationComponentRepository to perform
+     * any operations associated with PolarisationComponent persistence.
+     * 
+     * @param polarisationComponentRepository
+     *            a polarisationComponentRepository
+     * @param batchSize
+     *            the number of PolarisationComponent records to save in each batch
+     */
+    public PolarisationComponentVoTableVisitor(PolarisationComponentRepository polarisationComponentRepository,
+            int batchSize)
     {
         this.polarisationComponentRepository = polarisationComponentRepository;
+        this.polarisationComponentSink = createCatalogueEntrySink(polarisationComponentRepository, batchSize);
     }
 
     /**
@@ -166,8 +192,8 @@ public class PolarisationComponentVoTableVisitor extends AbstractCatalogueVoTabl
 
     /**
      * Implementation of template method
-     * {@link au.csiro.casda.datadeposit.votable.parser.AbstractVoTableElementVisitor#processFields(Map)} that doesn't
-     * do much right now.
+     * {@link au.csiro.casda.datadeposit.votable.parser.AbstractVoTableElementVisitor#processFields(List)} that
+     * looks up the appliers for the fields, so that each row can be applied by field ordinal.
      * 
      * @param fields
      *            a list of the Fields in the VOTABLE
@@ -176,36 +202,39 @@ public class PolarisationComponentVoTableVisitor extends AbstractCatalogueVoTabl
     protected void processFields(List<VisitableVoTableField> fields)
     {
         // We don't really care about the fields as long as they match the defined ones.
+        // Look up the appliers once, so that each row can be applied by field ordinal.
+        this.appliers.compile(fields);
     }
 
     /**
      * Implementation of template method
-     * {@link au.csiro.casda.datadeposit.votable.parser.AbstractVoTableElementVisitor#processRow(Map)} that creates and
-     * saves a PolarisationComponent instance for the provided VoTable row.
+     * {@link au.csiro.casda.datadeposit.votable.parser.AbstractVoTableElementVisitor#processRow(ParsedVoTableRow)} that
+     * creates and saves a PolarisationComponent instance for the provided VoTable row.
      * 
      * @param row
-     *            a Map of the Tds in a VOTABLE row, keyed by their corresponding Field
+     *            the parsed cells of a VOTABLE row
      */
     @Override
-    protected void processRow(Map<VisitableVoTableField, String> row)
+    protected void processRow(ParsedVoTableRow row)
     {
         PolarisationComponent polarisationComponent = new PolarisationComponent();
         polarisationComponent.setCatalogue(getCatalogue());
         polarisationComponent.setSbid(((Observation) getCatalogue().getParent()).getSbid());
         polarisationComponent.setOtherSbids(formatOtherSbids(((Observation) getCatalogue().getParent()).getSbids()));
         polarisationComponent.setProjectId(getCatalogue().getProject().getId());
-        for (VisitableVoTableField field : row.keySet())
-        {
-            if (row.get(field) != null)
-            {
-                BiConsumer<PolarisationComponent, String> applier = APPLIERS.get(field.getName());
-                if (applier != null) // Not all fields will be written to the ContinuumComponent
-                {
-                    applier.accept(polarisationComponent, row.get(field));
-                }
-            }
-        }
-        this.polarisationComponentRepository.save(polarisationComponent);
+        this.appliers.apply(polarisationComponent, row);
+        this.polarisationComponentSink.add(polarisationComponent);
+    }
+
+    /**
+     * Implementation of template method
+     * {@link au.csiro.casda.datadeposit.votable.parser.AbstractVoTableElementVisitor#processEnd()} that saves any
+     * PolarisationComponent records still waiting to be written.
+     */
+    @Override
+    protected void processEnd()
+    {
+        this.polarisationComponentSink.flush();
     }
 
     @Override
@@ -6,7 +6,6 @@ import java.util.List;
 import java.util.Optional;
 
 import javax.transaction.Transactional;
-import javax.xml.validation.Schema;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,10 +15,8 @@ import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
 import au.csiro.casda.datadeposit.catalogue.AbstractCatalogueParser;
-import au.csiro.casda.datadeposit.catalogue.AbstractCatalogueVoTableVisitor;
 import au.csiro.casda.datadeposit.catalogue.CatalogueParser;
 import au.csiro.casda.datadeposit.observation.jdbc.repository.SimpleJdbcRepository;
-import au.csiro.casda.datadeposit.votable.parser.VisitableVoTableElement;
 import au.csiro.casda.entity.observation.Catalogue;
 import au.csiro.casda.entity.observation.CatalogueType;
 import au.csiro.casda.entity.observation.Level7Collection;
@@ -75,11 +72,14 @@ public class Level7CatalogueParser extends AbstractCatalogueParser<Level7Collect
      *            the Level7Collection jpa repository
      * @param descriptionMaxLimit
      *            description max length limit
+     * @param copyBatchSize
+     *            the number of catalogue entries bulk loaded by each COPY statement
      */
     @Autowired
     public Level7CatalogueParser(SimpleJdbcRepository repository,
             Level7CollectionRepository level7CollectionRepository,
-            @Value("${level7.element.description.max.length}") int descriptionMaxLimit)
+            @Value("${level7.element.description.max.length}") int descriptionMaxLimit,
+            @Value("${level7.copy.batch.size}") int copyBatchSize)
     {
         /*
          * The visitor uses an output stream to output the DDL that it generates for the Level 7 Catalogue. We don't
@@ -87,7 +87,7 @@ public class Level7CatalogueParser extends AbstractCatalogueParser<Level7Collect
          * using stdout to report validation failures. However, until the DDL is being written to the database we want
          * to retain the ability of the tests to look at the generated DDL.
          */
-        this(new Level7VoTableVisitor(repository, descriptionMaxLimit), level7CollectionRepository);
+        this(new Level7VoTableVisitor(repository, descriptionMaxLimit, copyBatchSize), level7CollectionRepository);
     }
 
     /**
@@ -215,23 +215,15 @@ public class Level7CatalogueParser extends AbstractCatalogueParser<Level7Collect
     void parseCatalogueDatafile(String catalogueDatafile, Level7Collection level7Collection, Mode mode)
             throws FileNotFoundException, MalformedFileException, DatabaseException
     {
-        Schema schema = getVoTableXmlSchema();
-        VisitableVoTableElement table = parseDatafile(catalogueDatafile, schema);
-
         this.voTableVisitor.setProjectCode(level7Collection.getProject().getOpalCode());
         this.voTableVisitor.setLevel7CollectionId(level7Collection.getDapCollectionId());
         this.voTableVisitor.setDcCommonId(level7Collection.getDcCommonId());
         this.voTableVisitor.setFilename(new File(catalogueDatafile).getName());
         this.voTableVisitor.setFailFast(mode != Mode.VALIDATE_ONLY);
+        this.voTableVisitor.setMaxRecordedRowErrors(getMaxRecordedRowErrors());
+        this.voTableVisitor.setConversionThreads(getConversionThreads());
 
-        try
-        {
-            table.accept(this.voTableVisitor);
-        }
-        catch (AbstractCatalogueVoTableVisitor.MalformedVoTableException ex)
-        {
-            throw new CatalogueParser.MalformedFileException(ex);
-        }
+        parseDatafile(catalogueDatafile, getVoTableXmlSchema(), this.voTableVisitor);
         List<Throwable> exceptions = this.voTableVisitor.getErrors();
         if (CollectionUtils.isNotEmpty(exceptions))
         {
@@ -1,6 +1,7 @@
 package au.csiro.casda.datadeposit.catalogue.level7;
 
 import java.io.IOException;
+import java.io.StringReader;
 import java.io.StringWriter;
 import java.sql.SQLException;
 import java.text.SimpleDateFormat;
@@ -31,6 +32,7 @@ import au.csiro.casda.datadeposit.observation.jdbc.repository.SimpleJdbcReposito
 import au.csiro.casda.datadeposit.votable.parser.AbstractVoTableElementVisitor;
 import au.csiro.casda.datadeposit.votable.parser.FieldConstraint;
 import au.csiro.casda.datadeposit.votable.parser.ParamConstraint;
+import au.csiro.casda.datadeposit.votable.parser.ParsedVoTableRow;
 import au.csiro.casda.datadeposit.votable.parser.VisitableVoTableField;
 import au.csiro.casda.datadeposit.votable.parser.VisitableVoTableParam;
 import freemarker.template.Configuration;
@@ -55,7 +57,8 @@ import freemarker.template.TemplateException;
  * <ul>
  * <li>add an entry to the casda.catalogue table</li>
  * <li>create a new table for the catalogue entries</li>
- * <li>populate the new table with the catalogue entries</li>
+ * <li>populate the new table with the catalogue entries, which are bulk loaded in batches using COPY</li>
+ * <li>index and analyze the new table, once all of its entries have been loaded</li>
  * <li>update the VOTAP metadata for the new catalogue</li>
  * </ul>
  * <p>
@@ -65,6 +68,11 @@ public class Level7VoTableVisitor extends AbstractVoTableElementVisitor
 {
     private static final String LEVEL7_CONSTRAINTS_RESOURCE_PATH = "schemas/level7_metadata.yml";
 
+    /**
+     * The default number of catalogue entries loaded by each COPY statement
+     */
+    public static final int DEFAULT_COPY_BATCH_SIZE = 10000;
+
     private static final List<ParamConstraint> PARAM_CONSTRAINTS = new ArrayList<>();
 
     private static final List<FieldConstraint> FIELD_CONSTRAINTS = new ArrayList<>();
@@ -106,6 +114,14 @@ public class Level7VoTableVisitor extends AbstractVoTableElementVisitor
 
     private int catalogueVersion;
 
+    private final int copyBatchSize;
+
+    private final List<String[]> pendingRows = new ArrayList<>();
+
+    private Long catalogueId;
+
+    private boolean tableCreated;
+
     /**
      * Constructor
      * 
@@ -116,7 +132,22 @@ public class Level7VoTableVisitor extends AbstractVoTableElementVisitor
      */
     public Level7VoTableVisitor(SimpleJdbcRepository repository, int descriptionMaxLength)
     {
-        this(repository, new Date(), descriptionMaxLength);
+        this(repository, descriptionMaxLength, DEFAULT_COPY_BATCH_SIZE);
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param repository
+     *            the simple jdbc repository
+     * @param descriptionMaxLength
+     *            description max length
+     * @param copyBatchSize
+     *            the number of catalogue entries to load with each COPY statement
+     */
+    public Level7VoTableVisitor(SimpleJdbcRepository repository, int descriptionMaxLength, int copyBatchSize)
+    {
+        this(repository, new Date(), descriptionMaxLength, copyBatchSize);
     }
 
     /**
@@ -130,13 +161,36 @@ public class Level7VoTableVisitor extends AbstractVoTableElementVisitor
      *            description max length
      */
     public Level7VoTableVisitor(SimpleJdbcRepository repository, Date generationDate, int descriptionMaxLength)
+    {
+        this(repository, generationDate, descriptionMaxLength, DEFAULT_COPY_BATCH_SIZE);
+    }
+
+    /**
+     * Constructor for test cases
+     * 
+     * @param repository
+     *            the simple jdbc repository
+     * @param generationDate
+     *            the date this catalogue is being generated
+     * @param descriptionMaxLength
+     *            description max length
+     * @param copyBatchSize
+     *            the number of catalogue entries to load with each COPY statement
+     */
+    public Level7VoTableVisitor(SimpleJdbcRepository repository, Date generationDate, int descriptionMaxLength,
+            int copyBatchSize)
     {
         super();
+        if (copyBatchSize < 1)
+        {
+            throw new IllegalArgumentException("expected copyBatchSize >= 1");
+        }
         freemarkerConfiguration = new Configuration(Configuration.VERSION_2_3_22);
         freemarkerConfiguration.setClassLoaderForTemplateLoading(this.getClass().getClassLoader(), "");
         this.repository = repository;
         this.generationDate = generationDate;
         this.descriptionMaxLength = descriptionMaxLength;
+        this.copyBatchSize = copyBatchSize;
     }
 
     /**
@@ -346,36 +400,71 @@ public class Level7VoTableVisitor extends AbstractVoTableElementVisitor
                         return "'" + s + "'";
                     }).collect(Collectors.joining(", "))));
         }
-        if (!this.getErrors().isEmpty())
+        if (this.hasErrors())
         {
             return;
         }
         repository.executeStatement(this.getCreateLevel7CatalogueTableDdl(this.projectCode, this.level7CollectionId,
                 this.catalogueName, this.description, this.columns, this.filename, this.dcCommonId));
+        tableCreated = true;
         repository.executeStatement(getUpdateVotapMetadataForLevel7CatalogueDdl(this.projectCode, this.catalogueName,
                 this.description, this.columns, this.catalogueBaseName, this.catalogueVersion, this.dcCommonId));
     }
 
     /** {@inheritDoc} */
     @Override
-    protected void processRow(Map<VisitableVoTableField, String> row)
+    protected void processRow(ParsedVoTableRow row)
     {
         if (hasErrorsForParam("Catalogue Name") || hasErrorsForParam("Project Code"))
         {
             return; // we won't be able to process the row
         }
-        Map<String, String> valuesMap = new HashMap<>();
-        for (VisitableVoTableField field : row.keySet())
+        if (this.hasErrors())
         {
-            String value = row.get(field) == null ? "" : row.get(field);
-            value = value.replaceAll("'", "''");
-            valuesMap.put(field.getName(), value);
+            return;
         }
-        if (!this.getErrors().isEmpty())
+        // Without any errors there is a column for every field, in the same order
+        String[] values = new String[row.size()];
+        for (int i = 0; i < values.length; i++)
         {
-            return;
+            values[i] = row.getValue(i) == null ? "" : row.getValue(i);
+        }
+        pendingRows.add(values);
+        if (pendingRows.size() >= copyBatchSize)
+        {
+            copyPendingRows();
         }
-        repository.executeStatement(this.getCreateLevel7CatalogueItemDdl(this.catalogueName, this.columns, valuesMap));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void processEnd()
+    {
+        copyPendingRows();
+        if (tableCreated && !this.hasErrors())
+        {
+            /*
+             * Building the indexes once all the entries are loaded is much cheaper than maintaining them for every
+             * entry. The indexes are built in the deposit's transaction because the table isn't visible to any other
+             * connection until it commits.
+             */
+            repository.executeStatement(getCreateLevel7CatalogueIndexesDdl(this.catalogueName, this.columns));
+        }
+    }
+
+    private void copyPendingRows()
+    {
+        if (!pendingRows.isEmpty() && !this.hasErrors())
+        {
+            if (catalogueId == null)
+            {
+                // The catalogue record is only linked to the entries table once the table has been created
+                catalogueId = repository.getDerivedCatalogueId("casda." + this.catalogueName);
+            }
+            repository.copyIn(getCopyLevel7CatalogueItemsStatement(this.catalogueName, this.columns),
+                    new StringReader(getCopyLevel7CatalogueItemsData(catalogueId, this.columns, pendingRows)));
+        }
+        pendingRows.clear();
     }
 
     /**
@@ -427,38 +516,73 @@ public class Level7VoTableVisitor extends AbstractVoTableElementVisitor
     }
 
     /**
-     * Generate the DDL required to insert entries into a Level 7 catalogue's 'entry' table
+     * Generate the DDL required to index and analyze a Level 7 catalogue 'entry' table once its entries have been
+     * loaded
      * 
      * @param catalogueName
      *            the name of the Catalogue
      * @param columns
      *            a List of Maps containing the definition of the Catalogue entry table's columns
-     * @param valuesMap
-     *            a Map of the values for the columns
      * @return the DDL
      */
-    String getCreateLevel7CatalogueItemDdl(String catalogueName, List<Map<String, Object>> columns,
-            Map<String, String> valuesMap)
+    String getCreateLevel7CatalogueIndexesDdl(String catalogueName, List<Map<String, Object>> columns)
     {
         Map<String, Object> model = new HashMap<>();
         model.put("schema", "casda");
         model.put("level7CatalogueName", catalogueName);
         model.put("columns", columns);
-        Map<String, String> values = new HashMap<>();
-        for (String fieldName : valuesMap.keySet())
+        StringWriter result = new StringWriter();
+        String templatePath = "templates/createLevel7CatalogueIndexes.ftl";
+        Template template;
+        try
         {
-            if (valuesMap.get(fieldName) != null)
-            {
-                values.put(fieldName, valuesMap.get(fieldName));
-            }
-            else
-            {
-                values.put(fieldName, "");
-            }
+            template = freemarkerConfiguration.getTemplate(templatePath, CharEncoding.UTF_8);
+            template.process(model, result);
+        }
+        catch (IOException | TemplateException e)
+        {
+            throw new RuntimeException("Error processing FTL at path " + templatePath, e);
         }
-        model.put("values", values);
+        return result.toString();
+    }
+
+    /**
+     * Generate the COPY statement used to bulk load entries into a Level 7 catalogue's 'entry' table
+     * 
+     * @param catalogueName
+     *            the name of the Catalogue
+     * @param columns
+     *            a List of Maps containing the definition of the Catalogue entry table's columns
+     * @return the COPY statement
+     */
+    String getCopyLevel7CatalogueItemsStatement(String catalogueName, List<Map<String, Object>> columns)
+    {
+        return "COPY casda." + catalogueName + " (catalogue_id, "
+                + columns.stream().map((column) -> (String) column.get("db_column_name"))
+                        .collect(Collectors.joining(", "))
+                + ") FROM STDIN WITH (FORMAT csv)";
+    }
+
+    /**
+     * Generate the CSV data for a COPY of entries into a Level 7 catalogue's 'entry' table
+     * 
+     * @param catalogueId
+     *            the id of the catalogue record the entries belong to
+     * @param columns
+     *            a List of Maps containing the definition of the Catalogue entry table's columns
+     * @param rows
+     *            a List of the values for the columns (in column order), one per entry
+     * @return the CSV data, one line per entry
+     */
+    String getCopyLevel7CatalogueItemsData(long catalogueId, List<Map<String, Object>> columns,
+            List<String[]> rows)
+    {
+        Map<String, Object> model = new HashMap<>();
+        model.put("catalogueId", catalogueId);
+        model.put("columns", columns);
+        model.put("rows", rows);
         StringWriter result = new StringWriter();
-        String templatePath = "templates/createLevel7CatalogueItems.ftl";
+        String templatePath = "templates/copyLevel7CatalogueItems.ftl";
         Template template;
         try
         {
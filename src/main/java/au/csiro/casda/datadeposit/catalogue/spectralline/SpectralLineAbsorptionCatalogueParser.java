@@ -14,6 +14,7 @@ package au.csiro.casda.datadeposit.catalogue.spectralline;
 
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
@@ -64,13 +65,17 @@ public class SpectralLineAbsorptionCatalogueParser extends AbstractCataloguePars
      * @param spectralLineAbsorptionRepository
      *            a SpectralLineAbsorptionRepository to be used to manage the persistent SpectralLine Absorptions
      *            associated with the parsed catalogue
+     * @param batchSize
+     *            the number of SpectralLineAbsorption records to save in each batch
      */
     @Autowired
     public SpectralLineAbsorptionCatalogueParser(ObservationRepository observationRepository,
-            CatalogueRepository catalogueRepository, SpectralLineAbsorptionRepository spectralLineAbsorptionRepository)
+            CatalogueRepository catalogueRepository, SpectralLineAbsorptionRepository spectralLineAbsorptionRepository,
+            @Value("${catalogue.entry.batch.size}") int batchSize)
     {
         super(catalogueRepository, observationRepository, 
-          new SpectralLineAbsorptionVoTableVisitor(spectralLineAbsorptionRepository), spectralLineAbsorptionRepository);
+                new SpectralLineAbsorptionVoTableVisitor(spectralLineAbsorptionRepository, batchSize),
+                spectralLineAbsorptionRepository);
 
     }
 }
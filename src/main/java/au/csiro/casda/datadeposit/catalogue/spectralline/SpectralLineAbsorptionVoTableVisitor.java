@@ -7,9 +7,13 @@ import java.util.Map;
 import java.util.function.BiConsumer;
 
 import au.csiro.casda.datadeposit.catalogue.AbstractCatalogueVoTableVisitor;
+import au.csiro.casda.datadeposit.catalogue.BatchingCatalogueEntrySink;
+import au.csiro.casda.datadeposit.catalogue.CatalogueEntrySink;
 import au.csiro.casda.datadeposit.observation.jpa.repository.SpectralLineAbsorptionRepository;
 import au.csiro.casda.datadeposit.votable.parser.FieldConstraint;
+import au.csiro.casda.datadeposit.votable.parser.FieldValueAppliers;
 import au.csiro.casda.datadeposit.votable.parser.ParamConstraint;
+import au.csiro.casda.datadeposit.votable.parser.ParsedVoTableRow;
 import au.csiro.casda.datadeposit.votable.parser.VisitableVoTableField;
 import au.csiro.casda.entity.observation.Catalogue;
 import au.csiro.casda.entity.observation.Observation;
@@ -49,77 +53,86 @@ public class SpectralLineAbsorptionVoTableVisitor extends AbstractCatalogueVoTab
         loadConstraintsFile(SPECTRAL_LINE_ABSORPTION_CONSTRAINTS_RESOURCE_PATH, PARAM_CONSTRAINTS, FIELD_CONSTRAINTS);
     }
     
-    private static final Map<String, BiConsumer<SpectralLineAbsorption, String>> APPLIERS;
+    private static final Map<String, BiConsumer<SpectralLineAbsorption, Object>> APPLIERS;
     static
     {
         APPLIERS = new HashMap<>();
-        APPLIERS.put("id", (spectralLineAbsorption, value) -> spectralLineAbsorption.setId(Long.parseLong(value)));
-        APPLIERS.put("image_id", (spectralLineAbsorption, value) -> spectralLineAbsorption.setImageId(value));
-        APPLIERS.put("date_time_ut", (spectralLineAbsorption, value) -> spectralLineAbsorption.setDateTimeUt(value));
+        APPLIERS.put("id", (spectralLineAbsorption, value) -> spectralLineAbsorption.setId(longValue(value)));
+        APPLIERS.put("image_id",
+                (spectralLineAbsorption, value) -> spectralLineAbsorption.setImageId(stringValue(value)));
+        APPLIERS.put("date_time_ut",
+                (spectralLineAbsorption, value) -> spectralLineAbsorption.setDateTimeUt(stringValue(value)));
         APPLIERS.put("cont_component_id", (spectralLineAbsorption, value) 
-        										-> spectralLineAbsorption.setContComponentId(value));
+        										-> spectralLineAbsorption.setContComponentId(stringValue(value)));
         APPLIERS.put("cont_flux", (spectralLineAbsorption, value) 
-        										-> spectralLineAbsorption.setContFlux(Float.parseFloat(value)));
-        APPLIERS.put("object_id", (spectralLineAbsorption, value) -> spectralLineAbsorption.setObjectId(value));
+        										-> spectralLineAbsorption.setContFlux(floatValue(value)));
+        APPLIERS.put("object_id",
+                (spectralLineAbsorption, value) -> spectralLineAbsorption.setObjectId(stringValue(value)));
         APPLIERS.put("object_name",
-                (spectralLineAbsorption, value) -> spectralLineAbsorption.setObjectName(value));
-        APPLIERS.put("ra_hms_cont", (spectralLineAbsorption, value) -> spectralLineAbsorption.setRaHmsCont(value));
-        APPLIERS.put("dec_dms_cont", (spectralLineAbsorption, value) -> spectralLineAbsorption.setDecDmsCont(value));
+                (spectralLineAbsorption, value) -> spectralLineAbsorption.setObjectName(stringValue(value)));
+        APPLIERS.put("ra_hms_cont",
+                (spectralLineAbsorption, value) -> spectralLineAbsorption.setRaHmsCont(stringValue(value)));
+        APPLIERS.put("dec_dms_cont",
+                (spectralLineAbsorption, value) -> spectralLineAbsorption.setDecDmsCont(stringValue(value)));
         APPLIERS.put("ra_deg_cont", (spectralLineAbsorption, value) 
-												-> spectralLineAbsorption.setRaDegCont(Double.parseDouble(value)));
+												-> spectralLineAbsorption.setRaDegCont(doubleValue(value)));
         APPLIERS.put("dec_deg_cont", (spectralLineAbsorption, value) 
-        										-> spectralLineAbsorption.setDecDegCont(Double.parseDouble(value)));
+        										-> spectralLineAbsorption.setDecDegCont(doubleValue(value)));
         APPLIERS.put("ra_deg_cont_err", (spectralLineAbsorption, value) 
-        										-> spectralLineAbsorption.setRaDegContErr(Float.parseFloat(value)));
+        										-> spectralLineAbsorption.setRaDegContErr(floatValue(value)));
         APPLIERS.put("dec_deg_cont_err", (spectralLineAbsorption, value) 
-        										-> spectralLineAbsorption.setDecDegContErr(Float.parseFloat(value)));
+        										-> spectralLineAbsorption.setDecDegContErr(floatValue(value)));
         APPLIERS.put("freq_uw", (spectralLineAbsorption, value) 
-        										-> spectralLineAbsorption.setFreqUw(Float.parseFloat(value)));
+        										-> spectralLineAbsorption.setFreqUw(floatValue(value)));
         APPLIERS.put("freq_uw_err", (spectralLineAbsorption, value) 
-        										-> spectralLineAbsorption.setFreqUwErr(Float.parseFloat(value)));
+        										-> spectralLineAbsorption.setFreqUwErr(floatValue(value)));
         APPLIERS.put("freq_w", (spectralLineAbsorption, value) 
-												-> spectralLineAbsorption.setFreqW(Float.parseFloat(value)));
+												-> spectralLineAbsorption.setFreqW(floatValue(value)));
         APPLIERS.put("freq_w_err", (spectralLineAbsorption, value) 
-        										-> spectralLineAbsorption.setFreqWErr(Float.parseFloat(value)));
+        										-> spectralLineAbsorption.setFreqWErr(floatValue(value)));
         APPLIERS.put("z_hi_uw", (spectralLineAbsorption, value) 
-												-> spectralLineAbsorption.setZHiUw(Float.parseFloat(value)));
+												-> spectralLineAbsorption.setZHiUw(floatValue(value)));
         APPLIERS.put("z_hi_uw_err", (spectralLineAbsorption, value) 
-        										-> spectralLineAbsorption.setZHiUwErr(Float.parseFloat(value)));
+        										-> spectralLineAbsorption.setZHiUwErr(floatValue(value)));
         APPLIERS.put("z_hi_w", (spectralLineAbsorption, value) 
-												-> spectralLineAbsorption.setZHiW(Float.parseFloat(value)));
+												-> spectralLineAbsorption.setZHiW(floatValue(value)));
         APPLIERS.put("z_hi_w_err", (spectralLineAbsorption, value) 
-        										-> spectralLineAbsorption.setZHiWErr(Float.parseFloat(value)));
+        										-> spectralLineAbsorption.setZHiWErr(floatValue(value)));
         APPLIERS.put("z_hi_peak", (spectralLineAbsorption, value) 
-												-> spectralLineAbsorption.setZHiPeak(Float.parseFloat(value)));
+												-> spectralLineAbsorption.setZHiPeak(floatValue(value)));
         APPLIERS.put("z_hi_peak_err", (spectralLineAbsorption, value) 
-        										-> spectralLineAbsorption.setZHiPeakErr(Float.parseFloat(value)));
+        										-> spectralLineAbsorption.setZHiPeakErr(floatValue(value)));
         APPLIERS.put("w50", (spectralLineAbsorption, value) 
-												-> spectralLineAbsorption.setW50(Float.parseFloat(value)));
+												-> spectralLineAbsorption.setW50(floatValue(value)));
         APPLIERS.put("w50_err", (spectralLineAbsorption, value) 
-												-> spectralLineAbsorption.setW50Err(Float.parseFloat(value)));
+												-> spectralLineAbsorption.setW50Err(floatValue(value)));
         APPLIERS.put("w20", (spectralLineAbsorption, value) 
-        										-> spectralLineAbsorption.setW20(Float.parseFloat(value)));
+        										-> spectralLineAbsorption.setW20(floatValue(value)));
         APPLIERS.put("w20_err", (spectralLineAbsorption, value) 
-        										-> spectralLineAbsorption.setW20Err(Float.parseFloat(value)));
+        										-> spectralLineAbsorption.setW20Err(floatValue(value)));
         APPLIERS.put("rms_imagecube", (spectralLineAbsorption, value) 
-												-> spectralLineAbsorption.setRmsImagecube(Float.parseFloat(value)));
+												-> spectralLineAbsorption.setRmsImagecube(floatValue(value)));
         APPLIERS.put("opt_depth_peak", (spectralLineAbsorption, value) 
-        										-> spectralLineAbsorption.setOptDepthPeak(Float.parseFloat(value)));
+        										-> spectralLineAbsorption.setOptDepthPeak(floatValue(value)));
         APPLIERS.put("opt_depth_peak_err", (spectralLineAbsorption, value) 
-        										-> spectralLineAbsorption.setOptDepthPeakErr(Float.parseFloat(value)));
+        										-> spectralLineAbsorption.setOptDepthPeakErr(floatValue(value)));
         APPLIERS.put("opt_depth_int", (spectralLineAbsorption, value) 
-        										-> spectralLineAbsorption.setOptDepthInt(Float.parseFloat(value)));
+        										-> spectralLineAbsorption.setOptDepthInt(floatValue(value)));
         APPLIERS.put("opt_depth_int_err", (spectralLineAbsorption, value) 
-        										-> spectralLineAbsorption.setOptDepthIntErr(Float.parseFloat(value)));
+        										-> spectralLineAbsorption.setOptDepthIntErr(floatValue(value)));
         APPLIERS.put("flag_s1", (spectralLineAbsorption, value) 
-        										-> spectralLineAbsorption.setFlagS1(Short.parseShort(value)));
+        										-> spectralLineAbsorption.setFlagS1(shortValue(value)));
         APPLIERS.put("flag_s2", (spectralLineAbsorption, value) 
-        										-> spectralLineAbsorption.setFlagS2(Short.parseShort(value)));
+        										-> spectralLineAbsorption.setFlagS2(shortValue(value)));
         APPLIERS.put("flag_s3", (spectralLineAbsorption, value) 
-        										-> spectralLineAbsorption.setFlagS3(Short.parseShort(value)));
+        										-> spectralLineAbsorption.setFlagS3(shortValue(value)));
     }
+
+    private final FieldValueAppliers<SpectralLineAbsorption> appliers = new FieldValueAppliers<>(APPLIERS);
     
     private SpectralLineAbsorptionRepository spectralLineAbsorptionRepository;
+
+    private CatalogueEntrySink<SpectralLineAbsorption> spectralLineAbsorptionSink;
     
     /**
      * Constructs a spectralLineAbsorptionVoTableVisitor that uses the given spectralLineAbsorptionRepository
@@ -129,8 +142,24 @@ public class SpectralLineAbsorptionVoTableVisitor extends AbstractCatalogueVoTab
      *            a spectralLineAbsorptionRepository
      */
     public SpectralLineAbsorptionVoTableVisitor(SpectralLineAbsorptionRepository spectralLineAbsorptionRepository)
+    {
+        this(spectralLineAbsorptionRepository, BatchingCatalogueEntrySink.DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructs a spectralLineAbsorptionVoTableVisitor that uses the given spectralLineAbsorptionRepository
+     *  to perform any operations associated with spectralLineAbsorption persistence.
+     * 
+     * @param spectralLineAbsorptionRepository
+     *            a spectralLineAbsorptionRepository
+     * @param batchSize
+     *            the number of SpectralLineAbsorption records to save in each batch
+     */
+    public SpectralLineAbsorptionVoTableVisitor(SpectralLineAbsorptionRepository spectralLineAbsorptionRepository,
+            int batchSize)
     {
         this.spectralLineAbsorptionRepository = spectralLineAbsorptionRepository;
+        this.spectralLineAbsorptionSink = createCatalogueEntrySink(spectralLineAbsorptionRepository, batchSize);
     }
     
 	@Override
@@ -154,11 +183,13 @@ public class SpectralLineAbsorptionVoTableVisitor extends AbstractCatalogueVoTab
 	@Override
 	protected void processFields(List<VisitableVoTableField> fields)
 	{
-		// We don't really care about the fields as long as they match the defined ones.
+	    // We don't really care about the fields as long as they match the defined ones.
+	    // Look up the appliers once, so that each row can be applied by field ordinal.
+	    this.appliers.compile(fields);
 	}
 
 	@Override
-	protected void processRow(Map<VisitableVoTableField, String> row) 
+	protected void processRow(ParsedVoTableRow row) 
 	{
 		SpectralLineAbsorption spectralLineAbsorption = new SpectralLineAbsorption();
 		Catalogue catalogue = getCatalogue();
@@ -166,17 +197,7 @@ public class SpectralLineAbsorptionVoTableVisitor extends AbstractCatalogueVoTab
         spectralLineAbsorption.setSbid(((Observation) getCatalogue().getParent()).getSbid());
         spectralLineAbsorption.setOtherSbids(formatOtherSbids(((Observation) getCatalogue().getParent()).getSbids()));
         spectralLineAbsorption.setProjectId(getCatalogue().getProject().getId());
-        for (VisitableVoTableField field : row.keySet())
-        {
-            if (row.get(field) != null)
-            {
-                BiConsumer<SpectralLineAbsorption, String> applier = APPLIERS.get(field.getName());
-                if (applier != null) // Not all fields will be written to the ContinuumComponent
-                {
-                    applier.accept(spectralLineAbsorption, row.get(field));
-                }
-            }
-        }
+        this.appliers.apply(spectralLineAbsorption, row);
         double wavelen = AstroConversion.frequencyMhzToWavelength(spectralLineAbsorption.getFreqW());
         if (wavelen > 0 && (catalogue.getEmMin() == null || wavelen < catalogue.getEmMin()))
         {
@@ -186,8 +207,19 @@ public class SpectralLineAbsorptionVoTableVisitor extends AbstractCatalogueVoTab
         {
             catalogue.setEmMax(wavelen);
         }
-        this.spectralLineAbsorptionRepository.save(spectralLineAbsorption);
+        this.spectralLineAbsorptionSink.add(spectralLineAbsorption);
 	}
 
+    /**
+     * Implementation of template method
+     * {@link au.csiro.casda.datadeposit.votable.parser.AbstractVoTableElementVisitor#processEnd()} that saves any
+     * SpectralLineAbsorption records still waiting to be written.
+     */
+    @Override
+    protected void processEnd()
+    {
+        this.spectralLineAbsorptionSink.flush();
+    }
+
 
 }
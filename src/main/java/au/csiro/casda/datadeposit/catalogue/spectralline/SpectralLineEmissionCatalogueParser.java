@@ -14,6 +14,7 @@ package au.csiro.casda.datadeposit.catalogue.spectralline;
 
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
@@ -64,13 +65,17 @@ public class SpectralLineEmissionCatalogueParser extends AbstractCatalogueParser
      * @param spectralLineEmissionRepository
      *            a SpectralLineEmissionRepository to be used to manage the persistent SpectralLine Emissions
      *            associated with the parsed catalogue
+     * @param batchSize
+     *            the number of SpectralLineEmission records to save in each batch
      */
     @Autowired
     public SpectralLineEmissionCatalogueParser(ObservationRepository observationRepository,
-            CatalogueRepository catalogueRepository, SpectralLineEmissionRepository spectralLineEmissionRepository)
+            CatalogueRepository catalogueRepository, SpectralLineEmissionRepository spectralLineEmissionRepository,
+            @Value("${catalogue.entry.batch.size}") int batchSize)
     {
         super(catalogueRepository, observationRepository, 
-          new SpectralLineEmissionVoTableVisitor(spectralLineEmissionRepository), spectralLineEmissionRepository);
+                new SpectralLineEmissionVoTableVisitor(spectralLineEmissionRepository, batchSize),
+                spectralLineEmissionRepository);
 
     }
 }
@@ -7,9 +7,13 @@ import java.util.Map;
 import java.util.function.BiConsumer;
 
 import au.csiro.casda.datadeposit.catalogue.AbstractCatalogueVoTableVisitor;
+import au.csiro.casda.datadeposit.catalogue.BatchingCatalogueEntrySink;
+import au.csiro.casda.datadeposit.catalogue.CatalogueEntrySink;
 import au.csiro.casda.datadeposit.observation.jpa.repository.SpectralLineEmissionRepository;
 import au.csiro.casda.datadeposit.votable.parser.FieldConstraint;
+import au.csiro.casda.datadeposit.votable.parser.FieldValueAppliers;
 import au.csiro.casda.datadeposit.votable.parser.ParamConstraint;
+import au.csiro.casda.datadeposit.votable.parser.ParsedVoTableRow;
 import au.csiro.casda.datadeposit.votable.parser.VisitableVoTableField;
 import au.csiro.casda.entity.observation.Catalogue;
 import au.csiro.casda.entity.observation.Observation;
@@ -49,283 +53,288 @@ public class SpectralLineEmissionVoTableVisitor extends AbstractCatalogueVoTable
         loadConstraintsFile(SPECTRAL_LINE_ABSORPTION_CONSTRAINTS_RESOURCE_PATH, PARAM_CONSTRAINTS, FIELD_CONSTRAINTS);
     }
     
-    private static final Map<String, BiConsumer<SpectralLineEmission, String>> APPLIERS;
+    private static final Map<String, BiConsumer<SpectralLineEmission, Object>> APPLIERS;
     static
     {
         APPLIERS = new HashMap<>();
         //Identifiers
-        APPLIERS.put("id", (spectralLineEmission, value) -> spectralLineEmission.setId(Long.parseLong(value)));
-        APPLIERS.put("object_id", (spectralLineEmission, value) -> spectralLineEmission.setObjectId(value));
+        APPLIERS.put("id", (spectralLineEmission, value) -> spectralLineEmission.setId(longValue(value)));
+        APPLIERS.put("object_id",
+                (spectralLineEmission, value) -> spectralLineEmission.setObjectId(stringValue(value)));
         APPLIERS.put("object_name",
-                (spectralLineEmission, value) -> spectralLineEmission.setObjectName(value));
+                (spectralLineEmission, value) -> spectralLineEmission.setObjectName(stringValue(value)));
         //Position Related
         APPLIERS.put("ra_hms_w",
-                (spectralLineEmission, value) -> spectralLineEmission.setRaHmsW(value));
+                (spectralLineEmission, value) -> spectralLineEmission.setRaHmsW(stringValue(value)));
         APPLIERS.put("dec_dms_w",
-                (spectralLineEmission, value) -> spectralLineEmission.setDecDmsW(value));       
+                (spectralLineEmission, value) -> spectralLineEmission.setDecDmsW(stringValue(value)));       
         APPLIERS.put("ra_deg_w",
-                (spectralLineEmission, value) -> spectralLineEmission.setRaDegW(Double.parseDouble(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setRaDegW(doubleValue(value)));
         APPLIERS.put("ra_deg_w_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setRaDegWErr(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setRaDegWErr(floatValue(value)));
         APPLIERS.put("dec_deg_w",
-                (spectralLineEmission, value) -> spectralLineEmission.setDecDegW(Double.parseDouble(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setDecDegW(doubleValue(value)));
         APPLIERS.put("dec_deg_w_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setDecDegWErr(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setDecDegWErr(floatValue(value)));
         APPLIERS.put("ra_deg_uw",
-                (spectralLineEmission, value) -> spectralLineEmission.setRaDegUw(Double.parseDouble(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setRaDegUw(doubleValue(value)));
         APPLIERS.put("ra_deg_uw_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setRaDegUwErr(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setRaDegUwErr(floatValue(value)));
         APPLIERS.put("dec_deg_uw",
-                (spectralLineEmission, value) -> spectralLineEmission.setDecDegUw(Double.parseDouble(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setDecDegUw(doubleValue(value)));
         APPLIERS.put("dec_deg_uw_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setDecDegUwErr(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setDecDegUwErr(floatValue(value)));
         APPLIERS.put("glong_w",
-                (spectralLineEmission, value) -> spectralLineEmission.setGlongW(Double.parseDouble(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setGlongW(doubleValue(value)));
         APPLIERS.put("glong_w_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setGlongWErr(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setGlongWErr(floatValue(value)));
         APPLIERS.put("glat_w",
-                (spectralLineEmission, value) -> spectralLineEmission.setGlatW(Double.parseDouble(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setGlatW(doubleValue(value)));
         APPLIERS.put("glat_w_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setGlatWErr(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setGlatWErr(floatValue(value)));
         APPLIERS.put("glong_uw",
-                (spectralLineEmission, value) -> spectralLineEmission.setGlongUw(Double.parseDouble(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setGlongUw(doubleValue(value)));
         APPLIERS.put("glong_uw_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setGlongUwErr(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setGlongUwErr(floatValue(value)));
         APPLIERS.put("glat_uw",
-                (spectralLineEmission, value) -> spectralLineEmission.setGlatUw(Double.parseDouble(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setGlatUw(doubleValue(value)));
         APPLIERS.put("glat_uw_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setGlatUwErr(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setGlatUwErr(floatValue(value)));
         //Shape Related
         APPLIERS.put("maj_axis",
-                (spectralLineEmission, value) -> spectralLineEmission.setMajAxis(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setMajAxis(floatValue(value)));
         APPLIERS.put("min_axis",
-                (spectralLineEmission, value) -> spectralLineEmission.setMinAxis(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setMinAxis(floatValue(value)));
         APPLIERS.put("pos_ang",
-                (spectralLineEmission, value) -> spectralLineEmission.setPosAng(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setPosAng(floatValue(value)));
         APPLIERS.put("maj_axis_fit",
-                (spectralLineEmission, value) -> spectralLineEmission.setMajAxisFit(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setMajAxisFit(floatValue(value)));
         APPLIERS.put("maj_axis_fit_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setMajAxisFitErr(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setMajAxisFitErr(floatValue(value)));
         APPLIERS.put("min_axis_fit",
-                (spectralLineEmission, value) -> spectralLineEmission.setMinAxisFit(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setMinAxisFit(floatValue(value)));
         APPLIERS.put("min_axis_fit_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setMinAxisFitErr(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setMinAxisFitErr(floatValue(value)));
         APPLIERS.put("pos_ang_fit",
-                (spectralLineEmission, value) -> spectralLineEmission.setPosAngFit(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setPosAngFit(floatValue(value)));
         APPLIERS.put("pos_ang_fit_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setPosAngFitErr(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setPosAngFitErr(floatValue(value)));
         APPLIERS.put("size_x",
-                (spectralLineEmission, value) -> spectralLineEmission.setSizeX(Integer.parseInt(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setSizeX(intValue(value)));
         APPLIERS.put("size_y",
-                (spectralLineEmission, value) -> spectralLineEmission.setSizeY(Integer.parseInt(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setSizeY(intValue(value)));
         APPLIERS.put("size_z",
-                (spectralLineEmission, value) -> spectralLineEmission.setSizeZ(Integer.parseInt(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setSizeZ(intValue(value)));
         APPLIERS.put("n_vox",
-                (spectralLineEmission, value) -> spectralLineEmission.setNVox(Integer.parseInt(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setNVox(intValue(value)));
         APPLIERS.put("asymmetry_2d",
-                (spectralLineEmission, value) -> spectralLineEmission.setAsymmetry2d(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setAsymmetry2d(floatValue(value)));
         APPLIERS.put("asymmetry_2d_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setAsymmetry2dErr(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setAsymmetry2dErr(floatValue(value)));
         APPLIERS.put("asymmetry_3d",
-                (spectralLineEmission, value) -> spectralLineEmission.setAsymmetry3d(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setAsymmetry3d(floatValue(value)));
         APPLIERS.put("asymmetry_3d_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setAsymmetry3dErr(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setAsymmetry3dErr(floatValue(value)));
         //SPECTRAL LOCATION (SIMPLE)
         APPLIERS.put("freq_uw",
-                (spectralLineEmission, value) -> spectralLineEmission.setFreqUw(Double.parseDouble(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setFreqUw(doubleValue(value)));
         APPLIERS.put("freq_uw_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setFreqUwErr(Double.parseDouble(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setFreqUwErr(doubleValue(value)));
         APPLIERS.put("freq_w",
-                (spectralLineEmission, value) -> spectralLineEmission.setFreqW(Double.parseDouble(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setFreqW(doubleValue(value)));
         APPLIERS.put("freq_w_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setFreqWErr(Double.parseDouble(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setFreqWErr(doubleValue(value)));
         APPLIERS.put("freq_peak",
-                (spectralLineEmission, value) -> spectralLineEmission.setFreqPeak(Double.parseDouble(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setFreqPeak(doubleValue(value)));
         APPLIERS.put("vel_uw",
-                (spectralLineEmission, value) -> spectralLineEmission.setVelUw(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setVelUw(floatValue(value)));
         APPLIERS.put("vel_uw_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setVelUwErr(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setVelUwErr(floatValue(value)));
         APPLIERS.put("vel_w",
-                (spectralLineEmission, value) -> spectralLineEmission.setVelW(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setVelW(floatValue(value)));
         APPLIERS.put("vel_w_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setVelWErr(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setVelWErr(floatValue(value)));
         APPLIERS.put("vel_peak",
-                (spectralLineEmission, value) -> spectralLineEmission.setVelPeak(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setVelPeak(floatValue(value)));
         //FLUX-RELATED (Simple)
         APPLIERS.put("integ_flux",
-                (spectralLineEmission, value) -> spectralLineEmission.setIntegFlux(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setIntegFlux(floatValue(value)));
         APPLIERS.put("integ_flux_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setIntegFluxErr(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setIntegFluxErr(floatValue(value)));
         APPLIERS.put("flux_voxel_min",
-                (spectralLineEmission, value) -> spectralLineEmission.setFluxVoxelMin(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setFluxVoxelMin(floatValue(value)));
         APPLIERS.put("flux_voxel_max",
-                (spectralLineEmission, value) -> spectralLineEmission.setFluxVoxelMax(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setFluxVoxelMax(floatValue(value)));
         APPLIERS.put("flux_voxel_mean",
-                (spectralLineEmission, value) -> spectralLineEmission.setFluxVoxelMean(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setFluxVoxelMean(floatValue(value)));
         APPLIERS.put("flux_voxel_stddev",
-                (spectralLineEmission, value) -> spectralLineEmission.setFluxVoxelStddev(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setFluxVoxelStddev(floatValue(value)));
         APPLIERS.put("flux_voxel_rms",
-                (spectralLineEmission, value) -> spectralLineEmission.setFluxVoxelRms(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setFluxVoxelRms(floatValue(value)));
         APPLIERS.put("rms_imagecube",
-                (spectralLineEmission, value) -> spectralLineEmission.setRmsImagecube(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setRmsImagecube(floatValue(value)));
         //SPECTRAL WIDTHS 
         APPLIERS.put("w50_freq",
-                (spectralLineEmission, value) -> spectralLineEmission.setW50Freq(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setW50Freq(floatValue(value)));
         APPLIERS.put("w50_freq_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setW50FreqErr(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setW50FreqErr(floatValue(value)));
         APPLIERS.put("cw50_freq",
-                (spectralLineEmission, value) -> spectralLineEmission.setCw50Freq(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setCw50Freq(floatValue(value)));
         APPLIERS.put("cw50_freq_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setCw50FreqErr(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setCw50FreqErr(floatValue(value)));
         APPLIERS.put("w20_freq",
-                (spectralLineEmission, value) -> spectralLineEmission.setW20Freq(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setW20Freq(floatValue(value)));
         APPLIERS.put("w20_freq_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setW20FreqErr(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setW20FreqErr(floatValue(value)));
         APPLIERS.put("cw20_freq",
-                (spectralLineEmission, value) -> spectralLineEmission.setCw20Freq(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setCw20Freq(floatValue(value)));
         APPLIERS.put("cw20_freq_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setCw20FreqErr(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setCw20FreqErr(floatValue(value)));
         APPLIERS.put("w50_vel",
-                (spectralLineEmission, value) -> spectralLineEmission.setW50Vel(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setW50Vel(floatValue(value)));
         APPLIERS.put("w50_vel_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setW50VelErr(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setW50VelErr(floatValue(value)));
         APPLIERS.put("cw50_vel",
-                (spectralLineEmission, value) -> spectralLineEmission.setCw50Vel(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setCw50Vel(floatValue(value)));
         APPLIERS.put("cw50_vel_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setCw50VelErr(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setCw50VelErr(floatValue(value)));
         APPLIERS.put("w20_vel",
-                (spectralLineEmission, value) -> spectralLineEmission.setW20Vel(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setW20Vel(floatValue(value)));
         APPLIERS.put("w20_vel_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setW20VelErr(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setW20VelErr(floatValue(value)));
         APPLIERS.put("cw20_vel",
-                (spectralLineEmission, value) -> spectralLineEmission.setCw20Vel(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setCw20Vel(floatValue(value)));
         APPLIERS.put("cw20_vel_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setCw20VelErr(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setCw20VelErr(floatValue(value)));
         // SPECTRAL LOCATION (COMPLEX) 
         APPLIERS.put("freq_w50_clip_uw",
-                (spectralLineEmission, value) -> spectralLineEmission.setFreqW50ClipUw(Double.parseDouble(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setFreqW50ClipUw(doubleValue(value)));
         APPLIERS.put("freq_w50_clip_uw_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setFreqW50ClipUwErr(Double.parseDouble(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setFreqW50ClipUwErr(doubleValue(value)));
         APPLIERS.put("freq_cw50_clip_uw",
-                (spectralLineEmission, value) -> spectralLineEmission.setFreqCw50ClipUw(Double.parseDouble(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setFreqCw50ClipUw(doubleValue(value)));
         APPLIERS.put("freq_cw50_clip_uw_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setFreqCw50ClipUwErr(Double.parseDouble(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setFreqCw50ClipUwErr(doubleValue(value)));
         APPLIERS.put("freq_w20_clip_uw",
-                (spectralLineEmission, value) -> spectralLineEmission.setFreqW20ClipUw(Double.parseDouble(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setFreqW20ClipUw(doubleValue(value)));
         APPLIERS.put("freq_w20_clip_uw_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setFreqW20ClipUwErr(Double.parseDouble(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setFreqW20ClipUwErr(doubleValue(value)));
         APPLIERS.put("freq_cw20_clip_uw",
-                (spectralLineEmission, value) -> spectralLineEmission.setFreqCw20ClipUw(Double.parseDouble(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setFreqCw20ClipUw(doubleValue(value)));
         APPLIERS.put("freq_cw20_clip_uw_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setFreqCw20ClipUwErr(Double.parseDouble(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setFreqCw20ClipUwErr(doubleValue(value)));
         APPLIERS.put("vel_w50_clip_uw",
-                (spectralLineEmission, value) -> spectralLineEmission.setVelW50ClipUw(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setVelW50ClipUw(floatValue(value)));
         APPLIERS.put("vel_w50_clip_uw_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setVelW50ClipUwErr(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setVelW50ClipUwErr(floatValue(value)));
         APPLIERS.put("vel_cw50_clip_uw",
-                (spectralLineEmission, value) -> spectralLineEmission.setVelCw50ClipUw(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setVelCw50ClipUw(floatValue(value)));
         APPLIERS.put("vel_cw50_clip_uw_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setVelCw50ClipUwErr(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setVelCw50ClipUwErr(floatValue(value)));
         APPLIERS.put("vel_w20_clip_uw",
-                (spectralLineEmission, value) -> spectralLineEmission.setVelW20ClipUw(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setVelW20ClipUw(floatValue(value)));
         APPLIERS.put("vel_w20_clip_uw_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setVelW20ClipUwErr(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setVelW20ClipUwErr(floatValue(value)));
         APPLIERS.put("vel_cw20_clip_uw",
-                (spectralLineEmission, value) -> spectralLineEmission.setVelCw20ClipUw(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setVelCw20ClipUw(floatValue(value)));
         APPLIERS.put("vel_cw20_clip_uw_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setVelCw20ClipUwErr(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setVelCw20ClipUwErr(floatValue(value)));
         APPLIERS.put("freq_w50_clip_w",
-                (spectralLineEmission, value) -> spectralLineEmission.setFreqW50ClipW(Double.parseDouble(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setFreqW50ClipW(doubleValue(value)));
         APPLIERS.put("freq_w50_clip_w_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setFreqW50ClipWErr(Double.parseDouble(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setFreqW50ClipWErr(doubleValue(value)));
         APPLIERS.put("freq_cw50_clip_w",
-                (spectralLineEmission, value) -> spectralLineEmission.setFreqCw50ClipW(Double.parseDouble(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setFreqCw50ClipW(doubleValue(value)));
         APPLIERS.put("freq_cw50_clip_w_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setFreqCw50ClipWErr(Double.parseDouble(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setFreqCw50ClipWErr(doubleValue(value)));
         APPLIERS.put("freq_w20_clip_w",
-                (spectralLineEmission, value) -> spectralLineEmission.setFreqW20ClipW(Double.parseDouble(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setFreqW20ClipW(doubleValue(value)));
         APPLIERS.put("freq_w20_clip_w_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setFreqW20ClipWErr(Double.parseDouble(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setFreqW20ClipWErr(doubleValue(value)));
         APPLIERS.put("freq_cw20_clip_w",
-                (spectralLineEmission, value) -> spectralLineEmission.setFreqCw20ClipW(Double.parseDouble(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setFreqCw20ClipW(doubleValue(value)));
         APPLIERS.put("freq_cw20_clip_w_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setFreqCw20ClipWErr(Double.parseDouble(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setFreqCw20ClipWErr(doubleValue(value)));
         APPLIERS.put("vel_w50_clip_w",
-                (spectralLineEmission, value) -> spectralLineEmission.setVelW50ClipW(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setVelW50ClipW(floatValue(value)));
         APPLIERS.put("vel_w50_clip_w_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setVelW50ClipWErr(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setVelW50ClipWErr(floatValue(value)));
         APPLIERS.put("vel_cw50_clip_w",
-                (spectralLineEmission, value) -> spectralLineEmission.setVelCw50ClipW(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setVelCw50ClipW(floatValue(value)));
         APPLIERS.put("vel_cw50_clip_w_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setVelCw50ClipWErr(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setVelCw50ClipWErr(floatValue(value)));
         APPLIERS.put("vel_w20_clip_w",
-                (spectralLineEmission, value) -> spectralLineEmission.setVelW20ClipW(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setVelW20ClipW(floatValue(value)));
         APPLIERS.put("vel_w20_clip_w_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setVelW20ClipWErr(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setVelW20ClipWErr(floatValue(value)));
         APPLIERS.put("vel_cw20_clip_w",
-                (spectralLineEmission, value) -> spectralLineEmission.setVelCw20ClipW(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setVelCw20ClipW(floatValue(value)));
         APPLIERS.put("vel_cw20_clip_w_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setVelCw20ClipWErr(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setVelCw20ClipWErr(floatValue(value)));
         //FLUX-RELATED (complex)
         APPLIERS.put("integ_flux_w50_clip",
-                (spectralLineEmission, value) -> spectralLineEmission.setIntegFluxW50Clip(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setIntegFluxW50Clip(floatValue(value)));
         APPLIERS.put("integ_flux_w50_clip_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setIntegFluxW50ClipErr(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setIntegFluxW50ClipErr(floatValue(value)));
         APPLIERS.put("integ_flux_cw50_clip",
-                (spectralLineEmission, value) -> spectralLineEmission.setIntegFluxCw50Clip(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setIntegFluxCw50Clip(floatValue(value)));
         APPLIERS.put("integ_flux_cw50_clip_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setIntegFluxCw50ClipErr(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setIntegFluxCw50ClipErr(floatValue(value)));
         APPLIERS.put("integ_flux_w20_clip",
-                (spectralLineEmission, value) -> spectralLineEmission.setIntegFluxW20Clip(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setIntegFluxW20Clip(floatValue(value)));
         APPLIERS.put("integ_flux_w20_clip_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setIntegFluxW20ClipErr(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setIntegFluxW20ClipErr(floatValue(value)));
         APPLIERS.put("integ_flux_cw20_clip",
-                (spectralLineEmission, value) -> spectralLineEmission.setIntegFluxCw20Clip(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setIntegFluxCw20Clip(floatValue(value)));
         APPLIERS.put("integ_flux_cw20_clip_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setIntegFluxCw20ClipErr(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setIntegFluxCw20ClipErr(floatValue(value)));
         //BUSY-FUNCTION PARAMETERS
         APPLIERS.put("bf_a",
-                (spectralLineEmission, value) -> spectralLineEmission.setBfA(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setBfA(floatValue(value)));
         APPLIERS.put("bf_a_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setBfAErr(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setBfAErr(floatValue(value)));
         APPLIERS.put("bf_w",
-                (spectralLineEmission, value) -> spectralLineEmission.setBfW(Double.parseDouble(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setBfW(doubleValue(value)));
         APPLIERS.put("bf_w_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setBfWErr(Double.parseDouble(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setBfWErr(doubleValue(value)));
         APPLIERS.put("bf_b1",
-                (spectralLineEmission, value) -> spectralLineEmission.setBfB1(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setBfB1(floatValue(value)));
         APPLIERS.put("bf_b1_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setBfB1Err(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setBfB1Err(floatValue(value)));
         APPLIERS.put("bf_b2",
-                (spectralLineEmission, value) -> spectralLineEmission.setBfB2(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setBfB2(floatValue(value)));
         APPLIERS.put("bf_b2_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setBfB2Err(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setBfB2Err(floatValue(value)));
         APPLIERS.put("bf_xe",
-                (spectralLineEmission, value) -> spectralLineEmission.setBfXe(Double.parseDouble(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setBfXe(doubleValue(value)));
         APPLIERS.put("bf_xe_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setBfXeErr(Double.parseDouble(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setBfXeErr(doubleValue(value)));
         APPLIERS.put("bf_xp",
-                (spectralLineEmission, value) -> spectralLineEmission.setBfXp(Double.parseDouble(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setBfXp(doubleValue(value)));
         APPLIERS.put("bf_xp_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setBfXpErr(Double.parseDouble(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setBfXpErr(doubleValue(value)));
         APPLIERS.put("bf_c",
-                (spectralLineEmission, value) -> spectralLineEmission.setBfC(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setBfC(floatValue(value)));
         APPLIERS.put("bf_c_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setBfCErr(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setBfCErr(floatValue(value)));
         APPLIERS.put("bf_n",
-                (spectralLineEmission, value) -> spectralLineEmission.setBfN(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setBfN(floatValue(value)));
         APPLIERS.put("bf_n_err",
-                (spectralLineEmission, value) -> spectralLineEmission.setBfNErr(Float.parseFloat(value)));
+                (spectralLineEmission, value) -> spectralLineEmission.setBfNErr(floatValue(value)));
         //FLAGS
         APPLIERS.put("flag_s1", (spectralLineEmission, value) 
-                -> spectralLineEmission.setFlagS1(Integer.parseInt(value)));
+                -> spectralLineEmission.setFlagS1(intValue(value)));
         APPLIERS.put("flag_s2", (spectralLineEmission, value) 
-                -> spectralLineEmission.setFlagS2(Integer.parseInt(value)));
+                -> spectralLineEmission.setFlagS2(intValue(value)));
         APPLIERS.put("flag_s3", (spectralLineEmission, value) 
-                -> spectralLineEmission.setFlagS3(Integer.parseInt(value)));
+                -> spectralLineEmission.setFlagS3(intValue(value)));
     }
+
+    private final FieldValueAppliers<SpectralLineEmission> appliers = new FieldValueAppliers<>(APPLIERS);
     
     private SpectralLineEmissionRepository spectralLineEmissionRepository;
+
+    private CatalogueEntrySink<SpectralLineEmission> spectralLineEmissionSink;
     
     /**
      * Constructs a spectralLineEmissionVoTableVisitor that uses the given spectralLineEmissionRepository
@@ -335,8 +344,24 @@ public class SpectralLineEmissionVoTableVisitor extends AbstractCatalogueVoTable
      *            a spectralLineEmissionRepository
      */
     public SpectralLineEmissionVoTableVisitor(SpectralLineEmissionRepository spectralLineEmissionRepository)
+    {
+        this(spectralLineEmissionRepository, BatchingCatalogueEntrySink.DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructs a spectralLineEmissionVoTableVisitor that uses the given spectralLineEmissionRepository
+     *  to perform any operations associated with spectralLineEmission persistence.
+     * 
+     * @param spectralLineEmissionRepository
+     *            a spectralLineEmissionRepository
+     * @param batchSize
+     *            the number of SpectralLineEmission records to save in each batch
+     */
+    public SpectralLineEmissionVoTableVisitor(SpectralLineEmissionRepository spectralLineEmissionRepository,
+            int batchSize)
     {
         this.spectralLineEmissionRepository = spectralLineEmissionRepository;
+        this.spectralLineEmissionSink = createCatalogueEntrySink(spectralLineEmissionRepository, batchSize);
     }
     
     @Override
@@ -361,27 +386,19 @@ public class SpectralLineEmissionVoTableVisitor extends AbstractCatalogueVoTable
     protected void processFields(List<VisitableVoTableField> fields)
     {
         // We don't really care about the fields as long as they match the defined ones.
+        // Look up the appliers once, so that each row can be applied by field ordinal.
+        this.appliers.compile(fields);
     }
 
     @Override
-    protected void processRow(Map<VisitableVoTableField, String> row) 
+    protected void processRow(ParsedVoTableRow row) 
     {
         SpectralLineEmission spectralLineEmission = new SpectralLineEmission();
         spectralLineEmission.setCatalogue(getCatalogue());
         spectralLineEmission.setSbid(((Observation) getCatalogue().getParent()).getSbid());
         spectralLineEmission.setOtherSbids(formatOtherSbids(((Observation) getCatalogue().getParent()).getSbids()));
         spectralLineEmission.setProjectId(getCatalogue().getProject().getId());
-        for (VisitableVoTableField field : row.keySet())
-        {
-            if (row.get(field) != null)
-            {
-                BiConsumer<SpectralLineEmission, String> applier = APPLIERS.get(field.getName());
-                if (applier != null) // Not all fields will be written to the ContinuumComponent
-                {
-                    applier.accept(spectralLineEmission, row.get(field));
-                }
-            }
-        }
+        this.appliers.apply(spectralLineEmission, row);
         
         double wavelen = AstroConversion.frequencyMhzToWavelength(spectralLineEmission.getFreqW());
         Catalogue catalogue = getCatalogue();
@@ -394,7 +411,18 @@ public class SpectralLineEmissionVoTableVisitor extends AbstractCatalogueVoTable
             catalogue.setEmMax(wavelen);
         }
         
-        this.spectralLineEmissionRepository.save(spectralLineEmission);
+        this.spectralLineEmissionSink.add(spectralLineEmission);
+    }
+
+    /**
+     * Implementation of template method
+     * {@link au.csiro.casda.datadeposit.votable.parser.AbstractVoTableElementVisitor#processEnd()} that saves any
+     * SpectralLineEmission records still waiting to be written.
+     */
+    @Override
+    protected void processEnd()
+    {
+        this.spectralLineEmissionSink.flush();
     }
 
 
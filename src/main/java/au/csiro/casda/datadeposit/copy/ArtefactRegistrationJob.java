@@ -0,0 +1,88 @@
+package au.csiro.casda.datadeposit.copy;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * A single staged artefact to be registered by {@link RegisterArtefactBatchCommandLineTool}, ie: the values that would
+ * otherwise be given to {@link RegisterArtefactCommandLineTool} on the command line for each artefact of an
+ * observation or Level 7 collection.
+ * <p>
+ * An artefacts file has one artefact per line, made up of the following whitespace separated values:
+ *
+ * <pre>
+ * infile file-id
+ * </pre>
+ *
+ * where the infile is the full file path of the artefact and the file-id is the id of its file in NGAS. Blank lines and
+ * lines starting with '#' are ignored.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+class ArtefactRegistrationJob
+{
+    private final String infile;
+
+    private final String fileId;
+
+    /**
+     * Constructor
+     *
+     * @param infile
+     *            the full file path of the artefact
+     * @param fileId
+     *            the file_id of the file in NGAS
+     */
+    ArtefactRegistrationJob(String infile, String fileId)
+    {
+        this.infile = infile;
+        this.fileId = fileId;
+    }
+
+    /**
+     * Parses a single line of an artefacts file.
+     *
+     * @param line
+     *            the line
+     * @return the job
+     * @throws IllegalArgumentException
+     *             if the line is not a valid job
+     */
+    static ArtefactRegistrationJob parse(String line)
+    {
+        String[] values = line.trim().split("\\s+");
+        if (values.length != 2)
+        {
+            throw new IllegalArgumentException("expected 'infile file-id' but was '" + line.trim() + "'");
+        }
+        return new ArtefactRegistrationJob(values[0], values[1]);
+    }
+
+    public String getInfile()
+    {
+        return infile;
+    }
+
+    public String getFileId()
+    {
+        return fileId;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return infile + " " + fileId;
+    }
+}
@@ -0,0 +1,149 @@
+package au.csiro.casda.datadeposit.copy;
+
+import au.csiro.casda.datadeposit.AbstractCommandLineArgumentsParser;
+import au.csiro.casda.datadeposit.CommonCommandLineArguments;
+import au.csiro.casda.logging.CasdaMessageBuilder;
+
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.ParameterException;
+import com.beust.jcommander.Parameters;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * Package-level helper class to support command line parameter parsing for RegisterArtefactBatchCommandLineTool.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+class RegisterArtefactBatchCommandLineArgumentsParser extends
+        AbstractCommandLineArgumentsParser<RegisterArtefactBatchCommandLineArgumentsParser.CommandLineArguments>
+{
+    /**
+     * Describes and holds argument values. See {@link com.beust.jcommander.JCommander}
+     * <p>
+     * Copyright 2016, CSIRO Australia. All rights reserved.
+     */
+    @Parameters(commandDescription = "Register several depositable artefacts of an observation or level7 collection "
+            + "with NGAS at the same time. (The artefacts must already have been staged to the NGAS staging area.)")
+    static class CommandLineArguments extends CommonCommandLineArguments
+    {
+        @Parameter(names = "-parent-id",
+                description = "the scheduling block id of the Observation or level7 collection id", required = true)
+        private String parentId;
+
+        @Parameter(names = "-staging_volume",
+                description = "the 'volume' to which the depositable artefacts have been staged", required = true)
+        private String stagingVolume;
+
+        @Parameter(names = "-artefacts-file", description = "a file listing the artefacts to register, one per line "
+                + "as 'infile file-id'", required = true)
+        private String artefactsFile;
+
+        @Parameter(names = "-threads", description = "the number of artefacts to register at the same time "
+                + "(defaults to ngas.register.threads)", required = false)
+        private String threads;
+
+        @Parameter(names = "-report", description = "a file to write the outcome of registering each artefact to",
+                required = false)
+        private String report;
+
+        /**
+         * @return the parentId argument
+         */
+        public Integer getParentId()
+        {
+            return Integer.parseInt(parentId);
+        }
+
+        /**
+         * @return the staging volume argument
+         */
+        public String getStagingVolume()
+        {
+            return stagingVolume;
+        }
+
+        /**
+         * @return the artefacts-file argument
+         */
+        public String getArtefactsFile()
+        {
+            return artefactsFile;
+        }
+
+        /**
+         * @return the threads argument (if supplied)
+         */
+        public Integer getThreads()
+        {
+            if (threads == null)
+            {
+                return null;
+            }
+            return Integer.parseInt(threads);
+        }
+
+        /**
+         * @return the report argument (if supplied)
+         */
+        public String getReport()
+        {
+            return report;
+        }
+    }
+
+    /**
+     * Package-visible Constructor.
+     */
+    RegisterArtefactBatchCommandLineArgumentsParser()
+    {
+        super(RegisterArtefactBatchCommandLineTool.TOOL_NAME, new CommandLineArguments());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void validate() throws ParameterException
+    {
+        try
+        {
+            getArgs().getParentId();
+        }
+        catch (NumberFormatException e)
+        {
+            throw new ParameterException("Parameter parent-id must be an integer");
+        }
+        Integer threads;
+        try
+        {
+            threads = getArgs().getThreads();
+        }
+        catch (NumberFormatException e)
+        {
+            throw new ParameterException("Parameter threads must be an integer");
+        }
+        if (threads != null && threads < 1)
+        {
+            throw new ParameterException("Parameter threads must be at least 1");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addArgumentValuesToMalformedParametersEvent(CasdaMessageBuilder<?> builder)
+    {
+    }
+}
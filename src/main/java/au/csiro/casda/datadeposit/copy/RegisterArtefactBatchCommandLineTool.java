@@ -0,0 +1,305 @@
+package au.csiro.casda.datadeposit.copy;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Import;
+
+import au.csiro.casda.AppConfig;
+import au.csiro.casda.datadeposit.ArgumentsDrivenCommandLineTool;
+import au.csiro.casda.datadeposit.DataDepositMessageBuilder;
+import au.csiro.casda.datadeposit.JobFileReader;
+import au.csiro.casda.datadeposit.ParallelJobRunner;
+import au.csiro.casda.datadeposit.copy.RegisterArtefactBatchCommandLineArgumentsParser.CommandLineArguments;
+import au.csiro.casda.logging.DataLocation;
+import au.csiro.logging.CasdaDataDepositEvents;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * Command-line tool used to register the staged depositable artefacts of an observation or Level 7 collection (see
+ * {@link ArtefactRegistrationJob}) with NGAS, several at the same time, as if each had been registered by
+ * {@link RegisterArtefactCommandLineTool}.
+ * <p>
+ * Each artefact is registered on a thread of a bounded pool, so that up to that many REGISTER calls are in progress
+ * at once over the NgasService's pool of kept-alive connections, and the checksum of each artefact is verified as soon
+ * as the STATUS of its file comes back from NGAS. The outcome of each artefact is logged with the same events as
+ * register_artefact, and can also be written to a report file, and the tool exits with a failure code if any of the
+ * artefacts could not be registered.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+@Import(AppConfig.class)
+public class RegisterArtefactBatchCommandLineTool extends
+        ArgumentsDrivenCommandLineTool<RegisterArtefactBatchCommandLineArgumentsParser.CommandLineArguments>
+{
+    /**
+     * The name of this tool.
+     */
+    public static final String TOOL_NAME = "register_artefact_batch";
+
+    private static final Logger logger = LoggerFactory.getLogger(RegisterArtefactBatchCommandLineTool.class);
+
+    /**
+     * The outcome of registering a single artefact, as written to the report.
+     * <p>
+     * Copyright 2016, CSIRO Australia. All rights reserved.
+     */
+    static final class Outcome
+    {
+        /**
+         * Whether the artefact was registered, or why not.
+         */
+        enum Status
+        {
+            REGISTERED, CHECKSUM_MISSING, REGISTER_FAILED, CHECKSUM_FAILED, FAILED
+        }
+
+        private final ArtefactRegistrationJob job;
+
+        private final Status status;
+
+        private final String reason;
+
+        Outcome(ArtefactRegistrationJob job, Status status, String reason)
+        {
+            this.job = job;
+            this.status = status;
+            this.reason = reason;
+        }
+
+        public ArtefactRegistrationJob getJob()
+        {
+            return job;
+        }
+
+        public Status getStatus()
+        {
+            return status;
+        }
+
+        public String getReason()
+        {
+            return reason;
+        }
+
+        /**
+         * @return the outcome as a line of the report, ie: 'status infile file-id [reason]' where the reason is written
+         *         on one line
+         */
+        @Override
+        public String toString()
+        {
+            return status + " " + job + (reason == null ? "" : " " + reason.replaceAll("\\s+", " ").trim());
+        }
+    }
+
+    private RegisterArtefactBatchCommandLineArgumentsParser commandLineArgumentsParser =
+            new RegisterArtefactBatchCommandLineArgumentsParser();
+
+    private final NgasRegistrar registrar;
+
+    private final int defaultThreads;
+
+    /**
+     * main method used to run this CommandLineTool
+     * 
+     * @param args
+     *            the command-line arguments
+     */
+    public static void main(String[] args)
+    {
+        runCommandLineTool(RegisterArtefactBatchCommandLineTool.class, logger, args);
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param registrar
+     *            the service object used to perform registration of each artefact
+     * @param defaultThreads
+     *            the number of artefacts to register at the same time, unless given on the command line
+     */
+    @Autowired
+    public RegisterArtefactBatchCommandLineTool(NgasRegistrar registrar,
+            @Value("${ngas.register.threads}") int defaultThreads)
+    {
+        this.registrar = registrar;
+        this.defaultThreads = defaultThreads;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run(String... args)
+    {
+        parseCommandLineArguments(logger, args);
+
+        CommandLineArguments arguments = commandLineArgumentsParser.getArgs();
+        int threads = arguments.getThreads() == null ? defaultThreads : arguments.getThreads();
+
+        List<ArtefactRegistrationJob> jobs;
+        try
+        {
+            jobs = JobFileReader.readJobs(new File(arguments.getArtefactsFile()), ArtefactRegistrationJob::parse);
+        }
+        catch (IOException | IllegalArgumentException e)
+        {
+            logger.error(CasdaDataDepositEvents.E092.messageBuilder().add(String.join(" ", args)).toString(), e);
+            System.exit(1);
+            return;
+        }
+
+        Instant startTime = Instant.now();
+        List<Outcome> outcomes =
+                registerArtefacts(arguments.getParentId(), arguments.getStagingVolume(), jobs, threads);
+        long registered =
+                outcomes.stream().filter(outcome -> outcome.getStatus() == Outcome.Status.REGISTERED).count();
+        logger.info("Registered {} of {} artefacts listed in {} in {} ms", registered, jobs.size(),
+                arguments.getArtefactsFile(), Duration.between(startTime, Instant.now()).toMillis());
+
+        if (arguments.getReport() != null)
+        {
+            try
+            {
+                writeReport(new File(arguments.getReport()), outcomes);
+            }
+            catch (IOException e)
+            {
+                logger.error("Could not write the registration report to " + arguments.getReport(), e);
+                System.exit(1);
+                return;
+            }
+        }
+
+        System.exit(registered == jobs.size() ? 0 : 1);
+    }
+
+    /**
+     * Registers the given artefacts, using up to the given number of threads, logging the outcome of each.
+     *
+     * @param parentId
+     *            the scheduling block id of the Observation, or the Level 7 Collection id, the artefacts belong to
+     * @param stagingVolume
+     *            the volume that the artefacts were staged to
+     * @param jobs
+     *            the artefacts to register
+     * @param threads
+     *            the maximum number of artefacts to register at the same time
+     * @return the outcome of each artefact, in the same order as the jobs
+     */
+    List<Outcome> registerArtefacts(Integer parentId, String stagingVolume, List<ArtefactRegistrationJob> jobs,
+            int threads)
+    {
+        return ParallelJobRunner.runAll(jobs, threads, job -> registerArtefact(parentId, stagingVolume, job),
+                (job, e) -> new Outcome(job, Outcome.Status.FAILED, e.toString()));
+    }
+
+    /*
+     * Registers a single artefact, logging the outcome in the same way as RegisterArtefactCommandLineTool.
+     */
+    private Outcome registerArtefact(Integer parentId, String stagingVolume, ArtefactRegistrationJob job)
+    {
+        String infile = job.getInfile();
+        String fileId = job.getFileId();
+        logger.info(CasdaDataDepositEvents.E090.messageBuilder().add(infile).add(fileId).add(parentId).toString());
+
+        Instant startTime = Instant.now();
+        try
+        {
+            registrar.registerArtefactWithNgas(parentId, infile, stagingVolume, fileId);
+        }
+        catch (NoSuchFileException e)
+        {
+            logger.error(CasdaDataDepositEvents.E007.messageBuilder().add(infile).add(parentId).toString(), e);
+            return new Outcome(job, Outcome.Status.CHECKSUM_MISSING, e.getMessage());
+        }
+        catch (RegisterException e)
+        {
+            logger.error(CasdaDataDepositEvents.E080.messageBuilder().add(infile).add(fileId).add(parentId)
+                    .add("register").toString(), e);
+            return new Outcome(job, Outcome.Status.REGISTER_FAILED, e.getMessage());
+        }
+        catch (ChecksumVerificationException e)
+        {
+            logger.error(CasdaDataDepositEvents.E006.messageBuilder().add(infile).add(parentId).toString(), e);
+            return new Outcome(job, Outcome.Status.CHECKSUM_FAILED, e.getMessage());
+        }
+        Instant endTime = Instant.now();
+
+        DataDepositMessageBuilder messageBuilder = CasdaDataDepositEvents.E043.messageBuilder() //
+                .add(infile) //
+                .add(fileId) //
+                .add(parentId) //
+                .addStartTime(startTime) //
+                .addEndTime(endTime) //
+                .addSource(DataLocation.NGAS) //
+                .addDestination(DataLocation.NGAS) //
+                .addVolumeBytes(FileUtils.sizeOf(new File(infile))) //
+                .addFileId(fileId);
+        logger.info(messageBuilder.toString());
+        return new Outcome(job, Outcome.Status.REGISTERED, null);
+    }
+
+    /**
+     * Writes the outcome of each artefact to a report file, one per line.
+     * 
+     * @param report
+     *            the report file
+     * @param outcomes
+     *            the outcomes
+     * @throws IOException
+     *             if the file could not be written
+     */
+    static void writeReport(File report, List<Outcome> outcomes) throws IOException
+    {
+        List<String> lines = new ArrayList<>();
+        lines.add("# status infile file-id [reason]");
+        for (Outcome outcome : outcomes)
+        {
+            lines.add(outcome.toString());
+        }
+        Files.write(report.toPath(), lines, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public RegisterArtefactBatchCommandLineArgumentsParser getCommandLineArgumentsParser()
+    {
+        return commandLineArgumentsParser;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected CasdaDataDepositEvents getMalformedParametersEvent()
+    {
+        return CasdaDataDepositEvents.E092;
+    }
+}
@@ -15,13 +15,21 @@ package au.csiro.casda.datadeposit.encapsulation;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 
 import javax.transaction.Transactional;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.filefilter.WildcardFileFilter;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang3.CharEncoding;
@@ -39,8 +47,7 @@ import au.csiro.casda.datadeposit.DepositState.Type;
 import au.csiro.casda.datadeposit.exception.CreateChecksumException;
 import au.csiro.casda.datadeposit.observation.jpa.repository.EncapsulationFileRepository;
 import au.csiro.casda.datadeposit.observation.jpa.repository.EvaluationFileRepository;
-import au.csiro.casda.datadeposit.service.InlineScriptException;
-import au.csiro.casda.datadeposit.service.InlineScriptService;
+import au.csiro.casda.datadeposit.service.ChecksumService;
 import au.csiro.casda.entity.observation.EncapsulationFile;
 import au.csiro.casda.entity.observation.EvaluationFile;
 import au.csiro.casda.jobmanager.ProcessJob;
@@ -102,58 +109,59 @@ public class EncapsulationService
 
     private static final Logger logger = LoggerFactory.getLogger(EncapsulationService.class);
 
-    private InlineScriptService inlineScriptService;
+    private ChecksumService checksumService;
 
     private ProcessJobFactory processJobFactory;
 
-    private String encapsulationCommandAndArgs;
-
     private String encapsulationVerifyCommandAndArgs;
 
-    private String calculateChecksumScript;
-
     private EncapsulationFileRepository encapsulationFileRepository;
     
     private EvaluationFileRepository evaluationFileRepository;
 
+    private int verifyThreads;
+
     /**
      * Constructor for a EncapsulationService that creates encapsulations.
      * 
-     * @param encapsulationCommandAndArgs
-     *            An EL-string containing the command and initial arguments used to create an encapsulation. The names
-     *            of the files will be appended to this command string.
      * @param encapsulationVerifyCommandAndArgs
      *            An EL-string containing the command and arguments used to verify an encapsulation.
-     * @param calculateChecksumScript
-     *            The command to calculate a checksum.
      * @param processJobFactory
      *            the factory to be used to create job processes.
-     * @param inlineScriptService
-     *            the service to run simple scripts such as checksums
+     * @param checksumService
+     *            the service used to calculate checksums
      * @param encapsulationFileRepository
      *            The repository for encapsulation files.
      * @param evaluationFileRepository
      *            The repository for evaluation files.
+     * @param verifyThreads
+     *            The maximum number of files to verify the checksums of at the same time.
      */
     @Autowired
-    public EncapsulationService(@Value("${encapsulation.create.command.and.args}") String encapsulationCommandAndArgs,
+    public EncapsulationService(
             @Value("${encapsulation.verify.command.and.args}") String encapsulationVerifyCommandAndArgs,
-            @Value("${calculate.checksum.script}") String calculateChecksumScript, ProcessJobFactory processJobFactory,
-            InlineScriptService inlineScriptService, EncapsulationFileRepository encapsulationFileRepository, 
-            EvaluationFileRepository evaluationFileRepository)
+            ProcessJobFactory processJobFactory, ChecksumService checksumService,
+            EncapsulationFileRepository encapsulationFileRepository, 
+            EvaluationFileRepository evaluationFileRepository,
+            @Value("${encapsulation.verify.threads}") int verifyThreads)
     {
         super();
-        this.encapsulationCommandAndArgs = encapsulationCommandAndArgs;
         this.encapsulationVerifyCommandAndArgs = encapsulationVerifyCommandAndArgs;
-        this.calculateChecksumScript = calculateChecksumScript;
         this.processJobFactory = processJobFactory;
-        this.inlineScriptService = inlineScriptService;
+        this.checksumService = checksumService;
         this.encapsulationFileRepository = encapsulationFileRepository;
         this.evaluationFileRepository = evaluationFileRepository;
+        if (verifyThreads < 1)
+        {
+            throw new IllegalArgumentException("expected verifyThreads >= 1");
+        }
+        this.verifyThreads = verifyThreads;
     }
 
     /**
-     * Verify the checksums of the files matching the pattern.
+     * Verify the checksums of the files matching the pattern. The files are checked in parallel, up to the configured
+     * number at a time. Once a file has failed no more files are started, but all of the failures of the files that
+     * had already started are reported.
      * 
      * @param inFile
      *            The full path to the encapsulation file.
@@ -166,26 +174,100 @@ public class EncapsulationService
      * @param eval 
      * 			  boolean denoting if this encapsulation is for evaluation files		  
      * @throws EncapsulationException
-     *             If the checksum does not match or cannot be checked.
+     *             If a checksum does not match or cannot be checked. If more than one file failed then the exception
+     *             for each is attached as a suppressed exception.
      */
     public void verifyChecksums(String inFile, String encapsulationFilename, String pattern, int sbid, boolean eval) 
     		throws EncapsulationException
     {
     	Collection<File> files = getMatchingFiles(inFile, encapsulationFilename, pattern, sbid, false, eval);
-        for (File file : files)
+        if (files.isEmpty())
         {
-            String filename = file.getPath();
-            try
+            return;
+        }
+
+        AtomicBoolean failed = new AtomicBoolean(false);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(verifyThreads, files.size()));
+        List<EncapsulationException> failures = new ArrayList<>();
+        try
+        {
+            List<Future<Void>> results = new ArrayList<>();
+            for (File file : files)
             {
-                filename = file.getCanonicalPath();
-                verifyChecksumForFile(filename);
+                results.add(executor.submit(() -> {
+                    if (!failed.get())
+                    {
+                        verifyChecksumForMatchingFile(file, failed);
+                    }
+                    return null;
+                }));
             }
-            catch (InlineScriptException | IOException e)
+            for (Future<Void> result : results)
             {
-                throw new EncapsulationException("Checksum could not be checked for " + filename, e);
+                try
+                {
+                    result.get();
+                }
+                catch (ExecutionException e)
+                {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof EncapsulationException)
+                    {
+                        failures.add((EncapsulationException) cause);
+                    }
+                    else if (cause instanceof Error)
+                    {
+                        throw (Error) cause;
+                    }
+                    else
+                    {
+                        failures.add(new EncapsulationException("Checksum could not be checked", cause));
+                    }
+                }
             }
         }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new EncapsulationException("Interrupted while verifying checksums", e);
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        if (failures.size() == 1)
+        {
+            throw failures.get(0);
+        }
+        else if (failures.size() > 1)
+        {
+            EncapsulationException exception = new EncapsulationException(
+                    String.format("Checksums failed for %d files: %s", failures.size(), failures.stream()
+                            .map(EncapsulationException::getMessage).collect(Collectors.joining(" "))));
+            failures.forEach(exception::addSuppressed);
+            throw exception;
+        }
+    }
 
+    private void verifyChecksumForMatchingFile(File file, AtomicBoolean failed) throws EncapsulationException
+    {
+        String filename = file.getPath();
+        try
+        {
+            filename = file.getCanonicalPath();
+            verifyChecksumForFile(filename);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            failed.set(true);
+            throw new EncapsulationException("Checksum could not be checked for " + filename, e);
+        }
+        catch (EncapsulationException e)
+        {
+            failed.set(true);
+            throw e;
+        }
     }
 
     /**
@@ -211,33 +293,28 @@ public class EncapsulationService
     public int createEncapsulation(int sbid, String encapsulationFilename, String inFile, String pattern, boolean eval)
             throws EncapsulationException, CreateChecksumException
     {
-        List<String> argList = new ArrayList<>(Utils.elStringToList(this.encapsulationCommandAndArgs));
-
         Collection<File> files = getMatchingFiles(inFile, encapsulationFilename, pattern, sbid, true, eval);
-        for (File file : files)
+
+        // The archive's checksum is calculated as it is written, so the archive never needs to be read back
+        Path obsFolder = new File(inFile).getAbsoluteFile().getParentFile().toPath();
+        String checksum;
+        try (TarArchiveWriter writer = new TarArchiveWriter(Paths.get(inFile), checksumService.getBufferSize()))
         {
-            argList.add(file.getPath());
-            argList.add(file.getPath() + ".checksum");
+            for (File file : files)
+            {
+                String entryName = FilenameUtils.separatorsToUnix(file.getPath());
+                writer.addFile(obsFolder.resolve(file.toPath()), entryName);
+                writer.addFile(obsFolder.resolve(file.getPath() + ChecksumService.CHECKSUM_FILE_SUFFIX),
+                        entryName + ChecksumService.CHECKSUM_FILE_SUFFIX);
+            }
+            checksum = writer.finish();
         }
-
-        String obsFolder = new File(inFile).getParent();
-        SimpleToolProcessJobBuilder builder =
-                new SimpleToolProcessJobBuilder(processJobFactory, argList.toArray(new String[0]));
-
-        builder.setProcessParameter("encapsfile", inFile);
-        builder.setProcessParameter("folder", obsFolder);
-
-        ProcessJob job = builder.createJob("jobId", "type");
-        SingleJobMonitor monitor = new SingleJobMonitor();
-        job.run(monitor);
-        if (monitor.isJobFailed())
+        catch (IOException e)
         {
-            throw new EncapsulationException(
-                    String.format("Could not create encapsulation using command %s Output from command was: %s",
-                            StringUtils.join(builder.getCommandAndArgs(), " "), monitor.getJobOutput()));
+            throw new EncapsulationException(String.format("Could not create encapsulation %s", inFile), e);
         }
 
-        createChecksumFile(new File(inFile));
+        writeChecksumFile(new File(inFile), checksum);
 
         return files.size();
     }
@@ -387,20 +464,18 @@ public class EncapsulationService
             }
 
         }
-        catch (InlineScriptException | IOException e)
+        catch (IOException e)
         {
             throw new EncapsulationException(String.format("Could not verify encapsulation %s", filename), e);
         }
 
     }
 
-    private void verifyChecksumForFile(String encapsulationFilename)
-            throws InlineScriptException, IOException, EncapsulationException
+    private void verifyChecksumForFile(String encapsulationFilename) throws IOException, EncapsulationException
     {
-        String response = StringUtils
-                .trimToEmpty(inlineScriptService.callScriptInline(calculateChecksumScript, encapsulationFilename));
-        String expectedChecksum = StringUtils.trimToEmpty(
-                FileUtils.readFileToString(new File(encapsulationFilename + ".checksum"), CharEncoding.UTF_8));
+        String response = checksumService.calculateChecksum(Paths.get(encapsulationFilename));
+        String expectedChecksum = StringUtils.trimToEmpty(FileUtils.readFileToString(
+                new File(encapsulationFilename + ChecksumService.CHECKSUM_FILE_SUFFIX), CharEncoding.UTF_8));
         if (!(response.equals(expectedChecksum)))
         {
             throw new EncapsulationException(String.format("Checksum was invalid for %s. Excepted %s but got %s.",
@@ -409,31 +484,23 @@ public class EncapsulationService
     }
 
     /**
-     * Creates a checksum file for a given file. The destination will be file.checksum
+     * Writes the checksum file for a given file. The destination will be file.checksum
      * 
      * @param file
-     *            the file to calculate the checksum for
+     *            the file the checksum is for
+     * @param checksum
+     *            the checksum of the file
      * @throws CreateChecksumException
      *             if there is a problem creating the checksum file
      */
-    protected void createChecksumFile(File file) throws CreateChecksumException
+    protected void writeChecksumFile(File file, String checksum) throws CreateChecksumException
     {
         logger.debug("Creating checksum file for: {} exists: {}", file, file.exists());
         try
         {
-            String response = inlineScriptService.callScriptInline(calculateChecksumScript, file.getCanonicalPath());
-            if (StringUtils.isNotBlank(response))
-            {
-                FileUtils.writeStringToFile(new File(file.getCanonicalPath() + ".checksum"), response,
-                        CharEncoding.UTF_8);
-            }
-            else
-            {
-                throw new CreateChecksumException(
-                        "Script generated an empty checksum response for file: " + file.getCanonicalPath());
-            }
+            checksumService.writeChecksumFile(file.getCanonicalFile().toPath(), checksum);
         }
-        catch (IOException | InlineScriptException e)
+        catch (IOException e)
         {
             throw new CreateChecksumException(e);
         }
@@ -0,0 +1,275 @@
+package au.csiro.casda.datadeposit.encapsulation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+import au.csiro.casda.datadeposit.service.StreamingChecksum;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * Writes regular files into a POSIX ustar archive, as produced by <code>tar -cf</code>, calculating the checksum of the
+ * archive as it is written.
+ * <p>
+ * Each source file is read once into a direct buffer, added to the archive's checksum from the buffer and written once
+ * from the same buffer, so the archive never has to be read back to be checksummed. Instances are not thread-safe.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+public class TarArchiveWriter implements Closeable
+{
+    /**
+     * The size of a tar block.
+     */
+    static final int BLOCK_SIZE = 512;
+
+    /**
+     * The size of a tar record, ie: the default blocking factor of 20 used by tar.
+     */
+    static final int RECORD_SIZE = 20 * BLOCK_SIZE;
+
+    private static final int NAME_LENGTH = 100;
+
+    private static final int PREFIX_LENGTH = 155;
+
+    /** The largest size that fits in the 11 octal digits of the header's size field. */
+    private static final long MAX_ENTRY_SIZE = 077777777777L;
+
+    private final FileChannel archive;
+
+    private final ByteBuffer buffer;
+
+    private final StreamingChecksum checksum = new StreamingChecksum();
+
+    private boolean finished;
+
+    /**
+     * Creates a TarArchiveWriter that writes to a new archive file, replacing any existing file.
+     *
+     * @param archiveFile
+     *            the archive file to create
+     * @param bufferSize
+     *            the size of the buffer used to copy each file into the archive (rounded up to a whole block)
+     * @throws IOException
+     *             if the archive file could not be created
+     */
+    public TarArchiveWriter(Path archiveFile, int bufferSize) throws IOException
+    {
+        this.archive = FileChannel.open(archiveFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.buffer = ByteBuffer.allocateDirect(Math.max(1, (bufferSize + BLOCK_SIZE - 1) / BLOCK_SIZE) * BLOCK_SIZE);
+    }
+
+    /**
+     * Adds a regular file to the archive.
+     *
+     * @param file
+     *            the file to add
+     * @param entryName
+     *            the name of the file within the archive, using '/' as the separator
+     * @throws IOException
+     *             if the file could not be read or the archive written, or if the name or size of the file cannot be
+     *             represented in a ustar archive
+     */
+    public void addFile(Path file, String entryName) throws IOException
+    {
+        if (finished)
+        {
+            throw new IllegalStateException("The archive has already been finished");
+        }
+        try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            long size = source.size();
+            if (size > MAX_ENTRY_SIZE)
+            {
+                throw new IOException(String.format("File %s is too large for a tar archive", file));
+            }
+            long mtime = TimeUnit.MILLISECONDS.toSeconds(Files.getLastModifiedTime(file).toMillis());
+
+            buffer.clear();
+            buffer.put(createHeader(entryName, size, mtime));
+            long remaining = size;
+            while (remaining > 0)
+            {
+                // Only read the bytes recorded in the header, even if the file is growing
+                if (buffer.remaining() > remaining)
+                {
+                    buffer.limit((int) (buffer.position() + remaining));
+                }
+                int read = source.read(buffer);
+                if (read == -1)
+                {
+                    throw new IOException(String.format("File %s was truncated while it was being archived", file));
+                }
+                remaining -= read;
+                if (remaining == 0)
+                {
+                    buffer.limit(buffer.capacity());
+                    padToBlock();
+                    writeBuffer();
+                }
+                else if (!buffer.hasRemaining())
+                {
+                    writeBuffer();
+                }
+            }
+            if (size == 0)
+            {
+                writeBuffer();
+            }
+        }
+    }
+
+    /**
+     * Writes the end of archive marker and pads the archive to a whole record. No more files may be added.
+     *
+     * @return the checksum of the complete archive, in the format described by
+     *         {@link au.csiro.casda.datadeposit.service.ChecksumService}
+     * @throws IOException
+     *             if the archive could not be written
+     */
+    public String finish() throws IOException
+    {
+        if (finished)
+        {
+            throw new IllegalStateException("The archive has already been finished");
+        }
+        finished = true;
+
+        long length = checksum.getSize() + 2 * BLOCK_SIZE;
+        long padding = 2 * BLOCK_SIZE + (RECORD_SIZE - length % RECORD_SIZE) % RECORD_SIZE;
+        while (padding > 0)
+        {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), padding));
+            while (buffer.hasRemaining())
+            {
+                buffer.put((byte) 0);
+            }
+            padding -= buffer.position();
+            writeBuffer();
+        }
+        archive.force(false);
+        return checksum.getChecksum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException
+    {
+        archive.close();
+    }
+
+    private void padToBlock()
+    {
+        while (buffer.position() % BLOCK_SIZE != 0)
+        {
+            buffer.put((byte) 0);
+        }
+    }
+
+    private void writeBuffer() throws IOException
+    {
+        buffer.flip();
+        checksum.update(buffer);
+        while (buffer.hasRemaining())
+        {
+            archive.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Creates a ustar header block for a regular file.
+     *
+     * @param entryName
+     *            the name of the file within the archive
+     * @param size
+     *            the size of the file in bytes
+     * @param mtime
+     *            the modification time of the file, in seconds since the epoch
+     * @return the header block
+     * @throws IOException
+     *             if the name cannot be represented in a ustar header
+     */
+    static byte[] createHeader(String entryName, long size, long mtime) throws IOException
+    {
+        byte[] header = new byte[BLOCK_SIZE];
+        byte[] name = entryName.getBytes(StandardCharsets.UTF_8);
+        byte[] prefix = new byte[0];
+        if (name.length > NAME_LENGTH)
+        {
+            // Split the name at a '/' so that the directories go in the prefix field
+            int split = entryName.lastIndexOf('/', entryName.length() - 1);
+            while (split > 0 && entryName.substring(split + 1).getBytes(StandardCharsets.UTF_8).length <= NAME_LENGTH
+                    && entryName.substring(0, split).getBytes(StandardCharsets.UTF_8).length > PREFIX_LENGTH)
+            {
+                split = entryName.lastIndexOf('/', split - 1);
+            }
+            if (split <= 0 || entryName.substring(split + 1).getBytes(StandardCharsets.UTF_8).length > NAME_LENGTH)
+            {
+                throw new IOException(String.format("File name %s is too long for a tar archive", entryName));
+            }
+            prefix = entryName.substring(0, split).getBytes(StandardCharsets.UTF_8);
+            name = entryName.substring(split + 1).getBytes(StandardCharsets.UTF_8);
+        }
+
+        System.arraycopy(name, 0, header, 0, name.length);
+        putOctal(header, 100, 8, 0644);
+        putOctal(header, 108, 8, 0);
+        putOctal(header, 116, 8, 0);
+        putOctal(header, 124, 12, size);
+        putOctal(header, 136, 12, mtime);
+        header[156] = '0';
+        putAscii(header, 257, "ustar\0");
+        putAscii(header, 263, "00");
+        putOctal(header, 329, 8, 0);
+        putOctal(header, 337, 8, 0);
+        System.arraycopy(prefix, 0, header, 345, prefix.length);
+
+        // The header checksum is calculated with the checksum field itself set to spaces
+        putAscii(header, 148, "        ");
+        long headerChecksum = 0;
+        for (byte b : header)
+        {
+            headerChecksum += b & 0xff;
+        }
+        putOctal(header, 148, 7, headerChecksum);
+        header[155] = ' ';
+        return header;
+    }
+
+    /*
+     * Writes a value as zero-padded octal digits followed by a NUL, filling the field.
+     */
+    private static void putOctal(byte[] header, int offset, int length, long value)
+    {
+        putAscii(header, offset, String.format("%0" + (length - 1) + "o", value));
+        header[offset + length - 1] = 0;
+    }
+
+    private static void putAscii(byte[] header, int offset, String value)
+    {
+        byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(bytes, 0, header, offset, bytes.length);
+    }
+}
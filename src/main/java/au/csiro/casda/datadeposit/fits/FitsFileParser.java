@@ -1,21 +1,28 @@
 package au.csiro.casda.datadeposit.fits;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintStream;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
-import nom.tam.fits.BasicHDU;
-import nom.tam.fits.Fits;
 import nom.tam.fits.FitsException;
 import nom.tam.fits.Header;
+import nom.tam.util.BufferedDataInputStream;
 
 import org.apache.commons.lang3.CharEncoding;
 import org.springframework.stereotype.Component;
@@ -35,26 +42,38 @@ import org.springframework.stereotype.Component;
 /**
  * Class for reading ASKAP FITS files.
  * <p>
+ * Only the primary header is read: its 2880 byte blocks are read up to and including the block holding the END card,
+ * and the image data that follows is never touched. Gzipped files (eg: .fits.gz) are inflated as they are read, so
+ * only the start of the file that holds the primary header is inflated. The parser holds no state, so it may be used
+ * by many threads.
+ * <p>
  * Copyright 2014, CSIRO Australia. All rights reserved.
  */
 @Component
 public class FitsFileParser
 {
+    /**
+     * The size of a FITS block. A header is made up of whole blocks.
+     */
+    static final int BLOCK_SIZE = 2880;
 
     /**
-     * The block index of the header within the FITS file.
+     * The size of a header card (keyword record).
      */
-    private static final int HEADER_TABLE_INDEX = 0;
+    static final int CARD_SIZE = 80;
+
+    private static final byte[] SIMPLE_KEYWORD = "SIMPLE  ".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] END_KEYWORD = "END     ".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int GZIP_MAGIC_1 = 0x1f;
+
+    private static final int GZIP_MAGIC_2 = 0x8b;
 
     /** Constant for header values which are double but must default to null instead of zero */
     private static final List<String> DOUBLE_EXCEPTIONS = new ArrayList<String>(Arrays.asList(
     		AskapFitsKey.TMIN.getKeyword(), AskapFitsKey.TMAX.getKeyword(), AskapFitsKey.REST_FREQUENCY.getKeyword()));
 
-    /**
-     * A FITS file handle.
-     */
-    private Fits fitsFile;
-
     /**
      * no-arg Constructor for bean initialisation
      */
@@ -63,19 +82,103 @@ public class FitsFileParser
     }
 
     /**
-     * Retrieve the AKAP Image Cube header values of interest from the FITS file.
+     * Reads the primary header of a FITS file once, returning both the AKAP Image Cube header values of interest and
+     * the header as a string.
      * 
-     * @return The map of header values.
+     * @param dataFile
+     *            the FITS file
+     * @return the details of the primary header
+     * @throws FileNotFoundException
+     *             if the file does not exist
      * @throws IOException
-     *             If the file cannot be opened
+     *             If the file cannot be read
      * @throws FitsException
      *             If the file cannot be processed as a FITS file
      */
-    public Map<AskapFitsKey, Object> getHeaderValues() throws FitsException, IOException
+    public FitsPrimaryHeader readPrimaryHeader(File dataFile) throws FitsException, IOException
+    {
+        if (!dataFile.exists())
+        {
+            throw new FileNotFoundException("File passed to FitsFileParser does not exist!");
+        }
+
+        Header header =
+                new Header(new BufferedDataInputStream(new ByteArrayInputStream(readHeaderBlocks(dataFile))));
+        return new FitsPrimaryHeader(header, getHeaderValues(header), getHeaderAsString(header));
+    }
+
+    /*
+     * Reads the blocks of the primary header, up to and including the block holding the END card. A gzipped file is
+     * only inflated as far as the end of its primary header.
+     */
+    private static byte[] readHeaderBlocks(File dataFile) throws FitsException, IOException
+    {
+        ByteArrayOutputStream headerBlocks = new ByteArrayOutputStream(BLOCK_SIZE);
+        byte[] block = new byte[BLOCK_SIZE];
+        try (DataInputStream in = new DataInputStream(openFile(dataFile)))
+        {
+            boolean foundEnd = false;
+            while (!foundEnd)
+            {
+                try
+                {
+                    in.readFully(block);
+                }
+                catch (EOFException e)
+                {
+                    throw new FitsException(
+                            String.format("File %s ended before the end of its primary header", dataFile), e);
+                }
+                if (headerBlocks.size() == 0 && !isKeyword(block, 0, SIMPLE_KEYWORD))
+                {
+                    throw new FitsException(
+                            String.format("File %s does not start with a FITS primary header", dataFile));
+                }
+                headerBlocks.write(block);
+                for (int offset = 0; offset < BLOCK_SIZE && !foundEnd; offset += CARD_SIZE)
+                {
+                    foundEnd = isKeyword(block, offset, END_KEYWORD);
+                }
+            }
+        }
+        return headerBlocks.toByteArray();
+    }
+
+    private static boolean isKeyword(byte[] block, int offset, byte[] keyword)
+    {
+        for (int i = 0; i < keyword.length; i++)
+        {
+            if (block[offset + i] != keyword[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Opens the file for reading, inflating it as it is read if it is gzipped (eg: a .fits.gz file).
+     */
+    private static InputStream openFile(File dataFile) throws IOException
+    {
+        InputStream in = new BufferedInputStream(new FileInputStream(dataFile), BLOCK_SIZE);
+        try
+        {
+            in.mark(2);
+            boolean gzipped = in.read() == GZIP_MAGIC_1 && in.read() == GZIP_MAGIC_2;
+            in.reset();
+            return gzipped ? new GZIPInputStream(in, BLOCK_SIZE) : in;
+        }
+        catch (IOException e)
+        {
+            in.close();
+            throw e;
+        }
+    }
+
+    private static Map<AskapFitsKey, Object> getHeaderValues(Header basicHeader)
     {
         Map<AskapFitsKey, Object> valueMap = new LinkedHashMap<>();
-        BasicHDU basicHDU = fitsFile.getHDU(HEADER_TABLE_INDEX);
-        Header basicHeader = basicHDU.getHeader();
 
         for (AskapFitsKey field : AskapFitsKey.values())
         {
@@ -105,22 +208,9 @@ public class FitsFileParser
         }
         return valueMap;
     }
-    
-    /**
-     * retrieve the Fits header as a string
-     * 
-     * @return The string containing the header values
-     * @throws IOException
-     *             If the file cannot be opened
-     * @throws FitsException
-     *             If the file cannot be processed as a FITS file
-     */
-    public String getHeaderAsString() throws FitsException, IOException
-    {
- 
-        BasicHDU basicHDU = fitsFile.getHDU(HEADER_TABLE_INDEX);
-        Header basicHeader = basicHDU.getHeader();
 
+    private static String getHeaderAsString(Header basicHeader) throws IOException
+    {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         PrintStream ps = new PrintStream(baos, true, CharEncoding.UTF_8);
         
@@ -128,23 +218,4 @@ public class FitsFileParser
         
         return new String(baos.toByteArray(), Charset.defaultCharset());
     }
-
-    /**
-     * Sets the dataFile to be parsed.
-     * 
-     * @param dataFile
-     *            a File
-     * @throws FitsException
-     *             if the file is not a Fits file
-     * @throws IOException
-     *             if the file could not be found or read
-     */
-    public void setFitsFile(File dataFile) throws FitsException, IOException
-    {
-        if (!dataFile.exists())
-        {
-            throw new FileNotFoundException("File passed to FitsFileParser does not exist!");
-        }
-        this.fitsFile = new Fits(dataFile);
-    }
 }
@@ -0,0 +1,73 @@
+package au.csiro.casda.datadeposit.fits;
+
+import java.util.Collections;
+import java.util.Map;
+
+import nom.tam.fits.Header;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * The details of the primary header of a FITS file, as read by {@link FitsFileParser#readPrimaryHeader}.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+public class FitsPrimaryHeader
+{
+    private final Header header;
+
+    private final Map<AskapFitsKey, Object> headerValues;
+
+    private final String headerAsString;
+
+    /**
+     * Constructor
+     * 
+     * @param header
+     *            the parsed header
+     * @param headerValues
+     *            the values of the ASKAP header keywords
+     * @param headerAsString
+     *            the complete header as text, one card per line
+     */
+    public FitsPrimaryHeader(Header header, Map<AskapFitsKey, Object> headerValues, String headerAsString)
+    {
+        this.header = header;
+        this.headerValues = Collections.unmodifiableMap(headerValues);
+        this.headerAsString = headerAsString;
+    }
+
+    /**
+     * @return the parsed header, for reading any other keywords
+     */
+    public Header getHeader()
+    {
+        return header;
+    }
+
+    /**
+     * @return the values of the ASKAP header keywords
+     */
+    public Map<AskapFitsKey, Object> getHeaderValues()
+    {
+        return headerValues;
+    }
+
+    /**
+     * @return the complete header as text, one card per line
+     */
+    public String getHeaderAsString()
+    {
+        return headerAsString;
+    }
+}
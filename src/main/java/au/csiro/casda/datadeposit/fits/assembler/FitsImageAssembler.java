@@ -21,6 +21,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
+import nom.tam.fits.FitsException;
+
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,9 +39,11 @@ import com.vividsolutions.jts.geom.GeometryFactory;
 import au.csiro.casda.Utils;
 import au.csiro.casda.datadeposit.fits.AskapFitsKey;
 import au.csiro.casda.datadeposit.fits.FitsFileParser;
+import au.csiro.casda.datadeposit.fits.FitsPrimaryHeader;
 import au.csiro.casda.datadeposit.fits.StokesPolarisationMapping;
 import au.csiro.casda.datadeposit.fits.service.FitsImageService.FitsImportException;
 import au.csiro.casda.datadeposit.fits.service.FitsImageService.ProjectCodeMismatchException;
+import au.csiro.casda.datadeposit.fits.wcs.ImageGeometryCalculator;
 import au.csiro.casda.entity.observation.FitsObject;
 import au.csiro.casda.entity.observation.ImageCube;
 import au.csiro.casda.jobmanager.ProcessJob;
@@ -66,25 +70,69 @@ public class FitsImageAssembler
 
     private FitsFileParser fitsFileParser;
 
+    private ImageGeometryCalculator imageGeometryCalculator;
+
     private ProcessJobFactory processJobFactory;
 
+    /**
+     * The metadata read from a FITS file, ie: its primary header and its geometry, before it is applied to the FITS
+     * object (see {@link FitsImageAssembler#readFitsMetadata(File)}). It holds no reference to the FITS object, so it
+     * can be read on any thread.
+     * <p>
+     * Copyright 2016, CSIRO Australia. All rights reserved.
+     */
+    public static final class FitsMetadata
+    {
+        private final FitsPrimaryHeader header;
+
+        private final JsonNode geometryDetails;
+
+        private final String invalidGeometryMessage;
+
+        private final FitsImportException geometryException;
+
+        private FitsMetadata(FitsPrimaryHeader header, JsonNode geometryDetails, String invalidGeometryMessage,
+                FitsImportException geometryException)
+        {
+            this.header = header;
+            this.geometryDetails = geometryDetails;
+            this.invalidGeometryMessage = invalidGeometryMessage;
+            this.geometryException = geometryException;
+        }
+
+        public FitsPrimaryHeader getHeader()
+        {
+            return header;
+        }
+
+        public JsonNode getGeometryDetails()
+        {
+            return geometryDetails;
+        }
+    }
+
     /**
      * Constructor
      * 
      * @param imageGeometryCommandAndArgs
-     *            an EL-string containing the command and arguments used to find the image geometry
+     *            an EL-string containing the command and arguments used to find the image geometry, or an empty string
+     *            to calculate the geometry from the image's WCS headers using the imageGeometryCalculator
      * @param fitsFileParser
      *            the FitsFileParser used to obtain non-geometric headers
+     * @param imageGeometryCalculator
+     *            the ImageGeometryCalculator used when no image geometry command is configured
      * @param processJobFactory
      *            the factory to be used to create job processes.
      */
     @Autowired
-    public FitsImageAssembler(@Value("${image.geometry.command.and.args}") String imageGeometryCommandAndArgs,
-            FitsFileParser fitsFileParser, ProcessJobFactory processJobFactory)
+    public FitsImageAssembler(@Value("${image.geometry.command.and.args:}") String imageGeometryCommandAndArgs,
+            FitsFileParser fitsFileParser, ImageGeometryCalculator imageGeometryCalculator,
+            ProcessJobFactory processJobFactory)
     {
         super();
         this.imageGeometryCommandAndArgs = imageGeometryCommandAndArgs;
         this.fitsFileParser = fitsFileParser;
+        this.imageGeometryCalculator = imageGeometryCalculator;
         this.processJobFactory = processJobFactory;
     }
 
@@ -105,10 +153,80 @@ public class FitsImageAssembler
     public void populateFitsObject(FitsObject fitsObject, File fitsFile)
             throws FitsImportException, ProjectCodeMismatchException, FileNotFoundException
     {
+        applyFitsMetadata(fitsObject, readFitsMetadata(fitsFile));
+    }
+
+    /**
+     * Reads the metadata of a FITS file, ie: its primary header and its geometry, without touching the FITS object it
+     * will be applied to (see {@link #applyFitsMetadata(FitsObject, FitsMetadata)}). This is the slow part of
+     * populating a FITS object, and may be done on any thread.
+     * 
+     * @param fitsFile
+     *            the fits File to read
+     * @return the metadata of the file
+     * @throws FitsImportException
+     *             if the fitsFile's headers could not be read
+     * @throws FileNotFoundException
+     *             if the fitsFile could not be found
+     */
+    public FitsMetadata readFitsMetadata(File fitsFile) throws FitsImportException, FileNotFoundException
+    {
+        FitsPrimaryHeader header = readPrimaryHeader(fitsFile);
+        try
+        {
+            JsonNode geometryDetails;
+            String invalidGeometryMessage;
+            if (StringUtils.isBlank(this.imageGeometryCommandAndArgs))
+            {
+                geometryDetails = calculateGeometryDetails(header);
+                invalidGeometryMessage = String.format(
+                        "Could not determine geometry of image cube from its WCS headers. "
+                                + "The geometry (%s) is missing expected elements or otherwise invalid.",
+                        geometryDetails);
+            }
+            else
+            {
+                SimpleToolProcessJobBuilder builder = new SimpleToolProcessJobBuilder(processJobFactory,
+                        Utils.elStringToArray(this.imageGeometryCommandAndArgs));
+                builder.setProcessParameter("infile", fitsFile.toString());
+                String jobOutput = runImageGeometryCommand(builder);
+                geometryDetails = parseImageGeometryCommandOutput(builder, jobOutput);
+                invalidGeometryMessage = String.format(
+                        "Could not determine geometry of image cube using command %s Output from "
+                                + "command (%s) was a JSON object but is missing expected elements or otherwise "
+                                + "invalid.",
+                        StringUtils.join(builder.getCommandAndArgs(), " "), jobOutput);
+            }
+            return new FitsMetadata(header, geometryDetails, invalidGeometryMessage, null);
+        }
+        catch (FitsImportException e)
+        {
+            // Reported once the project code has been checked, as it would be if the object were populated directly
+            return new FitsMetadata(header, null, null, e);
+        }
+    }
+
+    /**
+     * Populates an Image Cube or Spectrum with metadata read from its FITS file by {@link #readFitsMetadata(File)}.
+     * This sets the fields of the (managed) entity, so must be done on the thread that owns its session.
+     * 
+     * @param fitsObject
+     *            the image cube or spectrum entity that we wish to populate
+     * @param metadata
+     *            the metadata read from the FITS file of the fitsObject
+     * @throws ProjectCodeMismatchException
+     *             if the fitsFile's project code header doesn't match the imageCube's project code
+     * @throws FitsImportException
+     *             if the geometry of the fitsFile could not be determined
+     */
+    public void applyFitsMetadata(FitsObject fitsObject, FitsMetadata metadata)
+            throws FitsImportException, ProjectCodeMismatchException
+    {
 
         logger.debug("Populating FitsObject entity");
 
-        Map<AskapFitsKey, Object> headerValues = getFitsHeaders(fitsFile);
+        FitsPrimaryHeader header = metadata.getHeader();
+        Map<AskapFitsKey, Object> headerValues = header.getHeaderValues();
         
         // populate the new values
         String projectName = (String) headerValues.get(AskapFitsKey.PROJECT);
@@ -117,10 +235,14 @@ public class FitsImageAssembler
         {
             throw new ProjectCodeMismatchException(fitsObject.getProject(), projectName);
         }
+        if (metadata.geometryException != null)
+        {
+            throw metadata.geometryException;
+        }
 
-        populateGeometry(fitsObject, fitsFile);
+        populateGeometry(fitsObject, metadata.getGeometryDetails(), metadata.invalidGeometryMessage);
 
-        fitsObject.setHeader(getHeaderAsString());
+        fitsObject.setHeader(header.getHeaderAsString());
         fitsObject.setObjectName((String) headerValues.get(AskapFitsKey.OBJECT));
         fitsObject.setRestFrequency((Double) headerValues.get(AskapFitsKey.REST_FREQUENCY));
         
@@ -140,14 +262,12 @@ public class FitsImageAssembler
         fitsObject.setTExptime((Double) headerValues.get(AskapFitsKey.INTIME)); // TODO check keyword
     }
 
-    private Map<AskapFitsKey, Object> getFitsHeaders(File fitsFile) throws FitsImportException, FileNotFoundException
+    private FitsPrimaryHeader readPrimaryHeader(File fitsFile) throws FitsImportException, FileNotFoundException
     {
         try
         {
             // read the FITS headers
-            fitsFileParser.setFitsFile(fitsFile);
-            Map<AskapFitsKey, Object> headerValues = fitsFileParser.getHeaderValues();
-            return headerValues;
+            return fitsFileParser.readPrimaryHeader(fitsFile);
         }
         catch (FileNotFoundException ex)
         {
@@ -158,35 +278,22 @@ public class FitsImageAssembler
             throw new FitsImportException(ex);
         }
     }
-    
-    private String getHeaderAsString() throws FitsImportException, FileNotFoundException
+
+    private JsonNode calculateGeometryDetails(FitsPrimaryHeader header) throws FitsImportException
     {
         try
         {
-            return fitsFileParser.getHeaderAsString();
-        }
-        catch (FileNotFoundException ex)
-        {
-            throw ex;
+            return imageGeometryCalculator.calculateGeometry(header.getHeader());
         }
-        catch (Exception ex) // because there are other exceptions not wrapped in FitsException
+        catch (FitsException e)
         {
-            throw new FitsImportException(ex);
+            throw new FitsImportException(
+                    "Could not determine geometry of image cube from its WCS headers: " + e.getMessage(), e);
         }
     }
 
-    private void populateGeometry(FitsObject fitsObject, File fitsFile) throws FitsImportException
+    private String runImageGeometryCommand(SimpleToolProcessJobBuilder builder) throws FitsImportException
     {
-        ImageCube imageCube = null;
-        if (fitsObject instanceof ImageCube)
-        {
-            imageCube = (ImageCube) fitsObject; 
-        }
-        SimpleToolProcessJobBuilder builder =
-                new SimpleToolProcessJobBuilder(processJobFactory, Utils.elStringToArray(this.imageGeometryCommandAndArgs));
-
-        builder.setProcessParameter("infile", fitsFile.toString());
-
         ProcessJob job = builder.createJob("jobId", "type");
         SingleJobMonitor monitor = new SingleJobMonitor();
         job.run(monitor);
@@ -196,17 +303,32 @@ public class FitsImageAssembler
                     "Could not determine geometry of image cube using command %s Output from command was: %s",
                     StringUtils.join(builder.getCommandAndArgs(), " "), monitor.getJobOutput()));
         }
-        JsonNode geometryDetails;
+        return monitor.getJobOutput();
+    }
+
+    private JsonNode parseImageGeometryCommandOutput(SimpleToolProcessJobBuilder builder, String jobOutput)
+            throws FitsImportException
+    {
         try
         {
-            geometryDetails = new ObjectMapper().readTree(monitor.getJobOutput());
+            return new ObjectMapper().readTree(jobOutput);
         }
         catch (IOException e)
         {
             throw new FitsImportException(String.format(
                     "Could not determine geometry of image cube using command %s Could not parse output from "
                             + "command (%s) into a JSON map.",
-                    StringUtils.join(builder.getCommandAndArgs(), " "), monitor.getJobOutput()));
+                    StringUtils.join(builder.getCommandAndArgs(), " "), jobOutput));
+        }
+    }
+
+    private void populateGeometry(FitsObject fitsObject, JsonNode geometryDetails, String invalidGeometryMessage)
+            throws FitsImportException
+    {
+        ImageCube imageCube = null;
+        if (fitsObject instanceof ImageCube)
+        {
+            imageCube = (ImageCube) fitsObject; 
         }
 
         Double sFov = null;
@@ -389,10 +511,7 @@ public class FitsImageAssembler
         }
         catch (Exception ex)
         {
-            throw new FitsImportException(String.format(
-                    "Could not determine geometry of image cube using command %s Output from "
-                            + "command (%s) was a JSON object but is missing expected elements or otherwise invalid.",
-                    StringUtils.join(builder.getCommandAndArgs(), " "), monitor.getJobOutput()), ex);
+            throw new FitsImportException(invalidGeometryMessage, ex);
         }
     }
 }
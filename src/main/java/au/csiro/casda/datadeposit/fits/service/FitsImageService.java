@@ -16,6 +16,11 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.transaction.Transactional;
 
@@ -23,13 +28,16 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataAccessException;
+import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Component;
 
 import au.csiro.casda.datadeposit.DepositState.Type;
 import au.csiro.casda.datadeposit.DepositStateImpl;
 import au.csiro.casda.datadeposit.ParentType;
 import au.csiro.casda.datadeposit.fits.assembler.FitsImageAssembler;
+import au.csiro.casda.datadeposit.fits.assembler.FitsImageAssembler.FitsMetadata;
 import au.csiro.casda.datadeposit.observation.jpa.repository.CubeletRepository;
 import au.csiro.casda.datadeposit.observation.jpa.repository.ImageCubeRepository;
 import au.csiro.casda.datadeposit.observation.jpa.repository.MomentMapRepository;
@@ -190,6 +198,11 @@ public class FitsImageService
         }
     }
 
+    /**
+     * The default number of populated spectra, moment maps or cubelets to save at a time.
+     */
+    public static final int DEFAULT_SAVE_BATCH_SIZE = 100;
+
     private static final Logger logger = LoggerFactory.getLogger(FitsImageService.class);
 
     private FitsImageAssembler fitsImageAssembler;
@@ -202,9 +215,14 @@ public class FitsImageService
 
     private CubeletRepository cubeletRepository;
 
+    private int metadataThreads;
+
+    private int saveBatchSize;
+
     /**
      * Constructor for a FitsImageServiceImpl that uses the given repository to retrieve, access, and update ImageCubes.
-     * 
+     * The FITS files of an image cube's spectra, moment maps and cubelets are read one at a time.
+     *
      * @param imageCubeRepository
      *            a ImageCubeRepository
      * @param spectrumRepository
@@ -216,10 +234,38 @@ public class FitsImageService
      * @param fitsImageAssembler
      *            the FitsImageFileAssembler used to populate an image cube from a FITS file
      */
-    @Autowired
     public FitsImageService(ImageCubeRepository imageCubeRepository, SpectrumRepository spectrumRepository,
-            MomentMapRepository momentMapRepository, CubeletRepository cubeletRepository, 
+            MomentMapRepository momentMapRepository, CubeletRepository cubeletRepository,
             FitsImageAssembler fitsImageAssembler)
+    {
+        this(imageCubeRepository, spectrumRepository, momentMapRepository, cubeletRepository, fitsImageAssembler, 1,
+                DEFAULT_SAVE_BATCH_SIZE);
+    }
+
+    /**
+     * Constructor for a FitsImageServiceImpl that uses the given repository to retrieve, access, and update ImageCubes.
+     *
+     * @param imageCubeRepository
+     *            a ImageCubeRepository
+     * @param spectrumRepository
+     *            a SpectrumRepository for managing Spectrum objects in the database.
+     * @param momentMapRepository
+     *            a MomentMapRepository for managing MomentMap objects in the database.
+     * @param cubeletRepository
+     *            a cubeletRepository for managing Cubelet objects in the database.
+     * @param fitsImageAssembler
+     *            the FitsImageFileAssembler used to populate an image cube from a FITS file
+     * @param metadataThreads
+     *            the maximum number of spectra, moment map or cubelet FITS files to read the metadata of at the same
+     *            time
+     * @param saveBatchSize
+     *            the number of populated spectra, moment maps or cubelets to save at a time
+     */
+    @Autowired
+    public FitsImageService(ImageCubeRepository imageCubeRepository, SpectrumRepository spectrumRepository,
+            MomentMapRepository momentMapRepository, CubeletRepository cubeletRepository,
+            FitsImageAssembler fitsImageAssembler, @Value("${fits.metadata.threads:1}") int metadataThreads,
+            @Value("${fits.metadata.save.batch.size:100}") int saveBatchSize)
     {
         super();
         this.imageCubeRepository = imageCubeRepository;
@@ -227,6 +273,16 @@ public class FitsImageService
         this.momentMapRepository = momentMapRepository;
         this.cubeletRepository = cubeletRepository;
         this.fitsImageAssembler = fitsImageAssembler;
+        if (metadataThreads < 1)
+        {
+            throw new IllegalArgumentException("expected metadataThreads >= 1");
+        }
+        if (saveBatchSize < 1)
+        {
+            throw new IllegalArgumentException("expected saveBatchSize >= 1");
+        }
+        this.metadataThreads = metadataThreads;
+        this.saveBatchSize = saveBatchSize;
     }
 
     /**
@@ -368,23 +424,7 @@ public class FitsImageService
             }
 
             // Read all spectra from that file
-            for (Spectrum spectrum : spectra)
-            {
-                File spectrumFile = new File(parentPath, spectrum.getFilename());
-                logger.info("Processing spectrum {} at {}", spectrum.getFileId(), spectrumFile);
-                fitsImageAssembler.populateFitsObject(spectrum, spectrumFile);
-
-                // Advance the deposit status of the moment map here to avoid concurrent mod errors
-                if (!refresh)
-                {
-                    spectrum.setDepositState(new DepositStateImpl(Type.ENCAPSULATING, spectrum));
-                }
-
-                logger.debug("FitsImageServiceImpl is about to store the FITS metadata for observation {} from file {}",
-                        spectrum.getParent().getUniqueId(), spectrum.getFilename());
-
-                spectrumRepository.save(spectrum);
-            }
+            populateAndSaveFitsObjects(spectra, parentPath, refresh, "spectrum", spectrumRepository);
 
             return target;
         }
@@ -459,23 +499,7 @@ public class FitsImageService
             }
 
             // Read all moment maps from that file
-            for (MomentMap momentMap : momentMaps)
-            {
-                File momentMapFile = new File(parentPath, momentMap.getFilename());
-                logger.info("Processing moment map {} at {}", momentMap.getFileId(), momentMapFile);
-                fitsImageAssembler.populateFitsObject(momentMap, momentMapFile);
-
-                // Advance the deposit status of the moment map here to avoid concurrent mod errors
-                if (!refresh)
-                {
-                    momentMap.setDepositState(new DepositStateImpl(Type.ENCAPSULATING, momentMap));
-                }
-
-                logger.debug("FitsImageServiceImpl is about to store the FITS metadata for observation {} from file {}",
-                        momentMap.getParent().getUniqueId(), momentMap.getFilename());
-
-                momentMapRepository.save(momentMap);
-            }
+            populateAndSaveFitsObjects(momentMaps, parentPath, refresh, "moment map", momentMapRepository);
 
             return target;
         }
@@ -549,29 +573,149 @@ public class FitsImageService
             }
 
             // Read all cubelets from that file
-            for (Cubelet cubelet : cubelets)
+            populateAndSaveFitsObjects(cubelets, parentPath, refresh, "cubelet", cubeletRepository);
+
+            return target;
+        }
+        catch (DataAccessException dataAccessException)
+        {
+            throw new RepositoryException(dataAccessException);
+        }
+    }
+
+    /**
+     * Populates each of the FITS objects from its FITS file and saves them. The FITS files are read (and their
+     * geometry found) on a pool of up to metadataThreads threads, which never touch the FITS objects themselves. The
+     * metadata of each file is then applied to its FITS object, which is saved, in order and in batches, on the
+     * calling thread (which owns the transaction and so the session the FITS objects belong to). Once a FITS file
+     * has failed no more files are started, and the exception thrown is the one for the first FITS object (in order)
+     * that failed, as if the FITS objects had been populated one at a time.
+     * 
+     * @param fitsObjects
+     *            the spectra, moment maps or cubelets to populate
+     * @param parentPath
+     *            the folder the FITS objects' filenames are relative to
+     * @param refresh
+     *            Indicates that this is a refresh of already deposited FITS objects
+     * @param description
+     *            the kind of FITS object, for logging
+     * @param repository
+     *            the repository used to save the FITS objects
+     * @throws FitsImportException
+     *             if there was an error processing the FITS metadata
+     * @throws ProjectCodeMismatchException
+     *             if a FITS object's OPAL code does not match the project code in its FITS metadata
+     * @throws FileNotFoundException
+     *             if a FITS file does not exist
+     */
+    private <T extends FitsObject> void populateAndSaveFitsObjects(List<T> fitsObjects, File parentPath,
+            boolean refresh, String description, CrudRepository<T, Long> repository)
+            throws FitsImportException, ProjectCodeMismatchException, FileNotFoundException
+    {
+        if (fitsObjects.isEmpty())
+        {
+            return;
+        }
+
+        AtomicBoolean failed = new AtomicBoolean(false);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(metadataThreads, fitsObjects.size()));
+        try
+        {
+            List<Future<FitsMetadata>> results = new ArrayList<>();
+            for (T fitsObject : fitsObjects)
+            {
+                File fitsFile = new File(parentPath, fitsObject.getFilename());
+                String fileId = fitsObject.getFileId();
+                // The tasks start in order, so a FITS file is only skipped once an earlier one has failed, and that
+                // failure is rethrown below before the skipped one is reached
+                results.add(executor.submit(() -> {
+                    if (failed.get())
+                    {
+                        return null;
+                    }
+                    logger.info("Processing {} {} at {}", description, fileId, fitsFile);
+                    try
+                    {
+                        return fitsImageAssembler.readFitsMetadata(fitsFile);
+                    }
+                    catch (Exception e)
+                    {
+                        failed.set(true);
+                        throw e;
+                    }
+                }));
+            }
+
+            List<T> batch = new ArrayList<>(Math.min(saveBatchSize, fitsObjects.size()));
+            for (int i = 0; i < fitsObjects.size(); i++)
             {
-                File cubeletFile = new File(parentPath, cubelet.getFilename());
-                logger.info("Processing cubelet {} at {}", cubelet.getFileId(), cubeletFile);
-                fitsImageAssembler.populateFitsObject(cubelet, cubeletFile);
+                T fitsObject = fitsObjects.get(i);
+                FitsMetadata metadata;
+                try
+                {
+                    metadata = results.get(i).get();
+                }
+                catch (ExecutionException e)
+                {
+                    throw rethrowPopulateFitsObjectException(e.getCause());
+                }
+                fitsImageAssembler.applyFitsMetadata(fitsObject, metadata);
 
-                // Advance the deposit status of the moment map here to avoid concurrent mod errors
+                // Advance the deposit status of the FITS object here to avoid concurrent mod errors
                 if (!refresh)
                 {
-                    cubelet.setDepositState(new DepositStateImpl(Type.ENCAPSULATING, cubelet));
+                    fitsObject.setDepositState(new DepositStateImpl(Type.ENCAPSULATING, fitsObject));
                 }
 
-                logger.debug("FitsImageServiceImpl is about to store the FITS metadata for observation {} from file {}",
-                        cubelet.getParent().getUniqueId(), cubelet.getFilename());
+                logger.debug("FitsImageServiceImpl is about to store the FITS metadata for observation {} from "
+                        + "file {}", fitsObject.getParent().getUniqueId(), fitsObject.getFilename());
 
-                cubeletRepository.save(cubelet);
+                batch.add(fitsObject);
+                if (batch.size() >= saveBatchSize)
+                {
+                    repository.save(batch);
+                    batch = new ArrayList<>(saveBatchSize);
+                }
+            }
+            if (!batch.isEmpty())
+            {
+                repository.save(batch);
             }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new FitsImportException("Interrupted while reading the FITS metadata of a " + description, e);
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
 
-            return target;
+    private static FitsImportException rethrowPopulateFitsObjectException(Throwable cause)
+            throws FitsImportException, ProjectCodeMismatchException, FileNotFoundException
+    {
+        if (cause instanceof FitsImportException)
+        {
+            throw (FitsImportException) cause;
         }
-        catch (DataAccessException dataAccessException)
+        else if (cause instanceof ProjectCodeMismatchException)
         {
-            throw new RepositoryException(dataAccessException);
+            throw (ProjectCodeMismatchException) cause;
+        }
+        else if (cause instanceof FileNotFoundException)
+        {
+            throw (FileNotFoundException) cause;
+        }
+        else if (cause instanceof RuntimeException)
+        {
+            throw (RuntimeException) cause;
+        }
+        else if (cause instanceof Error)
+        {
+            throw (Error) cause;
         }
+        return new FitsImportException(cause);
     }
 }
@@ -0,0 +1,423 @@
+package au.csiro.casda.datadeposit.fits.wcs;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import nom.tam.fits.FitsException;
+import nom.tam.fits.Header;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * Calculates the geometry of an image from the World Coordinate System (WCS) keywords of its FITS header.
+ * <p>
+ * The geometry is returned as the same JSON document that the wcslib based image geometry tool writes, ie: the name,
+ * number of pixels, pixel size and unit of each axis (plus the world coordinates of the centre and edges of each
+ * non-celestial axis), the RA and DEC of the centre of the image, and the RA and DEC of the four outer corners of the
+ * image. All numbers are written in the tool's <code>%.13e</code> format.
+ * <p>
+ * Only equatorial (RA/DEC) images using one of the zenithal projections SIN (orthographic, without the slant
+ * parameters), TAN, ARC, ZEA or STG are supported. Non-celestial axes are assumed to be linear. The calculator holds no
+ * state so it may be used by many threads at once.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+@Component
+public class ImageGeometryCalculator
+{
+    private static final int MAX_AXES = 99;
+
+    private static final String NUMBER_FORMAT = "%.13e";
+
+    private static final String RA_AXIS_PREFIX = "RA--";
+
+    private static final String DEC_AXIS_PREFIX = "DEC-";
+
+    /** Galactic, ecliptic and supergalactic longitude and latitude axes, which are not supported */
+    private static final Pattern OTHER_CELESTIAL_AXIS_TYPES = Pattern.compile("[GES]L(ON|AT)-.*");
+
+    /** The offset of the projection code in a celestial CTYPE, eg: 'RA---SIN' */
+    private static final int PROJECTION_CODE_OFFSET = 5;
+
+    /**
+     * Zenithal projections, which place the reference point at the native pole so that the celestial pole is simply
+     * the reference point. Each converts a distance from the reference point in the plane of projection (R, in
+     * degrees) into the native latitude (theta, in degrees).
+     */
+    private enum ZenithalProjection
+    {
+        SIN
+        {
+            @Override
+            double getNativeLatitude(double r)
+            {
+                return Math.toDegrees(Math.acos(Math.toRadians(r)));
+            }
+        },
+        TAN
+        {
+            @Override
+            double getNativeLatitude(double r)
+            {
+                return Math.toDegrees(Math.atan2(Math.toDegrees(1), r));
+            }
+        },
+        ARC
+        {
+            @Override
+            double getNativeLatitude(double r)
+            {
+                return 90 - r;
+            }
+        },
+        ZEA
+        {
+            @Override
+            double getNativeLatitude(double r)
+            {
+                return 90 - 2 * Math.toDegrees(Math.asin(Math.toRadians(r) / 2));
+            }
+        },
+        STG
+        {
+            @Override
+            double getNativeLatitude(double r)
+            {
+                return 90 - 2 * Math.toDegrees(Math.atan(Math.toRadians(r) / 2));
+            }
+        };
+
+        abstract double getNativeLatitude(double r);
+    }
+
+    /**
+     * Calculates the geometry of an image.
+     *
+     * @param header
+     *            the primary header of the image
+     * @return the geometry, in the same form as the output of the image geometry tool
+     * @throws FitsException
+     *             if the header does not describe an image with a supported celestial coordinate system, or the
+     *             corners of the image are outside the valid region of the projection
+     */
+    public ObjectNode calculateGeometry(Header header) throws FitsException
+    {
+        int numAxes = getNumAxes(header);
+        int raAxis = 0;
+        int decAxis = 0;
+        for (int axis = 1; axis <= numAxes; axis++)
+        {
+            String ctype = getCtype(header, axis);
+            if (ctype.startsWith(RA_AXIS_PREFIX))
+            {
+                raAxis = axis;
+            }
+            else if (ctype.startsWith(DEC_AXIS_PREFIX))
+            {
+                decAxis = axis;
+            }
+            else if (OTHER_CELESTIAL_AXIS_TYPES.matcher(ctype).matches())
+            {
+                throw new FitsException("Unsupported celestial axis type " + ctype + " for axis " + axis);
+            }
+        }
+        if (raAxis == 0 || decAxis == 0)
+        {
+            throw new FitsException("Image does not have both RA and DEC axes");
+        }
+        ZenithalProjection projection = getProjection(header, raAxis, decAxis);
+        CelestialTransformation celestial = new CelestialTransformation(header, raAxis, decAxis, projection);
+
+        JsonNodeFactory factory = JsonNodeFactory.instance;
+        ObjectNode geometry = factory.objectNode();
+        ArrayNode axes = geometry.putArray("axes");
+        for (int axis = 1; axis <= numAxes; axis++)
+        {
+            ObjectNode axisNode = axes.addObject();
+            long numPixels = getNumPixels(header, axis);
+            if (axis == raAxis || axis == decAxis)
+            {
+                axisNode.put("name", axis == raAxis ? "RA" : "DEC");
+                axisNode.put("numPixels", Long.toString(numPixels));
+                axisNode.put("pixelSize", format(celestial.getPixelSize(axis)));
+                axisNode.put("pixelUnit", getUnit(header, axis, "deg"));
+            }
+            else
+            {
+                double pixelSize = getLinearPixelSize(header, axis);
+                double crval = header.getDoubleValue("CRVAL" + axis, 0);
+                double crpix = header.getDoubleValue("CRPIX" + axis, 0);
+                double first = crval + pixelSize * (0.5 - crpix);
+                double last = crval + pixelSize * (numPixels + 0.5 - crpix);
+                axisNode.put("centre", format(crval + pixelSize * ((numPixels + 1) / 2.0 - crpix)));
+                axisNode.put("max", format(Math.max(first, last)));
+                axisNode.put("min", format(Math.min(first, last)));
+                axisNode.put("name", getCtype(header, axis));
+                axisNode.put("numPixels", Long.toString(numPixels));
+                axisNode.put("pixelSize", format(pixelSize));
+                axisNode.put("pixelUnit", getUnit(header, axis, " "));
+            }
+        }
+
+        double raEdge = getNumPixels(header, raAxis) + 0.5;
+        double decEdge = getNumPixels(header, decAxis) + 0.5;
+        geometry.set("centre", toPosition(factory, celestial.toWorld((raEdge + 0.5) / 2, (decEdge + 0.5) / 2)));
+        ArrayNode corners = geometry.putArray("corners");
+        corners.add(toPosition(factory, celestial.toWorld(0.5, 0.5)));
+        corners.add(toPosition(factory, celestial.toWorld(raEdge, 0.5)));
+        corners.add(toPosition(factory, celestial.toWorld(raEdge, decEdge)));
+        corners.add(toPosition(factory, celestial.toWorld(0.5, decEdge)));
+        return geometry;
+    }
+
+    /*
+     * As with wcslib, the number of axes is the larger of NAXIS and the highest numbered axis with a CTYPE.
+     */
+    private static int getNumAxes(Header header)
+    {
+        int numAxes = header.getIntValue("NAXIS", 0);
+        for (int axis = numAxes + 1; axis <= MAX_AXES; axis++)
+        {
+            if (header.containsKey("CTYPE" + axis))
+            {
+                numAxes = axis;
+            }
+        }
+        return numAxes;
+    }
+
+    private static long getNumPixels(Header header, int axis)
+    {
+        return header.getLongValue("NAXIS" + axis, 1);
+    }
+
+    private static String getCtype(Header header, int axis)
+    {
+        return StringUtils.trimToEmpty(header.getStringValue("CTYPE" + axis));
+    }
+
+    private static String getUnit(Header header, int axis, String defaultUnit)
+    {
+        String unit = StringUtils.trimToEmpty(header.getStringValue("CUNIT" + axis));
+        return unit.isEmpty() ? defaultUnit : unit;
+    }
+
+    private static ZenithalProjection getProjection(Header header, int raAxis, int decAxis) throws FitsException
+    {
+        String raProjection = getCtype(header, raAxis).substring(PROJECTION_CODE_OFFSET);
+        String decProjection = getCtype(header, decAxis).substring(PROJECTION_CODE_OFFSET);
+        if (!raProjection.equals(decProjection))
+        {
+            throw new FitsException(
+                    "RA and DEC axes have different projections: " + raProjection + " and " + decProjection);
+        }
+        ZenithalProjection projection;
+        try
+        {
+            projection = ZenithalProjection.valueOf(raProjection);
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new FitsException("Unsupported projection " + raProjection, e);
+        }
+        if (projection == ZenithalProjection.SIN && (header.getDoubleValue("PV" + decAxis + "_1", 0) != 0
+                || header.getDoubleValue("PV" + decAxis + "_2", 0) != 0))
+        {
+            throw new FitsException("Unsupported projection SIN with slant parameters (eg: NCP)");
+        }
+        return projection;
+    }
+
+    /*
+     * The change in world coordinate per pixel of a non-celestial axis, ignoring any coupling with other axes.
+     */
+    private static double getLinearPixelSize(Header header, int axis)
+    {
+        Double cd = getMatrixElement(header, "CD", axis, axis);
+        if (cd != null)
+        {
+            return cd;
+        }
+        Double pc = getMatrixElement(header, "PC", axis, axis);
+        return header.getDoubleValue("CDELT" + axis, 1) * (pc == null ? 1 : pc);
+    }
+
+    /*
+     * Looks up an element of the PC or CD matrix using the standard (PCi_j) or the older AIPS (PC00i00j) keyword, or
+     * the zero-padded form (PC0i_0j) written by some versions of CASA.
+     */
+    private static Double getMatrixElement(Header header, String prefix, int i, int j)
+    {
+        for (String keyword : new String[] { String.format("%s%d_%d", prefix, i, j),
+                String.format("%s%03d%03d", prefix, i, j), String.format("%s%02d_%02d", prefix, i, j) })
+        {
+            if (header.containsKey(keyword))
+            {
+                return header.getDoubleValue(keyword);
+            }
+        }
+        return null;
+    }
+
+    private static ObjectNode toPosition(JsonNodeFactory factory, double[] raDec)
+    {
+        ObjectNode position = factory.objectNode();
+        position.put("DEC", format(raDec[1]));
+        position.put("RA", format(raDec[0]));
+        return position;
+    }
+
+    private static String format(double value)
+    {
+        return String.format(Locale.ROOT, NUMBER_FORMAT, value);
+    }
+
+    /**
+     * Converts pixel coordinates on the celestial axes into RA and DEC, following the FITS WCS papers I and II
+     * (Greisen &amp; Calabretta 2002, Calabretta &amp; Greisen 2002): pixel coordinates are transformed into
+     * intermediate world coordinates by the linear transformation matrix, de-projected into native spherical
+     * coordinates, and then rotated onto the celestial sphere.
+     */
+    private static class CelestialTransformation
+    {
+        private final int raAxis;
+
+        private final int decAxis;
+
+        private final ZenithalProjection projection;
+
+        private final double raCrpix;
+
+        private final double decCrpix;
+
+        /** Maps pixel offsets from the reference pixel, in (RA, DEC) axis order, to intermediate world coordinates. */
+        private final double[][] matrix = new double[2][2];
+
+        private final double refRa;
+
+        private final double refDec;
+
+        private final double nativePoleLongitude;
+
+        CelestialTransformation(Header header, int raAxis, int decAxis, ZenithalProjection projection)
+        {
+            this.raAxis = raAxis;
+            this.decAxis = decAxis;
+            this.projection = projection;
+            this.raCrpix = header.getDoubleValue("CRPIX" + raAxis, 0);
+            this.decCrpix = header.getDoubleValue("CRPIX" + decAxis, 0);
+            this.refRa = header.getDoubleValue("CRVAL" + raAxis, 0);
+            this.refDec = header.getDoubleValue("CRVAL" + decAxis, 0);
+            // For zenithal projections the default LONPOLE is 180 unless the reference point is the celestial pole
+            this.nativePoleLongitude = header.getDoubleValue("LONPOLE", refDec >= 90 ? 0 : 180);
+
+            int[] axes = new int[] { raAxis, decAxis };
+            boolean hasCd = hasMatrix(header, "CD", axes);
+            boolean hasPc = hasMatrix(header, "PC", axes);
+            double crota = header.getDoubleValue("CROTA" + decAxis, 0);
+            for (int i = 0; i < 2; i++)
+            {
+                for (int j = 0; j < 2; j++)
+                {
+                    if (hasCd)
+                    {
+                        Double cd = getMatrixElement(header, "CD", axes[i], axes[j]);
+                        matrix[i][j] = cd == null ? 0 : cd;
+                    }
+                    else
+                    {
+                        Double pc = getMatrixElement(header, "PC", axes[i], axes[j]);
+                        if (pc == null)
+                        {
+                            pc = hasPc ? (i == j ? 1.0 : 0.0) : getRotationElement(header, axes, i, j, crota);
+                        }
+                        matrix[i][j] = header.getDoubleValue("CDELT" + axes[i], 1) * pc;
+                    }
+                }
+            }
+        }
+
+        private static boolean hasMatrix(Header header, String prefix, int[] axes)
+        {
+            for (int i : axes)
+            {
+                for (int j : axes)
+                {
+                    if (getMatrixElement(header, prefix, i, j) != null)
+                    {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /*
+         * The PC matrix element implied by the old CROTA keyword (which is the identity matrix if CROTA is zero).
+         */
+        private static double getRotationElement(Header header, int[] axes, int i, int j, double crota)
+        {
+            double rotation = Math.toRadians(crota);
+            if (i == j)
+            {
+                return Math.cos(rotation);
+            }
+            double cdeltRatio =
+                    header.getDoubleValue("CDELT" + axes[j], 1) / header.getDoubleValue("CDELT" + axes[i], 1);
+            return (i == 0 ? -1 : 1) * Math.sin(rotation) * cdeltRatio;
+        }
+
+        double getPixelSize(int axis)
+        {
+            double[] row = matrix[axis == raAxis ? 0 : 1];
+            double diagonal = row[axis == raAxis ? 0 : 1];
+            return Math.copySign(Math.hypot(row[0], row[1]), diagonal);
+        }
+
+        double[] toWorld(double raPixel, double decPixel) throws FitsException
+        {
+            double x = matrix[0][0] * (raPixel - raCrpix) + matrix[0][1] * (decPixel - decCrpix);
+            double y = matrix[1][0] * (raPixel - raCrpix) + matrix[1][1] * (decPixel - decCrpix);
+
+            double nativeLongitude = Math.atan2(x, -y);
+            double nativeLatitude = Math.toRadians(projection.getNativeLatitude(Math.hypot(x, y)));
+            if (Double.isNaN(nativeLatitude))
+            {
+                throw new FitsException(String.format(
+                        "Pixel (%s, %s) on axes %d and %d is outside the valid region of the %s projection", raPixel,
+                        decPixel, raAxis, decAxis, projection));
+            }
+
+            double dec0 = Math.toRadians(refDec);
+            double dphi = nativeLongitude - Math.toRadians(nativePoleLongitude);
+            double ra = refRa + Math.toDegrees(Math.atan2(-Math.cos(nativeLatitude) * Math.sin(dphi),
+                    Math.sin(nativeLatitude) * Math.cos(dec0)
+                            - Math.cos(nativeLatitude) * Math.sin(dec0) * Math.cos(dphi)));
+            double dec = Math.toDegrees(Math.asin(Math.sin(nativeLatitude) * Math.sin(dec0)
+                    + Math.cos(nativeLatitude) * Math.cos(dec0) * Math.cos(dphi)));
+            ra = ra % 360;
+            if (ra < 0)
+            {
+                ra += 360;
+            }
+            return new double[] { ra, dec };
+        }
+    }
+}
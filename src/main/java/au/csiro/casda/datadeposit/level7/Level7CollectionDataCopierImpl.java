@@ -18,7 +18,6 @@ import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.filefilter.FileFilterUtils;
 import org.apache.commons.io.filefilter.IOFileFilter;
-import org.apache.commons.lang3.CharEncoding;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.slf4j.Logger;
@@ -34,8 +33,7 @@ import au.csiro.casda.datadeposit.catalogue.level7.Level7CollectionRepository;
 import au.csiro.casda.datadeposit.copy.CopyDataException;
 import au.csiro.casda.datadeposit.exception.CreateChecksumException;
 import au.csiro.casda.datadeposit.observation.ObservationParser;
-import au.csiro.casda.datadeposit.service.InlineScriptException;
-import au.csiro.casda.datadeposit.service.InlineScriptService;
+import au.csiro.casda.datadeposit.service.ChecksumService;
 import au.csiro.casda.entity.observation.Cubelet;
 import au.csiro.casda.entity.observation.EncapsulationFile;
 import au.csiro.casda.entity.observation.ImageCube;
@@ -91,9 +89,7 @@ public class Level7CollectionDataCopierImpl implements Level7CollectionDataCopie
 
     private String failureCause;
 
-    private String calculateChecksumScript;
-
-    private InlineScriptService inlineScriptService;
+    private ChecksumService checksumService;
 
     /**
      * Constructs a Level7CollectionDataCopierImpl that does the work of copying the files to staging and registering
@@ -105,23 +101,19 @@ public class Level7CollectionDataCopierImpl implements Level7CollectionDataCopie
      *            a ProcessJobFactory for running external commands
      * @param level7StageCommand
      *            The command to be used to copy the level 7 data form the user's folder
-     * @param calculateChecksumScript
-     *            The command to calculate a checksum.
-     * @param inlineScriptService
-     *            the service to run simple scripts such as checksums
+     * @param checksumService
+     *            the service used to calculate checksums
      */
     @Autowired
     public Level7CollectionDataCopierImpl(Level7CollectionRepository level7CollectionRepository,
             ProcessJobFactory processJobFactory, @Value("${level7.copy.command}") String level7StageCommand,
-            @Value("${calculate.checksum.script}") String calculateChecksumScript,
-            InlineScriptService inlineScriptService)
+            ChecksumService checksumService)
     {
         super();
         this.level7CollectionRepository = level7CollectionRepository;
         this.processJobFactory = processJobFactory;
         this.level7StageCommand = Utils.elStringToArray(level7StageCommand);
-        this.calculateChecksumScript = calculateChecksumScript;
-        this.inlineScriptService = inlineScriptService;
+        this.checksumService = checksumService;
     }
 
     /** {@inheritDoc} */
@@ -490,10 +482,7 @@ public class Level7CollectionDataCopierImpl implements Level7CollectionDataCopie
     private void createChecksumIfMissing(String collectionFolder, String filename) throws CreateChecksumException
     {
         Path filePath = Paths.get(collectionFolder, filename);
-        Path checksumPath = Paths.get(collectionFolder, filename + ".checksum");
-        File checksumFile = checksumPath.toFile();
-
-        if (checksumFile.exists())
+        if (ChecksumService.getChecksumFile(filePath).toFile().exists())
         {
             // Already exists so no further work needed
             return;
@@ -501,17 +490,9 @@ public class Level7CollectionDataCopierImpl implements Level7CollectionDataCopie
 
         try
         {
-            String response = inlineScriptService.callScriptInline(calculateChecksumScript, filePath.toString());
-            if (StringUtils.isNotBlank(response))
-            {
-                FileUtils.writeStringToFile(checksumFile, response, CharEncoding.UTF_8);
-            }
-            else
-            {
-                throw new CreateChecksumException("Script generated an empty checksum response for file: " + filePath);
-            }
+            checksumService.createChecksumFile(filePath);
         }
-        catch (IOException | InlineScriptException e)
+        catch (IOException e)
         {
             throw new CreateChecksumException(e);
         }
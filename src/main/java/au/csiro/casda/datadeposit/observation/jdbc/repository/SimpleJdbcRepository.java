@@ -13,6 +13,8 @@ package au.csiro.casda.datadeposit.observation.jdbc.repository;
  */
 
 
+import java.io.IOException;
+import java.io.Reader;
 import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -21,7 +23,10 @@ import java.util.Map;
 
 import javax.sql.DataSource;
 
+import org.postgresql.PGConnection;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
@@ -53,6 +58,44 @@ public class SimpleJdbcRepository
         this.jdbcTemplate.execute(statement);
     }
 
+    /**
+     * Bulk load rows into a table using the PostgreSQL COPY protocol. The rows are streamed over the same connection
+     * (and hence transaction) that executeStatement would use.
+     * 
+     * @param copyStatement
+     *          a COPY ... FROM STDIN statement
+     * @param data
+     *          the rows to load, in the format expected by the copyStatement
+     * @return the number of rows loaded
+     */
+    public long copyIn(String copyStatement, Reader data)
+    {
+        return this.jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try
+            {
+                return connection.unwrap(PGConnection.class).getCopyAPI().copyIn(copyStatement, data);
+            }
+            catch (IOException e)
+            {
+                throw new DataAccessResourceFailureException("Could not stream data for " + copyStatement, e);
+            }
+        });
+    }
+
+    /**
+     * Find the id of the derived catalogue whose entries are stored in the given table
+     * @param entriesTableName
+     *          The schema qualified name of the catalogue's entries table
+     * @return
+     *          The id of the catalogue record
+     */
+    public long getDerivedCatalogueId(String entriesTableName)
+    {
+        return this.jdbcTemplate.queryForObject("select id from casda.catalogue "
+                + "where catalogue_type = 'DERIVED_CATALOGUE' and entries_table_name = ?", Long.class,
+                entriesTableName);
+    }
+
     /**
      * Check if a table exists in the database
      * @param tableName
@@ -1,6 +1,6 @@
 package au.csiro.casda.datadeposit.observation.jpa.repository;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 import au.csiro.casda.entity.sourcedetect.ContinuumComponent;
@@ -24,6 +24,6 @@ import au.csiro.casda.entity.sourcedetect.ContinuumComponent;
  */
 @Repository
 public interface ContinuumComponentRepository
-        extends CrudRepository<ContinuumComponent, Long>, AbstractCatalogueEntryRepository<ContinuumComponent>
+        extends JpaRepository<ContinuumComponent, Long>, AbstractCatalogueEntryRepository<ContinuumComponent>
 {
 }
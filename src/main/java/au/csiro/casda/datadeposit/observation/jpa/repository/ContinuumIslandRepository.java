@@ -1,6 +1,6 @@
 package au.csiro.casda.datadeposit.observation.jpa.repository;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 import au.csiro.casda.entity.sourcedetect.ContinuumIsland;
@@ -24,6 +24,6 @@ import au.csiro.casda.entity.sourcedetect.ContinuumIsland;
  */
 @Repository
 public interface ContinuumIslandRepository
-        extends CrudRepository<ContinuumIsland, Long>, AbstractCatalogueEntryRepository<ContinuumIsland>
+        extends JpaRepository<ContinuumIsland, Long>, AbstractCatalogueEntryRepository<ContinuumIsland>
 {
 }
@@ -1,6 +1,6 @@
 package au.csiro.casda.datadeposit.observation.jpa.repository;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 import au.csiro.casda.entity.sourcedetect.PolarisationComponent;
@@ -24,6 +24,6 @@ import au.csiro.casda.entity.sourcedetect.PolarisationComponent;
  */
 @Repository
 public interface PolarisationComponentRepository
-        extends CrudRepository<PolarisationComponent, Long>, AbstractCatalogueEntryRepository<PolarisationComponent>
+        extends JpaRepository<PolarisationComponent, Long>, AbstractCatalogueEntryRepository<PolarisationComponent>
 {
 }
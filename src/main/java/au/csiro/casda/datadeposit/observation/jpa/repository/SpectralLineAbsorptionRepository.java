@@ -1,6 +1,6 @@
 package au.csiro.casda.datadeposit.observation.jpa.repository;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 import au.csiro.casda.entity.observation.SpectralLineAbsorption;
@@ -24,6 +24,6 @@ import au.csiro.casda.entity.observation.SpectralLineAbsorption;
  */
 @Repository
 public interface SpectralLineAbsorptionRepository
-        extends CrudRepository<SpectralLineAbsorption, Long>, AbstractCatalogueEntryRepository<SpectralLineAbsorption>
+        extends JpaRepository<SpectralLineAbsorption, Long>, AbstractCatalogueEntryRepository<SpectralLineAbsorption>
 {
 }
@@ -1,6 +1,6 @@
 package au.csiro.casda.datadeposit.observation.jpa.repository;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.jpa.repository.JpaRepository;
 /*
  * #%L
  * CSIRO ASKAP Science Data Archive
@@ -20,7 +20,7 @@ import au.csiro.casda.entity.observation.SpectralLineEmission;
  * Copyright 2015, CSIRO Australia. All rights reserved.
  */
 public interface SpectralLineEmissionRepository
-        extends CrudRepository<SpectralLineEmission, Long>, AbstractCatalogueEntryRepository<SpectralLineEmission>
+        extends JpaRepository<SpectralLineEmission, Long>, AbstractCatalogueEntryRepository<SpectralLineEmission>
 {
 
 }
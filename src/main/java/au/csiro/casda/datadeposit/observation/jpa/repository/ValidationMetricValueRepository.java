@@ -1,6 +1,6 @@
 package au.csiro.casda.datadeposit.observation.jpa.repository;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.jpa.repository.JpaRepository;
 
 import au.csiro.casda.entity.observation.EvaluationFile;
 /*
@@ -21,7 +21,7 @@ import au.csiro.casda.entity.validation.ValidationMetricValue;
  * <p>
  * Copyright 2017, CSIRO Australia. All rights reserved.
  */
-public interface ValidationMetricValueRepository extends CrudRepository<ValidationMetricValue, Long>
+public interface ValidationMetricValueRepository extends JpaRepository<ValidationMetricValue, Long>
 {
     /**
      * Returns the number of validation metric values associated with the given evaluationFile
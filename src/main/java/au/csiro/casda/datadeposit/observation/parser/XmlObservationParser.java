@@ -3,20 +3,17 @@ package au.csiro.casda.datadeposit.observation.parser;
 import java.io.IOException;
 import java.io.InputStream;
 
-import javax.xml.XMLConstants;
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Unmarshaller;
 import javax.xml.bind.ValidationEvent;
 import javax.xml.bind.ValidationEventHandler;
-import javax.xml.transform.stream.StreamSource;
-import javax.xml.validation.Schema;
-import javax.xml.validation.SchemaFactory;
 
-import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Component;
 import org.xml.sax.SAXException;
 
+import au.csiro.casda.datadeposit.XmlBindingRegistry;
+import au.csiro.casda.datadeposit.XmlBindingRegistry.UnmarshallerPool;
+
 /*
  * #%L
  * CSIRO ASKAP Science Data Archive
@@ -38,11 +35,6 @@ import org.xml.sax.SAXException;
 @Component
 public class XmlObservationParser
 {
-    /**
-     * 
-     */
-    private static final String SCHEMA_FILE_RESOURCE_PATH = "schemas/observation_metadata.xsd";
-
     /**
      * Parses the given inputStream that is the Dataset XML from the RTC metadata xml file and returns the Dataset.
      * 
@@ -59,41 +51,29 @@ public class XmlObservationParser
     public static XmlObservation parseDataSetXML(InputStream inputStreamXML) throws JAXBException, SAXException,
             IOException
     {
-        JAXBContext jaxbContext = JAXBContext.newInstance(DatasetXmlElementObjectFactory.class);
-        Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
-        unmarshaller.setSchema(getSchema());
-        unmarshaller.setEventHandler(new ValidationEventHandler()
+        UnmarshallerPool unmarshallerPool = XmlBindingRegistry.getUnmarshallerPool(
+                DatasetXmlElementObjectFactory.class, XmlBindingRegistry.OBSERVATION_METADATA_SCHEMA_RESOURCE_PATH);
+        Unmarshaller unmarshaller = unmarshallerPool.borrow();
+        try
         {
-            // The default XMLValidationEventHandler is too noisy
-            /**
-             * {@inheritDoc}
-             */
-            @Override
-            public boolean handleEvent(ValidationEvent event)
+            unmarshaller.setEventHandler(new ValidationEventHandler()
             {
-                return false;
-            }
-        });
-        unmarshaller.setProperty("com.sun.xml.internal.bind.ObjectFactory", new DatasetXmlElementObjectFactory());
-        return (XmlObservation) unmarshaller.unmarshal(inputStreamXML);
-    }
-
-    private static Schema getSchema()
-    {
-        SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-        try (InputStream schemaFileInputStream = new ClassPathResource(SCHEMA_FILE_RESOURCE_PATH).getInputStream())
-        {
-            return schemaFactory.newSchema(new StreamSource(schemaFileInputStream));
-        }
-        catch (IOException e)
-        {
-            throw new RuntimeException(String.format("Unexpected IOException accessing the resource '%s'",
-                    SCHEMA_FILE_RESOURCE_PATH), e);
+                // The default XMLValidationEventHandler is too noisy
+                /**
+                 * {@inheritDoc}
+                 */
+                @Override
+                public boolean handleEvent(ValidationEvent event)
+                {
+                    return false;
+                }
+            });
+            unmarshaller.setProperty("com.sun.xml.internal.bind.ObjectFactory", new DatasetXmlElementObjectFactory());
+            return (XmlObservation) unmarshaller.unmarshal(inputStreamXML);
         }
-        catch (SAXException e)
+        finally
         {
-            throw new RuntimeException(String.format("Unexpected SAXException reading the schema file resource '%s'",
-                    SCHEMA_FILE_RESOURCE_PATH), e);
+            unmarshallerPool.release(unmarshaller);
         }
     }
 }
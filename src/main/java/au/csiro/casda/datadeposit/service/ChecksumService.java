@@ -0,0 +1,169 @@
+package au.csiro.casda.datadeposit.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * Calculates the checksums of files in the same format as the calc_checksum.sh script, ie:
+ * <p>
+ * <code>&lt;crc32&gt; &lt;sha1&gt; &lt;size&gt;</code>
+ * <p>
+ * where the CRC-32 is 8 lower-case hex digits, the SHA-1 is 40 lower-case hex digits, and the size of the file in bytes
+ * is in lower-case hex without leading zeros. This is the format NGAS reports and the format of the .checksum files
+ * that accompany each deposited file.
+ * <p>
+ * The file is read once, through a direct buffer that is reused by each thread, so the service may be used to calculate
+ * the checksums of many files in parallel.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+@Service
+public class ChecksumService
+{
+    /**
+     * The suffix of the file that holds a file's checksum.
+     */
+    public static final String CHECKSUM_FILE_SUFFIX = ".checksum";
+
+    /**
+     * The default size of the buffer used to read each file.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+    private final int bufferSize;
+
+    private final ThreadLocal<ByteBuffer> buffers;
+
+    /**
+     * Create a new ChecksumService using a default buffer size.
+     */
+    public ChecksumService()
+    {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Create a new ChecksumService.
+     *
+     * @param bufferSize
+     *            the size, in bytes, of the buffer used to read each file
+     */
+    @Autowired
+    public ChecksumService(@Value("${checksum.buffer.size}") int bufferSize)
+    {
+        if (bufferSize < 1)
+        {
+            throw new IllegalArgumentException("expected bufferSize >= 1");
+        }
+        this.bufferSize = bufferSize;
+        this.buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(bufferSize));
+    }
+
+    /**
+     * @return the size, in bytes, of the buffer used to read each file
+     */
+    public int getBufferSize()
+    {
+        return bufferSize;
+    }
+
+    /**
+     * Calculates the checksum of a file.
+     *
+     * @param file
+     *            the file
+     * @return the checksum, in the format described above
+     * @throws IOException
+     *             if the file could not be read
+     */
+    public String calculateChecksum(Path file) throws IOException
+    {
+        StreamingChecksum checksum = new StreamingChecksum();
+
+        ByteBuffer buffer = buffers.get();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            buffer.clear();
+            while (channel.read(buffer) != -1)
+            {
+                buffer.flip();
+                checksum.update(buffer);
+                buffer.clear();
+            }
+        }
+        finally
+        {
+            buffer.clear();
+        }
+
+        return checksum.getChecksum();
+    }
+
+    /**
+     * Calculates the checksum of a file and writes it to a checksum file alongside it, named after the file with a
+     * '.checksum' suffix. Any existing checksum file is overwritten.
+     *
+     * @param file
+     *            the file
+     * @return the checksum file
+     * @throws IOException
+     *             if the file could not be read or the checksum file could not be written
+     */
+    public File createChecksumFile(Path file) throws IOException
+    {
+        return writeChecksumFile(file, calculateChecksum(file));
+    }
+
+    /**
+     * Writes an already calculated checksum to the checksum file for a file, named after the file with a '.checksum'
+     * suffix. Any existing checksum file is overwritten.
+     *
+     * @param file
+     *            the file
+     * @param checksum
+     *            the checksum of the file
+     * @return the checksum file
+     * @throws IOException
+     *             if the checksum file could not be written
+     */
+    public File writeChecksumFile(Path file, String checksum) throws IOException
+    {
+        Path checksumFile = getChecksumFile(file);
+        Files.write(checksumFile, checksum.getBytes(StandardCharsets.UTF_8));
+        return checksumFile.toFile();
+    }
+
+    /**
+     * Returns the path of the checksum file for a file.
+     *
+     * @param file
+     *            the file
+     * @return the path of its checksum file
+     */
+    public static Path getChecksumFile(Path file)
+    {
+        return file.resolveSibling(file.getFileName() + CHECKSUM_FILE_SUFFIX);
+    }
+}
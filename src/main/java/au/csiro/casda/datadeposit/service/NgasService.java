@@ -37,6 +37,8 @@ import javax.xml.xpath.XPathFactory;
 
 import org.apache.commons.lang3.CharEncoding;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
@@ -48,7 +50,7 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestTemplate;
@@ -310,6 +312,36 @@ public class NgasService
     private final String ngasUrl;
     private final RestTemplate restTemplate;
 
+    /**
+     * Constructor. Calls to NGAS are made over a pool of kept-alive connections, shared by all of the calls (eg: the
+     * REGISTER and STATUS calls of each registered file), so that repeated calls do not each open a new connection.
+     * Request bodies (ie: the files being archived) are streamed to NGAS rather than being held in memory.
+     * 
+     * @param hostname
+     *            the NGAS server hostname
+     * @param port
+     *            the NGAS server port
+     * @param maxConnectionsPerHost
+     *            the maximum number of connections open to each NGAS host at the same time
+     * @param maxConnections
+     *            the maximum number of connections open to all NGAS hosts at the same time
+     * @param connectTimeoutMillis
+     *            the time to wait for a connection to NGAS to be established, in milliseconds (0 for no limit)
+     * @param readTimeoutMillis
+     *            the time to wait for data from NGAS, in milliseconds (0 for no limit, as NGAS may take a long time to
+     *            checksum a large file before answering an ARCHIVE or REGISTER call)
+     */
+    @Autowired
+    public NgasService(@Value("${ngas.server.name}") String hostname, @Value("${ngas.server.port}") String port,
+            @Value("${ngas.max.connections.per.host:16}") int maxConnectionsPerHost,
+            @Value("${ngas.max.connections:64}") int maxConnections,
+            @Value("${ngas.connect.timeout.millis:30000}") int connectTimeoutMillis,
+            @Value("${ngas.read.timeout.millis:0}") int readTimeoutMillis)
+    {
+        this(createPooledRestTemplate(maxConnectionsPerHost, maxConnections, connectTimeoutMillis,
+                readTimeoutMillis), hostname, port);
+    }
+
     /**
      * Constructor
      * 
@@ -320,15 +352,26 @@ public class NgasService
      * @param port
      *            the NGAS server port
      */
-    @Autowired
-    public NgasService(RestTemplate restTemplate, @Value("${ngas.server.name}") String hostname,
-            @Value("${ngas.server.port}") String port)
+    public NgasService(RestTemplate restTemplate, String hostname, String port)
     {
         super();
         this.restTemplate = restTemplate;
         this.ngasUrl = String.format("http://%s:%s", hostname, port);
     }
 
+    private static RestTemplate createPooledRestTemplate(int maxConnectionsPerHost, int maxConnections,
+            int connectTimeoutMillis, int readTimeoutMillis)
+    {
+        CloseableHttpClient client = HttpClientBuilder.create().setUserAgent("CASDA NGAS Service")
+                .useSystemProperties().setMaxConnPerRoute(maxConnectionsPerHost).setMaxConnTotal(maxConnections)
+                .build();
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(client);
+        requestFactory.setConnectTimeout(connectTimeoutMillis);
+        requestFactory.setReadTimeout(readTimeoutMillis);
+        requestFactory.setBufferRequestBody(false);
+        return new RestTemplate(requestFactory);
+    }
+
     /**
      * Get the status of an NGAS file
      * 
@@ -377,17 +420,11 @@ public class NgasService
 
         HttpEntity<Resource> entity = new HttpEntity<Resource>(new FileSystemResource(path.toFile()), headers);
 
-        RestTemplate archiveRestTemplate = new RestTemplate();
-        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
-        // This is supposed to make Spring stream the data from the entity:
-        requestFactory.setBufferRequestBody(false);
-        archiveRestTemplate.setRequestFactory(requestFactory);
         ResponseEntity<String> responseEntity = null;
         try
         {
-            responseEntity =
-                    archiveRestTemplate.exchange(ngasUrl + "/ARCHIVE?filename={file_id}", HttpMethod.POST, entity,
-                            String.class, fileId);
+            responseEntity = restTemplate.exchange(ngasUrl + "/ARCHIVE?filename={file_id}", HttpMethod.POST, entity,
+                    String.class, fileId);
             /*
              * Assume NGAS always responds with an XML response. Regardless, any error will be raised as an exception
              * with the response.
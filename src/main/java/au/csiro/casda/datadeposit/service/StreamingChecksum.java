@@ -0,0 +1,91 @@
+package au.csiro.casda.datadeposit.service;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.CRC32;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * Accumulates the checksum of a stream of bytes as they pass by, in the format described by {@link ChecksumService}.
+ * This allows the checksum of a file to be calculated while the file is being written, rather than reading the file
+ * back afterwards. Instances are not thread-safe.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+public class StreamingChecksum
+{
+    private final CRC32 crc = new CRC32();
+
+    private final MessageDigest sha1;
+
+    private long size;
+
+    /**
+     * Create a new StreamingChecksum for an empty stream.
+     */
+    public StreamingChecksum()
+    {
+        try
+        {
+            sha1 = MessageDigest.getInstance("SHA-1");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            // Every Java platform is required to support SHA-1
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Adds the remaining bytes of the buffer to the checksum. The buffer's position is not changed.
+     *
+     * @param buffer
+     *            the bytes to add
+     */
+    public void update(ByteBuffer buffer)
+    {
+        size += buffer.remaining();
+        crc.update(buffer.duplicate());
+        sha1.update(buffer.duplicate());
+    }
+
+    /**
+     * @return the number of bytes added to the checksum so far
+     */
+    public long getSize()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the checksum of the bytes added so far. This may only be called once.
+     *
+     * @return the checksum
+     */
+    public String getChecksum()
+    {
+        return String.format("%08x %s %x", crc.getValue(), toHex(sha1.digest()), size);
+    }
+
+    private static String toHex(byte[] bytes)
+    {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes)
+        {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -4,34 +4,27 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
 
 import javax.transaction.Transactional;
-import javax.xml.XMLConstants;
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.JAXBException;
-import javax.xml.bind.Unmarshaller;
-import javax.xml.bind.ValidationEvent;
-import javax.xml.bind.ValidationEventHandler;
-import javax.xml.transform.stream.StreamSource;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.validation.Schema;
-import javax.xml.validation.SchemaFactory;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.context.annotation.Scope;
-import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Component;
 import org.xml.sax.SAXException;
 
 import au.csiro.casda.datadeposit.DepositStateImpl;
+import au.csiro.casda.datadeposit.XmlBindingRegistry;
 import au.csiro.casda.datadeposit.DepositState.Type;
 import au.csiro.casda.datadeposit.catalogue.AbstractCatalogueVoTableVisitor;
 import au.csiro.casda.datadeposit.catalogue.CatalogueParser;
@@ -43,8 +36,8 @@ import au.csiro.casda.datadeposit.observation.jpa.repository.EvaluationFileRepos
 import au.csiro.casda.datadeposit.observation.jpa.repository.ObservationRepository;
 import au.csiro.casda.datadeposit.observation.jpa.repository.ValidationMetricRepository;
 import au.csiro.casda.datadeposit.observation.jpa.repository.ValidationMetricValueRepository;
-import au.csiro.casda.datadeposit.votable.parser.VisitableVoTableElement;
-import au.csiro.casda.datadeposit.votable.parser.VoTableXmlElementObjectFactory;
+import au.csiro.casda.datadeposit.votable.parser.StreamingVoTableReader;
+import au.csiro.casda.datadeposit.votable.parser.VoTableElementVisitor;
 import au.csiro.casda.entity.observation.EvaluationFile;
 import au.csiro.casda.entity.observation.Observation;
 
@@ -72,14 +65,20 @@ public class ValidationMetricParser
 {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ValidationMetricParser.class);
-    
-    private static final String SCHEMA_FILE_RESOURCE_PATH = "schemas/VOTable-1.3.xsd";
 
     private EvaluationFileRepository evaluationFileRepository;
     private ObservationRepository observationRepository;
     
     
     private ValidationMetricVoTableVisitor validationMetricVoTableVisitor;
+
+    @Autowired
+    @Value("${votable.max.recorded.row.errors:0}")
+    private int maxRecordedRowErrors;
+
+    @Autowired
+    @Value("${votable.conversion.threads:1}")
+    private int conversionThreads = 1;
     
     /**
      * Constructor 
@@ -95,94 +94,70 @@ public class ValidationMetricParser
      * @param validationMetricValueRepository the metric value repository
      * @param validationMetricRepository the metric repository
      * @param evaluationFileRepository the evaluation file repository
+     * @param batchSize the number of validation metric values to save in each batch
      */
     @Autowired
     public ValidationMetricParser(ObservationRepository observationRepository, 
     		ValidationMetricValueRepository validationMetricValueRepository, 
     		EvaluationFileRepository evaluationFileRepository,
-    		ValidationMetricRepository validationMetricRepository)
+    		ValidationMetricRepository validationMetricRepository,
+            @Value("${catalogue.entry.batch.size}") int batchSize)
     {
         this.observationRepository = observationRepository;
-    	this.validationMetricVoTableVisitor = 
-    			new ValidationMetricVoTableVisitor(validationMetricValueRepository, validationMetricRepository);
+    	this.validationMetricVoTableVisitor = new ValidationMetricVoTableVisitor(validationMetricValueRepository,
+                validationMetricRepository, batchSize);
     	this.evaluationFileRepository = evaluationFileRepository;
     }
     
     /**
-     * Helper methods for subclasses that need to load a VOTABLE XML Schema.
+     * Helper methods for subclasses that need to load a VOTABLE XML Schema. The schema is only compiled once per JVM.
      * 
      * @return a Schema
      */
     protected Schema getVoTableXmlSchema()
     {
-        SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-        try (InputStream schemaFileInputStream = new ClassPathResource(SCHEMA_FILE_RESOURCE_PATH).getInputStream())
-        {
-            return schemaFactory.newSchema(new StreamSource(schemaFileInputStream));
-        }
-        catch (IOException e)
-        {
-            throw new RuntimeException(String.format("Unexpected IOException accessing the resource '%s'",
-                    SCHEMA_FILE_RESOURCE_PATH), e);
-        }
-        catch (SAXException e)
-        {
-            throw new RuntimeException(String.format("Unexpected SAXException reading the schema file resource '%s'",
-                    SCHEMA_FILE_RESOURCE_PATH), e);
-        }
+        return XmlBindingRegistry.getSchema(XmlBindingRegistry.VOTABLE_SCHEMA_RESOURCE_PATH);
     }
     
     /**
-     * Parses the datafile and creates the Vo Table Object for the data in the file
+     * Parses the datafile, passing each element of the VOTABLE to the visitor as it is read. The datafile is validated
+     * against the schema in the same pass.
      * @param validationMetricfile the name/address of the data file
-     * @param schema the schema to use for parsing
-     * @return the VisitableVoTableElement
+     * @param schema the schema to validate the data file against
+     * @param visitor the visitor that will visit the elements of the VOTABLE
      * @throws FileNotFoundException thrown if the file does not exist or cannot be accessed
      * @throws CatalogueParser.MalformedFileException en exception thrown 
      * if the data file does not match the expected format
      */
-    protected VisitableVoTableElement parseDatafile(String validationMetricfile, Schema schema)
+    protected void parseDatafile(String validationMetricfile, Schema schema, VoTableElementVisitor visitor)
             throws FileNotFoundException, CatalogueParser.MalformedFileException
     {
         FileInputStream validationMetricDatafileInputStream = new FileInputStream(validationMetricfile);
         try
         {
-            JAXBContext jaxbContext = JAXBContext.newInstance(VoTableXmlElementObjectFactory.class);
-            Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
-            unmarshaller.setSchema(schema);
-            unmarshaller.setEventHandler(new ValidationEventHandler()
-            {
-                // The default XMLValidationEventHandler is too noisy
-                /**
-                 * {@inheritDoc}
-                 */
-                @Override
-                public boolean handleEvent(ValidationEvent event)
-                {
-                    return false;
-                }
-            });
-            unmarshaller.setProperty("com.sun.xml.internal.bind.ObjectFactory", new VoTableXmlElementObjectFactory());
-            return (VisitableVoTableElement) unmarshaller.unmarshal(validationMetricDatafileInputStream);
+            StreamingVoTableReader reader = new StreamingVoTableReader(validationMetricDatafileInputStream, schema,
+                    new File(validationMetricfile).toURI());
+            reader.setReadAhead(conversionThreads > 1);
+            reader.read(visitor);
         }
-        catch (JAXBException e)
+        catch (XMLStreamException | SAXException e)
+        {
+            throw new CatalogueParser.MalformedFileException(e);
+        }
+        catch (AbstractCatalogueVoTableVisitor.MalformedVoTableException e)
         {
             throw new CatalogueParser.MalformedFileException(e);
         }
         finally
         {
-            if (validationMetricDatafileInputStream != null)
+            try
             {
-                try
-                {
-                	validationMetricDatafileInputStream.close();
-                }
-                catch (IOException e)
-                {
-                    LOGGER.debug(
-                            "Encountered IOException closing a resource.  Ignoring in favour of any other exceptions",
-                            e);
-                }
+                validationMetricDatafileInputStream.close();
+            }
+            catch (IOException e)
+            {
+                LOGGER.debug("Encountered IOException closing a resource.  Ignoring in favour of any other exceptions",
+                        e);
             }
         }
     }
@@ -220,18 +195,11 @@ public class ValidationMetricParser
     {
     	validationMetricVoTableVisitor.setEvaluationFile(evaluationFile);
 
-        Schema schema = getVoTableXmlSchema();
-        VisitableVoTableElement table = parseDatafile(EvaluationDatafile, schema);
-
         validationMetricVoTableVisitor.setFailFast(mode != Mode.VALIDATE_ONLY);
-        try
-        {
-            table.accept(validationMetricVoTableVisitor);
-        }
-        catch (AbstractCatalogueVoTableVisitor.MalformedVoTableException ex)
-        {
-            throw new CatalogueParser.MalformedFileException(ex);
-        }
+        validationMetricVoTableVisitor.setMaxRecordedRowErrors(maxRecordedRowErrors);
+        validationMetricVoTableVisitor.setConversionThreads(conversionThreads);
+        parseDatafile(EvaluationDatafile, getVoTableXmlSchema(), validationMetricVoTableVisitor);
+
         List<Throwable> exceptions = validationMetricVoTableVisitor.getErrors();
         if (CollectionUtils.isNotEmpty(exceptions))
         {
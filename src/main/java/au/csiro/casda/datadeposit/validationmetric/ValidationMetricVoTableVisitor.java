@@ -1,17 +1,22 @@
 package au.csiro.casda.datadeposit.validationmetric;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.BiConsumer;
 
+import au.csiro.casda.datadeposit.catalogue.BatchingCatalogueEntrySink;
+import au.csiro.casda.datadeposit.catalogue.CatalogueEntrySink;
 import au.csiro.casda.datadeposit.observation.jpa.repository.ValidationMetricRepository;
 import au.csiro.casda.datadeposit.observation.jpa.repository.ValidationMetricValueRepository;
 import au.csiro.casda.datadeposit.votable.parser.AbstractVoTableElementVisitor;
 import au.csiro.casda.datadeposit.votable.parser.FieldConstraint;
+import au.csiro.casda.datadeposit.votable.parser.FieldValueAppliers;
 import au.csiro.casda.datadeposit.votable.parser.ParamConstraint;
+import au.csiro.casda.datadeposit.votable.parser.ParsedVoTableRow;
 import au.csiro.casda.datadeposit.votable.parser.VisitableVoTableField;
 import au.csiro.casda.datadeposit.votable.parser.VisitableVoTableParam;
 import au.csiro.casda.entity.observation.EvaluationFile;
@@ -47,23 +52,31 @@ public class ValidationMetricVoTableVisitor extends AbstractVoTableElementVisito
         loadConstraintsFile(VALIDATION_METRIC_METADATA_RESOURCE_PATH, PARAM_CONSTRAINTS, FIELD_CONSTRAINTS);
     }
     
-    private static final Map<String, BiConsumer<ValidationMetricValue, String>> APPLIERS;
+    private static final Map<String, BiConsumer<ValidationMetricValue, Object>> APPLIERS;
     static
     {
         APPLIERS = new HashMap<>();
         APPLIERS.put("metric_name", (validationMetricValue, value) -> 
-        											validationMetricValue.getValidationMetric().setMetricName(value));
+        											validationMetricValue.getValidationMetric().setMetricName(stringValue(value)));
         APPLIERS.put("metric_value", (validationMetricValue, value) -> 
-        											validationMetricValue.setMetricValue(Double.parseDouble(value)));
+        											validationMetricValue.setMetricValue(doubleValue(value)));
         APPLIERS.put("metric_status", (validationMetricValue, value) -> 
-        											validationMetricValue.setStatus(Short.parseShort(value)));
+        											validationMetricValue.setStatus(shortValue(value)));
         APPLIERS.put("metric_description", (validationMetricValue, value) -> 
-        											validationMetricValue.getValidationMetric().setDescription(value));
+        											validationMetricValue.getValidationMetric().setDescription(stringValue(value)));
     }
+
+    private final FieldValueAppliers<ValidationMetricValue> appliers = new FieldValueAppliers<>(APPLIERS);
     
 	private EvaluationFile evaluationFile;
 	private ValidationMetricValueRepository validationMetricValueRepository;
 	private ValidationMetricRepository validationMetricRepository;
+	private CatalogueEntrySink<ValidationMetricValue> validationMetricValueSink;
+	/*
+	 * Metrics first seen in this file, keyed by name and description. They will not be found by the repository until
+	 * the values that refer to them have been written.
+	 */
+	private Map<List<String>, ValidationMetric> newValidationMetrics = new HashMap<>();
 	
     /**
      * Constructs a ValidationMetricVoTableVisitor that uses the given EvaluationFileRepository to perform any
@@ -74,9 +87,26 @@ public class ValidationMetricVoTableVisitor extends AbstractVoTableElementVisito
      */
     public ValidationMetricVoTableVisitor(ValidationMetricValueRepository validationMetricValueRepository, 
     		ValidationMetricRepository validationMetricRepository)
+    {
+        this(validationMetricValueRepository, validationMetricRepository,
+                BatchingCatalogueEntrySink.DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructs a ValidationMetricVoTableVisitor that uses the given EvaluationFileRepository to perform any
+     * operations associated with EvaluationFile persistence.
+     * 
+     * @param validationMetricValueRepository the validationMetricValueRepository
+     * @param validationMetricRepository the validationMetricRepository
+     * @param batchSize the number of ValidationMetricValue records to save in each batch
+     */
+    public ValidationMetricVoTableVisitor(ValidationMetricValueRepository validationMetricValueRepository,
+            ValidationMetricRepository validationMetricRepository, int batchSize)
     {
         this.validationMetricValueRepository = validationMetricValueRepository;
         this.validationMetricRepository = validationMetricRepository;
+        this.validationMetricValueSink =
+                new BatchingCatalogueEntrySink<>(validationMetricValueRepository, batchSize);
     }
     
     /**
@@ -130,10 +160,12 @@ public class ValidationMetricVoTableVisitor extends AbstractVoTableElementVisito
 	protected void processFields(List<VisitableVoTableField> fields) 
 	{
 		// We don't really care about the fields as long as they match the defined ones.
+		// Look up the appliers once, so that each row can be applied by field ordinal.
+		this.appliers.compile(fields);
 	}
 
 	@Override
-	protected void processRow(Map<VisitableVoTableField, String> row)
+	protected void processRow(ParsedVoTableRow row)
 	{
 		ValidationMetricValue validationMetricValue = new ValidationMetricValue();
 		validationMetricValue.setEvaluationFile(evaluationFile);
@@ -141,21 +173,17 @@ public class ValidationMetricVoTableVisitor extends AbstractVoTableElementVisito
 		validationMetricValue.setObservationId(evaluationFile.getParent().getId());
 		validationMetricValue.setValidationMetric(new ValidationMetric());
 		
-        for (VisitableVoTableField field : row.keySet())
+        this.appliers.apply(validationMetricValue, row);
+
+        List<String> metricKey = Arrays.asList(validationMetricValue.getValidationMetric().getMetricName(),
+                validationMetricValue.getValidationMetric().getDescription());
+        ValidationMetric existingMetric = newValidationMetrics.get(metricKey);
+        if (existingMetric == null)
         {
-            if (row.get(field) != null)
-            {
-                BiConsumer<ValidationMetricValue, String> applier = APPLIERS.get(field.getName());
-                if (applier != null) // Not all fields will be written to the ContinuumComponent
-                {
-                    applier.accept(validationMetricValue, row.get(field));
-                }
-            }
+            existingMetric = validationMetricRepository.findFirstByMetricNameAndDescription(
+                    validationMetricValue.getValidationMetric().getMetricName(), 
+                    validationMetricValue.getValidationMetric().getDescription());
         }
-
-        ValidationMetric existingMetric = validationMetricRepository.findFirstByMetricNameAndDescription(
-        		validationMetricValue.getValidationMetric().getMetricName(), 
-        		validationMetricValue.getValidationMetric().getDescription());
         
         if(existingMetric != null)
         {
@@ -163,10 +191,25 @@ public class ValidationMetricVoTableVisitor extends AbstractVoTableElementVisito
         	//existing one.
         	validationMetricValue.setValidationMetric(existingMetric);
         }
+        else
+        {
+            newValidationMetrics.put(metricKey, validationMetricValue.getValidationMetric());
+        }
         
-        validationMetricValueRepository.save(validationMetricValue);
+        validationMetricValueSink.add(validationMetricValue);
 	}
 
+    /**
+     * Implementation of template method
+     * {@link au.csiro.casda.datadeposit.votable.parser.AbstractVoTableElementVisitor#processEnd()} that saves any
+     * ValidationMetricValue records still waiting to be written.
+     */
+    @Override
+    protected void processEnd()
+    {
+        validationMetricValueSink.flush();
+    }
+
 	
 	private long getValidationMetricValueCount(EvaluationFile evaluationFile2)
 	{
@@ -1,15 +1,22 @@
 package au.csiro.casda.datadeposit.votable.parser;
 
 import java.io.InputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import net.ivoa.vo.Field;
 import net.ivoa.vo.Param;
@@ -53,6 +60,11 @@ import org.yaml.snakeyaml.resolver.Resolver;
  * <p>
  * The actual values of the Params and the Fields (as contained in the corresponding table cells) are validated
  * according to the self-describing attributes contained in the Param/Field and any 'maximum' values in the constraints.
+ * The datatype and constraints of each Field are resolved once, when the Fields have been visited, and each cell is
+ * parsed only once, as it is validated. The parsed values are passed to processRow in a {@link ParsedVoTableRow}, and
+ * the typed accessors (eg: {@link #floatValue(Object)}) can be used to apply them to entities without parsing them
+ * again. The cells of large tables can be validated and parsed by a pool of threads (see
+ * {@link #setConversionThreads(int)}), in which case processRow is still called on the visiting thread, in row order.
  * <p>
  * Provision of param and field constraints is optional - Params and Fields without corresponding constraints will have
  * no checks performed against them for their attributes but the param and field values will still be validated.
@@ -62,6 +74,11 @@ import org.yaml.snakeyaml.resolver.Resolver;
  * methods that rely on fields, params, rows, and cells being present and correct then they should check corresponding
  * error collections before trying to work with those values.
  * <p>
+ * The number of errors is counted as they are recorded, so {@link #hasErrors()} can be checked cheaply as each row is
+ * processed. The ordered list of errors is only assembled when {@link #getErrors()} is called to report them. The
+ * number of row and cell errors that are kept can be capped (see {@link #setMaxRecordedRowErrors(int)}) so that a file
+ * with an error in every row cannot exhaust the available memory.
+ * <p>
  * Copyright 2014, CSIRO Australia. All rights reserved.
  */
 public abstract class AbstractVoTableElementVisitor implements VoTableElementVisitor
@@ -418,6 +435,7 @@ public abstract class AbstractVoTableElementVisitor implements VoTableElementVis
             public void handleVisit(AbstractVoTableElementVisitor visitor, Table table)
             {
                 visitor.rowFinished();
+                visitor.allRowsFinished();
                 visitor.state = State.VISITING_TABLE;
                 visitor.recordVoTableError(new MalformedVoTableException(visitor, VisitorAction.VISIT_TABLE, null,
                         "Multiple TABLEs not supported"));
@@ -460,6 +478,7 @@ public abstract class AbstractVoTableElementVisitor implements VoTableElementVis
             public void handleVisit(AbstractVoTableElementVisitor visitor, Table table)
             {
                 visitor.rowFinished();
+                visitor.allRowsFinished();
                 visitor.state = State.VISITING_TABLE;
                 visitor.recordVoTableError(new MalformedVoTableException(visitor, VisitorAction.VISIT_TABLE, null,
                         "Multiple TABLEs not supported"));
@@ -632,7 +651,9 @@ public abstract class AbstractVoTableElementVisitor implements VoTableElementVis
     private State state;
     private Map<String, VisitableVoTableParam> params;
     private List<VisitableVoTableField> fields;
-    private Map<VisitableVoTableField, Td> currentRow;
+    private CompiledFields compiledFields;
+    private ParsedVoTableRow currentRow;
+    private int currentRowSize;
     private int numRowsVisited;
     private int numCellsInCurrentRowVisited;
     private List<MalformedVoTableException> voTableErrors;
@@ -640,6 +661,13 @@ public abstract class AbstractVoTableElementVisitor implements VoTableElementVis
     private Map<String, List<MalformedVoTableException>> paramErrors;
     private Map<Integer, List<MalformedVoTableException>> rowErrors;
     private Map<Integer, Map<String, List<MalformedVoTableException>>> cellErrors;
+    private int errorCount;
+    private int maxRecordedRowErrors;
+    private int recordedRowErrorCount;
+    private int discardedRowErrorCount;
+    private int lastDiscardedRowIndex = -1;
+    private int conversionThreads = 1;
+    private RowConversionPipeline rowConversionPipeline;
 
     /**
      * Constructor
@@ -677,6 +705,55 @@ public abstract class AbstractVoTableElementVisitor implements VoTableElementVis
         this.failFast = failFast;
     }
 
+    public int getMaxRecordedRowErrors()
+    {
+        return maxRecordedRowErrors;
+    }
+
+    /**
+     * Sets the maximum number of row and cell errors that will be kept for reporting. Any further row and cell errors
+     * are counted, and the rows they occur in are treated as being in error, but they are summarised in a single error
+     * rather than being reported individually.
+     * 
+     * @param maxRecordedRowErrors
+     *            the maximum number of row and cell errors to keep, or 0 to keep all of them
+     */
+    public void setMaxRecordedRowErrors(int maxRecordedRowErrors)
+    {
+        if (maxRecordedRowErrors < 0)
+        {
+            throw new IllegalArgumentException("expected maxRecordedRowErrors >= 0");
+        }
+        this.maxRecordedRowErrors = maxRecordedRowErrors;
+    }
+
+    public int getConversionThreads()
+    {
+        return conversionThreads;
+    }
+
+    /**
+     * Sets the number of threads used to validate and parse the cells of the table's rows. With more than one thread
+     * the rows are converted in a pipeline: the visiting thread collects the cells of each row and hands them, a chunk
+     * of rows at a time, to a pool of conversion threads, and then processes the converted rows strictly in the order
+     * they were visited. Errors are recorded with the same row and cell numbers, and processRow is called for the same
+     * rows in the same order, as with a single thread, so subclasses (and their persistence) are unaffected. With
+     * failFast the first error (in row order) still stops the visit, though the rows after it may have been converted.
+     * The conversion threads are only started once the table has a full chunk (1000) of rows, so a smaller table is
+     * converted on the visiting thread.
+     * 
+     * @param conversionThreads
+     *            the number of conversion threads, or 1 to validate and parse each row as it is visited
+     */
+    public void setConversionThreads(int conversionThreads)
+    {
+        if (conversionThreads < 1)
+        {
+            throw new IllegalArgumentException("expected conversionThreads >= 1");
+        }
+        this.conversionThreads = conversionThreads;
+    }
+
     /**
      * {@inheritDoc}
      * <p>
@@ -741,7 +818,7 @@ public abstract class AbstractVoTableElementVisitor implements VoTableElementVis
      * Requests the visitor to visit a {@link Tr} of the {@link VoTable}.
      * <p>
      * Initialises internal data structures required to handle cell processing. Once all the cells in a row have been
-     * visited, subclasses will be notified via the {@link #processRow(Map)} method.
+     * visited, subclasses will be notified via the {@link #processRow(ParsedVoTableRow)} method.
      * 
      * @param row
      *            the element to visit.
@@ -758,7 +835,8 @@ public abstract class AbstractVoTableElementVisitor implements VoTableElementVis
      * Requests the visitor to visit a {@link Td} of a {@link Tr} of the {@link VoTable}.
      * <p>
      * Field values are validated according to the ordinal {@link FieldConstraint} associated with the cell. Once all
-     * the cells in a row have been visited, subclasses will be notified via the {@link #processRow(Map)} method.
+     * the cells in a row have been visited, subclasses will be notified via the {@link #processRow(ParsedVoTableRow)}
+     * method.
      * 
      * @param cell
      *            the element to visit.
@@ -778,9 +856,30 @@ public abstract class AbstractVoTableElementVisitor implements VoTableElementVis
     public void stop()
     {
         this.state.handleStop(this);
+        allRowsFinished();
+        processEnd();
     }
 
     /**
+     * @return whether any errors have been recorded during the visit
+     */
+    public boolean hasErrors()
+    {
+        return this.errorCount > 0;
+    }
+
+    /**
+     * @return the number of errors recorded during the visit, including any that were not kept for reporting
+     */
+    public int getErrorCount()
+    {
+        return this.errorCount;
+    }
+
+    /**
+     * Builds the list of errors recorded during the visit, for reporting. Subclasses that only need to know whether
+     * there have been any errors should use {@link #hasErrors()} instead.
+     * 
      * @return an ordered set of exceptions that represent the errors recorded during the visit.
      */
     public List<Throwable> getErrors()
@@ -817,6 +916,12 @@ public abstract class AbstractVoTableElementVisitor implements VoTableElementVis
                 }
             }
         }
+        if (this.discardedRowErrorCount > 0)
+        {
+            result.add(new MalformedVoTableException(this, VisitorAction.VISIT_TABLE, null, String.format(
+                    "%d further row errors were found but not reported (the limit is %d)",
+                    this.discardedRowErrorCount, this.maxRecordedRowErrors)));
+        }
         return result;
     }
 
@@ -859,9 +964,118 @@ public abstract class AbstractVoTableElementVisitor implements VoTableElementVis
      * {@link #processFields(List)} to record the order before accessing the elements of the row.
      * 
      * @param row
-     *            the rows values (Strings) keyed by their field (as described by a {@link FieldConstraint})
+     *            the row's values, held by field ordinal both as Strings and as values parsed according to their
+     *            field's datatype (the row is reused for the next row once this method returns)
+     */
+    protected abstract void processRow(ParsedVoTableRow row);
+
+    /**
+     * Template method that is called once all of the VOTABLE's elements have been visited (ie: after the last row has
+     * been processed). Subclasses can use this method to complete any work deferred while processing the rows.
+     */
+    protected void processEnd()
+    {
+    }
+
+    /**
+     * Returns a parsed cell value (see {@link ParsedVoTableRow#getParsedValue(int)}) as a Float.
+     * 
+     * @param value
+     *            the parsed value
+     * @return the value as a Float
+     * @throws NumberFormatException
+     *             if the value is not a number
+     */
+    protected static Float floatValue(Object value)
+    {
+        return value instanceof Number ? ((Number) value).floatValue() : Float.parseFloat(value.toString());
+    }
+
+    /**
+     * Returns a parsed cell value (see {@link ParsedVoTableRow#getParsedValue(int)}) as a Double.
+     * 
+     * @param value
+     *            the parsed value
+     * @return the value as a Double
+     * @throws NumberFormatException
+     *             if the value is not a number
+     */
+    protected static Double doubleValue(Object value)
+    {
+        return value instanceof Number ? ((Number) value).doubleValue() : Double.parseDouble(value.toString());
+    }
+
+    /**
+     * Returns a parsed cell value (see {@link ParsedVoTableRow#getParsedValue(int)}) as a Short.
+     * 
+     * @param value
+     *            the parsed value
+     * @return the value as a Short
+     * @throws NumberFormatException
+     *             if the value is not a whole number or is out of range for a short
+     */
+    protected static Short shortValue(Object value)
+    {
+        return (short) wholeNumberValue(value, Short.MIN_VALUE, Short.MAX_VALUE);
+    }
+
+    /**
+     * Returns a parsed cell value (see {@link ParsedVoTableRow#getParsedValue(int)}) as an Integer.
+     * 
+     * @param value
+     *            the parsed value
+     * @return the value as an Integer
+     * @throws NumberFormatException
+     *             if the value is not a whole number or is out of range for an int
+     */
+    protected static Integer intValue(Object value)
+    {
+        return (int) wholeNumberValue(value, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns a parsed cell value (see {@link ParsedVoTableRow#getParsedValue(int)}) as a Long.
+     * 
+     * @param value
+     *            the parsed value
+     * @return the value as a Long
+     * @throws NumberFormatException
+     *             if the value is not a whole number
      */
-    protected abstract void processRow(Map<VisitableVoTableField, String> row);
+    protected static Long longValue(Object value)
+    {
+        return wholeNumberValue(value, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Returns a parsed cell value (see {@link ParsedVoTableRow#getParsedValue(int)}) as a String.
+     * 
+     * @param value
+     *            the parsed value
+     * @return the value as a String
+     */
+    protected static String stringValue(Object value)
+    {
+        return value.toString();
+    }
+
+    private static long wholeNumberValue(Object value, long min, long max)
+    {
+        long result;
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte)
+        {
+            result = ((Number) value).longValue();
+        }
+        else
+        {
+            result = Long.parseLong(value.toString());
+        }
+        if (result < min || result > max)
+        {
+            throw new NumberFormatException("Value out of range. Value:\"" + value + "\"");
+        }
+        return result;
+    }
 
     /**
      * Records that there was an error with the TABLE as a whole. Only the first occurrence of errors with the same
@@ -879,6 +1093,7 @@ public abstract class AbstractVoTableElementVisitor implements VoTableElementVis
         if (this.voTableErrors.stream().noneMatch((e) -> e.getMessage().equals(exception.getMessage())))
         {
             this.voTableErrors.add(exception);
+            this.errorCount++;
         }
     }
 
@@ -938,6 +1153,7 @@ public abstract class AbstractVoTableElementVisitor implements VoTableElementVis
             paramErrors.put(errorKey, new ArrayList<>());
         }
         paramErrors.get(errorKey).add(exception);
+        this.errorCount++;
     }
 
     /**
@@ -996,6 +1212,7 @@ public abstract class AbstractVoTableElementVisitor implements VoTableElementVis
             fieldErrors.put(errorKey, new ArrayList<>());
         }
         fieldErrors.get(errorKey).add(exception);
+        this.errorCount++;
     }
 
     /**
@@ -1012,6 +1229,10 @@ public abstract class AbstractVoTableElementVisitor implements VoTableElementVis
         {
             throw exception;
         }
+        if (isRowErrorDiscarded(rowIndex))
+        {
+            return;
+        }
         if (!rowErrors.containsKey(rowIndex))
         {
             rowErrors.put(rowIndex, new ArrayList<>());
@@ -1035,6 +1256,10 @@ public abstract class AbstractVoTableElementVisitor implements VoTableElementVis
         {
             throw exception;
         }
+        if (isRowErrorDiscarded(rowIndex))
+        {
+            return;
+        }
         if (!cellErrors.containsKey(rowIndex))
         {
             cellErrors.put(rowIndex, new HashMap<>());
@@ -1046,6 +1271,23 @@ public abstract class AbstractVoTableElementVisitor implements VoTableElementVis
         cellErrors.get(rowIndex).get("name:" + field.getName()).add(exception);
     }
 
+    /*
+     * Counts a row or cell error, returning whether it should be discarded rather than kept because the limit on the
+     * number of kept row errors has been reached.
+     */
+    private boolean isRowErrorDiscarded(Integer rowIndex)
+    {
+        this.errorCount++;
+        if (this.maxRecordedRowErrors > 0 && this.recordedRowErrorCount >= this.maxRecordedRowErrors)
+        {
+            this.discardedRowErrorCount++;
+            this.lastDiscardedRowIndex = rowIndex;
+            return true;
+        }
+        this.recordedRowErrorCount++;
+        return false;
+    }
+
     /**
      * @param param
      *            a Param
@@ -1127,7 +1369,7 @@ public abstract class AbstractVoTableElementVisitor implements VoTableElementVis
      */
     protected boolean hasErrorsForRow(Integer rowIndex)
     {
-        return this.rowErrors.containsKey(rowIndex);
+        return this.rowErrors.containsKey(rowIndex) || rowIndex.intValue() == this.lastDiscardedRowIndex;
     }
 
     /**
@@ -1150,6 +1392,11 @@ public abstract class AbstractVoTableElementVisitor implements VoTableElementVis
     protected boolean hasErrorsForCell(Integer rowIndex, Field field)
     {
         String fielName = field.getName();
+        if (rowIndex.intValue() == this.lastDiscardedRowIndex)
+        {
+            // The cell's error may have been discarded, so treat the whole row as being in error
+            return true;
+        }
         return this.cellErrors.containsKey(rowIndex)
                 && this.cellErrors.get(rowIndex).containsKey("name" + ":" + fielName)
                 && CollectionUtils.isNotEmpty(this.cellErrors.get(rowIndex).get("name" + ":" + fielName));
@@ -1282,54 +1529,152 @@ public abstract class AbstractVoTableElementVisitor implements VoTableElementVis
     }
 
     private void accumulateRow()
+    {
+        if (this.rowConversionPipeline == null && this.conversionThreads > 1)
+        {
+            this.rowConversionPipeline = new RowConversionPipeline(this.conversionThreads, this.compiledFields);
+        }
+        if (this.rowConversionPipeline != null)
+        {
+            this.rowConversionPipeline.startRow();
+            return;
+        }
+        startRow();
+    }
+
+    private void startRow()
     {
         this.numRowsVisited += 1;
         this.numCellsInCurrentRowVisited = 0;
-        this.currentRow = new HashMap<>();
+        this.currentRow.clear();
+        this.currentRowSize = 0;
     }
 
+    /*
+     * Validates and parses the cell in one go, using the constraint and datatype compiled for the cell's field when the
+     * fields were finished. This is equivalent to VisitableVoTableField.validateCell followed by
+     * VisitableVoTableField.getConvertedCellValue, except that the value is only trimmed and parsed once.
+     */
     private void accumulateCell(Td cell)
     {
-        this.numCellsInCurrentRowVisited += 1;
-        if (this.currentRow.size() >= this.fields.size())
+        if (this.rowConversionPipeline != null)
+        {
+            this.rowConversionPipeline.addCell(cell);
+            return;
+        }
+        if (!countCell())
         {
-            recordRowError(this.numRowsVisited - 1, new MalformedVoTableException(this, VisitorAction.VISIT_ROW, null,
-                    "Additional TD"));
             return;
         }
-        VisitableVoTableField field = this.fields.get(this.currentRow.size());
-        this.currentRow.put(field, cell);
+        int index = this.currentRowSize - 1;
         try
         {
-            field.validateCell(cell, getConstraintsForField(field));
+            this.compiledFields.parseCell(index, cell, this.currentRow);
         }
         catch (FieldValidationException e)
         {
-            recordCellError(this.numRowsVisited - 1, field, new MalformedVoTableException(this,
+            recordCellError(this.numRowsVisited - 1, this.fields.get(index), new MalformedVoTableException(this,
                     VisitorAction.VISIT_CELL, null, e));
         }
     }
 
+    /*
+     * Counts a visited cell, returning whether it belongs to a field (ie: it is not an additional cell, which is
+     * recorded as an error).
+     */
+    private boolean countCell()
+    {
+        this.numCellsInCurrentRowVisited += 1;
+        if (this.currentRowSize >= this.fields.size())
+        {
+            recordRowError(this.numRowsVisited - 1, new MalformedVoTableException(this, VisitorAction.VISIT_ROW, null,
+                    "Additional TD"));
+            return false;
+        }
+        this.currentRowSize += 1;
+        return true;
+    }
+
     private void rowFinished()
     {
-        if (this.currentRow.size() < this.fields.size())
+        if (this.rowConversionPipeline == null)
+        {
+            finishRow();
+            return;
+        }
+        try
+        {
+            this.rowConversionPipeline.rowFinished();
+        }
+        catch (RuntimeException e)
+        {
+            this.rowConversionPipeline.shutdown();
+            this.rowConversionPipeline = null;
+            throw e;
+        }
+    }
+
+    /*
+     * Waits for any rows still being converted and processes them.
+     */
+    private void allRowsFinished()
+    {
+        if (this.rowConversionPipeline == null)
+        {
+            return;
+        }
+        try
+        {
+            this.rowConversionPipeline.finish();
+        }
+        finally
+        {
+            this.rowConversionPipeline.shutdown();
+            this.rowConversionPipeline = null;
+        }
+    }
+
+    private void finishRow()
+    {
+        if (this.currentRowSize < this.fields.size())
         {
             recordRowError(this.numRowsVisited - 1, new MalformedVoTableException(this, VisitorAction.VISIT_ROW, null,
                     String.format("Missing TD")));
             return;
         }
-        Map<VisitableVoTableField, String> rowToProcess = new HashMap<>(this.fields.size());
-        for (VisitableVoTableField field : this.currentRow.keySet())
+        if (hasErrorsForCurrentRow() || hasCellErrorsForCurrentRow()
+                || (!this.fieldErrors.isEmpty() && this.fields.stream().anyMatch((f) -> hasErrorsForField(f))))
         {
-            rowToProcess.put(field, field.getConvertedCellValue(this.currentRow.get(field)));
+            return; // Don't try and do anything with the current row
         }
-        if (hasErrorsForCurrentRow()
-                || rowToProcess.keySet().stream()
-                        .anyMatch((f) -> hasErrorsForField(f) || hasErrorsForCurrentRowCell(f)))
+        processRow(this.currentRow);
+    }
+
+    /*
+     * The ordered stage of the row conversion pipeline. Visits a row converted by one of the pipeline's threads exactly
+     * as if its cells had just been visited, so that its errors are recorded (or thrown) with the same row and cell
+     * numbers, and in the same order, as they would have been without the pipeline.
+     */
+    private void processConvertedRow(ConvertedRow convertedRow)
+    {
+        startRow();
+        this.currentRow = convertedRow.row;
+        for (int i = 0; i < convertedRow.cellCount; i++)
         {
-            return; // Don't try and do anything with the current row
+            if (countCell() && convertedRow.errors[this.currentRowSize - 1] != null)
+            {
+                recordCellError(this.numRowsVisited - 1, this.fields.get(this.currentRowSize - 1),
+                        new MalformedVoTableException(this, VisitorAction.VISIT_CELL, null,
+                                convertedRow.errors[this.currentRowSize - 1]));
+            }
         }
-        processRow(rowToProcess);
+        finishRow();
+    }
+
+    private boolean hasCellErrorsForCurrentRow()
+    {
+        int rowIndex = this.numRowsVisited - 1;
+        return this.cellErrors.containsKey(rowIndex) || rowIndex == this.lastDiscardedRowIndex;
     }
 
     private void paramsFinished()
@@ -1383,9 +1728,35 @@ public abstract class AbstractVoTableElementVisitor implements VoTableElementVis
                                 String.format("Missing FIELD matching %s", missingField.getSimpleFieldDescription())));
             }
         }
+        compileFields();
         this.processFields(this.fields);
     }
 
+    /*
+     * Resolves the constraint and datatype of each field once, so that they don't have to be resolved for every cell.
+     */
+    private void compileFields()
+    {
+        List<FieldConstraint> fieldConstraints = new ArrayList<>(this.fields.size());
+        List<FieldDatatype> fieldDatatypes = new ArrayList<>(this.fields.size());
+        for (VisitableVoTableField field : this.fields)
+        {
+            fieldConstraints.add(getConstraintsForField(field));
+            FieldDatatype datatype;
+            try
+            {
+                datatype = FieldDatatype.getFieldDatatypeForField(field);
+            }
+            catch (FieldFormatException e)
+            {
+                datatype = null; // Already recorded as a field error by accumulateField
+            }
+            fieldDatatypes.add(datatype);
+        }
+        this.compiledFields = new CompiledFields(this.fields, fieldConstraints, fieldDatatypes);
+        this.currentRow = new ParsedVoTableRow(this.fields);
+    }
+
     private String getErrorKeyForFieldKeyAndValue(FieldKey key, String keyValue)
     {
         if (key == null)
@@ -1425,4 +1796,259 @@ public abstract class AbstractVoTableElementVisitor implements VoTableElementVis
                     + fieldConstraint);
         }
     }
+
+    /**
+     * The constraint and datatype of each of the table's fields, resolved once when the fields have been visited.
+     * Instances are not modified once created, so they can be shared by the row conversion threads.
+     */
+    private static final class CompiledFields
+    {
+        private final List<VisitableVoTableField> fields;
+
+        private final List<FieldConstraint> constraints;
+
+        private final List<FieldDatatype> datatypes;
+
+        /** Whether each field has a width or precision that a value's text must be checked against */
+        private final boolean[] textChecked;
+
+        private CompiledFields(List<VisitableVoTableField> fields, List<FieldConstraint> constraints,
+                List<FieldDatatype> datatypes)
+        {
+            this.fields = fields;
+            this.constraints = constraints;
+            this.datatypes = datatypes;
+            this.textChecked = new boolean[fields.size()];
+            for (int i = 0; i < fields.size(); i++)
+            {
+                Field field = fields.get(i);
+                FieldConstraint constraint = constraints.get(i);
+                this.textChecked[i] = field.getWidth() != null || StringUtils.isNotEmpty(field.getPrecision())
+                        || (constraint != null && (FieldKey.WIDTH.getValueForObject(constraint) != null
+                                || FieldKey.PRECISION.getValueForObject(constraint) != null));
+            }
+        }
+
+        private int size()
+        {
+            return this.fields.size();
+        }
+
+        /*
+         * Validates and parses the value of the cell for the field with the given index into the row. A cell decoded
+         * from a binary serialisation already holds the parsed value, so its text is only produced (and checked) if
+         * the field has a width or precision.
+         */
+        private void parseCell(int index, Td cell, ParsedVoTableRow row) throws FieldValidationException
+        {
+            FieldDatatype datatype = this.datatypes.get(index);
+            if (cell instanceof DecodedVoTableCell && datatype != null)
+            {
+                DecodedVoTableCell decodedCell = (DecodedVoTableCell) cell;
+                if (this.textChecked[index])
+                {
+                    datatype.parseFieldValue(this.fields.get(index), this.constraints.get(index),
+                            decodedCell.getValue());
+                }
+                row.setDecoded(index, decodedCell);
+                return;
+            }
+            String value = cell.getValue() == null ? "" : cell.getValue().trim();
+            if (value.isEmpty() || datatype == null)
+            {
+                // A field without a datatype has already been reported as an error, so the row won't be processed.
+                return;
+            }
+            Object parsedValue = datatype.parseFieldValue(this.fields.get(index), this.constraints.get(index), value);
+            String convertedValue = datatype.convertFieldValue(value);
+            row.set(index, StringUtils.isBlank(convertedValue) ? null : convertedValue, parsedValue);
+        }
+    }
+
+    /**
+     * A row converted by the row conversion pipeline: its parsed values and any error found with each of its cells.
+     */
+    private static final class ConvertedRow
+    {
+        private final int cellCount;
+
+        private final ParsedVoTableRow row;
+
+        private final FieldValidationException[] errors;
+
+        private ConvertedRow(int cellCount, ParsedVoTableRow row)
+        {
+            this.cellCount = cellCount;
+            this.row = row;
+            this.errors = new FieldValidationException[row.size()];
+        }
+    }
+
+    /**
+     * Converts the rows of the table using a pool of threads (see {@link #setConversionThreads(int)}). The visiting
+     * thread collects the (raw) cells of each row into chunks, the pool's threads validate and parse the cells of
+     * a chunk's rows, and the converted rows are handed back to the visitor, in order, on the visiting thread (which is
+     * the thread that owns any transaction the rows are persisted in). The number of chunks being converted at once is
+     * bounded so that the visiting thread can't read too far ahead of the rows being processed. The pool is only
+     * created when the first chunk is full, so a table with fewer rows than that doesn't pay for starting its threads.
+     */
+    private final class RowConversionPipeline
+    {
+        private static final int CHUNK_SIZE = 1000;
+
+        private static final int MAX_CHUNKS_IN_FLIGHT_PER_THREAD = 2;
+
+        private final CompiledFields compiledFields;
+
+        private final int threads;
+
+        private ThreadPoolExecutor executor;
+
+        private final int maxChunksInFlight;
+
+        private final Deque<Future<List<ConvertedRow>>> chunksInFlight = new ArrayDeque<>();
+
+        private List<List<Td>> chunk = new ArrayList<>(CHUNK_SIZE);
+
+        private List<Td> row;
+
+        private RowConversionPipeline(int threads, CompiledFields compiledFields)
+        {
+            this.compiledFields = compiledFields;
+            this.threads = threads;
+            this.maxChunksInFlight = threads * MAX_CHUNKS_IN_FLIGHT_PER_THREAD;
+        }
+
+        private ThreadPoolExecutor createExecutor()
+        {
+            // Daemon threads that time out, so that a visit abandoned part way through (eg: because the file is not
+            // well-formed XML) doesn't leave the pool's threads behind.
+            ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(this.threads, this.threads, 1,
+                    TimeUnit.MINUTES, new LinkedBlockingQueue<>(), (runnable) -> {
+                        Thread thread = new Thread(runnable, "votable-row-conversion");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            threadPoolExecutor.allowCoreThreadTimeOut(true);
+            return threadPoolExecutor;
+        }
+
+        private void startRow()
+        {
+            this.row = new ArrayList<>(this.compiledFields.size());
+        }
+
+        private void addCell(Td cell)
+        {
+            this.row.add(cell);
+        }
+
+        private void rowFinished()
+        {
+            this.chunk.add(this.row);
+            this.row = null;
+            if (this.chunk.size() >= CHUNK_SIZE)
+            {
+                submitChunk();
+                processConvertedChunks(false);
+            }
+        }
+
+        private void finish()
+        {
+            if (this.executor == null)
+            {
+                // The table didn't fill a chunk, so convert its rows here rather than starting the pool
+                List<List<Td>> rows = this.chunk;
+                this.chunk = new ArrayList<>(CHUNK_SIZE);
+                for (ConvertedRow convertedRow : convertRows(rows))
+                {
+                    processConvertedRow(convertedRow);
+                }
+                return;
+            }
+            submitChunk();
+            processConvertedChunks(true);
+        }
+
+        private void shutdown()
+        {
+            if (this.executor != null)
+            {
+                this.executor.shutdownNow();
+            }
+        }
+
+        private void submitChunk()
+        {
+            if (this.chunk.isEmpty())
+            {
+                return;
+            }
+            if (this.executor == null)
+            {
+                this.executor = createExecutor();
+            }
+            List<List<Td>> rows = this.chunk;
+            this.chunk = new ArrayList<>(CHUNK_SIZE);
+            this.chunksInFlight.add(this.executor.submit(() -> convertRows(rows)));
+        }
+
+        /*
+         * Runs on one of the pool's threads (or on the visiting thread, for a table that doesn't fill a chunk).
+         */
+        private List<ConvertedRow> convertRows(List<List<Td>> rows)
+        {
+            List<ConvertedRow> convertedRows = new ArrayList<>(rows.size());
+            for (List<Td> cells : rows)
+            {
+                ConvertedRow convertedRow =
+                        new ConvertedRow(cells.size(), new ParsedVoTableRow(this.compiledFields.fields));
+                for (int i = 0; i < Math.min(cells.size(), this.compiledFields.size()); i++)
+                {
+                    try
+                    {
+                        this.compiledFields.parseCell(i, cells.get(i), convertedRow.row);
+                    }
+                    catch (FieldValidationException e)
+                    {
+                        convertedRow.errors[i] = e;
+                    }
+                }
+                convertedRows.add(convertedRow);
+            }
+            return convertedRows;
+        }
+
+        /*
+         * Processes the chunks at the head of the queue that have been converted, waiting for the head of the queue if
+         * there are too many chunks in flight (or for all of them if all is true).
+         */
+        private void processConvertedChunks(boolean all)
+        {
+            while (!this.chunksInFlight.isEmpty()
+                    && (all || this.chunksInFlight.size() > this.maxChunksInFlight
+                            || this.chunksInFlight.peek().isDone()))
+            {
+                List<ConvertedRow> convertedRows;
+                try
+                {
+                    convertedRows = this.chunksInFlight.poll().get();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while converting rows", e);
+                }
+                catch (ExecutionException e)
+                {
+                    throw new RuntimeException("Unexpected error converting rows", e.getCause());
+                }
+                for (ConvertedRow convertedRow : convertedRows)
+                {
+                    processConvertedRow(convertedRow);
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,577 @@
+package au.csiro.casda.datadeposit.votable.parser;
+
+import java.io.BufferedInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+import net.ivoa.vo.DataType;
+import net.ivoa.vo.EncodingType;
+import net.ivoa.vo.Field;
+import net.ivoa.vo.Stream;
+import nom.tam.fits.FitsException;
+import nom.tam.fits.Header;
+import nom.tam.util.ArrayDataInput;
+import nom.tam.util.BufferedDataInputStream;
+
+import org.apache.commons.lang3.StringUtils;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * Reads the rows of a TABLE's DATA when they are serialised as BINARY, BINARY2 or FITS (rather than as TABLEDATA), and
+ * visits them exactly as if they had been TABLEDATA rows.
+ * <p>
+ * Each value is decoded according to the datatype and arraysize of its FIELD and is then visited as a TD. A scalar
+ * numeric or boolean value is visited as a {@link DecodedVoTableCell}, which carries the decoded value so that it
+ * doesn't have to be parsed again, and any other value as a TD containing the value written as it would be in
+ * TABLEDATA (eg: an array as its space separated elements, and a null as an empty TD). The rows are subject to the same
+ * validation, and produce the same errors, as TABLEDATA rows. Null values are recognised from the BINARY2 null flags,
+ * NaN floating point values, the VALUES null (or for FITS, TNULLn) value of integer FIELDs, and the null
+ * representations of booleans.
+ * <p>
+ * FITS data must hold a BINTABLE extension (the first, unless the FITS element's extnum says otherwise) with a column
+ * for each FIELD, in the same order, and without variable length arrays (which FITS holds in a heap). The number of
+ * elements of each column is taken from its TFORMn keyword.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+class BinaryVoTableDataReader
+{
+    /**
+     * The binary serialisations of a TABLE's DATA.
+     */
+    enum Serialisation
+    {
+        /**
+         * The BINARY serialisation.
+         */
+        BINARY,
+
+        /**
+         * The BINARY2 serialisation (ie: BINARY with null flags at the start of each row).
+         */
+        BINARY2,
+
+        /**
+         * The FITS serialisation (ie: a FITS BINTABLE extension).
+         */
+        FITS;
+    }
+
+    private static final Pattern TFORM_REGEX = Pattern.compile("\\s*(\\d*)([LXBIJKAEDCMPQ])(.*)");
+
+    private static final int BITS_PER_BYTE = 8;
+
+    private final List<Column> columns;
+
+    private final Serialisation serialisation;
+
+    private final int extnum;
+
+    private int rowsRead;
+
+    /**
+     * Constructor
+     *
+     * @param fields
+     *            the TABLE's FIELDs (in the order they are defined)
+     * @param serialisation
+     *            the serialisation of the DATA
+     * @param extnum
+     *            for FITS serialised DATA, the number of the FITS extension holding the table (1 for the first)
+     */
+    BinaryVoTableDataReader(List<? extends Field> fields, Serialisation serialisation, int extnum)
+    {
+        this.columns = new ArrayList<>(fields.size());
+        for (Field field : fields)
+        {
+            this.columns.add(new Column(field));
+        }
+        this.serialisation = serialisation;
+        this.extnum = extnum;
+    }
+
+    /**
+     * Opens a STREAM that refers to its content (through its href attribute) rather than containing it. Only local
+     * files are supported.
+     *
+     * @param stream
+     *            the STREAM
+     * @param baseUri
+     *            the URI that a relative href is resolved against (may be null if the href is absolute)
+     * @return an InputStream of the (decoded) content
+     * @throws IOException
+     *             if the content could not be opened
+     */
+    static InputStream openStreamHref(Stream stream, URI baseUri) throws IOException
+    {
+        URI uri = URI.create(stream.getHref().trim());
+        if (baseUri != null)
+        {
+            uri = baseUri.resolve(uri);
+        }
+        if (!"file".equalsIgnoreCase(uri.getScheme()))
+        {
+            throw new RuntimeException("Can only process STREAM elements whose href refers to a local file");
+        }
+        InputStream inputStream = new FileInputStream(new File(uri));
+        EncodingType encoding = stream.getEncoding() == null ? EncodingType.NONE : stream.getEncoding();
+        switch (encoding)
+        {
+        case NONE:
+            return inputStream;
+        case GZIP:
+            return new GZIPInputStream(inputStream);
+        case BASE_64:
+            return Base64.getMimeDecoder().wrap(inputStream);
+        default:
+            inputStream.close();
+            throw new RuntimeException("Can only process STREAM elements with a 'none', 'gzip' or 'base64' encoding");
+        }
+    }
+
+    /**
+     * Decodes the content of an inline STREAM, which must be base64 encoded.
+     *
+     * @param stream
+     *            the STREAM
+     * @param content
+     *            the (text) content of the STREAM, as a stream of bytes
+     * @return an InputStream of the decoded content
+     */
+    static InputStream decodeInlineStream(Stream stream, InputStream content)
+    {
+        if (stream.getEncoding() != EncodingType.BASE_64)
+        {
+            throw new RuntimeException("Can only process STREAM elements whose content is base64 encoded");
+        }
+        return Base64.getMimeDecoder().wrap(content);
+    }
+
+    /**
+     * Reads the rows from the given (decoded) STREAM content, visiting each of them.
+     *
+     * @param inputStream
+     *            the decoded content of the STREAM
+     * @param visitor
+     *            the visitor
+     * @throws IOException
+     *             if the content could not be read or does not hold rows of the TABLE's FIELDs
+     */
+    void read(InputStream inputStream, VoTableElementVisitor visitor) throws IOException
+    {
+        if (this.serialisation == Serialisation.FITS)
+        {
+            readFits(new BufferedDataInputStream(inputStream), visitor);
+            return;
+        }
+        PushbackInputStream pushbackInputStream = new PushbackInputStream(new BufferedInputStream(inputStream));
+        DataInputStream in = new DataInputStream(pushbackInputStream);
+        while (true)
+        {
+            int firstByte = pushbackInputStream.read();
+            if (firstByte < 0)
+            {
+                return;
+            }
+            pushbackInputStream.unread(firstByte);
+            readRow(in, visitor);
+        }
+    }
+
+    private void readFits(ArrayDataInput in, VoTableElementVisitor visitor) throws IOException
+    {
+        Header header = readFitsHeader(in);
+        for (int i = 0; i < this.extnum; i++)
+        {
+            in.skipAllBytes(header.getDataSize());
+            header = readFitsHeader(in);
+        }
+        if (!"BINTABLE".equals(StringUtils.trim(header.getStringValue("XTENSION"))))
+        {
+            throw new IOException(String.format("FITS extension %d is not a BINTABLE", this.extnum));
+        }
+        if (header.getIntValue("TFIELDS", 0) != this.columns.size())
+        {
+            throw new IOException(String.format("FITS BINTABLE has %d columns but the TABLE has %d FIELDs",
+                    header.getIntValue("TFIELDS", 0), this.columns.size()));
+        }
+        long rowSize = 0;
+        for (int i = 0; i < this.columns.size(); i++)
+        {
+            Column column = this.columns.get(i);
+            String tnull = "TNULL" + (i + 1);
+            column.setFitsFormat(header.getStringValue("TFORM" + (i + 1)),
+                    header.containsKey(tnull) ? header.getLongValue(tnull) : null);
+            rowSize += column.getFitsWidth();
+        }
+        if (header.getLongValue("NAXIS1", 0) != rowSize)
+        {
+            throw new IOException(String.format("FITS BINTABLE rows are %d bytes but the TABLE's FIELDs need %d",
+                    header.getLongValue("NAXIS1", 0), rowSize));
+        }
+        long rows = header.getLongValue("NAXIS2", 0);
+        for (long row = 0; row < rows; row++)
+        {
+            readRow(in, visitor);
+        }
+    }
+
+    private Header readFitsHeader(ArrayDataInput in) throws IOException
+    {
+        try
+        {
+            return Header.readHeader(in);
+        }
+        catch (FitsException e)
+        {
+            throw new IOException("Could not read FITS header: " + e.getMessage(), e);
+        }
+    }
+
+    private void readRow(DataInput in, VoTableElementVisitor visitor) throws IOException
+    {
+        this.rowsRead++;
+        try
+        {
+            byte[] nullFlags = null;
+            if (this.serialisation == Serialisation.BINARY2)
+            {
+                nullFlags = new byte[(this.columns.size() + BITS_PER_BYTE - 1) / BITS_PER_BYTE];
+                in.readFully(nullFlags);
+            }
+            visitor.visit(new VisitableVoTableRow());
+            for (int i = 0; i < this.columns.size(); i++)
+            {
+                Object value = this.columns.get(i).read(in);
+                VisitableVoTableCell cell;
+                if (value == null || (nullFlags != null && isBitSet(nullFlags, i)))
+                {
+                    cell = new VisitableVoTableCell();
+                    cell.setValue("");
+                }
+                else if (value instanceof String)
+                {
+                    cell = new VisitableVoTableCell();
+                    cell.setValue((String) value);
+                }
+                else
+                {
+                    cell = new DecodedVoTableCell(value);
+                }
+                cell.accept(visitor);
+            }
+        }
+        catch (EOFException e)
+        {
+            throw new IOException(String.format("Unexpected end of %s data in row %d", this.serialisation,
+                    this.rowsRead), e);
+        }
+    }
+
+    private static String format(Object element)
+    {
+        return element instanceof String ? (String) element : DecodedVoTableCell.format(element);
+    }
+
+    private static boolean isBitSet(byte[] bits, int index)
+    {
+        return (bits[index / BITS_PER_BYTE] & (0x80 >>> (index % BITS_PER_BYTE))) != 0;
+    }
+
+    /**
+     * Decodes the values of a FIELD.
+     */
+    private static final class Column
+    {
+        private final Field field;
+
+        private final DataType datatype;
+
+        /** The number of elements, or -1 if the number is given at the start of each value */
+        private int count;
+
+        private Long nullValue;
+
+        /** Whether trailing blanks are padding (as they are in FITS) */
+        private boolean blankPadded;
+
+        private Column(Field field)
+        {
+            this.field = field;
+            this.datatype = field.getDatatype() == null ? DataType.CHAR : field.getDatatype();
+            this.count = getCount(field.getArraysize());
+            if (field.getVALUES() != null && StringUtils.isNotBlank(field.getVALUES().getNull()))
+            {
+                try
+                {
+                    this.nullValue = Long.decode(field.getVALUES().getNull().trim());
+                }
+                catch (NumberFormatException e)
+                {
+                    // Not an integer so it can't match an integer value
+                }
+            }
+        }
+
+        private static int getCount(String arraysize)
+        {
+            if (StringUtils.isBlank(arraysize))
+            {
+                return 1;
+            }
+            int count = 1;
+            for (String dimension : arraysize.trim().split("x"))
+            {
+                if (dimension.endsWith("*"))
+                {
+                    return -1;
+                }
+                count *= Integer.parseInt(dimension);
+            }
+            return count;
+        }
+
+        /*
+         * Uses the number of elements in the FITS column rather than the FIELD's arraysize.
+         */
+        private void setFitsFormat(String tform, Long tnull) throws IOException
+        {
+            Matcher matcher = tform == null ? null : TFORM_REGEX.matcher(tform);
+            if (matcher == null || !matcher.matches() || !getFitsTypeCode().equals(matcher.group(2)))
+            {
+                throw new IOException(String.format("FITS column with format '%s' does not match FIELD '%s' (%s)",
+                        tform, this.field.getName(), this.datatype.value()));
+            }
+            this.count = matcher.group(1).isEmpty() ? 1 : Integer.parseInt(matcher.group(1));
+            if (tnull != null)
+            {
+                this.nullValue = tnull;
+            }
+            this.blankPadded = true;
+        }
+
+        private String getFitsTypeCode()
+        {
+            switch (this.datatype)
+            {
+            case BOOLEAN:
+                return "L";
+            case BIT:
+                return "X";
+            case UNSIGNED_BYTE:
+                return "B";
+            case SHORT:
+                return "I";
+            case INT:
+                return "J";
+            case LONG:
+                return "K";
+            case CHAR:
+                return "A";
+            case FLOAT:
+                return "E";
+            case DOUBLE:
+                return "D";
+            case FLOAT_COMPLEX:
+                return "C";
+            case DOUBLE_COMPLEX:
+                return "M";
+            default:
+                return "";
+            }
+        }
+
+        private long getFitsWidth()
+        {
+            switch (this.datatype)
+            {
+            case BIT:
+                return (this.count + BITS_PER_BYTE - 1) / BITS_PER_BYTE;
+            case SHORT:
+                return 2L * this.count;
+            case INT:
+            case FLOAT:
+                return 4L * this.count;
+            case LONG:
+            case DOUBLE:
+            case FLOAT_COMPLEX:
+                return 8L * this.count;
+            case DOUBLE_COMPLEX:
+                return 16L * this.count;
+            default:
+                return this.count;
+            }
+        }
+
+        /*
+         * Reads the column's value from a row. A scalar value of a numeric or boolean datatype is returned as the
+         * object that the FIELD's datatype would parse it to (or null if it represents a null), and any other value as
+         * it would be written in a TD.
+         */
+        private Object read(DataInput in) throws IOException
+        {
+            int elements = this.count < 0 ? in.readInt() : this.count;
+            switch (this.datatype)
+            {
+            case CHAR:
+                return readString(in, elements, 1, StandardCharsets.ISO_8859_1);
+            case UNICODE_CHAR:
+                return readString(in, elements, 2, StandardCharsets.UTF_16BE);
+            case BIT:
+                return readBits(in, elements);
+            case FLOAT_COMPLEX:
+            case DOUBLE_COMPLEX:
+                break;
+            default:
+                if (elements == 1 && this.count == 1)
+                {
+                    return readElement(in);
+                }
+            }
+            StringBuilder value = new StringBuilder();
+            for (int i = 0; i < elements; i++)
+            {
+                Object element = readElement(in);
+                value.append(i == 0 ? "" : " ").append(element == null ? getNullElement() : format(element));
+            }
+            return value.toString();
+        }
+
+        private String readString(DataInput in, int length, int charWidth, Charset charset) throws IOException
+        {
+            byte[] bytes = new byte[length * charWidth];
+            in.readFully(bytes);
+            String value = new String(bytes, charset);
+            int end = value.indexOf('\0');
+            value = end < 0 ? value : value.substring(0, end);
+            return this.blankPadded ? StringUtils.stripEnd(value, " ") : value;
+        }
+
+        private static String readBits(DataInput in, int bits) throws IOException
+        {
+            byte[] bytes = new byte[(bits + BITS_PER_BYTE - 1) / BITS_PER_BYTE];
+            in.readFully(bytes);
+            StringBuilder value = new StringBuilder(bits);
+            for (int i = 0; i < bits; i++)
+            {
+                value.append(isBitSet(bytes, i) ? '1' : '0');
+            }
+            return value.toString();
+        }
+
+        /*
+         * Reads a single element of the column's value, returning null if it represents a null. A complex element is
+         * returned as it would be written in a TD.
+         */
+        private Object readElement(DataInput in) throws IOException
+        {
+            switch (this.datatype)
+            {
+            case BOOLEAN:
+                return readBoolean(in.readByte());
+            case UNSIGNED_BYTE:
+                int unsignedByte = in.readUnsignedByte();
+                return isNull(unsignedByte) ? null : Integer.valueOf(unsignedByte);
+            case SHORT:
+                short shortValue = in.readShort();
+                return isNull(shortValue) ? null : Short.valueOf(shortValue);
+            case INT:
+                int intValue = in.readInt();
+                return isNull(intValue) ? null : Integer.valueOf(intValue);
+            case LONG:
+                long longValue = in.readLong();
+                return isNull(longValue) ? null : Long.valueOf(longValue);
+            case FLOAT:
+                return readReal(in.readFloat());
+            case DOUBLE:
+                return readReal(in.readDouble());
+            case FLOAT_COMPLEX:
+                return readComplex(readReal(in.readFloat()), readReal(in.readFloat()));
+            case DOUBLE_COMPLEX:
+                return readComplex(readReal(in.readDouble()), readReal(in.readDouble()));
+            default:
+                throw new IllegalStateException("Unexpected datatype " + this.datatype);
+            }
+        }
+
+        private String getNullElement()
+        {
+            switch (this.datatype)
+            {
+            case BOOLEAN:
+                return "?";
+            case FLOAT:
+            case DOUBLE:
+                return "NaN";
+            case FLOAT_COMPLEX:
+            case DOUBLE_COMPLEX:
+                return "NaN NaN";
+            default:
+                return String.valueOf(this.nullValue);
+            }
+        }
+
+        private static Boolean readBoolean(byte value)
+        {
+            switch (value)
+            {
+            case 'T':
+            case 't':
+            case '1':
+                return Boolean.TRUE;
+            case 'F':
+            case 'f':
+            case '0':
+                return Boolean.FALSE;
+            default:
+                return null;
+            }
+        }
+
+        private boolean isNull(long value)
+        {
+            return this.nullValue != null && this.nullValue == value;
+        }
+
+        private static Double readReal(double value)
+        {
+            return Double.isNaN(value) ? null : Double.valueOf(value);
+        }
+
+        private static Float readReal(float value)
+        {
+            return Float.isNaN(value) ? null : Float.valueOf(value);
+        }
+
+        private static String readComplex(Object real, Object imaginary)
+        {
+            return real == null || imaginary == null ? null : format(real) + " " + format(imaginary);
+        }
+    }
+}
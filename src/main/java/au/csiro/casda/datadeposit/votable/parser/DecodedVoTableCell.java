@@ -0,0 +1,124 @@
+package au.csiro.casda.datadeposit.votable.parser;
+
+import java.math.BigDecimal;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * A TD whose (scalar, non-null) value has been decoded from a BINARY, BINARY2 or FITS serialisation, and which holds
+ * the value as the Java object that {@link FieldDatatype#parseFieldValue(net.ivoa.vo.Field, FieldConstraint, String)}
+ * would have produced for it (eg: a Float for a 'float' field, and an Integer for an 'unsignedByte' field). The value
+ * can therefore be handed straight to a {@link ParsedVoTableRow} rather than being written as TABLEDATA text and
+ * parsed again.
+ * <p>
+ * The text of the TD (ie: the value as it would be written in TABLEDATA) is only produced if it is asked for, eg: to
+ * check a width or precision, or to describe the value in an error.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+class DecodedVoTableCell extends VisitableVoTableCell
+{
+    private final Object decodedValue;
+
+    /**
+     * Constructor
+     *
+     * @param decodedValue
+     *            the decoded value, which must be a Boolean, Short, Integer, Long, Float or Double
+     */
+    DecodedVoTableCell(Object decodedValue)
+    {
+        this.decodedValue = decodedValue;
+    }
+
+    /**
+     * @return the decoded value
+     */
+    Object getDecodedValue()
+    {
+        return this.decodedValue;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Returns the value as it would be written in TABLEDATA.
+     */
+    @Override
+    public String getValue()
+    {
+        if (this.value == null)
+        {
+            this.value = format(this.decodedValue);
+        }
+        return this.value;
+    }
+
+    /**
+     * @return the value as {@link FieldDatatype#convertFieldValue(String)} would convert the TD's text
+     */
+    String getConvertedValue()
+    {
+        if (this.decodedValue instanceof Boolean)
+        {
+            return ((Boolean) this.decodedValue) ? "t" : "f";
+        }
+        return getValue();
+    }
+
+    /**
+     * Writes a decoded value as it would be written in TABLEDATA.
+     *
+     * @param decodedValue
+     *            a Boolean, Short, Integer, Long, Float or Double
+     * @return the value as a String
+     */
+    static String format(Object decodedValue)
+    {
+        if (decodedValue instanceof Boolean)
+        {
+            return ((Boolean) decodedValue) ? "T" : "F";
+        }
+        if (decodedValue instanceof Float)
+        {
+            return formatReal((Float) decodedValue);
+        }
+        if (decodedValue instanceof Double)
+        {
+            return formatReal((Double) decodedValue);
+        }
+        return decodedValue.toString();
+    }
+
+    /*
+     * Writes the value without an exponent, and with only as many digits as are needed to distinguish it, as a value in
+     * TABLEDATA would normally be written.
+     */
+    private static String formatReal(double value)
+    {
+        if (Double.isInfinite(value))
+        {
+            return Double.toString(value);
+        }
+        return new BigDecimal(Double.toString(value)).stripTrailingZeros().toPlainString();
+    }
+
+    private static String formatReal(float value)
+    {
+        if (Float.isInfinite(value))
+        {
+            return formatReal((double) value);
+        }
+        return new BigDecimal(Float.toString(value)).stripTrailingZeros().toPlainString();
+    }
+}
@@ -67,10 +67,11 @@ public enum FieldDatatype
          * {@inheritDoc}
          */
         @Override
-        public void validateFieldValue(Field field, FieldConstraint constraint, String value)
+        public Object parseFieldValue(Field field, FieldConstraint constraint, String value)
                 throws FieldValidationException
         {
             FieldKey.ARRAYSIZE.validateFieldAttributeValue(field, constraint, value);
+            return value;
         }
 
         /** {@inheritDoc} */
@@ -107,7 +108,7 @@ public enum FieldDatatype
          * {@inheritDoc}
          */
         @Override
-        public void validateFieldValue(Field field, FieldConstraint constraint, String value)
+        public Object parseFieldValue(Field field, FieldConstraint constraint, String value)
                 throws FieldValidationException
         {
             /*
@@ -124,6 +125,8 @@ public enum FieldDatatype
                 throw new FieldValidationException(String.format("Value '%s' is not a '%s'", value, this.name()
                         .toLowerCase()));
             }
+            String convertedValue = convertFieldValue(value);
+            return convertedValue == null ? null : Boolean.valueOf("t".equals(convertedValue));
         }
 
         @Override
@@ -155,10 +158,10 @@ public enum FieldDatatype
          * {@inheritDoc}
          */
         @Override
-        public void validateFieldValue(Field field, FieldConstraint constraint, String value)
+        public Object parseFieldValue(Field field, FieldConstraint constraint, String value)
                 throws FieldValidationException
         {
-            validateWholeNumberValue(field, constraint, value, (v) -> Short.parseShort(v));
+            return validateWholeNumberValue(field, constraint, value, (v) -> Short.parseShort(v));
         }
     },
     /**
@@ -170,10 +173,10 @@ public enum FieldDatatype
          * {@inheritDoc}
          */
         @Override
-        public void validateFieldValue(Field field, FieldConstraint constraint, String value)
+        public Object parseFieldValue(Field field, FieldConstraint constraint, String value)
                 throws FieldValidationException
         {
-            validateWholeNumberValue(field, constraint, value, (v) -> Integer.parseInt(v));
+            return validateWholeNumberValue(field, constraint, value, (v) -> Integer.parseInt(v));
         }
     },
     /**
@@ -185,10 +188,10 @@ public enum FieldDatatype
          * {@inheritDoc}
          */
         @Override
-        public void validateFieldValue(Field field, FieldConstraint constraint, String value)
+        public Object parseFieldValue(Field field, FieldConstraint constraint, String value)
                 throws FieldValidationException
         {
-            validateWholeNumberValue(field, constraint, value, (v) -> Long.parseLong(v));
+            return validateWholeNumberValue(field, constraint, value, (v) -> Long.parseLong(v));
         }
     },
     /**
@@ -200,10 +203,10 @@ public enum FieldDatatype
          * {@inheritDoc}
          */
         @Override
-        public void validateFieldValue(Field field, FieldConstraint constraint, String value)
+        public Object parseFieldValue(Field field, FieldConstraint constraint, String value)
                 throws FieldValidationException
         {
-            validateRealNumberValue(field, constraint, value, (v) -> {
+            return validateRealNumberValue(field, constraint, value, (v) -> {
                 /*
                  * We've deliberately decided not to try and do any more complex parsing of the String into a Float,
                  * such as checking that the indicated precision is actually preserved.
@@ -221,10 +224,10 @@ public enum FieldDatatype
          * {@inheritDoc}
          */
         @Override
-        public void validateFieldValue(Field field, FieldConstraint constraint, String value)
+        public Object parseFieldValue(Field field, FieldConstraint constraint, String value)
                 throws FieldValidationException
         {
-            validateRealNumberValue(field, constraint, value, (v) -> {
+            return validateRealNumberValue(field, constraint, value, (v) -> {
                 /*
                  * We've deliberately decided not to try and do any more complex parsing of the String into a Double,
                  * such as checking that the indicated precision is actually preserved.
@@ -243,7 +246,7 @@ public enum FieldDatatype
     BIT
     {
         @Override
-        public void validateFieldValue(Field field, FieldConstraint constraint, String value)
+        public Object parseFieldValue(Field field, FieldConstraint constraint, String value)
                 throws FieldValidationException
         {
             if (!value.matches("[01 ]*"))
@@ -251,6 +254,7 @@ public enum FieldDatatype
                 throw new FieldValidationException(String.format("Value '%s' is not a '%s'", value, this.name()
                         .toLowerCase()));
             }
+            return convertFieldValue(value);
         }
 
         @Override
@@ -281,10 +285,11 @@ public enum FieldDatatype
         private final static int MAX_UNSIGNED_BYTE = 255;
 
         @Override
-        public void validateFieldValue(Field field, FieldConstraint constraint, String value)
+        public Object parseFieldValue(Field field, FieldConstraint constraint, String value)
                 throws FieldValidationException
         {
-            validateWholeNumberValue(field, constraint, value, (v) -> parseUnsignedByte(v), 0, MAX_UNSIGNED_BYTE);
+            return validateWholeNumberValue(field, constraint, value, (v) -> parseUnsignedByte(v), 0,
+                    MAX_UNSIGNED_BYTE);
         }
 
         @Override
@@ -432,7 +437,29 @@ public enum FieldDatatype
      * @throws FieldValidationException
      *             if the value does not match the requirements of the field an (optional) constraint
      */
-    public abstract void validateFieldValue(Field field, FieldConstraint constraint, String value)
+    public void validateFieldValue(Field field, FieldConstraint constraint, String value)
+            throws FieldValidationException
+    {
+        parseFieldValue(field, constraint, value);
+    }
+
+    /**
+     * Validates the given field/param's value in the same way as
+     * {@link #validateFieldValue(Field, FieldConstraint, String)} and returns the value converted to the Java type that
+     * corresponds to the datatype (eg: a Float for FLOAT, a Boolean for BOOLEAN, and the value itself for CHAR), so
+     * that the value only has to be parsed once.
+     * 
+     * @param field
+     *            a Field
+     * @param constraint
+     *            an optional FieldConstraint
+     * @param value
+     *            the value, which must not be empty
+     * @return the converted value, or null if the value represents a null (eg: '?' for BOOLEAN)
+     * @throws FieldValidationException
+     *             if the value does not match the requirements of the field an (optional) constraint
+     */
+    public abstract Object parseFieldValue(Field field, FieldConstraint constraint, String value)
             throws FieldValidationException;
 
     /**
@@ -447,15 +474,17 @@ public enum FieldDatatype
      * @param converter
      *            a Function<String, Object> that is used to convert the value to a Java object whose type is
      *            appropriate for the specific FieldDatatype (eg: Short for SHORT)
+     * @return the converted value
      * @throws FieldValidationException
      *             if the value does not match the requirements of the field an (optional) constraint
      */
-    protected void validateWholeNumberValue(Field field, FieldConstraint constraint, String value,
+    protected Object validateWholeNumberValue(Field field, FieldConstraint constraint, String value,
             Function<String, Object> converter) throws FieldValidationException
     {
+        Object convertedValue;
         try
         {
-            converter.apply(value);
+            convertedValue = converter.apply(value);
         }
         catch (NumberFormatException e)
         {
@@ -463,6 +492,7 @@ public enum FieldDatatype
                     .toLowerCase()));
         }
         FieldKey.WIDTH.validateFieldAttributeValue(field, constraint, value);
+        return convertedValue;
     }
 
     /**
@@ -481,21 +511,21 @@ public enum FieldDatatype
      *            The smallest number allowed for the numeric type.
      * @param max
      *            The largest number allowed for the numeric type.
+     * @return the converted value
      * @throws FieldValidationException
      *             if the value does not match the requirements of the field an (optional) constraint
      */
-    protected void validateWholeNumberValue(Field field, FieldConstraint constraint, String value,
+    protected Object validateWholeNumberValue(Field field, FieldConstraint constraint, String value,
             Function<String, Object> converter, long min, long max) throws FieldValidationException
     {
-        validateWholeNumberValue(field, constraint, value, converter);
-
-        Number numericValue = (Number) converter.apply(value);
+        Number numericValue = (Number) validateWholeNumberValue(field, constraint, value, converter);
 
         if (numericValue.longValue() < min || numericValue.longValue() > max)
         {
             throw new FieldValidationException(String.format("Value '%s' is not a '%s'", value, this.name()
                     .toLowerCase()));
         }
+        return numericValue;
     }
 
     /**
@@ -510,15 +540,17 @@ public enum FieldDatatype
      * @param converter
      *            a Function<String, Object> that is used to convert the value to a Java object whose type is
      *            appropriate for the specific FieldDatatype (eg: Double for DOUBLE)
+     * @return the converted value
      * @throws FieldValidationException
      *             if the value does not match the requirements of the field an (optional) constraint
      */
-    protected void validateRealNumberValue(Field field, FieldConstraint constraint, String value,
+    protected Object validateRealNumberValue(Field field, FieldConstraint constraint, String value,
             Function<String, Object> converter) throws FieldValidationException
     {
+        Object convertedValue;
         try
         {
-            converter.apply(value);
+            convertedValue = converter.apply(value);
         }
         catch (NumberFormatException e)
         {
@@ -527,6 +559,7 @@ public enum FieldDatatype
         }
         FieldKey.WIDTH.validateFieldAttributeValue(field, constraint, value);
         FieldKey.PRECISION.validateFieldAttributeValue(field, constraint, value);
+        return convertedValue;
     }
 
     /**
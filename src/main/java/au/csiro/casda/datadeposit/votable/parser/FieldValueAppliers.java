@@ -0,0 +1,87 @@
+package au.csiro.casda.datadeposit.votable.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * Applies the parsed cell values of a {@link ParsedVoTableRow} to an object (typically an entity) using a map of
+ * appliers keyed by field name.
+ * <p>
+ * The appliers are looked up by name once, when the VOTABLE's fields are known (see {@link #compile(List)}), so that
+ * each row is applied by field ordinal without any per-cell map lookups. Fields without an applier are ignored, as are
+ * null cell values. Instances hold the compiled state for one table and so are not thread-safe.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ * 
+ * @param <T>
+ *            the type of object the values are applied to
+ */
+public class FieldValueAppliers<T>
+{
+    private final Map<String, BiConsumer<T, Object>> appliersByName;
+
+    private List<BiConsumer<T, Object>> appliersByOrdinal = new ArrayList<>();
+
+    /**
+     * Constructs a FieldValueAppliers for the given appliers.
+     * 
+     * @param appliersByName
+     *            the appliers, keyed by field name, each of which is given the object and a cell's parsed value (see
+     *            {@link ParsedVoTableRow#getParsedValue(int)})
+     */
+    public FieldValueAppliers(Map<String, BiConsumer<T, Object>> appliersByName)
+    {
+        this.appliersByName = appliersByName;
+    }
+
+    /**
+     * Looks up the applier for each of the given fields.
+     * 
+     * @param fields
+     *            the VOTABLE's fields (in the order they are defined)
+     */
+    public void compile(List<VisitableVoTableField> fields)
+    {
+        List<BiConsumer<T, Object>> appliers = new ArrayList<>(fields.size());
+        for (VisitableVoTableField field : fields)
+        {
+            appliers.add(this.appliersByName.get(field.getName()));
+        }
+        this.appliersByOrdinal = appliers;
+    }
+
+    /**
+     * Applies the non-null values of the given row to the given object.
+     * 
+     * @param target
+     *            the object to apply the values to
+     * @param row
+     *            a row of the VOTABLE whose fields were last passed to {@link #compile(List)}
+     */
+    public void apply(T target, ParsedVoTableRow row)
+    {
+        for (int i = 0; i < this.appliersByOrdinal.size(); i++)
+        {
+            BiConsumer<T, Object> applier = this.appliersByOrdinal.get(i);
+            Object value = row.getParsedValue(i);
+            if (applier != null && value != null)
+            {
+                applier.accept(target, value);
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package au.csiro.casda.datadeposit.votable.parser;
+
+import java.util.List;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * The cells of a VOTABLE row, held by the ordinal of their FIELD. Each cell is held both as the String value that
+ * {@link FieldDatatype#convertFieldValue(String)} produces and as the value that
+ * {@link FieldDatatype#parseFieldValue(net.ivoa.vo.Field, FieldConstraint, String)} produced while the cell was
+ * validated, so that a cell's value only has to be parsed once. A cell decoded from a binary serialisation (see
+ * {@link DecodedVoTableCell}) is held as its decoded value, and its String value is only produced if it is asked for.
+ * <p>
+ * A single instance may be reused for every row of a table (unless the rows are converted by a pool of threads), so the
+ * values must be copied out of it during {@link AbstractVoTableElementVisitor#processRow(ParsedVoTableRow)}.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+public class ParsedVoTableRow
+{
+    private final List<VisitableVoTableField> fields;
+
+    /** Each cell's String value, or the DecodedVoTableCell that it can be produced from */
+    private final Object[] values;
+
+    private final Object[] parsedValues;
+
+    /**
+     * Constructs a ParsedVoTableRow for rows of the given fields.
+     * 
+     * @param fields
+     *            the VOTABLE's fields (in the order they are defined)
+     */
+    ParsedVoTableRow(List<VisitableVoTableField> fields)
+    {
+        this.fields = fields;
+        this.values = new Object[fields.size()];
+        this.parsedValues = new Object[fields.size()];
+    }
+
+    /**
+     * @return the number of cells in the row (ie: the number of fields)
+     */
+    public int size()
+    {
+        return this.fields.size();
+    }
+
+    /**
+     * @param index
+     *            the ordinal of a cell
+     * @return the field of the cell
+     */
+    public VisitableVoTableField getField(int index)
+    {
+        return this.fields.get(index);
+    }
+
+    /**
+     * @param index
+     *            the ordinal of a cell
+     * @return the cell's value converted to a String that is suitable for conversion to the right datatype, or null if
+     *         the cell is blank
+     */
+    public String getValue(int index)
+    {
+        Object value = this.values[index];
+        return value instanceof DecodedVoTableCell ? ((DecodedVoTableCell) value).getConvertedValue() : (String) value;
+    }
+
+    /**
+     * @param index
+     *            the ordinal of a cell
+     * @return the cell's value as parsed by the field's datatype (eg: a Float for a 'float' field), or null if the cell
+     *         is blank or represents a null
+     */
+    public Object getParsedValue(int index)
+    {
+        return this.parsedValues[index];
+    }
+
+    void set(int index, String value, Object parsedValue)
+    {
+        this.values[index] = value;
+        this.parsedValues[index] = parsedValue;
+    }
+
+    void setDecoded(int index, DecodedVoTableCell cell)
+    {
+        this.values[index] = cell;
+        this.parsedValues[index] = cell.getDecodedValue();
+    }
+
+    void clear()
+    {
+        for (int i = 0; i < this.values.length; i++)
+        {
+            this.values[i] = null;
+            this.parsedValues[i] = null;
+        }
+    }
+}
@@ -0,0 +1,993 @@
+package au.csiro.casda.datadeposit.votable.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.validation.Schema;
+
+import net.ivoa.vo.AnyTEXT;
+import net.ivoa.vo.CoordinateSystem;
+import net.ivoa.vo.DataType;
+import net.ivoa.vo.Field;
+import net.ivoa.vo.EncodingType;
+import net.ivoa.vo.ObjectFactory;
+import net.ivoa.vo.Param;
+import net.ivoa.vo.Stream;
+import net.ivoa.vo.Table;
+import net.ivoa.vo.Td;
+import net.ivoa.vo.Tr;
+import net.ivoa.vo.Values;
+import net.ivoa.vo.VoTable;
+
+import org.apache.commons.lang3.StringUtils;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * Reads a VOTABLE document from a stream and hands its elements to a {@link VoTableElementVisitor} as they are read,
+ * rather than unmarshalling the whole document into memory first.
+ * <p>
+ * Elements are visited in the same order, and subject to the same structural restrictions, as
+ * {@link VisitableVoTable#accept(VoTableElementVisitor)}. Each StAX event is also passed to a validator for the given
+ * Schema so that the document is validated in the same pass, with the same messages that an unmarshaller using that
+ * Schema would report. Rows and cells are discarded once they have been visited, so memory use does not grow with the
+ * number of rows in the table.
+ * <p>
+ * IDREF attributes (ie: the FIELD/PARAM ref attribute) are resolved against elements that precede them in the
+ * document.
+ * <p>
+ * As well as TABLEDATA, the DATA may be serialised as BINARY, BINARY2 or FITS (see {@link BinaryVoTableDataReader}),
+ * in which case the rows are decoded and visited as if they had been TABLEDATA rows. The STREAM must either contain
+ * the data, base64 encoded, or refer to a local file through its href (which is resolved against the document's
+ * location, if known). Inline data is decoded as it is read, so it is never held in memory as a whole either.
+ * <p>
+ * With {@link #setReadAhead(boolean) read-ahead} the document is read (ie: tokenised, validated and decoded) on a
+ * separate thread, which hands the elements it reads to the thread that called {@link #read(VoTableElementVisitor)}
+ * through a bounded queue. The visitor is still only ever called on the calling thread (which may own a transaction
+ * that the visitor saves the rows in), in the same order and with the same errors as without read-ahead.
+ * <p>
+ * Instances of this class are not thread-safe and can only be used to read a single document.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+public class StreamingVoTableReader
+{
+    private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+
+    private static final ObjectFactory OBJECT_FACTORY = new ObjectFactory();
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final int READ_AHEAD_BATCH_SIZE = 1000;
+
+    private static final int READ_AHEAD_MAX_BATCHES = 8;
+
+    private static final String SINGLE_TABLE_ERROR_MESSAGE = "Can only process a single TABLE element under a RESOURCE";
+
+    private static final String TABLE_CONTENT_ERROR_MESSAGE =
+            "Can only process DESCRIPTION, PARAM, FIELD, and DATA elements of the RESOURCE element";
+
+    private final XMLStreamReader reader;
+
+    private final ContentHandler validator;
+
+    private final URI baseUri;
+
+    private final Map<String, Object> identifiedElements = new HashMap<>();
+
+    private final List<Field> fields = new ArrayList<>();
+
+    private VoTableElementVisitor visitor;
+
+    private boolean readAhead;
+
+    /**
+     * Constructor
+     *
+     * @param inputStream
+     *            the stream containing the VOTABLE document
+     * @param schema
+     *            the Schema to validate the document against as it is read, or null if the document is not to be
+     *            validated
+     * @throws XMLStreamException
+     *             if the stream could not be opened as an XML document
+     */
+    public StreamingVoTableReader(InputStream inputStream, Schema schema) throws XMLStreamException
+    {
+        this(inputStream, schema, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param inputStream
+     *            the stream containing the VOTABLE document
+     * @param schema
+     *            the Schema to validate the document against as it is read, or null if the document is not to be
+     *            validated
+     * @param baseUri
+     *            the location of the document, which any relative STREAM hrefs are resolved against (may be null)
+     * @throws XMLStreamException
+     *             if the stream could not be opened as an XML document
+     */
+    public StreamingVoTableReader(InputStream inputStream, Schema schema, URI baseUri) throws XMLStreamException
+    {
+        this.reader = XML_INPUT_FACTORY.createXMLStreamReader(inputStream);
+        this.validator = schema == null ? new DefaultHandler() : schema.newValidatorHandler();
+        this.baseUri = baseUri;
+    }
+
+    public boolean isReadAhead()
+    {
+        return readAhead;
+    }
+
+    /**
+     * Sets whether the document is read on a separate thread, ahead of the elements being visited on the calling
+     * thread, so that reading the document and visiting its elements overlap.
+     *
+     * @param readAhead
+     *            whether to read ahead
+     */
+    public void setReadAhead(boolean readAhead)
+    {
+        this.readAhead = readAhead;
+    }
+
+    /**
+     * Reads the document, visiting its elements with the given visitor.
+     *
+     * @param visitor
+     *            the visitor
+     * @throws XMLStreamException
+     *             if the document is not well-formed XML
+     * @throws SAXException
+     *             if the document is not valid according to the Schema
+     */
+    public void read(VoTableElementVisitor visitor) throws XMLStreamException, SAXException
+    {
+        if (!readAhead)
+        {
+            readDocument(visitor);
+            return;
+        }
+        ReadAheadVisitor readAheadVisitor = new ReadAheadVisitor();
+        Thread readerThread = new Thread(() -> readAheadVisitor.readDocument(), "votable-reader");
+        readerThread.setDaemon(true);
+        readerThread.start();
+        try
+        {
+            readAheadVisitor.visitElementsRead(visitor);
+        }
+        finally
+        {
+            // Stop the reader thread if the visitor failed part way through, and wait for it to close the document
+            readerThread.interrupt();
+            try
+            {
+                readerThread.join();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void readDocument(VoTableElementVisitor visitor) throws XMLStreamException, SAXException
+    {
+        this.visitor = visitor;
+        try
+        {
+            validator.setDocumentLocator(new StreamLocator());
+            validator.startDocument();
+            if (nextTag() != XMLStreamConstants.START_ELEMENT)
+            {
+                throw new XMLStreamException("Missing root element", reader.getLocation());
+            }
+            readVoTable();
+            while (next() != XMLStreamConstants.END_DOCUMENT)
+            {
+                // Finish validating the document (eg: any trailing comments or processing instructions)
+            }
+            visitor.stop();
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    private void readVoTable() throws XMLStreamException, SAXException
+    {
+        visitor.visit(new VisitableVoTable());
+
+        int resourceCount = 0;
+        while (nextTag() == XMLStreamConstants.START_ELEMENT)
+        {
+            switch (reader.getLocalName())
+            {
+            case "COOSYS":
+                readCoordinateSystem();
+                break;
+            case "RESOURCE":
+                resourceCount++;
+                if (resourceCount > 1)
+                {
+                    throw new RuntimeException("Cannot process more than one RESOURCE element in a VOTABLE");
+                }
+                readResource();
+                break;
+            default:
+                skipElement();
+                break;
+            }
+        }
+        if (resourceCount == 0)
+        {
+            throw new RuntimeException("VOTABLE is a missing a RESOURCE element");
+        }
+    }
+
+    private void readResource() throws XMLStreamException, SAXException
+    {
+        boolean tableRead = false;
+        while (nextTag() == XMLStreamConstants.START_ELEMENT)
+        {
+            switch (reader.getLocalName())
+            {
+            case "COOSYS":
+                readCoordinateSystem();
+                break;
+            case "TABLE":
+                if (tableRead)
+                {
+                    throw new RuntimeException(SINGLE_TABLE_ERROR_MESSAGE);
+                }
+                readTable();
+                tableRead = true;
+                break;
+            case "LINK":
+            case "RESOURCE":
+                throw new RuntimeException(SINGLE_TABLE_ERROR_MESSAGE);
+            default:
+                skipElement();
+                break;
+            }
+        }
+        if (!tableRead)
+        {
+            throw new RuntimeException(SINGLE_TABLE_ERROR_MESSAGE);
+        }
+    }
+
+    private void readTable() throws XMLStreamException, SAXException
+    {
+        VisitableVoTableTable table = new VisitableVoTableTable();
+        table.setID(collapsedAttribute("ID"));
+        table.setName(collapsedAttribute("name"));
+        table.setUcd(collapsedAttribute("ucd"));
+        table.setUtype(attribute("utype"));
+        register(table.getID(), table);
+
+        /*
+         * The table is only visited once its DESCRIPTION (if any) has been read, because some visitors inspect the
+         * table's description when visiting the table.
+         */
+        boolean tableVisited = false;
+        while (nextTag() == XMLStreamConstants.START_ELEMENT)
+        {
+            String elementName = reader.getLocalName();
+            if ("DESCRIPTION".equals(elementName) && !tableVisited)
+            {
+                table.getContent().add(OBJECT_FACTORY.createTableDESCRIPTION(readAnyText()));
+                continue;
+            }
+            if (!tableVisited)
+            {
+                visitor.visit(table);
+                tableVisited = true;
+            }
+            switch (elementName)
+            {
+            case "PARAM":
+                readParam().accept(visitor);
+                break;
+            case "FIELD":
+                VisitableVoTableField field = readField();
+                fields.add(field);
+                field.accept(visitor);
+                break;
+            case "DATA":
+                readData();
+                break;
+            default:
+                throw new RuntimeException(TABLE_CONTENT_ERROR_MESSAGE);
+            }
+        }
+        if (!tableVisited)
+        {
+            visitor.visit(table);
+        }
+    }
+
+    private VisitableVoTableParam readParam() throws XMLStreamException, SAXException
+    {
+        VisitableVoTableParam param = new VisitableVoTableParam();
+        populateField(param);
+        param.setValue(attribute("value"));
+        readFieldContent(param);
+        return param;
+    }
+
+    private VisitableVoTableField readField() throws XMLStreamException, SAXException
+    {
+        VisitableVoTableField field = new VisitableVoTableField();
+        populateField(field);
+        readFieldContent(field);
+        return field;
+    }
+
+    private void populateField(Field field)
+    {
+        field.setID(collapsedAttribute("ID"));
+        field.setName(collapsedAttribute("name"));
+        field.setUnit(collapsedAttribute("unit"));
+        String datatype = attribute("datatype");
+        field.setDatatype(datatype == null ? null : DataType.fromValue(datatype));
+        field.setPrecision(collapsedAttribute("precision"));
+        String width = attribute("width");
+        field.setWidth(width == null ? null : new BigInteger(width.trim()));
+        field.setXtype(collapsedAttribute("xtype"));
+        String ref = collapsedAttribute("ref");
+        field.setRef(ref == null ? null : identifiedElements.get(ref));
+        field.setUcd(collapsedAttribute("ucd"));
+        field.setUtype(attribute("utype"));
+        field.setArraysize(attribute("arraysize"));
+        field.setType(collapsedAttribute("type"));
+        register(field.getID(), field);
+    }
+
+    private void readFieldContent(Field field) throws XMLStreamException, SAXException
+    {
+        while (nextTag() == XMLStreamConstants.START_ELEMENT)
+        {
+            if ("DESCRIPTION".equals(reader.getLocalName()))
+            {
+                field.setDESCRIPTION(readAnyText());
+            }
+            else if ("VALUES".equals(reader.getLocalName()))
+            {
+                // Only the null value is needed (to recognise nulls in BINARY data)
+                Values values = new Values();
+                values.setID(collapsedAttribute("ID"));
+                values.setNull(attribute("null"));
+                field.setVALUES(values);
+                skipElement();
+            }
+            else
+            {
+                skipElement();
+            }
+        }
+    }
+
+    private void readData() throws XMLStreamException, SAXException
+    {
+        while (nextTag() == XMLStreamConstants.START_ELEMENT)
+        {
+            switch (reader.getLocalName())
+            {
+            case "TABLEDATA":
+                readTableData();
+                break;
+            case "BINARY":
+                readBinaryData(BinaryVoTableDataReader.Serialisation.BINARY, 0);
+                break;
+            case "BINARY2":
+                readBinaryData(BinaryVoTableDataReader.Serialisation.BINARY2, 0);
+                break;
+            case "FITS":
+                String extnum = collapsedAttribute("extnum");
+                readBinaryData(BinaryVoTableDataReader.Serialisation.FITS,
+                        extnum == null ? 1 : Integer.parseInt(extnum));
+                break;
+            case "INFO":
+                skipElement();
+                break;
+            default:
+                throw new RuntimeException(
+                        "Can only process TABLEDATA, BINARY, BINARY2, and FITS elements of the DATA element");
+            }
+        }
+    }
+
+    /**
+     * Reads the STREAM of a BINARY, BINARY2 or FITS element, visiting its rows, leaving the reader positioned on the
+     * element's end tag.
+     */
+    private void readBinaryData(BinaryVoTableDataReader.Serialisation serialisation, int extnum)
+            throws XMLStreamException, SAXException
+    {
+        if (nextTag() != XMLStreamConstants.START_ELEMENT || !"STREAM".equals(reader.getLocalName()))
+        {
+            throw new RuntimeException("Can only process " + serialisation + " elements containing a STREAM element");
+        }
+        Stream stream = new Stream();
+        stream.setHref(collapsedAttribute("href"));
+        String encoding = collapsedAttribute("encoding");
+        stream.setEncoding(encoding == null ? EncodingType.NONE : EncodingType.fromValue(encoding));
+
+        BinaryVoTableDataReader dataReader = new BinaryVoTableDataReader(fields, serialisation, extnum);
+        ElementTextInputStream content = new ElementTextInputStream();
+        try
+        {
+            if (stream.getHref() == null)
+            {
+                dataReader.read(BinaryVoTableDataReader.decodeInlineStream(stream, content), visitor);
+            }
+            else
+            {
+                try (InputStream inputStream = BinaryVoTableDataReader.openStreamHref(stream, baseUri))
+                {
+                    dataReader.read(inputStream, visitor);
+                }
+            }
+            // Read the rest of the STREAM (eg: the padding at the end of FITS data)
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (content.read(buffer) >= 0)
+            {
+                // Nothing to do
+            }
+        }
+        catch (DocumentReadException e)
+        {
+            e.rethrowCause();
+        }
+        catch (IOException e)
+        {
+            throw new XMLStreamException("Malformed " + serialisation + " data: " + e.getMessage(),
+                    reader.getLocation(), e);
+        }
+        while (nextTag() == XMLStreamConstants.START_ELEMENT)
+        {
+            skipElement();
+        }
+    }
+
+    private void readTableData() throws XMLStreamException, SAXException
+    {
+        while (nextTag() == XMLStreamConstants.START_ELEMENT)
+        {
+            VisitableVoTableRow row = new VisitableVoTableRow();
+            row.setID(collapsedAttribute("ID"));
+            visitor.visit(row);
+            while (nextTag() == XMLStreamConstants.START_ELEMENT)
+            {
+                VisitableVoTableCell cell = new VisitableVoTableCell();
+                cell.setValue(readElementText());
+                cell.accept(visitor);
+            }
+        }
+    }
+
+    private void readCoordinateSystem() throws XMLStreamException, SAXException
+    {
+        CoordinateSystem coordinateSystem = new CoordinateSystem();
+        coordinateSystem.setID(collapsedAttribute("ID"));
+        coordinateSystem.setEquinox(collapsedAttribute("equinox"));
+        coordinateSystem.setEpoch(collapsedAttribute("epoch"));
+        coordinateSystem.setSystem(collapsedAttribute("system"));
+        coordinateSystem.setValue(readElementText());
+        register(coordinateSystem.getID(), coordinateSystem);
+    }
+
+    private AnyTEXT readAnyText() throws XMLStreamException, SAXException
+    {
+        AnyTEXT text = new AnyTEXT();
+        text.getContent().add(readElementText());
+        return text;
+    }
+
+    /**
+     * Reads the text content of the current element, leaving the reader positioned on its end tag. Any child elements
+     * are passed to the validator but otherwise ignored.
+     *
+     * @return the text content (which will be an empty string if there was none)
+     */
+    private String readElementText() throws XMLStreamException, SAXException
+    {
+        StringBuilder text = new StringBuilder();
+        int depth = 1;
+        while (depth > 0)
+        {
+            switch (next())
+            {
+            case XMLStreamConstants.START_ELEMENT:
+                depth++;
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                depth--;
+                break;
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.CDATA:
+            case XMLStreamConstants.SPACE:
+                if (depth == 1)
+                {
+                    text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                }
+                break;
+            default:
+                break;
+            }
+        }
+        return text.toString();
+    }
+
+    private void skipElement() throws XMLStreamException, SAXException
+    {
+        int depth = 1;
+        while (depth > 0)
+        {
+            int event = next();
+            if (event == XMLStreamConstants.START_ELEMENT)
+            {
+                depth++;
+            }
+            else if (event == XMLStreamConstants.END_ELEMENT)
+            {
+                depth--;
+            }
+        }
+    }
+
+    private void register(String id, Object element)
+    {
+        if (id != null)
+        {
+            identifiedElements.put(id, element);
+        }
+    }
+
+    private String attribute(String localName)
+    {
+        return reader.getAttributeValue(null, localName);
+    }
+
+    /*
+     * Equivalent to the whitespace collapsing that JAXB performs on token-valued attributes.
+     */
+    private String collapsedAttribute(String localName)
+    {
+        String value = attribute(localName);
+        return value == null ? null : StringUtils.normalizeSpace(value);
+    }
+
+    /**
+     * Advances to the next start or end tag.
+     *
+     * @return the event type (START_ELEMENT or END_ELEMENT)
+     */
+    private int nextTag() throws XMLStreamException, SAXException
+    {
+        while (true)
+        {
+            int event = next();
+            switch (event)
+            {
+            case XMLStreamConstants.START_ELEMENT:
+            case XMLStreamConstants.END_ELEMENT:
+                return event;
+            case XMLStreamConstants.END_DOCUMENT:
+                throw new XMLStreamException("Unexpected end of document", reader.getLocation());
+            default:
+                break;
+            }
+        }
+    }
+
+    /**
+     * Advances to the next event, passing it on to the validator.
+     *
+     * @return the event type
+     */
+    private int next() throws XMLStreamException, SAXException
+    {
+        int event = reader.next();
+        switch (event)
+        {
+        case XMLStreamConstants.START_ELEMENT:
+            for (int i = 0; i < reader.getNamespaceCount(); i++)
+            {
+                validator.startPrefixMapping(StringUtils.defaultString(reader.getNamespacePrefix(i)),
+                        StringUtils.defaultString(reader.getNamespaceURI(i)));
+            }
+            AttributesImpl attributes = new AttributesImpl();
+            for (int i = 0; i < reader.getAttributeCount(); i++)
+            {
+                QName name = reader.getAttributeName(i);
+                attributes.addAttribute(StringUtils.defaultString(name.getNamespaceURI()), name.getLocalPart(),
+                        getQualifiedName(name), reader.getAttributeType(i), reader.getAttributeValue(i));
+            }
+            validator.startElement(StringUtils.defaultString(reader.getNamespaceURI()), reader.getLocalName(),
+                    getQualifiedName(reader.getName()), attributes);
+            break;
+        case XMLStreamConstants.END_ELEMENT:
+            validator.endElement(StringUtils.defaultString(reader.getNamespaceURI()), reader.getLocalName(),
+                    getQualifiedName(reader.getName()));
+            for (int i = 0; i < reader.getNamespaceCount(); i++)
+            {
+                validator.endPrefixMapping(StringUtils.defaultString(reader.getNamespacePrefix(i)));
+            }
+            break;
+        case XMLStreamConstants.CHARACTERS:
+        case XMLStreamConstants.CDATA:
+        case XMLStreamConstants.SPACE:
+            validator.characters(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+            break;
+        case XMLStreamConstants.END_DOCUMENT:
+            validator.endDocument();
+            break;
+        default:
+            break;
+        }
+        return event;
+    }
+
+    private static String getQualifiedName(QName name)
+    {
+        return StringUtils.isEmpty(name.getPrefix()) ? name.getLocalPart() : name.getPrefix() + ":"
+                + name.getLocalPart();
+    }
+
+    private static XMLInputFactory createXmlInputFactory()
+    {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        // Not coalescing, so that long text (ie: the content of a STREAM) can be read a piece at a time
+        factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        return factory;
+    }
+
+    /**
+     * The text content of the current element (ie: a STREAM) as a stream of bytes, read from the document as the stream
+     * is read. Once the end of the stream has been reached the reader is positioned on the element's end tag.
+     */
+    private class ElementTextInputStream extends InputStream
+    {
+        private char[] text;
+
+        private int position;
+
+        private int end;
+
+        private boolean ended;
+
+        @Override
+        public int read() throws IOException
+        {
+            return fill() ? this.text[this.position++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException
+        {
+            if (length == 0)
+            {
+                return 0;
+            }
+            if (!fill())
+            {
+                return -1;
+            }
+            int count = Math.min(length, this.end - this.position);
+            for (int i = 0; i < count; i++)
+            {
+                bytes[offset + i] = (byte) this.text[this.position++];
+            }
+            return count;
+        }
+
+        /*
+         * Moves on to the next piece of text if the current piece has been read, returning false at the end of the
+         * element.
+         */
+        private boolean fill() throws IOException
+        {
+            while (this.position >= this.end)
+            {
+                if (this.ended)
+                {
+                    return false;
+                }
+                int event;
+                try
+                {
+                    event = next();
+                }
+                catch (XMLStreamException | SAXException e)
+                {
+                    throw new DocumentReadException(e);
+                }
+                switch (event)
+                {
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    // The reader's text buffer stays valid until the next event is read
+                    this.text = reader.getTextCharacters();
+                    this.position = reader.getTextStart();
+                    this.end = this.position + reader.getTextLength();
+                    break;
+                case XMLStreamConstants.START_ELEMENT:
+                    throw new DocumentReadException(new XMLStreamException("Unexpected element in STREAM",
+                            reader.getLocation()));
+                case XMLStreamConstants.END_ELEMENT:
+                    this.ended = true;
+                    break;
+                default:
+                    break;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Carries an exception reading the document through the InputStream API of {@link ElementTextInputStream}.
+     */
+    private static class DocumentReadException extends IOException
+    {
+        private static final long serialVersionUID = 1L;
+
+        DocumentReadException(Exception cause)
+        {
+            super(cause);
+        }
+
+        void rethrowCause() throws XMLStreamException, SAXException
+        {
+            if (getCause() instanceof SAXException)
+            {
+                throw (SAXException) getCause();
+            }
+            throw (XMLStreamException) getCause();
+        }
+    }
+
+    /**
+     * Reads the document on the reader thread, queueing each visit (in batches) for the calling thread to make. The
+     * outcome of reading the document is queued after its last element, so that any error is thrown on the calling
+     * thread once the elements before it have been visited, just as it would be without read-ahead.
+     */
+    private class ReadAheadVisitor implements VoTableElementVisitor
+    {
+        private final BlockingQueue<ReadAheadBatch> batches = new ArrayBlockingQueue<>(READ_AHEAD_MAX_BATCHES);
+
+        private List<Consumer<VoTableElementVisitor>> visits = new ArrayList<>(READ_AHEAD_BATCH_SIZE);
+
+        /*
+         * Runs on the reader thread.
+         */
+        private void readDocument()
+        {
+            Throwable failure = null;
+            try
+            {
+                StreamingVoTableReader.this.readDocument(this);
+            }
+            catch (ReadAheadCancelledException e)
+            {
+                return; // The calling thread has stopped visiting
+            }
+            catch (Exception | Error e)
+            {
+                failure = e;
+            }
+            try
+            {
+                this.batches.put(new ReadAheadBatch(this.visits, true, failure));
+            }
+            catch (InterruptedException e)
+            {
+                // The calling thread has stopped visiting
+            }
+        }
+
+        /*
+         * Runs on the calling thread.
+         */
+        private void visitElementsRead(VoTableElementVisitor visitor) throws XMLStreamException, SAXException
+        {
+            while (true)
+            {
+                ReadAheadBatch batch;
+                try
+                {
+                    batch = this.batches.take();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while reading VOTABLE", e);
+                }
+                for (Consumer<VoTableElementVisitor> visit : batch.visits)
+                {
+                    visit.accept(visitor);
+                }
+                if (batch.last)
+                {
+                    batch.rethrowFailure();
+                    return;
+                }
+            }
+        }
+
+        private void queue(Consumer<VoTableElementVisitor> visit)
+        {
+            this.visits.add(visit);
+            if (this.visits.size() >= READ_AHEAD_BATCH_SIZE)
+            {
+                try
+                {
+                    this.batches.put(new ReadAheadBatch(this.visits, false, null));
+                }
+                catch (InterruptedException e)
+                {
+                    throw new ReadAheadCancelledException();
+                }
+                this.visits = new ArrayList<>(READ_AHEAD_BATCH_SIZE);
+            }
+        }
+
+        @Override
+        public void visit(VoTable voTable)
+        {
+            queue((v) -> v.visit(voTable));
+        }
+
+        @Override
+        public void visit(Param param)
+        {
+            queue((v) -> v.visit(param));
+        }
+
+        @Override
+        public void visit(Field field)
+        {
+            queue((v) -> v.visit(field));
+        }
+
+        @Override
+        public void visit(Table table)
+        {
+            queue((v) -> v.visit(table));
+        }
+
+        @Override
+        public void visit(Tr tableRow)
+        {
+            queue((v) -> v.visit(tableRow));
+        }
+
+        @Override
+        public void visit(Td tableCell)
+        {
+            queue((v) -> v.visit(tableCell));
+        }
+
+        @Override
+        public void stop()
+        {
+            queue((v) -> v.stop());
+        }
+    }
+
+    /**
+     * Visits read ahead by the reader thread, and, for the last batch, the outcome of reading the document.
+     */
+    private static class ReadAheadBatch
+    {
+        private final List<Consumer<VoTableElementVisitor>> visits;
+
+        private final boolean last;
+
+        private final Throwable failure;
+
+        ReadAheadBatch(List<Consumer<VoTableElementVisitor>> visits, boolean last, Throwable failure)
+        {
+            this.visits = visits;
+            this.last = last;
+            this.failure = failure;
+        }
+
+        void rethrowFailure() throws XMLStreamException, SAXException
+        {
+            if (failure instanceof XMLStreamException)
+            {
+                throw (XMLStreamException) failure;
+            }
+            if (failure instanceof SAXException)
+            {
+                throw (SAXException) failure;
+            }
+            if (failure instanceof RuntimeException)
+            {
+                throw (RuntimeException) failure;
+            }
+            if (failure instanceof Error)
+            {
+                throw (Error) failure;
+            }
+        }
+    }
+
+    /**
+     * Stops the reader thread once the calling thread has stopped visiting the elements it reads.
+     */
+    private static class ReadAheadCancelledException extends RuntimeException
+    {
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * Adapts the reader's current location to a SAX Locator so that validation messages report the line and column of
+     * the offending content.
+     */
+    private class StreamLocator implements Locator
+    {
+        @Override
+        public String getPublicId()
+        {
+            return reader.getLocation().getPublicId();
+        }
+
+        @Override
+        public String getSystemId()
+        {
+            return reader.getLocation().getSystemId();
+        }
+
+        @Override
+        public int getLineNumber()
+        {
+            return reader.getLocation().getLineNumber();
+        }
+
+        @Override
+        public int getColumnNumber()
+        {
+            return reader.getLocation().getColumnNumber();
+        }
+    }
+}
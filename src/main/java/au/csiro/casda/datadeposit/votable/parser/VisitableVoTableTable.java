@@ -1,8 +1,16 @@
 package au.csiro.casda.datadeposit.votable.parser;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.xml.bind.JAXBElement;
 
 import net.ivoa.vo.Data;
+import net.ivoa.vo.Stream;
 import net.ivoa.vo.Table;
 import net.ivoa.vo.Tr;
 
@@ -21,6 +29,9 @@ import net.ivoa.vo.Tr;
 /**
  * Extension of JAXB-generated {@link Table} that implements @{link VisitableVoTableElement}.
  * <p>
+ * BINARY, BINARY2 and FITS serialised DATA is visited as if it were TABLEDATA (see {@link BinaryVoTableDataReader}).
+ * Only STREAMs that contain their data or that refer to it with an absolute file URL are supported.
+ * <p>
  * Copyright 2015, CSIRO Australia. All rights reserved.
  */
 public class VisitableVoTableTable extends Table implements VisitableVoTableElement
@@ -30,6 +41,7 @@ public class VisitableVoTableTable extends Table implements VisitableVoTableElem
     @Override
     public void accept(VoTableElementVisitor visitor)
     {
+        List<VisitableVoTableField> fields = new ArrayList<>();
         for (JAXBElement<?> element : this.getContent())
         {
             switch (element.getName().getLocalPart())
@@ -41,13 +53,11 @@ public class VisitableVoTableTable extends Table implements VisitableVoTableElem
                 ((VisitableVoTableParam) element.getValue()).accept(visitor);
                 break;
             case "FIELD":
+                fields.add((VisitableVoTableField) element.getValue());
                 ((VisitableVoTableField) element.getValue()).accept(visitor);
                 break;
             case "DATA":
-                for (Tr tr : ((Data) element.getValue()).getTABLEDATA().getTR())
-                {
-                    ((VisitableVoTableRow) tr).accept(visitor);
-                }
+                acceptData((Data) element.getValue(), fields, visitor);
                 break;
             default:
                 throw new RuntimeException(
@@ -56,4 +66,57 @@ public class VisitableVoTableTable extends Table implements VisitableVoTableElem
         }
     }
 
+    private void acceptData(Data data, List<VisitableVoTableField> fields, VoTableElementVisitor visitor)
+    {
+        if (data.getTABLEDATA() != null)
+        {
+            for (Tr tr : data.getTABLEDATA().getTR())
+            {
+                ((VisitableVoTableRow) tr).accept(visitor);
+            }
+        }
+        else if (data.getBINARY() != null)
+        {
+            acceptBinaryData(data.getBINARY().getSTREAM(), BinaryVoTableDataReader.Serialisation.BINARY, 0, fields,
+                    visitor);
+        }
+        else if (data.getBINARY2() != null)
+        {
+            acceptBinaryData(data.getBINARY2().getSTREAM(), BinaryVoTableDataReader.Serialisation.BINARY2, 0,
+                    fields, visitor);
+        }
+        else if (data.getFITS() != null)
+        {
+            acceptBinaryData(data.getFITS().getSTREAM(), BinaryVoTableDataReader.Serialisation.FITS,
+                    data.getFITS().getExtnum() == null ? 1 : data.getFITS().getExtnum().intValue(), fields, visitor);
+        }
+    }
+
+    private void acceptBinaryData(Stream stream, BinaryVoTableDataReader.Serialisation serialisation, int extnum,
+            List<VisitableVoTableField> fields, VoTableElementVisitor visitor)
+    {
+        BinaryVoTableDataReader dataReader = new BinaryVoTableDataReader(fields, serialisation, extnum);
+        try
+        {
+            if (stream.getHref() == null)
+            {
+                byte[] content = stream.getValue() == null ? new byte[0]
+                        : stream.getValue().getBytes(StandardCharsets.ISO_8859_1);
+                dataReader.read(
+                        BinaryVoTableDataReader.decodeInlineStream(stream, new ByteArrayInputStream(content)),
+                        visitor);
+            }
+            else
+            {
+                try (InputStream inputStream = BinaryVoTableDataReader.openStreamHref(stream, null))
+                {
+                    dataReader.read(inputStream, visitor);
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException("Malformed " + serialisation + " data: " + e.getMessage(), e);
+        }
+    }
 }
@@ -0,0 +1,579 @@
+package au.csiro.casda.datadeposit.worker;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.Permission;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.lang3.CharEncoding;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Import;
+
+import au.csiro.casda.AppConfig;
+import au.csiro.casda.dataaccess.NgasBatchDownloader;
+import au.csiro.casda.dataaccess.NgasDownloader;
+import au.csiro.casda.datadeposit.ArgumentsDrivenCommandLineTool;
+import au.csiro.casda.datadeposit.CommandLineTool;
+import au.csiro.casda.datadeposit.XmlBindingRegistry;
+import au.csiro.casda.datadeposit.catalogue.CatalogueBatchCommandLineImporter;
+import au.csiro.casda.datadeposit.catalogue.CatalogueCommandLineImporter;
+import au.csiro.casda.datadeposit.copy.RegisterArtefactBatchCommandLineTool;
+import au.csiro.casda.datadeposit.copy.RegisterArtefactCommandLineTool;
+import au.csiro.casda.datadeposit.copy.StageArtefactCommandLineTool;
+import au.csiro.casda.datadeposit.encapsulation.EncapsulationCommandLineImporter;
+import au.csiro.casda.datadeposit.fits.FitsCommandLineImporter;
+import au.csiro.casda.datadeposit.level7.DataCopyCommand;
+import au.csiro.casda.datadeposit.observation.ObservationCommandLineImporter;
+import au.csiro.casda.datadeposit.rtcnotifier.Notifier;
+import au.csiro.casda.datadeposit.validationmetric.ValidationMetricCommandLineImporter;
+import au.csiro.casda.datadeposit.worker.DepositWorkerProtocol.Request;
+import au.csiro.casda.datadeposit.worker.DepositWorkerProtocol.Response;
+import au.csiro.casda.logging.CasdaEvent;
+import au.csiro.casda.logging.CasdaLogMessageBuilderFactory;
+import au.csiro.casda.logging.LogEvent;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * DepositWorker implements a Spring CommandLineRunner that keeps a single Spring context (and its database connection
+ * pool) alive and runs the data deposit command-line tools as jobs submitted by a {@link DepositWorkerClient} over a
+ * local socket. This avoids paying the Spring Boot start-up cost for every invocation of a tool.
+ * <p>
+ * Each job is run by a new instance of the requested tool, exactly as if it had been run from the command line. Calls
+ * to System.exit made by the tool are trapped and become the exit code returned to the client, and anything the tool
+ * writes to stdout and stderr is returned to the client too.
+ * <p>
+ * Up to -threads (or deposit.worker.threads) jobs are run at the same time, and any further jobs wait for one of them
+ * to finish. There is no time limit on a job. System.out, System.err and the SecurityManager are replaced once for the
+ * whole worker: output written by a job's threads (including any threads they start) goes to that job, and a call to
+ * System.exit is only trapped on a job's threads, so both behave as usual elsewhere in the worker.
+ * <p>
+ * Every job runs in the worker's own working directory. A job submitted from a different working directory is
+ * rejected if any of its arguments is a relative path (ie: contains a path separator, or names a file in the client's
+ * working directory), as the tool would otherwise read or write a different file to the one the caller meant.
+ * <p>
+ * Any local user can connect to the worker's port, so a job is only run if it carries the secret that the worker keeps
+ * in a file only its owner can read (deposit.worker.secret.file, created with a random secret if it does not exist).
+ * The worker will not start if anyone else has access to that file.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+@Import(AppConfig.class)
+public class DepositWorker extends
+        ArgumentsDrivenCommandLineTool<DepositWorkerCommandLineArgumentsParser.CommandLineArguments>
+{
+    /**
+     * The name of this tool.
+     */
+    public static final String TOOL_NAME = "deposit_worker";
+
+    private static final Logger logger = LoggerFactory.getLogger(DepositWorker.class);
+
+    private static final Map<String, Class<? extends CommandLineTool>> TOOLS;
+
+    /*
+     * The job being run by the current thread (or by the thread that started it), if any.
+     */
+    private static final InheritableThreadLocal<Job> CURRENT_JOB = new InheritableThreadLocal<>();
+
+    static
+    {
+        Map<String, Class<? extends CommandLineTool>> tools = new HashMap<>();
+        tools.put(NgasDownloader.TOOL_NAME, NgasDownloader.class);
+        tools.put(NgasBatchDownloader.TOOL_NAME, NgasBatchDownloader.class);
+        tools.put(ObservationCommandLineImporter.TOOL_NAME, ObservationCommandLineImporter.class);
+        tools.put(CatalogueCommandLineImporter.TOOL_NAME, CatalogueCommandLineImporter.class);
+        tools.put(CatalogueBatchCommandLineImporter.TOOL_NAME, CatalogueBatchCommandLineImporter.class);
+        tools.put(Notifier.TOOL_NAME, Notifier.class);
+        tools.put(FitsCommandLineImporter.TOOL_NAME, FitsCommandLineImporter.class);
+        tools.put(StageArtefactCommandLineTool.TOOL_NAME, StageArtefactCommandLineTool.class);
+        tools.put(RegisterArtefactCommandLineTool.TOOL_NAME, RegisterArtefactCommandLineTool.class);
+        tools.put(RegisterArtefactBatchCommandLineTool.TOOL_NAME, RegisterArtefactBatchCommandLineTool.class);
+        tools.put(EncapsulationCommandLineImporter.TOOL_NAME, EncapsulationCommandLineImporter.class);
+        tools.put(DataCopyCommand.TOOL_NAME, DataCopyCommand.class);
+        tools.put(ValidationMetricCommandLineImporter.TOOL_NAME, ValidationMetricCommandLineImporter.class);
+        TOOLS = Collections.unmodifiableMap(tools);
+    }
+
+    private DepositWorkerCommandLineArgumentsParser commandLineArgumentsParser =
+            new DepositWorkerCommandLineArgumentsParser();
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Value("${deposit.worker.port}")
+    private int defaultPort;
+
+    @Value("${deposit.worker.threads}")
+    private int defaultThreads;
+
+    @Value("${" + DepositWorkerProtocol.SECRET_FILE_PROPERTY + "}")
+    private String secretFile;
+
+    private String secret;
+
+    /**
+     * main method used to run this CommandLineTool
+     *
+     * @param args
+     *            the command-line arguments
+     */
+    public static void main(String[] args)
+    {
+        runCommandLineTool(DepositWorker.class, logger, args);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run(String... args)
+    {
+        parseCommandLineArguments(logger, args);
+
+        Integer port = getCommandLineArgumentsParser().getArgs().getPort();
+        if (port == null)
+        {
+            port = defaultPort;
+        }
+        Integer threads = getCommandLineArgumentsParser().getArgs().getThreads();
+        if (threads == null)
+        {
+            threads = defaultThreads;
+        }
+
+        try
+        {
+            loadSecret(Paths.get(secretFile));
+        }
+        catch (IOException e)
+        {
+            logger.error(CasdaLogMessageBuilderFactory.getCasdaMessageBuilder(LogEvent.UNKNOWN_EVENT)
+                    .add("Could not read the secret for jobs from " + secretFile).toString(), e);
+            System.exit(1);
+        }
+
+        // Compile the schemas now rather than in the first job that needs them
+        XmlBindingRegistry.prewarm();
+        installJobContext();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (ServerSocket serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress()))
+        {
+            logger.info("Accepting jobs on port {}, running up to {} at a time", serverSocket.getLocalPort(), threads);
+            while (true)
+            {
+                Socket socket = serverSocket.accept();
+                executor.execute(() -> {
+                    try (Socket jobSocket = socket)
+                    {
+                        serve(jobSocket);
+                    }
+                    catch (IOException e)
+                    {
+                        logger.warn("Could not complete a job request", e);
+                    }
+                });
+            }
+        }
+        catch (IOException e)
+        {
+            logger.error(CasdaLogMessageBuilderFactory.getCasdaMessageBuilder(LogEvent.UNKNOWN_EVENT)
+                    .add("Could not accept jobs on port " + port).toString(), e);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Reads (creating it if need be) the secret that clients must send with their jobs.
+     *
+     * @param secretFile
+     *            the file holding the secret
+     * @throws IOException
+     *             if the secret could not be read or created, or if anyone other than its owner has access to the file
+     */
+    void loadSecret(Path secretFile) throws IOException
+    {
+        secret = DepositWorkerProtocol.readOrCreateSecret(secretFile);
+    }
+
+    /**
+     * Reads a job request from the socket, runs it if it carries the worker's secret, and writes the response back.
+     *
+     * @param socket
+     *            a socket connected to a DepositWorkerClient
+     * @throws IOException
+     *             if the request could not be read or the response written
+     */
+    void serve(Socket socket) throws IOException
+    {
+        Request request = DepositWorkerProtocol
+                .readRequest(new DataInputStream(new BufferedInputStream(socket.getInputStream())));
+        Response response;
+        if (secret != null && MessageDigest.isEqual(secret.getBytes(StandardCharsets.UTF_8),
+                request.getSecret().getBytes(StandardCharsets.UTF_8)))
+        {
+            response = runJob(request);
+        }
+        else
+        {
+            logger.warn("Rejected a job for {} that did not have the worker's secret", request.getToolName());
+            String message = "Not authorised to run jobs on the " + TOOL_NAME + ": the secret sent does not match its "
+                    + DepositWorkerProtocol.SECRET_FILE_PROPERTY + "\n";
+            response = new Response(1, new byte[0], message.getBytes(StandardCharsets.UTF_8));
+        }
+        DepositWorkerProtocol.writeResponse(
+                new DataOutputStream(new BufferedOutputStream(socket.getOutputStream())), response);
+    }
+
+    /**
+     * Runs a job, capturing its exit code and output.
+     *
+     * @param request
+     *            the job to run
+     * @return the job's exit code and output
+     */
+    Response runJob(Request request)
+    {
+        installJobContext();
+        Job job = new Job();
+        CURRENT_JOB.set(job);
+
+        // Each run of a tool is logged with its own instance id, as it would be from the command line
+        MDC.put("instanceid", UUID.randomUUID().toString());
+        int exitCode;
+        try
+        {
+            exitCode = runTool(request, job);
+        }
+        finally
+        {
+            job.finish();
+            CURRENT_JOB.remove();
+        }
+        logger.debug("Job {} {} exited with {}", request.getToolName(), String.join(" ", request.getArgs()),
+                exitCode);
+        return new Response(exitCode, job.getStdout().toByteArray(), job.getStderr().toByteArray());
+    }
+
+    /**
+     * Replaces System.out, System.err and the SecurityManager (once for the whole JVM) with ones that direct output to,
+     * and trap System.exit for, the job being run by the current thread.
+     */
+    static synchronized void installJobContext()
+    {
+        if (!(System.getSecurityManager() instanceof ExitTrappingSecurityManager))
+        {
+            try
+            {
+                System.setOut(new PrintStream(new JobOutputStream(System.out, false), true, CharEncoding.UTF_8));
+                System.setErr(new PrintStream(new JobOutputStream(System.err, true), true, CharEncoding.UTF_8));
+            }
+            catch (UnsupportedEncodingException e)
+            {
+                throw new RuntimeException(e);
+            }
+            System.setSecurityManager(new ExitTrappingSecurityManager());
+        }
+    }
+
+    private static Job getCurrentJob()
+    {
+        Job job = CURRENT_JOB.get();
+        return job == null || job.isFinished() ? null : job;
+    }
+
+    /*
+     * Mirrors CommandLineTool.runCommandLineTool, returning the exit code rather than exiting.
+     */
+    private int runTool(Request request, Job job)
+    {
+        Class<? extends CommandLineTool> toolClass = getToolClass(request.getToolName());
+        if (toolClass == null)
+        {
+            System.err.println("Unknown tool '" + request.getToolName() + "'. Known tools are: "
+                    + String.join(", ", TOOLS.keySet()));
+            return 1;
+        }
+        String relativePath = getRelativePathArgument(request);
+        if (relativePath != null)
+        {
+            System.err.println("Argument '" + relativePath + "' is a relative path, but jobs are run in "
+                    + System.getProperty("user.dir") + " rather than in " + request.getWorkingDirectory()
+                    + ". Use an absolute path, or run the job from " + System.getProperty("user.dir") + ".");
+            return 1;
+        }
+        try
+        {
+            createTool(toolClass).run(request.getArgs());
+        }
+        catch (ExitTrappedException e)
+        {
+            // The tool called System.exit
+        }
+        catch (Exception ex)
+        {
+            if (job.getExitCode() == null)
+            {
+                logger.error(CasdaLogMessageBuilderFactory.getCasdaMessageBuilder(LogEvent.UNKNOWN_EVENT).toString(),
+                        ex);
+                return 1;
+            }
+        }
+        catch (Error er)
+        {
+            er.printStackTrace();
+            System.out.println("Application exited unexpectedly.");
+            return 1;
+        }
+        // The first call to System.exit wins, even if the tool caught the resulting exception
+        return job.getExitCode() == null ? 0 : job.getExitCode();
+    }
+
+    /**
+     * Returns the first argument of the job that would be resolved against a different directory by the worker than by
+     * the client, ie: a relative path given from a client working directory other than the worker's. Option names
+     * (eg: -infile) are not paths, and an argument is taken to be a relative path if it contains a path separator or
+     * names a file in the client's working directory.
+     *
+     * @param request
+     *            the job
+     * @return the argument, or null if the job may safely be run in the worker's working directory
+     */
+    static String getRelativePathArgument(Request request)
+    {
+        File clientDirectory = new File(request.getWorkingDirectory()).getAbsoluteFile();
+        File workerDirectory = new File(System.getProperty("user.dir")).getAbsoluteFile();
+        if (clientDirectory.toPath().normalize().equals(workerDirectory.toPath().normalize()))
+        {
+            return null;
+        }
+        for (String arg : request.getArgs())
+        {
+            if (arg.isEmpty() || arg.startsWith("-") || new File(arg).isAbsolute())
+            {
+                continue;
+            }
+            if (arg.contains(File.separator) || new File(clientDirectory, arg).exists())
+            {
+                return arg;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the class of the tool with the given name. (This method exists primarily to facilitate testing.)
+     *
+     * @param toolName
+     *            the name of the tool, as used for its start script
+     * @return the tool's class, or null if there is no tool with that name
+     */
+    protected Class<? extends CommandLineTool> getToolClass(String toolName)
+    {
+        return TOOLS.get(toolName);
+    }
+
+    /**
+     * Factory method that creates a new, fully autowired instance of a tool. (This method exists primarily to
+     * facilitate testing.)
+     *
+     * @param toolClass
+     *            the class of the tool
+     * @return the tool
+     */
+    protected CommandLineTool createTool(Class<? extends CommandLineTool> toolClass)
+    {
+        return context.getAutowireCapableBeanFactory().createBean(toolClass);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DepositWorkerCommandLineArgumentsParser getCommandLineArgumentsParser()
+    {
+        return commandLineArgumentsParser;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected CasdaEvent getMalformedParametersEvent()
+    {
+        return LogEvent.UNKNOWN_EVENT;
+    }
+
+    /**
+     * Thrown in place of exiting the JVM when a tool calls System.exit.
+     */
+    private static class ExitTrappedException extends SecurityException
+    {
+        private static final long serialVersionUID = 1L;
+
+        ExitTrappedException(int status)
+        {
+            super("System.exit(" + status + ") trapped by " + TOOL_NAME);
+        }
+    }
+
+    /**
+     * The output and exit code of a job. Threads started by the job's thread inherit the job, so their output is part
+     * of the job's too.
+     */
+    private static class Job
+    {
+        private final ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+
+        private final ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+
+        private Integer exitCode;
+
+        private volatile boolean finished;
+
+        ByteArrayOutputStream getStdout()
+        {
+            return stdout;
+        }
+
+        ByteArrayOutputStream getStderr()
+        {
+            return stderr;
+        }
+
+        synchronized void recordExit(int status)
+        {
+            if (exitCode == null)
+            {
+                exitCode = status;
+            }
+        }
+
+        synchronized Integer getExitCode()
+        {
+            return exitCode;
+        }
+
+        /*
+         * Threads that outlive the job (eg: in a pool created by the job) no longer write to it or have exits trapped.
+         */
+        void finish()
+        {
+            finished = true;
+        }
+
+        boolean isFinished()
+        {
+            return finished;
+        }
+    }
+
+    /**
+     * Writes to the stdout or stderr of the current thread's job, or to the original stream if the thread is not
+     * running a job.
+     */
+    private static class JobOutputStream extends OutputStream
+    {
+        private final OutputStream original;
+
+        private final boolean stderr;
+
+        JobOutputStream(OutputStream original, boolean stderr)
+        {
+            this.original = original;
+            this.stderr = stderr;
+        }
+
+        private OutputStream getTarget()
+        {
+            Job job = getCurrentJob();
+            if (job == null)
+            {
+                return original;
+            }
+            return stderr ? job.getStderr() : job.getStdout();
+        }
+
+        @Override
+        public void write(int b) throws IOException
+        {
+            getTarget().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            getTarget().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException
+        {
+            getTarget().flush();
+        }
+    }
+
+    /**
+     * A SecurityManager that permits everything except a job exiting the JVM, recording the status of the job's first
+     * attempt to do so.
+     */
+    private static class ExitTrappingSecurityManager extends SecurityManager
+    {
+        @Override
+        public void checkPermission(Permission perm)
+        {
+        }
+
+        @Override
+        public void checkPermission(Permission perm, Object context)
+        {
+        }
+
+        @Override
+        public void checkExit(int status)
+        {
+            Job job = getCurrentJob();
+            if (job != null)
+            {
+                job.recordExit(status);
+                throw new ExitTrappedException(status);
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package au.csiro.casda.datadeposit.worker;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import au.csiro.casda.datadeposit.worker.DepositWorkerProtocol.Request;
+import au.csiro.casda.datadeposit.worker.DepositWorkerProtocol.Response;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * Submits a job to a {@link DepositWorker} running on the local host and waits for it to complete. The job's output is
+ * written to stdout and stderr and the client exits with the job's exit code, so the client can be used in place of
+ * the tool's own start script. The client deliberately does not start Spring.
+ * <p>
+ * The job runs in the worker's working directory, so relative paths in the tool's arguments are only accepted when
+ * the client is run from that same directory.
+ * <p>
+ * The client authenticates itself with the secret that the worker keeps in a file only readable by the user running
+ * the worker (see {@link DepositWorkerProtocol#SECRET_FILE_PROPERTY}), so it must be run as that user.
+ * <p>
+ * Usage: deposit_worker_client &lt;port&gt; &lt;tool_name&gt; [&lt;tool arguments&gt;...]
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+public final class DepositWorkerClient
+{
+    /**
+     * The name of this tool.
+     */
+    public static final String TOOL_NAME = "deposit_worker_client";
+
+    private DepositWorkerClient()
+    {
+    }
+
+    /**
+     * main method used to run this client
+     *
+     * @param args
+     *            the worker's port, the name of the tool to run and then the tool's arguments
+     */
+    public static void main(String[] args)
+    {
+        System.exit(submit(args, System.out, System.err));
+    }
+
+    /**
+     * Submits a job to the worker.
+     *
+     * @param args
+     *            the worker's port, the name of the tool to run and then the tool's arguments
+     * @param out
+     *            where to write the job's stdout
+     * @param err
+     *            where to write the job's stderr
+     * @return the job's exit code
+     */
+    static int submit(String[] args, PrintStream out, PrintStream err)
+    {
+        if (args.length < 2 || !args[0].matches("\\d+"))
+        {
+            err.println("Usage: " + TOOL_NAME + " <port> <tool_name> [<tool arguments>...]");
+            return 1;
+        }
+        int port = Integer.parseInt(args[0]);
+        Path secretFile = DepositWorkerProtocol.getSecretFile();
+        String secret;
+        try
+        {
+            secret = DepositWorkerProtocol.readSecret(secretFile);
+        }
+        catch (IOException e)
+        {
+            err.println("Could not read the deposit worker's secret from " + secretFile + ": " + e.getMessage());
+            return 1;
+        }
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port))
+        {
+            DepositWorkerProtocol.writeRequest(
+                    new DataOutputStream(new BufferedOutputStream(socket.getOutputStream())),
+                    new Request(secret, System.getProperty("user.dir"), args[1],
+                            Arrays.copyOfRange(args, 2, args.length)));
+            Response response = DepositWorkerProtocol
+                    .readResponse(new DataInputStream(new BufferedInputStream(socket.getInputStream())));
+            out.write(response.getStdout());
+            out.flush();
+            err.write(response.getStderr());
+            err.flush();
+            return response.getExitCode();
+        }
+        catch (IOException e)
+        {
+            err.println("Could not run " + args[1] + " on the deposit worker on port " + port + ": " + e.getMessage());
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package au.csiro.casda.datadeposit.worker;
+
+import au.csiro.casda.datadeposit.AbstractCommandLineArgumentsParser;
+import au.csiro.casda.datadeposit.CommonCommandLineArguments;
+import au.csiro.casda.logging.CasdaMessageBuilder;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.ParameterException;
+import com.beust.jcommander.Parameters;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * Helper class to support command line parameter parsing for DepositWorker.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+public class DepositWorkerCommandLineArgumentsParser extends
+        AbstractCommandLineArgumentsParser<DepositWorkerCommandLineArgumentsParser.CommandLineArguments>
+{
+    /**
+     * Describes and holds argument values
+     * <p>
+     *
+     * @see JCommander <p>
+     *      Copyright 2016, CSIRO Australia All rights reserved.
+     */
+    @Parameters(commandDescription = "Run the data deposit tools as jobs submitted to a resident worker")
+    public static class CommandLineArguments extends CommonCommandLineArguments
+    {
+        @Parameter(names = "-port", description = "the local port to accept jobs on "
+                + "(defaults to the deposit.worker.port property)", required = false)
+        private String port;
+
+        @Parameter(names = "-threads", description = "the number of jobs to run at the same time "
+                + "(defaults to the deposit.worker.threads property)", required = false)
+        private String threads;
+
+        /**
+         * @return the port argument (if supplied)
+         */
+        public Integer getPort()
+        {
+            return port == null ? null : Integer.parseInt(port);
+        }
+
+        /**
+         * @return the threads argument (if supplied)
+         */
+        public Integer getThreads()
+        {
+            return threads == null ? null : Integer.parseInt(threads);
+        }
+
+        private String getRawPort()
+        {
+            return port;
+        }
+    }
+
+    /**
+     * Constructs a DepositWorkerCommandLineArgumentsParser
+     */
+    public DepositWorkerCommandLineArgumentsParser()
+    {
+        super(DepositWorker.TOOL_NAME, new CommandLineArguments());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void validate() throws ParameterException
+    {
+        try
+        {
+            getArgs().getPort();
+        }
+        catch (NumberFormatException e)
+        {
+            throw new ParameterException("Parameter port must be an integer");
+        }
+        Integer threads;
+        try
+        {
+            threads = getArgs().getThreads();
+        }
+        catch (NumberFormatException e)
+        {
+            throw new ParameterException("Parameter threads must be an integer");
+        }
+        if (threads != null && threads < 1)
+        {
+            throw new ParameterException("Parameter threads must be at least 1");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addArgumentValuesToMalformedParametersEvent(CasdaMessageBuilder<?> builder)
+    {
+        builder.add(this.getArgs().getRawPort() == null ? "NOT-SPECIFIED" : this.getArgs().getRawPort());
+    }
+}
@@ -0,0 +1,274 @@
+package au.csiro.casda.datadeposit.worker;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Set;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * The wire format used between a DepositWorkerClient and a DepositWorker. A request is the shared secret, the client's
+ * working directory and the name of a tool followed by its command-line arguments, and a response is the exit code of
+ * the tool followed by anything it wrote to stdout and stderr. Strings and byte arrays are written length-prefixed so
+ * that arguments may contain any characters.
+ * <p>
+ * The secret is read from a file that only its owner may read (see {@link #SECRET_FILE_PROPERTY}), so only the user
+ * that runs the worker can submit jobs to it, even though any local user can connect to its port.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+final class DepositWorkerProtocol
+{
+    /**
+     * The system property (and, for the worker, application property) holding the path of the file that contains the
+     * secret shared by the worker and its clients. Defaults to {@link #DEFAULT_SECRET_FILE} in the user's home
+     * directory.
+     */
+    static final String SECRET_FILE_PROPERTY = "deposit.worker.secret.file";
+
+    /**
+     * The location of the secret file, relative to the user's home directory, if none is configured.
+     */
+    static final String DEFAULT_SECRET_FILE = ".casda/deposit_worker.secret";
+
+    private static final String OWNER_ONLY_FILE_PERMISSIONS = "rw-------";
+
+    private static final String OWNER_ONLY_DIRECTORY_PERMISSIONS = "rwx------";
+
+    private static final int SECRET_LENGTH = 32;
+
+    private DepositWorkerProtocol()
+    {
+    }
+
+    /**
+     * A request to run a tool
+     */
+    static class Request
+    {
+        private final String secret;
+
+        private final String workingDirectory;
+
+        private final String toolName;
+
+        private final String[] args;
+
+        Request(String secret, String workingDirectory, String toolName, String... args)
+        {
+            this.secret = secret;
+            this.workingDirectory = workingDirectory;
+            this.toolName = toolName;
+            this.args = args;
+        }
+
+        String getSecret()
+        {
+            return secret;
+        }
+
+        String getWorkingDirectory()
+        {
+            return workingDirectory;
+        }
+
+        String getToolName()
+        {
+            return toolName;
+        }
+
+        String[] getArgs()
+        {
+            return args;
+        }
+    }
+
+    /**
+     * The result of running a tool
+     */
+    static class Response
+    {
+        private final int exitCode;
+
+        private final byte[] stdout;
+
+        private final byte[] stderr;
+
+        Response(int exitCode, byte[] stdout, byte[] stderr)
+        {
+            this.exitCode = exitCode;
+            this.stdout = stdout;
+            this.stderr = stderr;
+        }
+
+        int getExitCode()
+        {
+            return exitCode;
+        }
+
+        byte[] getStdout()
+        {
+            return stdout;
+        }
+
+        byte[] getStderr()
+        {
+            return stderr;
+        }
+    }
+
+    static void writeRequest(DataOutputStream out, Request request) throws IOException
+    {
+        writeString(out, request.getSecret());
+        writeString(out, request.getWorkingDirectory());
+        writeString(out, request.getToolName());
+        out.writeInt(request.getArgs().length);
+        for (String arg : request.getArgs())
+        {
+            writeString(out, arg);
+        }
+        out.flush();
+    }
+
+    static Request readRequest(DataInputStream in) throws IOException
+    {
+        String secret = readString(in);
+        String workingDirectory = readString(in);
+        String toolName = readString(in);
+        String[] args = new String[in.readInt()];
+        for (int i = 0; i < args.length; i++)
+        {
+            args[i] = readString(in);
+        }
+        return new Request(secret, workingDirectory, toolName, args);
+    }
+
+    static void writeResponse(DataOutputStream out, Response response) throws IOException
+    {
+        out.writeInt(response.getExitCode());
+        writeBytes(out, response.getStdout());
+        writeBytes(out, response.getStderr());
+        out.flush();
+    }
+
+    static Response readResponse(DataInputStream in) throws IOException
+    {
+        int exitCode = in.readInt();
+        return new Response(exitCode, readBytes(in), readBytes(in));
+    }
+
+    /**
+     * Returns the configured secret file, ie: the value of the {@link #SECRET_FILE_PROPERTY} system property, or
+     * {@link #DEFAULT_SECRET_FILE} in the user's home directory.
+     *
+     * @return the path of the secret file
+     */
+    static Path getSecretFile()
+    {
+        String secretFile = System.getProperty(SECRET_FILE_PROPERTY);
+        return secretFile == null ? Paths.get(System.getProperty("user.home"), DEFAULT_SECRET_FILE)
+                : Paths.get(secretFile);
+    }
+
+    /**
+     * Reads the secret from the given file.
+     *
+     * @param secretFile
+     *            the secret file
+     * @return the secret
+     * @throws IOException
+     *             if the file could not be read, or is empty
+     */
+    static String readSecret(Path secretFile) throws IOException
+    {
+        String secret = new String(Files.readAllBytes(secretFile), StandardCharsets.UTF_8).trim();
+        if (secret.isEmpty())
+        {
+            throw new IOException(secretFile + " is empty");
+        }
+        return secret;
+    }
+
+    /**
+     * Reads the secret from the given file, first creating the file (readable only by its owner) with a new random
+     * secret if it does not exist.
+     *
+     * @param secretFile
+     *            the secret file
+     * @return the secret
+     * @throws IOException
+     *             if the file could not be created or read, or if anyone other than its owner has access to it
+     */
+    static String readOrCreateSecret(Path secretFile) throws IOException
+    {
+        if (Files.notExists(secretFile))
+        {
+            Files.createDirectories(secretFile.toAbsolutePath().getParent(), PosixFilePermissions
+                    .asFileAttribute(PosixFilePermissions.fromString(OWNER_ONLY_DIRECTORY_PERMISSIONS)));
+            byte[] secret = new byte[SECRET_LENGTH];
+            new SecureRandom().nextBytes(secret);
+            try
+            {
+                Files.write(
+                        Files.createFile(secretFile,
+                                PosixFilePermissions.asFileAttribute(
+                                        PosixFilePermissions.fromString(OWNER_ONLY_FILE_PERMISSIONS))),
+                        Base64.getEncoder().encode(secret));
+            }
+            catch (FileAlreadyExistsException e)
+            {
+                // Created by another worker in the meantime, so use its secret
+            }
+        }
+        Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(secretFile);
+        if (!PosixFilePermissions.fromString(OWNER_ONLY_FILE_PERMISSIONS).containsAll(permissions))
+        {
+            throw new IOException(secretFile + " must only be accessible by its owner (ie: chmod 600) but is "
+                    + PosixFilePermissions.toString(permissions));
+        }
+        return readSecret(secretFile);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException
+    {
+        writeBytes(out, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String readString(DataInputStream in) throws IOException
+    {
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] value) throws IOException
+    {
+        out.writeInt(value.length);
+        out.write(value);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException
+    {
+        byte[] value = new byte[in.readInt()];
+        in.readFully(value);
+        return value;
+    }
+}
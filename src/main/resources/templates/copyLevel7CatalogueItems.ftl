@@ -0,0 +1,13 @@
+<#ftl encoding="UTF-8" strip_whitespace=true >
+<#import "level7Common.ftl" as common>
+<#-- View model is: -->
+<#--   catalogueId -->
+<#--   columns -->
+<#--   rows (each an array of values in column order) -->
+<#list rows as values>
+${catalogueId?c},<#t>
+<#list columns as column>
+    <@common.formatColumnValueAsCopyValue column=column value=values[column_index] /><#if column_has_next>,</#if><#t>
+</#list>
+${'\n'}<#t>
+</#list>
@@ -0,0 +1,16 @@
+<#ftl encoding="UTF-8" strip_whitespace=true >
+<#-- View model is: -->
+<#--   schema -->
+<#--   level7CatalogueName -->
+<#--   columns -->
+<#assign fullTableName=schema+"."+level7CatalogueName>
+-- Index creation script for ${level7CatalogueName}, run after the catalogue entries have been loaded
+
+CREATE INDEX ON ${fullTableName}(catalogue_id); 
+<#list columns as column>
+    <#if column.indexed>
+CREATE INDEX ON ${fullTableName}(${column.db_column_name}); 
+    </#if>
+</#list>
+
+ANALYZE ${fullTableName};
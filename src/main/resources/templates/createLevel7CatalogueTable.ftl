@@ -25,13 +25,7 @@ CREATE table ${fullTableName} (
 </#list>
 );
 <#-- May need to set a table space here -->
-
-CREATE INDEX ON ${fullTableName}(catalogue_id); 
-<#list columns as column>
-    <#if column.indexed>
-CREATE INDEX ON ${fullTableName}(${column.db_column_name}); 
-    </#if>
-</#list>
+<#-- The indexes are built by createLevel7CatalogueIndexes.ftl once the entries have been loaded -->
 
 COMMENT ON TABLE ${fullTableName} is '${level7CatalogueTableDescription!"ASKAP Level 7 catalogue"}';
 COMMENT ON COLUMN ${fullTableName}.id is 'Primary key'; 
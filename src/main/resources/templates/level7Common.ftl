@@ -100,32 +100,20 @@
 </#compress>
 </#macro>
 
-<#macro formatColumnValueAsSqlValue column value=''>
-<#compress>
+<#-- Formats a value as a field of a COPY ... FROM STDIN WITH (FORMAT csv) row. An empty (unquoted) field is NULL. -->
+<#macro formatColumnValueAsCopyValue column value=''>
     <#if value=''>
-        NULL
         <#return>
     </#if>
     <#switch column.datatype>
-    <#case "CHAR">
-    <#case "UNICODECHAR">
-        '${value}'
-        <#break>
     <#case "BOOLEAN">
 		<#if value='0' || value?lower_case?starts_with('f')>
-		'f'
+		f<#t>
 		<#elseif value='1' || value?lower_case?starts_with('t')>
-		't'
-		<#else>
-		NULL
+		t<#t>
 		</#if>
         <#break>
-    <#case "BIT">
-        B'${value}'
-        <#break>
     <#default>
-        ${value}
+        "${value?replace('"', '""')}"<#t>
     </#switch>
-</#compress>
 </#macro>
-
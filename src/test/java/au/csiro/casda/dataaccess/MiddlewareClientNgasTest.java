@@ -0,0 +1,381 @@
+package au.csiro.casda.dataaccess;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import au.csiro.casda.datadeposit.service.StreamingChecksum;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests retrieving files with the MiddlewareClientNgas from a local stand-in for the NGAS server.
+ *
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+public class MiddlewareClientNgasTest
+{
+    private static final String FILENAME = "observations-12345-image_cubes-image1.fits";
+
+    private static final int RANGE_SIZE = 100000;
+
+    private static final Pattern RANGE_PATTERN = Pattern.compile("bytes=(\\d+)-(\\d+)");
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private HttpServer server;
+
+    private byte[] content;
+
+    private boolean supportsRanges;
+
+    private Long failingRangeStart;
+
+    private Long truncatedRangeStart;
+
+    private List<String> requestedRanges;
+
+    private File destination;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        content = new byte[1000000 + 123];
+        new Random(42).nextBytes(content);
+        supportsRanges = true;
+        failingRangeStart = null;
+        truncatedRangeStart = null;
+        requestedRanges = Collections.synchronizedList(new ArrayList<>());
+        destination = new File(tempFolder.getRoot(), "ngasfile");
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/RETRIEVE", this::handleRetrieve);
+        server.start();
+    }
+
+    @After
+    public void tearDown()
+    {
+        server.stop(0);
+    }
+
+    @Test
+    public void testRetrieveInRanges() throws Exception
+    {
+        File file = createClient(3).retrieve("file1", new Retriever(destination));
+
+        assertEquals(new File(tempFolder.getRoot(), FILENAME), file);
+        assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+        assertFalse(progressFile(file).exists());
+        assertThat(requestedRanges,
+                containsInAnyOrder("0-99999", "100000-199999", "200000-299999", "300000-399999", "400000-499999",
+                        "500000-599999", "600000-699999", "700000-799999", "800000-899999", "900000-999999",
+                        "1000000-1000122"));
+    }
+
+    @Test
+    public void testRetrieveOverwritesLongerFile() throws Exception
+    {
+        File outputFile = new File(tempFolder.getRoot(), FILENAME);
+        Files.write(outputFile.toPath(), new byte[content.length * 2]);
+
+        File file = createClient(3).retrieve("file1", new Retriever(destination));
+
+        assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+    }
+
+    @Test
+    public void testRetrieveFromServerIgnoringRanges() throws Exception
+    {
+        supportsRanges = false;
+
+        File file = createClient(3).retrieve("file1", new Retriever(destination));
+
+        assertEquals(new File(tempFolder.getRoot(), FILENAME), file);
+        assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+        assertThat(requestedRanges, contains("none"));
+    }
+
+    @Test
+    public void testRetrieveEmptyFile() throws Exception
+    {
+        content = new byte[0];
+
+        File file = createClient(3).retrieve("file1", new Retriever(destination));
+
+        assertEquals(0, file.length());
+        assertThat(requestedRanges, contains("0-99999", "none"));
+    }
+
+    @Test
+    public void testRetrieveWithHandlerNeedingStream() throws Exception
+    {
+        ByteArrayOutputStream retrieved = new ByteArrayOutputStream();
+
+        createClient(3).retrieve("file1", (inputStream, filename) -> {
+            try
+            {
+                IOUtils.copy(inputStream, retrieved);
+            }
+            catch (IOException e)
+            {
+                throw new MiddlewareClientException(e);
+            }
+            return null;
+        });
+
+        assertArrayEquals(content, retrieved.toByteArray());
+        assertThat(requestedRanges, contains("0-99999", "none"));
+    }
+
+    @Test
+    public void testRetrieveResumesDroppedRange() throws Exception
+    {
+        truncatedRangeStart = 200000L;
+
+        File file = createClient(3).retrieve("file1", new Retriever(destination));
+
+        assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+        assertThat(requestedRanges, hasItem("250000-299999"));
+    }
+
+    @Test
+    public void testRetrieveFailedRangeThenResume() throws Exception
+    {
+        failingRangeStart = 500000L;
+        File outputFile = new File(tempFolder.getRoot(), FILENAME);
+        MiddlewareClientNgas client = createClient(1);
+        try
+        {
+            client.retrieve("file1", new Retriever(destination));
+            fail("Expected a MiddlewareClientException");
+        }
+        catch (MiddlewareClientException e)
+        {
+            assertThat(e.getCause() instanceof IOException, is(true));
+        }
+        assertTrue(progressFile(outputFile).exists());
+        assertThat(requestedRanges, contains("0-99999", "100000-199999", "200000-299999", "300000-399999",
+                "400000-499999", "500000-599999", "500000-599999", "500000-599999"));
+
+        failingRangeStart = null;
+        requestedRanges.clear();
+
+        File file = client.retrieve("file1", new Retriever(destination));
+
+        assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+        assertFalse(progressFile(file).exists());
+        assertThat(requestedRanges, contains("0-99999", "500000-599999", "600000-699999", "700000-799999",
+                "800000-899999", "900000-999999", "1000000-1000122"));
+    }
+
+    @Test
+    public void testRetrieveIgnoresProgressOfDifferentFile() throws Exception
+    {
+        failingRangeStart = 500000L;
+        MiddlewareClientNgas client = createClient(1);
+        try
+        {
+            client.retrieve("file1", new Retriever(destination));
+            fail("Expected a MiddlewareClientException");
+        }
+        catch (MiddlewareClientException e)
+        {
+            // expected
+        }
+
+        failingRangeStart = null;
+        requestedRanges.clear();
+        content = new byte[content.length + 1];
+        new Random(7).nextBytes(content);
+
+        File file = client.retrieve("file1", new Retriever(destination));
+
+        assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+        assertEquals(11, requestedRanges.size());
+    }
+
+    @Test
+    public void testRetrieveInRangesVerifiesChecksum() throws Exception
+    {
+        File file = createClient(3).retrieve("file1", new Retriever(destination, checksum(content)));
+
+        assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+    }
+
+    @Test
+    public void testRetrieveInRangesChecksumMismatch() throws Exception
+    {
+        String otherChecksum = checksum(new byte[] { 1, 2, 3 });
+        File outputFile = new File(tempFolder.getRoot(), FILENAME);
+        try
+        {
+            createClient(3).retrieve("file1", new Retriever(destination, otherChecksum));
+            fail("Expected a MiddlewareClientException");
+        }
+        catch (MiddlewareClientException e)
+        {
+            assertThat(e.getMessage(), containsString(otherChecksum));
+            assertThat(e.getMessage(), containsString(checksum(content)));
+        }
+        assertFalse(outputFile.exists());
+        assertFalse(progressFile(outputFile).exists());
+    }
+
+    @Test
+    public void testRetrieveFromServerIgnoringRangesVerifiesChecksum() throws Exception
+    {
+        supportsRanges = false;
+        File outputFile = new File(tempFolder.getRoot(), FILENAME);
+
+        File file = createClient(3).retrieve("file1", new Retriever(destination, checksum(content)));
+        assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+
+        try
+        {
+            createClient(3).retrieve("file1", new Retriever(destination, checksum(new byte[0])));
+            fail("Expected a MiddlewareClientException");
+        }
+        catch (MiddlewareClientException e)
+        {
+            assertThat(e.getMessage(), containsString(checksum(content)));
+        }
+        assertFalse(outputFile.exists());
+    }
+
+    @Test
+    public void testRetrieveResumeVerifiesChecksum() throws Exception
+    {
+        failingRangeStart = 500000L;
+        MiddlewareClientNgas client = createClient(3);
+        try
+        {
+            client.retrieve("file1", new Retriever(destination, checksum(content)));
+            fail("Expected a MiddlewareClientException");
+        }
+        catch (MiddlewareClientException e)
+        {
+            // expected
+        }
+
+        failingRangeStart = null;
+
+        File file = client.retrieve("file1", new Retriever(destination, checksum(content)));
+
+        assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+    }
+
+    private static String checksum(byte[] bytes)
+    {
+        StreamingChecksum checksum = new StreamingChecksum();
+        checksum.update(ByteBuffer.wrap(bytes));
+        return checksum.getChecksum();
+    }
+
+    private MiddlewareClientNgas createClient(int connections) throws Exception
+    {
+        return new MiddlewareClientNgas("http://localhost:" + server.getAddress().getPort(), connections, RANGE_SIZE,
+                connections, connections);
+    }
+
+    private static File progressFile(File file)
+    {
+        return new File(file.getPath() + RangedRetriever.PROGRESS_FILE_SUFFIX);
+    }
+
+    private void handleRetrieve(HttpExchange exchange) throws IOException
+    {
+        exchange.getResponseHeaders().add("Content-Disposition", "attachment; filename=\"" + FILENAME + "\"");
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        Matcher matcher = range == null ? null : RANGE_PATTERN.matcher(range);
+        if (!supportsRanges || matcher == null || !matcher.matches())
+        {
+            requestedRanges.add("none");
+            send(exchange, 200, 0, content.length, content.length);
+            return;
+        }
+        long start = Long.parseLong(matcher.group(1));
+        long end = Math.min(Long.parseLong(matcher.group(2)), content.length - 1);
+        requestedRanges.add(matcher.group(1) + "-" + matcher.group(2));
+        if (start >= content.length)
+        {
+            exchange.getResponseHeaders().add("Content-Range", "bytes */" + content.length);
+            send(exchange, 416, 0, 0, 0);
+        }
+        else if (failingRangeStart != null && start == failingRangeStart)
+        {
+            send(exchange, 503, 0, 0, 0);
+        }
+        else
+        {
+            exchange.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + end + "/" + content.length);
+            long length = end - start + 1;
+            if (truncatedRangeStart != null && start == truncatedRangeStart)
+            {
+                truncatedRangeStart = null;
+                send(exchange, 206, start, length, length / 2);
+            }
+            else
+            {
+                send(exchange, 206, start, length, length);
+            }
+        }
+    }
+
+    private void send(HttpExchange exchange, int status, long start, long length, long sentLength) throws IOException
+    {
+        exchange.sendResponseHeaders(status, length == 0 ? -1 : length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(content, (int) start, (int) sentLength);
+        out.flush();
+        if (sentLength < length)
+        {
+            // The server drops the connection if the handler fails
+            throw new IOException("Dropping the connection after " + sentLength + " bytes");
+        }
+        exchange.close();
+    }
+}
@@ -0,0 +1,132 @@
+package au.csiro.casda.dataaccess;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * Tests for NgasBatchDownloader and the NgasDownloadJobs it runs.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+public class NgasBatchDownloaderTest
+{
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    private NgasDownloader downloader;
+
+    @Before
+    public void setUp()
+    {
+        downloader = mock(NgasDownloader.class);
+    }
+
+    @Test
+    public void testParseJob()
+    {
+        NgasDownloadJob job = NgasDownloadJob.parse("  observations-12345-image_cubes-image1.fits\t/data/image1.fits ");
+
+        assertThat(job.getFileId(), is("observations-12345-image_cubes-image1.fits"));
+        assertThat(job.getDestination(), is("/data/image1.fits"));
+        assertThat(job.toString(), is("observations-12345-image_cubes-image1.fits /data/image1.fits"));
+    }
+
+    @Test
+    public void testParseJobWithoutDestination()
+    {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("expected 'file-id destination' but was 'observations-12345-image_cubes-image1.fits'");
+
+        NgasDownloadJob.parse("observations-12345-image_cubes-image1.fits");
+    }
+
+    @Test
+    public void testFailedDownloadIsRetried() throws Exception
+    {
+        NgasDownloadJob file1 = createJob("file1");
+        when(downloader.downloadFileAndCreateChecksumFromNgas(anyString(), anyString(), anyBoolean())).thenReturn(
+                false, false).thenAnswer((invocation) -> download(invocation.getArguments()[1]));
+
+        int failures = createBatchDownloader(3).downloadFiles(Arrays.asList(file1), 4, false);
+
+        assertThat(failures, is(0));
+        verify(downloader, times(3)).downloadFileAndCreateChecksumFromNgas("file1", file1.getDestination(), false);
+    }
+
+    @Test
+    public void testFailedFilesDoNotStopTheOthers() throws Exception
+    {
+        NgasDownloadJob file1 = createJob("file1");
+        NgasDownloadJob file2 = createJob("file2");
+        NgasDownloadJob file3 = createJob("file3");
+        when(downloader.downloadFileAndCreateChecksumFromNgas(anyString(), anyString(), anyBoolean())).thenAnswer(
+                (invocation) -> download(invocation.getArguments()[1]));
+        doReturn(false).when(downloader).downloadFileAndCreateChecksumFromNgas(eq("file1"), anyString(),
+                anyBoolean());
+        doThrow(new IllegalStateException("unexpected")).when(downloader).downloadFileAndCreateChecksumFromNgas(
+                eq("file3"), anyString(), anyBoolean());
+
+        int failures = createBatchDownloader(2).downloadFiles(Arrays.asList(file1, file2, file3), 1, false);
+
+        assertThat(failures, is(2));
+        verify(downloader, times(2)).downloadFileAndCreateChecksumFromNgas("file1", file1.getDestination(), false);
+        verify(downloader).downloadFileAndCreateChecksumFromNgas("file2", file2.getDestination(), false);
+    }
+
+    @Test
+    public void testNoFiles() throws Exception
+    {
+        assertThat(createBatchDownloader(3).downloadFiles(Collections.emptyList(), 4, false), is(0));
+    }
+
+    private NgasBatchDownloader createBatchDownloader(int attempts)
+    {
+        return new NgasBatchDownloader(downloader, 4, attempts, 1);
+    }
+
+    private NgasDownloadJob createJob(String fileId)
+    {
+        return new NgasDownloadJob(fileId, new File(tempFolder.getRoot(), fileId).getPath());
+    }
+
+    private static boolean download(Object destination) throws Exception
+    {
+        Files.write(new File((String) destination).toPath(), new byte[100]);
+        return true;
+    }
+}
@@ -22,6 +22,8 @@ import static org.mockito.Mockito.when;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -46,6 +48,7 @@ import au.csiro.casda.datadeposit.AbstractArgumentsDrivenCommandLineToolTest;
 import au.csiro.casda.datadeposit.ArgumentsDrivenCommandLineTool;
 import au.csiro.casda.datadeposit.DataDepositMessageBuilder;
 import au.csiro.casda.datadeposit.service.NgasService;
+import au.csiro.casda.datadeposit.service.StreamingChecksum;
 import au.csiro.casda.datadeposit.service.NgasService.ServiceCallException;
 import au.csiro.casda.datadeposit.service.NgasService.Status;
 import au.csiro.casda.logging.CasdaLogMessageBuilderFactory;
@@ -209,7 +212,7 @@ public class NgasDownloaderTest extends AbstractArgumentsDrivenCommandLineToolTe
         String name = new File(tempFolder.getRoot(), fileId).getCanonicalPath();
 
         doThrow(new MiddlewareClientException("problem")).when(downloader).downloadFileFromNgas(anyString(),
-                anyString());
+                anyString(), anyString());
 
         downloader.run("-fileId", fileId, "-name", name);
     }
@@ -224,10 +227,7 @@ public class NgasDownloaderTest extends AbstractArgumentsDrivenCommandLineToolTe
         String fileId = "destination.dat";
         String name = new File(tempFolder.getRoot(), fileId).getCanonicalPath();
 
-        doNothing().when(downloader).downloadFileFromNgas(anyString(), anyString());
-
-        doThrow(new NgasService.ServiceCallException("problem")).when(downloader).createChecksumFile(anyString(),
-                anyString());
+        doThrow(new NgasService.ServiceCallException("problem")).when(downloader).getNgasChecksum(anyString());
 
         downloader.run("-fileId", fileId, "-name", name, "-checksum");
     }
@@ -242,9 +242,10 @@ public class NgasDownloaderTest extends AbstractArgumentsDrivenCommandLineToolTe
         String fileId = "destination.dat";
         String name = new File(tempFolder.getRoot(), fileId).getCanonicalPath();
 
-        doNothing().when(downloader).downloadFileFromNgas(anyString(), anyString());
+        doReturn("checksum").when(downloader).getNgasChecksum(anyString());
+        doNothing().when(downloader).downloadFileFromNgas(anyString(), anyString(), anyString());
 
-        doThrow(new IOException("problem")).when(downloader).createChecksumFile(anyString(), anyString());
+        doThrow(new IOException("problem")).when(downloader).createFile(anyString(), anyString());
 
         downloader.run("-fileId", fileId, "-name", name, "-checksum");
 
@@ -296,8 +297,9 @@ public class NgasDownloaderTest extends AbstractArgumentsDrivenCommandLineToolTe
         // check that the file is at the destination (created by MiddlewareClientLocal)
         assertTrue(Files.exists(Paths.get(name)));
 
-        verify(downloader, times(1)).downloadFileFromNgas(eq(fileId), eq(name));
-        verify(downloader, never()).createChecksumFile(anyString(), anyString());
+        verify(downloader, times(1)).downloadFileFromNgas(fileId, name, null);
+        verify(downloader, never()).getNgasChecksum(anyString());
+        assertFalse(Files.exists(Paths.get(name + ".checksum")));
     }
 
     @Test
@@ -306,16 +308,21 @@ public class NgasDownloaderTest extends AbstractArgumentsDrivenCommandLineToolTe
         String fileId = "destination.dat";
         String name = new File(tempFolder.getRoot(), fileId).getCanonicalPath();
 
+        // MiddlewareClientLocal retrieves the file id as the file's content
+        StreamingChecksum streamingChecksum = new StreamingChecksum();
+        streamingChecksum.update(ByteBuffer.wrap(fileId.getBytes(StandardCharsets.UTF_8)));
+        String checksum = streamingChecksum.getChecksum();
+
         Status status = mock(Status.class);
         when(mockNgasService.getStatus(fileId)).thenReturn(status);
         when(status.wasSuccess()).thenReturn(true);
-        when(status.getChecksum()).thenReturn("123-abc checksum value");
+        when(status.getChecksum()).thenReturn(checksum);
 
         boolean success = downloader.downloadFileAndCreateChecksumFromNgas(fileId, name, true);
 
         assertTrue(success);
-        verify(downloader, times(1)).downloadFileFromNgas(eq(fileId), eq(name));
-        verify(downloader, times(1)).createChecksumFile(eq(fileId), eq(name));
+        verify(downloader, times(1)).getNgasChecksum(eq(fileId));
+        verify(downloader, times(1)).downloadFileFromNgas(eq(fileId), eq(name), eq(checksum));
 
         // check that the file is at the destination (created by MiddlewareClientLocal)
         assertTrue(Files.exists(FileSystems.getDefault().getPath(name)));
@@ -325,7 +332,30 @@ public class NgasDownloaderTest extends AbstractArgumentsDrivenCommandLineToolTe
         assertTrue(Files.exists(checksumFile));
         List<String> lines = Files.readAllLines(checksumFile, Charsets.UTF_8);
         assertEquals(1, lines.size());
-        assertEquals("123-abc checksum value", lines.get(0));
+        assertEquals(checksum, lines.get(0));
+    }
+
+    @Test
+    public void testDownloadFailsIfChecksumDoesNotMatchMiddlewareClientLocal() throws Exception
+    {
+        String fileId = "destination.dat";
+        String name = new File(tempFolder.getRoot(), fileId).getCanonicalPath();
+
+        Status status = mock(Status.class);
+        when(mockNgasService.getStatus(fileId)).thenReturn(status);
+        when(status.wasSuccess()).thenReturn(true);
+        when(status.getChecksum()).thenReturn("123-abc checksum value");
+
+        boolean success = downloader.downloadFileAndCreateChecksumFromNgas(fileId, name, true);
+
+        assertFalse(success);
+        testAppender.verifyLogMessage(Level.ERROR, "does not match the checksum in NGAS '123-abc checksum value'");
+        verify(downloader, times(1)).downloadFileFromNgas(eq(fileId), eq(name), eq("123-abc checksum value"));
+        verify(downloader, never()).createFile(anyString(), anyString());
+
+        // the corrupt file is removed and no checksum file is created
+        assertFalse(Files.exists(Paths.get(name)));
+        assertFalse(Files.exists(Paths.get(name + ".checksum")));
     }
 
     @Test
@@ -335,26 +365,25 @@ public class NgasDownloaderTest extends AbstractArgumentsDrivenCommandLineToolTe
         String name = new File(tempFolder.getRoot(), fileId).getCanonicalPath();
 
         doThrow(new MiddlewareClientException("download problem")).when(downloader).downloadFileFromNgas(eq(fileId),
-                any());
+                any(), any());
 
         boolean success = downloader.downloadFileAndCreateChecksumFromNgas(fileId, name, false);
         // check that the log contains an expected string
         testAppender.verifyLogMessage(Level.ERROR, CasdaDataAccessEvents.E030.messageBuilder().add("file").add(fileId)
                 .toString());
-        verify(downloader, times(1)).downloadFileFromNgas(eq(fileId), eq(name));
-        verify(downloader, never()).createChecksumFile(eq(fileId), eq(name));
+        verify(downloader, times(1)).downloadFileFromNgas(fileId, name, null);
+        verify(downloader, never()).createFile(anyString(), anyString());
         assertFalse(success);
     }
 
     @Test
-    public void testFailedCreateChecksumServiceCallExceptionLogsError() throws Exception
+    public void testFailedGetChecksumServiceCallExceptionLogsError() throws Exception
     {
         String fileId = "destination.dat";
         String name = new File(tempFolder.getRoot(), fileId).getCanonicalPath();
 
-        doNothing().when(downloader).downloadFileFromNgas(anyString(), anyString());
-        doThrow(new NgasService.ServiceCallException("service call exception")).when(downloader).createChecksumFile(
-                anyString(), anyString());
+        doThrow(new NgasService.ServiceCallException("service call exception")).when(downloader).getNgasChecksum(
+                anyString());
 
         boolean success = downloader.downloadFileAndCreateChecksumFromNgas(fileId, name, true);
 
@@ -362,8 +391,9 @@ public class NgasDownloaderTest extends AbstractArgumentsDrivenCommandLineToolTe
         testAppender.verifyLogMessage(Level.ERROR,
                 CasdaLogMessageBuilderFactory.getCasdaMessageBuilder(LogEvent.UNKNOWN_EVENT).toString(),
                 ServiceCallException.class, "service call exception");
-        verify(downloader, times(1)).downloadFileFromNgas(eq(fileId), eq(name));
-        verify(downloader, times(1)).createChecksumFile(eq(fileId), eq(name));
+        verify(downloader, times(1)).getNgasChecksum(eq(fileId));
+        verify(downloader, never()).downloadFileFromNgas(anyString(), anyString(), anyString());
+        verify(downloader, never()).createFile(anyString(), anyString());
 
         assertFalse(success);
     }
@@ -374,8 +404,9 @@ public class NgasDownloaderTest extends AbstractArgumentsDrivenCommandLineToolTe
         String fileId = "destination.dat";
         String name = new File(tempFolder.getRoot(), fileId).getCanonicalPath();
 
-        doNothing().when(downloader).downloadFileFromNgas(anyString(), anyString());
-        doThrow(new IOException("problem writing")).when(downloader).createChecksumFile(anyString(), anyString());
+        doReturn("checksum").when(downloader).getNgasChecksum(anyString());
+        doNothing().when(downloader).downloadFileFromNgas(anyString(), anyString(), anyString());
+        doThrow(new IOException("problem writing")).when(downloader).createFile(anyString(), anyString());
 
         boolean success = downloader.downloadFileAndCreateChecksumFromNgas(fileId, name, true);
 
@@ -383,8 +414,8 @@ public class NgasDownloaderTest extends AbstractArgumentsDrivenCommandLineToolTe
         testAppender.verifyLogMessage(Level.ERROR,
                 CasdaLogMessageBuilderFactory.getCasdaMessageBuilder(LogEvent.UNKNOWN_EVENT).toString(),
                 IOException.class, "problem writing");
-        verify(downloader, times(1)).downloadFileFromNgas(eq(fileId), eq(name));
-        verify(downloader, times(1)).createChecksumFile(eq(fileId), eq(name));
+        verify(downloader, times(1)).downloadFileFromNgas(eq(fileId), eq(name), eq("checksum"));
+        verify(downloader, times(1)).createFile(eq(name + ".checksum"), eq("checksum"));
 
         assertFalse(success);
     }
@@ -400,11 +431,11 @@ public class NgasDownloaderTest extends AbstractArgumentsDrivenCommandLineToolTe
 
         doThrow(new MiddlewareClientException("download problem")).when(middlewareClient).retrieve(eq(fileId), any());
 
-        downloader.downloadFileFromNgas(fileId, name);
+        downloader.downloadFileFromNgas(fileId, name, null);
     }
 
     @Test
-    public void testCreateChecksumThrowsExceptionIfGetStatusUnsuccessful() throws Exception
+    public void testGetNgasChecksumThrowsExceptionIfGetStatusUnsuccessful() throws Exception
     {
         exception.expect(ServiceCallException.class);
         exception.expectMessage("Status check for destination.dat was unsuccessful: status.as.string");
@@ -416,13 +447,11 @@ public class NgasDownloaderTest extends AbstractArgumentsDrivenCommandLineToolTe
         when(status.wasSuccess()).thenReturn(false);
         doReturn("status.as.string").when(status).toString();
 
-        String name = new File(tempFolder.getRoot(), fileId).getCanonicalPath();
-
-        downloader.createChecksumFile(fileId, name);
+        downloader.getNgasChecksum(fileId);
     }
 
     @Test
-    public void testCreateChecksumThrowsExceptionIfNullChecksum() throws Exception
+    public void testGetNgasChecksumThrowsExceptionIfNullChecksum() throws Exception
     {
         exception.expect(ServiceCallException.class);
         exception.expectMessage("Checksum empty for destination.dat: status.as.string");
@@ -435,13 +464,11 @@ public class NgasDownloaderTest extends AbstractArgumentsDrivenCommandLineToolTe
         when(status.getChecksum()).thenReturn(null);
         doReturn("status.as.string").when(status).toString();
 
-        String name = new File(tempFolder.getRoot(), fileId).getCanonicalPath();
-
-        downloader.createChecksumFile(fileId, name);
+        downloader.getNgasChecksum(fileId);
     }
 
     @Test
-    public void testCreateChecksumThrowsExceptionIfBlankChecksum() throws Exception
+    public void testGetNgasChecksumThrowsExceptionIfBlankChecksum() throws Exception
     {
         exception.expect(ServiceCallException.class);
         exception.expectMessage("Checksum empty for destination.dat: status.as.string");
@@ -454,13 +481,11 @@ public class NgasDownloaderTest extends AbstractArgumentsDrivenCommandLineToolTe
         when(status.getChecksum()).thenReturn("  ");
         doReturn("status.as.string").when(status).toString();
 
-        String name = new File(tempFolder.getRoot(), fileId).getCanonicalPath();
-
-        downloader.createChecksumFile(fileId, name);
+        downloader.getNgasChecksum(fileId);
     }
 
     @Test
-    public void testCreateChecksumThrowsExceptionIfGetStatusThrowsException() throws Exception
+    public void testGetNgasChecksumThrowsExceptionIfGetStatusThrowsException() throws Exception
     {
         exception.expect(ServiceCallException.class);
         exception.expectMessage("sample exception");
@@ -470,18 +495,13 @@ public class NgasDownloaderTest extends AbstractArgumentsDrivenCommandLineToolTe
         Exception sampleException = new NgasService.ServiceCallException("sample exception");
         when(mockNgasService.getStatus(fileId)).thenThrow(sampleException);
 
-        String name = new File(tempFolder.getRoot(), fileId).getCanonicalPath();
-
-        downloader.createChecksumFile(fileId, name);
+        downloader.getNgasChecksum(fileId);
 
     }
 
     @Test
-    public void testCreateChecksumThrowsExceptionIfCantCreateFile() throws Exception
+    public void testGetNgasChecksum() throws Exception
     {
-        exception.expect(IOException.class);
-        exception.expectMessage("couldn't create file");
-
         String fileId = "destination.dat";
 
         Status mockStatus = mock(Status.class);
@@ -489,13 +509,7 @@ public class NgasDownloaderTest extends AbstractArgumentsDrivenCommandLineToolTe
         when(mockStatus.wasSuccess()).thenReturn(true);
         when(mockStatus.getChecksum()).thenReturn("checksum string");
 
-        String name = new File("/invalid/folder", fileId).getCanonicalPath();
-
-        doThrow(new IOException("couldn't create file")).when(downloader).createFile(eq(name + ".checksum"),
-                eq("checksum string"));
-
-        downloader.createChecksumFile(fileId, name);
-
+        assertEquals("checksum string", downloader.getNgasChecksum(fileId));
     }
 
     @Test
@@ -0,0 +1,66 @@
+package au.csiro.casda.datadeposit;
+
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * Tests for JobFileReader.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+public class JobFileReaderTest
+{
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Test
+    public void testReadJobsSkipsBlankAndCommentLines() throws Exception
+    {
+        File jobsFile = writeJobsFile("# value", "", "  1 ", "\t", "  # 2", "3");
+
+        assertThat(JobFileReader.readJobs(jobsFile, line -> Integer.parseInt(line.trim())), contains(1, 3));
+    }
+
+    @Test
+    public void testReadJobsReportsTheBadLine() throws Exception
+    {
+        File jobsFile = writeJobsFile("# value", "", "1", "abc");
+
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("Line 4 of " + jobsFile + ": For input string: \"abc\"");
+
+        JobFileReader.readJobs(jobsFile, Integer::parseInt);
+    }
+
+    private File writeJobsFile(String... lines) throws Exception
+    {
+        File jobsFile = tempFolder.newFile("jobs.txt");
+        Files.write(jobsFile.toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+        return jobsFile;
+    }
+}
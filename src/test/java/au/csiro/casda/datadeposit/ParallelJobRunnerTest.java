@@ -0,0 +1,72 @@
+package au.csiro.casda.datadeposit;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * Tests for ParallelJobRunner.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+public class ParallelJobRunnerTest
+{
+    @Test
+    public void testJobsAreRunAtTheSameTime() throws Exception
+    {
+        // Each job waits for the other to start, so they can only both succeed if they run at the same time
+        CountDownLatch started = new CountDownLatch(2);
+
+        assertThat(ParallelJobRunner.runAll(Arrays.asList("a", "b"), 2, job -> {
+            started.countDown();
+            return started.await(10, TimeUnit.SECONDS) ? job : "not run at the same time";
+        }, (job, e) -> "failed"), contains("a", "b"));
+    }
+
+    @Test
+    public void testResultsAreInTheOrderOfTheJobs() throws Exception
+    {
+        assertThat(ParallelJobRunner.runAll(Arrays.asList(30, 0, 20, 10), 4, job -> {
+            Thread.sleep(job);
+            return job;
+        }, (job, e) -> -1), contains(30, 0, 20, 10));
+    }
+
+    @Test
+    public void testFailedJobsDoNotStopTheOthers() throws Exception
+    {
+        assertThat(ParallelJobRunner.runAll(Arrays.asList("a", "b", "c"), 1, job -> {
+            if ("b".equals(job))
+            {
+                throw new IllegalStateException("unexpected");
+            }
+            return job;
+        }, (job, e) -> job + " " + e.getMessage()), contains("a", "b unexpected", "c"));
+    }
+
+    @Test
+    public void testNoJobs() throws Exception
+    {
+        assertThat(ParallelJobRunner.runAll(Collections.<String> emptyList(), 4, job -> job, (job, e) -> job),
+                empty());
+    }
+}
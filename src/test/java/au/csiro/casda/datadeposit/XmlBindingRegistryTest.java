@@ -0,0 +1,86 @@
+package au.csiro.casda.datadeposit;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import javax.xml.bind.Unmarshaller;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import au.csiro.casda.datadeposit.XmlBindingRegistry.UnmarshallerPool;
+import au.csiro.casda.datadeposit.observation.parser.DatasetXmlElementObjectFactory;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * Tests for XmlBindingRegistry.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+public class XmlBindingRegistryTest
+{
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Test
+    public void testSchemaIsCompiledOnce()
+    {
+        XmlBindingRegistry.prewarm();
+
+        assertThat(XmlBindingRegistry.getSchema(XmlBindingRegistry.VOTABLE_SCHEMA_RESOURCE_PATH), is(notNullValue()));
+        assertThat(XmlBindingRegistry.getSchema(XmlBindingRegistry.VOTABLE_SCHEMA_RESOURCE_PATH),
+                is(sameInstance(XmlBindingRegistry.getSchema(XmlBindingRegistry.VOTABLE_SCHEMA_RESOURCE_PATH))));
+    }
+
+    @Test
+    public void testJaxbContextIsCreatedOnce()
+    {
+        assertThat(XmlBindingRegistry.getJaxbContext(DatasetXmlElementObjectFactory.class),
+                is(sameInstance(XmlBindingRegistry.getJaxbContext(DatasetXmlElementObjectFactory.class))));
+    }
+
+    @Test
+    public void testUnmarshallersAreReused() throws Exception
+    {
+        UnmarshallerPool pool = XmlBindingRegistry.getUnmarshallerPool(DatasetXmlElementObjectFactory.class,
+                XmlBindingRegistry.OBSERVATION_METADATA_SCHEMA_RESOURCE_PATH);
+        assertThat(pool, is(sameInstance(XmlBindingRegistry.getUnmarshallerPool(DatasetXmlElementObjectFactory.class,
+                XmlBindingRegistry.OBSERVATION_METADATA_SCHEMA_RESOURCE_PATH))));
+
+        Unmarshaller first = pool.borrow();
+        Unmarshaller second = pool.borrow();
+        assertThat(second, is(not(sameInstance(first))));
+        assertThat(first.getSchema(), is(sameInstance(
+                XmlBindingRegistry.getSchema(XmlBindingRegistry.OBSERVATION_METADATA_SCHEMA_RESOURCE_PATH))));
+
+        pool.release(first);
+        pool.release(second);
+        Unmarshaller reused = pool.borrow();
+        assertThat(reused == first || reused == second, is(true));
+        pool.release(reused);
+    }
+
+    @Test
+    public void testMissingSchemaResource()
+    {
+        exception.expect(RuntimeException.class);
+        exception.expectMessage("Unexpected IOException accessing the resource 'schemas/missing.xsd'");
+
+        XmlBindingRegistry.getSchema("schemas/missing.xsd");
+    }
+}
@@ -0,0 +1,143 @@
+package au.csiro.casda.datadeposit.catalogue;
+
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * Tests for BatchingCatalogueEntrySink.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+public class BatchingCatalogueEntrySinkTest
+{
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Mock
+    private JpaRepository<String, Long> repository;
+
+    private List<List<String>> savedBatches;
+
+    @Before
+    public void setUp()
+    {
+        MockitoAnnotations.initMocks(this);
+        savedBatches = new ArrayList<>();
+        doAnswer(invocation -> {
+            // copy the batch because the sink re-uses its list
+            @SuppressWarnings("unchecked")
+            Iterable<String> batch = (Iterable<String>) invocation.getArguments()[0];
+            List<String> copy = new ArrayList<>();
+            batch.forEach(copy::add);
+            savedBatches.add(copy);
+            return copy;
+        }).when(repository).save(anyListOf(String.class));
+    }
+
+    @Test
+    public void testEntriesAreSavedAndFlushedWhenBatchIsFull()
+    {
+        BatchingCatalogueEntrySink<String> sink = new BatchingCatalogueEntrySink<>(repository, 2);
+
+        sink.add("a");
+        verifyZeroInteractions(repository);
+
+        sink.add("b");
+        sink.add("c");
+
+        assertThat(savedBatches, contains(contains("a", "b")));
+        InOrder inOrder = inOrder(repository);
+        inOrder.verify(repository).save(anyListOf(String.class));
+        inOrder.verify(repository).flush();
+    }
+
+    @Test
+    public void testFlushSavesPartialBatch()
+    {
+        BatchingCatalogueEntrySink<String> sink = new BatchingCatalogueEntrySink<>(repository, 2);
+
+        sink.add("a");
+        sink.add("b");
+        sink.add("c");
+        sink.flush();
+
+        assertThat(savedBatches, contains(contains("a", "b"), contains("c")));
+    }
+
+    @Test
+    public void testFlushWithNoEntriesDoesNothing()
+    {
+        BatchingCatalogueEntrySink<String> sink = new BatchingCatalogueEntrySink<>(repository, 2);
+
+        sink.flush();
+
+        verify(repository, never()).save(anyListOf(String.class));
+        verify(repository, never()).flush();
+    }
+
+    @Test
+    public void testSavedEntriesAreDetachedAfterTheBatchIsFlushed()
+    {
+        EntityManager entityManager = mock(EntityManager.class);
+        BatchingCatalogueEntrySink<String> sink = new BatchingCatalogueEntrySink<>(repository, 2);
+        sink.setEntityManager(entityManager);
+
+        sink.add("a");
+        verifyZeroInteractions(entityManager);
+
+        sink.add("b");
+        sink.add("c");
+        sink.flush();
+
+        InOrder inOrder = inOrder(repository, entityManager);
+        inOrder.verify(repository).save(anyListOf(String.class));
+        inOrder.verify(repository).flush();
+        inOrder.verify(entityManager).detach("a");
+        inOrder.verify(entityManager).detach("b");
+        inOrder.verify(repository).save(anyListOf(String.class));
+        inOrder.verify(repository).flush();
+        inOrder.verify(entityManager).detach("c");
+    }
+
+    @Test
+    public void testBatchSizeMustBePositive()
+    {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("expected batchSize >= 1");
+
+        new BatchingCatalogueEntrySink<>(repository, 0);
+    }
+}
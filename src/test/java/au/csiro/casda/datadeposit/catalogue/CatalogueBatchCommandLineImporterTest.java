@@ -0,0 +1,116 @@
+package au.csiro.casda.datadeposit.catalogue;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import au.csiro.casda.entity.observation.Catalogue;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * Tests for CatalogueBatchCommandLineImporter and the CatalogueImportJobs it runs.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+public class CatalogueBatchCommandLineImporterTest
+{
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Test
+    public void testParseJob()
+    {
+        CatalogueImportJob job = CatalogueImportJob.parse("12345 continuum-component selavy.components.xml");
+
+        assertThat(job.getParentId(), is(12345));
+        assertThat(job.getCatalogueType(), is(CatalogueType.CONTINUUM_COMPONENT));
+        assertThat(job.getCatalogueFilename(), is("selavy.components.xml"));
+        assertThat(job.getInfile(), is("selavy.components.xml"));
+        assertThat(job.getDcCommonId(), is(nullValue()));
+
+        job = CatalogueImportJob.parse("  7\tderived-catalogue  atlas.xml /data/atlas.xml 99 ");
+
+        assertThat(job.getParentId(), is(7));
+        assertThat(job.getCatalogueType(), is(CatalogueType.DERIVED_CATALOGUE));
+        assertThat(job.getCatalogueFilename(), is("atlas.xml"));
+        assertThat(job.getInfile(), is("/data/atlas.xml"));
+        assertThat(job.getDcCommonId(), is(99));
+        assertThat(job.toString(), is("7 derived-catalogue atlas.xml /data/atlas.xml 99"));
+    }
+
+    @Test
+    public void testParseJobWithUnknownCatalogueType()
+    {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("unknown catalogue-type 'continuum'");
+
+        CatalogueImportJob.parse("12345 continuum selavy.components.xml");
+    }
+
+    @Test
+    public void testFailedFilesDoNotStopTheOthers() throws Exception
+    {
+        CatalogueImportJob islands = createJob(CatalogueType.CONTINUUM_ISLAND, "islands.xml");
+        CatalogueImportJob components = createJob(CatalogueType.CONTINUUM_COMPONENT, "components.xml");
+        CatalogueImportJob emission = createJob(CatalogueType.SPECTRAL_LINE_EMISSION, "emission.xml");
+        CatalogueParser parser = mock(CatalogueParser.class);
+        when(parser.parseFile(anyInt(), anyString(), anyString(), any(), any())).thenReturn(new Catalogue());
+        when(parser.parseFile(anyInt(), eq("islands.xml"), anyString(), any(), any())).thenThrow(
+                new CatalogueParser.MalformedFileException("Missing TD"));
+        when(parser.parseFile(anyInt(), eq("emission.xml"), anyString(), any(), any())).thenThrow(
+                new IllegalStateException("unexpected"));
+
+        int failures = createImporter(parser).importCatalogues(Arrays.asList(islands, components, emission), 1);
+
+        assertThat(failures, is(2));
+        verify(parser).parseFile(12345, "components.xml", components.getInfile(), CatalogueParser.Mode.NORMAL,
+                null);
+    }
+
+    private CatalogueImportJob createJob(CatalogueType catalogueType, String catalogueFilename) throws Exception
+    {
+        File infile = tempFolder.newFile(catalogueFilename);
+        return new CatalogueImportJob(12345, catalogueType, catalogueFilename, infile.getPath(), null);
+    }
+
+    private static CatalogueBatchCommandLineImporter createImporter(CatalogueParser parser)
+    {
+        return new CatalogueBatchCommandLineImporter()
+        {
+            @Override
+            protected CatalogueParser createParserForCatalogueType(CatalogueType catalogueType)
+            {
+                return parser;
+            }
+        };
+    }
+}
@@ -7,7 +7,7 @@ import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
-import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.when;
 
@@ -16,6 +16,7 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.io.StringReader;
 import java.nio.charset.Charset;
 import java.sql.SQLException;
@@ -27,13 +28,13 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang3.CharEncoding;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
-import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.invocation.InvocationOnMock;
@@ -134,8 +135,7 @@ public class Level7CatalogueParserFunctionalTest
 
         when(level7CollectionRepository.findByDapCollectionId(123456L)).thenReturn(level7Collection);
 
-        ArgumentCaptor<String> queryCaptor = ArgumentCaptor.forClass(String.class);
-        doNothing().when(repository).executeStatement(queryCaptor.capture());
+        List<String> statements = recordStatements(11L);
 
         parser.parseFile(123456, "atlas_sources.xml", "src/test/resources/level7/good/atlas_sources.xml", Mode.NORMAL,
                 level7Collection.getDcCommonId());
@@ -145,7 +145,7 @@ public class Level7CatalogueParserFunctionalTest
                         TestUtils.getResourceAsFile("level7/good/atlas_sources.ddl.txt")),
                         Charset.forName(CharEncoding.UTF_8)));
 
-        String args = StringUtils.join(queryCaptor.getAllValues(), "\n");
+        String args = StringUtils.join(statements, "\n");
         BufferedReader outputReader = new BufferedReader(new StringReader(args));
 
         int i = 1;
@@ -180,8 +180,7 @@ public class Level7CatalogueParserFunctionalTest
                 new Level7VoTableVisitor(repository, new SimpleDateFormat("yyyy-MM-dd").parse("2015-04-07"), 255);
         Level7CatalogueParser parser = new Level7CatalogueParser(visitor, level7CollectionRepository);
 
-        ArgumentCaptor<String> queryCaptor = ArgumentCaptor.forClass(String.class);
-        doNothing().when(repository).executeStatement(queryCaptor.capture());
+        List<String> statements = recordStatements(13L);
 
         parser.parseCatalogueDatafile("src/test/resources/level7/good/unusual_types_catalogue.xml", level7Collection,
                 CatalogueParser.Mode.NORMAL);
@@ -191,7 +190,7 @@ public class Level7CatalogueParserFunctionalTest
                         TestUtils.getResourceAsFile("level7/good/unusual_types.ddl.txt")),
                         Charset.forName(CharEncoding.UTF_8)));
 
-        String args = StringUtils.join(queryCaptor.getAllValues(), "\n");
+        String args = StringUtils.join(statements, "\n");
         BufferedReader outputReader = new BufferedReader(new StringReader(args));
 
         int i = 1;
@@ -391,8 +390,7 @@ public class Level7CatalogueParserFunctionalTest
                 new Level7VoTableVisitor(repository, new SimpleDateFormat("yyyy-MM-dd").parse("2015-04-07"), 255);
         Level7CatalogueParser parser = new Level7CatalogueParser(visitor, level7CollectionRepository);
 
-        ArgumentCaptor<String> queryCaptor = ArgumentCaptor.forClass(String.class);
-        doNothing().when(repository).executeStatement(queryCaptor.capture());
+        List<String> statements = recordStatements(12L);
 
         parser.parseCatalogueDatafile("src/test/resources/level7/good/description.missing.xml", level7Collection, mode);
 
@@ -401,7 +399,7 @@ public class Level7CatalogueParserFunctionalTest
                         TestUtils.getResourceAsFile("level7/good/description.missing.ddl.txt")),
                         Charset.forName(CharEncoding.UTF_8)));
 
-        String args = StringUtils.join(queryCaptor.getAllValues(), "\n");
+        String args = StringUtils.join(statements, "\n");
         BufferedReader outputReader = new BufferedReader(new StringReader(args));
 
         int i = 1;
@@ -448,8 +446,7 @@ public class Level7CatalogueParserFunctionalTest
                 new Level7VoTableVisitor(repository, new SimpleDateFormat("yyyy-MM-dd").parse("2015-04-07"), 255);
         Level7CatalogueParser parser = new Level7CatalogueParser(visitor, level7CollectionRepository);
 
-        ArgumentCaptor<String> queryCaptor = ArgumentCaptor.forClass(String.class);
-        doNothing().when(repository).executeStatement(queryCaptor.capture());
+        List<String> statements = recordStatements(12L);
 
         parser.parseCatalogueDatafile("src/test/resources/level7/good/quotes.in.comments.xml", level7Collection, mode);
 
@@ -458,7 +455,7 @@ public class Level7CatalogueParserFunctionalTest
                         TestUtils.getResourceAsFile("level7/good/quotes.in.comments.ddl.txt")),
                         Charset.forName(CharEncoding.UTF_8)));
 
-        String args = StringUtils.join(queryCaptor.getAllValues(), "\n");
+        String args = StringUtils.join(statements, "\n");
         BufferedReader outputReader = new BufferedReader(new StringReader(args));
 
         int i = 1;
@@ -546,6 +543,25 @@ public class Level7CatalogueParserFunctionalTest
                 "Error in TABLE : Table contains a FIELD named 'id'");
     }
 
+    /**
+     * Records the statements executed against the repository, including each COPY statement followed by its data.
+     */
+    private List<String> recordStatements(long catalogueId)
+    {
+        List<String> statements = new ArrayList<>();
+        doAnswer(invocation -> {
+            statements.add((String) invocation.getArguments()[0]);
+            return null;
+        }).when(repository).executeStatement(anyString());
+        doAnswer(invocation -> {
+            String data = IOUtils.toString((Reader) invocation.getArguments()[1]);
+            statements.add(invocation.getArguments()[0] + "\n" + StringUtils.chomp(data));
+            return 0L;
+        }).when(repository).copyIn(anyString(), any(Reader.class));
+        doReturn(catalogueId).when(repository).getDerivedCatalogueId(anyString());
+        return statements;
+    }
+
     private void testValidationMessages(String testFile, String... expectedFailureMessages) throws ParseException,
             SQLException, FileNotFoundException, MalformedFileException, DatabaseException
     {
@@ -4,7 +4,6 @@ import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
-import static org.hamcrest.Matchers.startsWith;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.doReturn;
@@ -76,31 +75,53 @@ public class Level7VoTableVisitorTest
         assertThat(tableScript, containsString("COMMENT ON TABLE casda.testTable"));
         assertThat(tableScript, containsString("COMMENT ON COLUMN casda.testTable.ra_deg_cont is "
                 + "'J2000 right ascension in decimal degrees';"));
+        // The indexes are only built once the entries have been loaded
+        assertThat(tableScript, not(containsString("CREATE INDEX")));
     }
 
     @Test
-    public void testGenerateInsertStatement() throws Exception
+    public void testCreateIndexesScript() throws Exception
     {
         ArrayList<Map<String, Object>> columns = new ArrayList<>();
-        columns.add(buildColumn("source_name", "CHAR", "19", true, false, 
-        		"Designation for the radio component", true, "source_name"));
-        columns.add(buildColumn("ra_deg_cont", "DOUBLE", null, true, false, "J2000 right ascension in decimal degrees",
+        columns.add(buildColumn("source_name", "CHAR", "19", true, true,
+                "Designation for the radio component", true, "source_name"));
+        columns.add(buildColumn("ra_deg_cont", "DOUBLE", null, true, true, "J2000 right ascension in decimal degrees",
                 true, "ra_deg_cont"));
-        columns.add(buildColumn("dec_deg_cont", "DOUBLE", null, true, false, "J2000 declination in decimal degrees",
-                true, "dec_deg_cont"));
         columns.add(buildColumn("flag1", "BOOLEAN", null, true, false, "", false, "flag1"));
 
-        Map<String, String> valueMap = new HashMap<>();
-        valueMap.put("source_name", "Sgr A*");
-        valueMap.put("ra_deg_cont", "266.4166667");
-        valueMap.put("dec_deg_cont", "89.26410833");
+        String indexesScript = visitor.getCreateLevel7CatalogueIndexesDdl("testTable", columns);
 
-        String tableScript = visitor.getCreateLevel7CatalogueItemDdl("testTable", columns, valueMap);
+        assertThat(indexesScript, containsString("CREATE INDEX ON casda.testTable(catalogue_id);"));
+        assertThat(indexesScript, containsString("CREATE INDEX ON casda.testTable(source_name);"));
+        assertThat(indexesScript, containsString("CREATE INDEX ON casda.testTable(ra_deg_cont);"));
+        assertThat(indexesScript, not(containsString("(flag1)")));
+        assertThat(indexesScript, containsString("ANALYZE casda.testTable;"));
+        assertThat(indexesScript.indexOf("ANALYZE") > indexesScript.lastIndexOf("CREATE INDEX"), is(true));
+    }
 
-        assertThat(tableScript, startsWith("INSERT INTO casda.testTable"));
-        assertThat(tableScript, containsString("source_name"));
-        assertThat(tableScript, containsString("ra_deg_cont"));
-        assertThat(tableScript, containsString("'Sgr A*', 266.4166667, 89.26410833, NULL);"));
+    @Test
+    public void testGenerateCopyStatementAndData() throws Exception
+    {
+        ArrayList<Map<String, Object>> columns = new ArrayList<>();
+        columns.add(buildColumn("source_name", "CHAR", "19", true, false,
+                "Designation for the radio component", true, "source_name"));
+        columns.add(buildColumn("ra_deg_cont", "DOUBLE", null, true, false, "J2000 right ascension in decimal degrees",
+                true, "ra_deg_cont"));
+        columns.add(buildColumn("flag1", "BOOLEAN", null, true, false, "", false, "flag1"));
+        columns.add(buildColumn("bits", "BIT", "8", true, false, "", false, "bits"));
+
+        List<String[]> rows = new ArrayList<>();
+        rows.add(new String[] { "Sgr A*, \"the\" 'centre'", "266.4166667", "T", "0101" });
+        rows.add(new String[] { "", "", "0", null });
+        rows.add(new String[] { "two\nlines", null, "?", null });
+
+        assertThat(visitor.getCopyLevel7CatalogueItemsStatement("testTable", columns),
+                is("COPY casda.testTable (catalogue_id, source_name, ra_deg_cont, flag1, bits) "
+                        + "FROM STDIN WITH (FORMAT csv)"));
+        assertThat(visitor.getCopyLevel7CatalogueItemsData(1234567L, columns, rows),
+                is("1234567,\"Sgr A*, \"\"the\"\" 'centre'\",\"266.4166667\",t,\"0101\"\n" //
+                        + "1234567,,,f,\n" //
+                        + "1234567,\"two\nlines\",,,\n"));
     }
 
     @Test
@@ -0,0 +1,116 @@
+package au.csiro.casda.datadeposit.copy;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import au.csiro.casda.datadeposit.copy.RegisterArtefactBatchCommandLineTool.Outcome;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * Tests for RegisterArtefactBatchCommandLineTool and the ArtefactRegistrationJobs it runs.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+public class RegisterArtefactBatchCommandLineToolTest
+{
+    private static final Integer SBID = 12345;
+
+    private static final String VOLUME = "volume1";
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private NgasRegistrar registrar;
+
+    private RegisterArtefactBatchCommandLineTool tool;
+
+    @Before
+    public void setUp()
+    {
+        registrar = mock(NgasRegistrar.class);
+        tool = new RegisterArtefactBatchCommandLineTool(registrar, 4);
+    }
+
+    @Test
+    public void testParseJob()
+    {
+        ArtefactRegistrationJob job =
+                ArtefactRegistrationJob.parse(" /data/12345/image1.fits\tobservations-12345-image_cubes-image1.fits ");
+
+        assertThat(job.getInfile(), is("/data/12345/image1.fits"));
+        assertThat(job.getFileId(), is("observations-12345-image_cubes-image1.fits"));
+        assertThat(job.toString(), is("/data/12345/image1.fits observations-12345-image_cubes-image1.fits"));
+    }
+
+    @Test
+    public void testOutcomeOfEachArtefactIsReported() throws Exception
+    {
+        ArtefactRegistrationJob image1 = createJob("image1");
+        ArtefactRegistrationJob image2 = createJob("image2");
+        ArtefactRegistrationJob image3 = createJob("image3");
+        ArtefactRegistrationJob image4 = createJob("image4");
+        ArtefactRegistrationJob image5 = createJob("image5");
+        doThrow(new NoSuchFileException("no image2.fits.checksum")).when(registrar).registerArtefactWithNgas(SBID,
+                image2.getInfile(), VOLUME, "image2");
+        doThrow(new RegisterException(SBID, image3.getInfile(), "/staging", "image3", "NGAS\nunavailable")).when(
+                registrar).registerArtefactWithNgas(SBID, image3.getInfile(), VOLUME, "image3");
+        doThrow(new ChecksumVerificationFailedException(SBID, image4.getInfile(), "abc", "def")).when(registrar)
+                .registerArtefactWithNgas(SBID, image4.getInfile(), VOLUME, "image4");
+        doThrow(new IllegalStateException("unexpected")).when(registrar).registerArtefactWithNgas(SBID,
+                image5.getInfile(), VOLUME, "image5");
+
+        List<Outcome> outcomes =
+                tool.registerArtefacts(SBID, VOLUME, Arrays.asList(image1, image2, image3, image4, image5), 1);
+
+        assertThat(outcomes.stream().map(Outcome::getJob).collect(Collectors.toList()),
+                contains(image1, image2, image3, image4, image5));
+        assertThat(outcomes.stream().map(Outcome::getStatus).collect(Collectors.toList()),
+                contains(Outcome.Status.REGISTERED, Outcome.Status.CHECKSUM_MISSING, Outcome.Status.REGISTER_FAILED,
+                        Outcome.Status.CHECKSUM_FAILED, Outcome.Status.FAILED));
+
+        File report = new File(tempFolder.getRoot(), "report.txt");
+        RegisterArtefactBatchCommandLineTool.writeReport(report, outcomes);
+
+        List<String> lines = Files.readAllLines(report.toPath(), StandardCharsets.UTF_8);
+        assertThat(lines.size(), is(6));
+        assertThat(lines.get(1), is("REGISTERED " + image1));
+        assertThat(lines.get(2), is("CHECKSUM_MISSING " + image2 + " no image2.fits.checksum"));
+        assertThat(lines.get(3), is("REGISTER_FAILED " + image3 + " " + String.format(
+                "Could not register artefact with filename '%s' for observation %d with NGAS at staging path "
+                        + "/staging/image3. Cause: NGAS unavailable", image3.getInfile(), SBID)));
+        assertThat(lines.get(5), is("FAILED " + image5 + " java.lang.IllegalStateException: unexpected"));
+    }
+
+    private ArtefactRegistrationJob createJob(String fileId) throws Exception
+    {
+        File infile = tempFolder.newFile(fileId + ".fits");
+        return new ArtefactRegistrationJob(infile.getPath(), fileId);
+    }
+}
@@ -1,18 +1,27 @@
 package au.csiro.casda.datadeposit.encapsulation;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.CharEncoding;
 import org.junit.Before;
@@ -26,11 +35,8 @@ import org.mockito.MockitoAnnotations;
 import au.csiro.casda.datadeposit.encapsulation.EncapsulationService.EncapsulationException;
 import au.csiro.casda.datadeposit.observation.jpa.repository.EncapsulationFileRepository;
 import au.csiro.casda.datadeposit.observation.jpa.repository.EvaluationFileRepository;
-import au.csiro.casda.datadeposit.service.InlineScriptException;
-import au.csiro.casda.datadeposit.service.InlineScriptService;
+import au.csiro.casda.datadeposit.service.ChecksumService;
 import au.csiro.casda.entity.observation.EvaluationFile;
-import au.csiro.casda.jobmanager.JobManager.JobMonitor;
-import au.csiro.casda.jobmanager.ProcessJob;
 import au.csiro.casda.jobmanager.ProcessJobBuilder.ProcessJobFactory;
 
 /*
@@ -56,7 +62,7 @@ public class EncapsulationServiceTest
     private EncapsulationService service;
 
     @Mock
-    private InlineScriptService inlineScriptService;
+    private ChecksumService checksumService;
 
     @Mock
     private ProcessJobFactory processJobFactory;
@@ -77,15 +83,16 @@ public class EncapsulationServiceTest
     public void setUp() throws Exception
     {
         MockitoAnnotations.initMocks(this);
-        service = new EncapsulationService("{\"/bin/bash\",\"-c\",\"cat <pattern> > <infile>\"}", "", "",
-                processJobFactory, inlineScriptService, encapsulationFileRepository, evaluationFileRepository);
+        when(checksumService.getBufferSize()).thenReturn(4096);
+        service = new EncapsulationService("",
+                processJobFactory, checksumService, encapsulationFileRepository, evaluationFileRepository, 2);
     }
 
     /**
      * Test that the checksum verification passes for a good checksum
      */
     @Test
-    public void testVerifyChecksumsGood() throws IOException, EncapsulationException, InlineScriptException
+    public void testVerifyChecksumsGood() throws IOException, EncapsulationException
     {
         String inFile = tempFolder.newFile("encaps-spectrum-1.tar").getAbsolutePath();
         File spectrumFile = tempFolder.newFile("spec_1.fits");
@@ -96,11 +103,11 @@ public class EncapsulationServiceTest
             writer.println(checksum);
         }
 
-        when(inlineScriptService.callScriptInline(any(String.class), any(String.class))).thenReturn(checksum);
+        when(checksumService.calculateChecksum(any(Path.class))).thenReturn(checksum);
 
         service.verifyChecksums(inFile, "myFile.tar", "spec_*.fits", 1234, false);
 
-        verify(inlineScriptService).callScriptInline(any(String.class), eq(spectrumFile.getAbsolutePath()));
+        verify(checksumService).calculateChecksum(eq(Paths.get(spectrumFile.getCanonicalPath())));
 
     }
 
@@ -108,7 +115,7 @@ public class EncapsulationServiceTest
      * Test that the checksum verification passes for a non matching checksum
      */
     @Test
-    public void testVerifyChecksumsBad() throws IOException, EncapsulationException, InlineScriptException
+    public void testVerifyChecksumsBad() throws IOException, EncapsulationException
     {
         String inFile = tempFolder.newFile("encaps-spectrum-1.tar").getAbsolutePath();
         File spectrumFile = tempFolder.newFile("spec_1.fits");
@@ -119,7 +126,7 @@ public class EncapsulationServiceTest
             writer.println(checksum);
         }
 
-        when(inlineScriptService.callScriptInline(any(String.class), any(String.class))).thenReturn("Something else");
+        when(checksumService.calculateChecksum(any(Path.class))).thenReturn("Something else");
 
         expectedException.expect(EncapsulationException.class);
         expectedException.expectMessage("Checksum was invalid for " + spectrumFile.getAbsolutePath()
@@ -129,6 +136,98 @@ public class EncapsulationServiceTest
 
     }
 
+    /**
+     * Test that an unexpected exception from the checksum service is reported as the failure of the file
+     */
+    @Test
+    public void testVerifyChecksumsUnexpectedException() throws IOException, EncapsulationException
+    {
+        String inFile = tempFolder.newFile("encaps-spectrum-1.tar").getAbsolutePath();
+        File spectrumFile = tempFolder.newFile("spec_1.fits");
+        try (PrintWriter writer = new PrintWriter(tempFolder.newFile("spec_1.fits.checksum"), CharEncoding.UTF_8))
+        {
+            writer.println("0 0 0");
+        }
+        IllegalStateException cause = new IllegalStateException("Checksum service failed");
+        when(checksumService.calculateChecksum(any(Path.class))).thenThrow(cause);
+
+        expectedException.expect(EncapsulationException.class);
+        expectedException.expectMessage("Checksum could not be checked for " + spectrumFile.getCanonicalPath());
+        expectedException.expectCause(is(cause));
+
+        service.verifyChecksums(inFile, "myFile.tar", "spec_*.fits", 1234, false);
+    }
+
+    /**
+     * Test that the failures of all of the files that were checked are reported together
+     */
+    @Test
+    public void testVerifyChecksumsReportsAllFailures() throws IOException, EncapsulationException
+    {
+        String inFile = tempFolder.newFile("encaps-spectrum-1.tar").getAbsolutePath();
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        for (String name : new String[] { "spec_1.fits", "spec_2.fits" })
+        {
+            tempFolder.newFile(name);
+            try (PrintWriter writer = new PrintWriter(tempFolder.newFile(name + ".checksum"), CharEncoding.UTF_8))
+            {
+                writer.println("0 0 0");
+            }
+        }
+
+        // Both files are checked at the same time, so both fail
+        when(checksumService.calculateChecksum(any(Path.class))).thenAnswer(invocation -> {
+            bothStarted.countDown();
+            bothStarted.await(10, TimeUnit.SECONDS);
+            return "Something else";
+        });
+
+        try
+        {
+            service.verifyChecksums(inFile, "myFile.tar", "spec_*.fits", 1234, false);
+            fail("Expected an EncapsulationException");
+        }
+        catch (EncapsulationException e)
+        {
+            assertThat(e.getMessage(), startsWith("Checksums failed for 2 files: "));
+            assertThat(e.getMessage(), containsString("spec_1.fits. Excepted 0 0 0 but got Something else."));
+            assertThat(e.getMessage(), containsString("spec_2.fits. Excepted 0 0 0 but got Something else."));
+            assertThat(e.getSuppressed().length, is(2));
+        }
+    }
+
+    /**
+     * Test that no more files are checked once one has failed
+     */
+    @Test
+    public void testVerifyChecksumsStopsAfterFailure() throws Exception
+    {
+        service = new EncapsulationService("",
+                processJobFactory, checksumService, encapsulationFileRepository, evaluationFileRepository, 1);
+        String inFile = tempFolder.newFile("encaps-spectrum-1.tar").getAbsolutePath();
+        for (String name : new String[] { "spec_1.fits", "spec_2.fits", "spec_3.fits" })
+        {
+            tempFolder.newFile(name);
+            try (PrintWriter writer = new PrintWriter(tempFolder.newFile(name + ".checksum"), CharEncoding.UTF_8))
+            {
+                writer.println("0 0 0");
+            }
+        }
+        when(checksumService.calculateChecksum(any(Path.class))).thenReturn("Something else");
+
+        expectedException.expect(EncapsulationException.class);
+        expectedException.expectMessage("Excepted 0 0 0 but got Something else.");
+
+        try
+        {
+            service.verifyChecksums(inFile, "myFile.tar", "spec_*.fits", 1234, false);
+        }
+        finally
+        {
+            verify(checksumService, times(1)).calculateChecksum(any(Path.class));
+        }
+    }
+
     /**
      * Test method for createEncapsulation.
      */
@@ -137,28 +236,38 @@ public class EncapsulationServiceTest
     {
         // Create two files matching the pattern and one not
         String inFile = tempFolder.newFile("encaps-spectrum-1.tar").getAbsolutePath();
-        File spectrumFile = tempFolder.newFile("spec_1.fits");
-        File checksumFile = tempFolder.newFile("spec_1.fits.checksum");
-        File spectrum2File = tempFolder.newFile("spec_2.fits");
-        File checksum2File = tempFolder.newFile("spec_2.fits.checksum");
-        File thumbnail1File = tempFolder.newFile("spec_1.png");
-        File checksum3File = tempFolder.newFile("spec_1.png.checksum");
-
-        when(processJobFactory.createJobProcess(any(String.class), any(String.class), any(String.class), any(Map.class),
-                any(String[].class))).thenReturn(new ProcessJob("42", inFile, inFile, null, null)
-                {
-                    
-                    @Override
-                    public void run(JobMonitor monitor)
-                    {
-                        monitor.jobSucceeded(this, "");
-                    }
-                });
-        when(inlineScriptService.callScriptInline(any(String.class), any(String.class))).thenReturn("0 0 0");
+        writeFile(tempFolder.newFile("spec_1.fits"), "spectrum 1");
+        writeFile(tempFolder.newFile("spec_1.fits.checksum"), "1 1 1");
+        writeFile(tempFolder.newFile("spec_2.fits"), "spectrum 2");
+        writeFile(tempFolder.newFile("spec_2.fits.checksum"), "2 2 2");
+        tempFolder.newFile("spec_1.png");
+        tempFolder.newFile("spec_1.png.checksum");
 
         int numFiles = service.createEncapsulation(1000, "", inFile, "spec_*.fits", false);
         assertThat(numFiles, is(2));
-        
+
+        // Four files of one block each, plus their headers, the end of archive marker and padding to one record
+        assertThat(new File(inFile).length(), is((long) TarArchiveWriter.RECORD_SIZE));
+        verify(checksumService).getBufferSize();
+        verify(checksumService).writeChecksumFile(eq(new File(inFile).getCanonicalFile().toPath()),
+                eq(new ChecksumService().calculateChecksum(Paths.get(inFile))));
+        verify(processJobFactory, never()).createJobProcess(any(String.class), any(String.class), any(String.class),
+                any(Map.class), any(String[].class));
+    }
+
+    /**
+     * Test that a missing file fails the encapsulation.
+     */
+    @Test
+    public void testCreateEncapsulationMissingChecksumFile() throws Exception
+    {
+        String inFile = tempFolder.newFile("encaps-spectrum-1.tar").getAbsolutePath();
+        writeFile(tempFolder.newFile("spec_1.fits"), "spectrum 1");
+
+        expectedException.expect(EncapsulationException.class);
+        expectedException.expectMessage("Could not create encapsulation " + inFile);
+
+        service.createEncapsulation(1000, "", inFile, "spec_*.fits", false);
     }
 
     @Test
@@ -169,21 +278,20 @@ public class EncapsulationServiceTest
     	file1.setFilename("hello.pdf");
     	results.add(file1);
     	String inFile = tempFolder.newFile("encaps-evaluation-1.tar").getAbsolutePath();
+        writeFile(tempFolder.newFile("hello.pdf"), "hello");
+        writeFile(tempFolder.newFile("hello.pdf.checksum"), "0 0 0");
         when(evaluationFileRepository.findByObservationSbidAndEncapsulationFileFilename(any(Integer.class),
                 any(String.class))).thenReturn(results);
-        when(processJobFactory.createJobProcess(any(String.class), any(String.class), any(String.class), any(Map.class),
-                any(String[].class))).thenReturn(new ProcessJob("42", inFile, inFile, null, null)
-                {
-                    
-                    @Override
-                    public void run(JobMonitor monitor)
-                    {
-                        monitor.jobSucceeded(this, "");
-                    }
-                });
-        when(inlineScriptService.callScriptInline(any(String.class), any(String.class))).thenReturn("0 0 0");
         
         int numFiles = service.createEncapsulation(1000, "", inFile, null, true);
         assertThat(numFiles, is(1));
     }
+
+    private void writeFile(File file, String contents) throws IOException
+    {
+        try (PrintWriter writer = new PrintWriter(file, CharEncoding.UTF_8))
+        {
+            writer.print(contents);
+        }
+    }
 }
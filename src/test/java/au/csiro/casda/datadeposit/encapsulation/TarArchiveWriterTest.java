@@ -0,0 +1,198 @@
+package au.csiro.casda.datadeposit.encapsulation;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import au.csiro.casda.datadeposit.service.ChecksumService;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * Tests for TarArchiveWriter.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+public class TarArchiveWriterTest
+{
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Test
+    public void testHeader() throws Exception
+    {
+        byte[] header = TarArchiveWriter.createHeader("spectra/spec_1.fits", 1300, 1451606400);
+
+        assertThat(header.length, is(TarArchiveWriter.BLOCK_SIZE));
+        assertThat(getString(header, 0, 100), is("spectra/spec_1.fits"));
+        assertThat(getString(header, 100, 8), is("0000644"));
+        assertThat(getString(header, 124, 12), is("00000002424"));
+        assertThat(getString(header, 136, 12), is("12641340600"));
+        assertThat((char) header[156], is('0'));
+        assertThat(getString(header, 257, 6), is("ustar"));
+        assertThat(getString(header, 263, 2), is("00"));
+        assertThat(getString(header, 345, 155), is(""));
+
+        long expectedChecksum = 0;
+        for (int i = 0; i < header.length; i++)
+        {
+            expectedChecksum += (i >= 148 && i < 156) ? ' ' : header[i] & 0xff;
+        }
+        assertThat(Long.parseLong(getString(header, 148, 7), 8), is(expectedChecksum));
+        assertThat((char) header[155], is(' '));
+    }
+
+    @Test
+    public void testHeaderLongNameUsesPrefix() throws Exception
+    {
+        String folder = StringUtils.repeat("f", 120);
+        String name = StringUtils.repeat("n", 90);
+
+        byte[] header = TarArchiveWriter.createHeader(folder + "/" + name, 0, 0);
+
+        assertThat(getString(header, 0, 100), is(name));
+        assertThat(getString(header, 345, 155), is(folder));
+    }
+
+    @Test
+    public void testHeaderNameTooLong() throws Exception
+    {
+        String name = StringUtils.repeat("n", 101);
+
+        exception.expect(IOException.class);
+        exception.expectMessage("File name " + name + " is too long for a tar archive");
+
+        TarArchiveWriter.createHeader(name, 0, 0);
+    }
+
+    @Test
+    public void testWriteArchive() throws Exception
+    {
+        byte[] large = new byte[1300];
+        new Random(42).nextBytes(large);
+        Path largeFile = Files.write(tempFolder.getRoot().toPath().resolve("large.fits"), large);
+        Path emptyFile = tempFolder.newFile("empty.fits").toPath();
+        Path smallFile = Files.write(tempFolder.getRoot().toPath().resolve("small.fits"),
+                "small".getBytes(StandardCharsets.US_ASCII));
+        Path archiveFile = tempFolder.getRoot().toPath().resolve("encaps-spectrum-1.tar");
+
+        String checksum;
+        // A buffer smaller than the large file so that it is copied in pieces
+        try (TarArchiveWriter writer = new TarArchiveWriter(archiveFile, 1000))
+        {
+            writer.addFile(largeFile, "spectra/large.fits");
+            writer.addFile(emptyFile, "spectra/empty.fits");
+            writer.addFile(smallFile, "small.fits");
+            checksum = writer.finish();
+        }
+
+        byte[] archive = Files.readAllBytes(archiveFile);
+        assertThat(archive.length % TarArchiveWriter.RECORD_SIZE, is(0));
+        assertThat(checksum, is(new ChecksumService().calculateChecksum(archiveFile)));
+
+        Map<String, byte[]> entries = readEntries(archive);
+        assertThat(entries.keySet(), contains("spectra/large.fits", "spectra/empty.fits", "small.fits"));
+        assertThat(Arrays.equals(entries.get("spectra/large.fits"), large), is(true));
+        assertThat(entries.get("spectra/empty.fits").length, is(0));
+        assertThat(new String(entries.get("small.fits"), StandardCharsets.US_ASCII), is("small"));
+    }
+
+    @Test
+    public void testEmptyArchive() throws Exception
+    {
+        Path archiveFile = tempFolder.getRoot().toPath().resolve("encaps-spectrum-1.tar");
+
+        try (TarArchiveWriter writer = new TarArchiveWriter(archiveFile, 1000))
+        {
+            writer.finish();
+        }
+
+        assertThat(Files.readAllBytes(archiveFile), is(new byte[TarArchiveWriter.RECORD_SIZE]));
+    }
+
+    @Test
+    public void testMissingFile() throws Exception
+    {
+        Path archiveFile = tempFolder.getRoot().toPath().resolve("encaps-spectrum-1.tar");
+
+        exception.expect(IOException.class);
+
+        try (TarArchiveWriter writer = new TarArchiveWriter(archiveFile, 1000))
+        {
+            writer.addFile(tempFolder.getRoot().toPath().resolve("missing.fits"), "missing.fits");
+        }
+    }
+
+    /*
+     * Reads the entries of a tar archive, in order, checking that each header's checksum is valid.
+     */
+    private static Map<String, byte[]> readEntries(byte[] archive)
+    {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        int offset = 0;
+        List<Integer> emptyBlocks = new ArrayList<>();
+        while (offset < archive.length)
+        {
+            byte[] header = Arrays.copyOfRange(archive, offset, offset + TarArchiveWriter.BLOCK_SIZE);
+            offset += TarArchiveWriter.BLOCK_SIZE;
+            if (Arrays.equals(header, new byte[TarArchiveWriter.BLOCK_SIZE]))
+            {
+                emptyBlocks.add(offset);
+                continue;
+            }
+            assertThat("Entries after end of archive", emptyBlocks.isEmpty(), is(true));
+            long headerChecksum = 0;
+            for (int i = 0; i < header.length; i++)
+            {
+                headerChecksum += (i >= 148 && i < 156) ? ' ' : header[i] & 0xff;
+            }
+            assertThat(Long.parseLong(getString(header, 148, 7), 8), is(headerChecksum));
+
+            String prefix = getString(header, 345, 155);
+            String name = (prefix.isEmpty() ? "" : prefix + "/") + getString(header, 0, 100);
+            int size = Integer.parseInt(getString(header, 124, 12), 8);
+            entries.put(name, Arrays.copyOfRange(archive, offset, offset + size));
+            offset += (size + TarArchiveWriter.BLOCK_SIZE - 1) / TarArchiveWriter.BLOCK_SIZE
+                    * TarArchiveWriter.BLOCK_SIZE;
+        }
+        assertThat("End of archive marker", emptyBlocks.size() >= 2, is(true));
+        return entries;
+    }
+
+    private static String getString(byte[] header, int offset, int length)
+    {
+        String value = new String(header, offset, length, StandardCharsets.UTF_8);
+        int end = value.indexOf('\0');
+        return end == -1 ? value : value.substring(0, end);
+    }
+}
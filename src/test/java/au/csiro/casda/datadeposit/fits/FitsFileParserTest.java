@@ -0,0 +1,192 @@
+package au.csiro.casda.datadeposit.fits;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import nom.tam.fits.FitsException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * Tests for FitsFileParser.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+public class FitsFileParserTest
+{
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    private FitsFileParser parser = new FitsFileParser();
+
+    @Test
+    public void testReadPrimaryHeader() throws Exception
+    {
+        FitsPrimaryHeader header = parser.readPrimaryHeader(new File("src/test/resources/image/good/headers.all.fits"));
+
+        assertThat(header.getHeaderAsString(),
+                is(FileUtils.readFileToString(new File("src/test/resources/image/good/header.txt"), "utf-8")));
+        assertThat(header.getHeaderValues().get(AskapFitsKey.PROJECT), is("VAST"));
+        assertThat(header.getHeaderValues().get(AskapFitsKey.OBJECT), is("bar"));
+    }
+
+    @Test
+    public void testReadPrimaryHeaderIgnoresData() throws Exception
+    {
+        File fitsFile = new File("src/test/resources/image/good/headers.all.fits");
+        byte[] headerBlocks = Arrays.copyOf(Files.readAllBytes(fitsFile.toPath()), FitsFileParser.BLOCK_SIZE);
+        File truncatedFile = tempFolder.newFile("truncated.fits");
+        // The data is missing, so only the header may be read
+        Files.write(truncatedFile.toPath(), headerBlocks);
+
+        FitsPrimaryHeader header = parser.readPrimaryHeader(truncatedFile);
+
+        assertThat(header.getHeaderAsString(), is(parser.readPrimaryHeader(fitsFile).getHeaderAsString()));
+        assertThat(header.getHeaderValues(), is(parser.readPrimaryHeader(fitsFile).getHeaderValues()));
+    }
+
+    @Test
+    public void testReadPrimaryHeaderGzipped() throws Exception
+    {
+        File fitsFile = new File("src/test/resources/image/good/headers.all.fits");
+        File gzippedFile = tempFolder.newFile("headers.all.fits.gz");
+        try (OutputStream out = new GZIPOutputStream(new FileOutputStream(gzippedFile)))
+        {
+            Files.copy(fitsFile.toPath(), out);
+        }
+
+        FitsPrimaryHeader header = parser.readPrimaryHeader(gzippedFile);
+
+        assertThat(header.getHeaderAsString(), is(parser.readPrimaryHeader(fitsFile).getHeaderAsString()));
+        assertThat(header.getHeaderValues(), is(parser.readPrimaryHeader(fitsFile).getHeaderValues()));
+    }
+
+    @Test
+    public void testReadPrimaryHeaderGzippedOnlyInflatesHeader() throws Exception
+    {
+        File fitsFile = new File("src/test/resources/image/good/headers.all.fits");
+        byte[] headerBlocks = Arrays.copyOf(Files.readAllBytes(fitsFile.toPath()), FitsFileParser.BLOCK_SIZE);
+        byte[] data = new byte[1024 * 1024];
+        new Random(1).nextBytes(data);
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        int headerLength;
+        try (GZIPOutputStream out = new GZIPOutputStream(gzipped, true))
+        {
+            out.write(headerBlocks);
+            out.flush();
+            headerLength = gzipped.size();
+            out.write(data);
+        }
+        File truncatedFile = tempFolder.newFile("truncated.fits.gz");
+        // Most of the compressed data is missing, so only the header may be inflated
+        Files.write(truncatedFile.toPath(), Arrays.copyOf(gzipped.toByteArray(), headerLength + 1024));
+
+        FitsPrimaryHeader header = parser.readPrimaryHeader(truncatedFile);
+
+        assertThat(header.getHeaderAsString(), is(parser.readPrimaryHeader(fitsFile).getHeaderAsString()));
+        assertThat(header.getHeaderValues(), is(parser.readPrimaryHeader(fitsFile).getHeaderValues()));
+    }
+
+    @Test
+    public void testReadPrimaryHeaderGzippedEmptyFile() throws Exception
+    {
+        File emptyFile = tempFolder.newFile("empty.fits.gz");
+        new GZIPOutputStream(new FileOutputStream(emptyFile)).close();
+
+        exception.expect(FitsException.class);
+        exception.expectMessage("ended before the end of its primary header");
+
+        parser.readPrimaryHeader(emptyFile);
+    }
+
+    @Test
+    public void testReadPrimaryHeaderDefaultsMissingDoublesToNull() throws Exception
+    {
+        FitsPrimaryHeader header =
+                parser.readPrimaryHeader(new File("src/test/resources/image/good/headers.basic.fits"));
+
+        assertThat(header.getHeaderValues().get(AskapFitsKey.TMIN), is(nullValue()));
+        assertThat(header.getHeaderValues().get(AskapFitsKey.TMAX), is(nullValue()));
+    }
+
+    @Test
+    public void testReadPrimaryHeaderMissingFile() throws Exception
+    {
+        exception.expect(FileNotFoundException.class);
+        exception.expectMessage("File passed to FitsFileParser does not exist!");
+
+        parser.readPrimaryHeader(new File(tempFolder.getRoot(), "missing.fits"));
+    }
+
+    @Test
+    public void testReadPrimaryHeaderEmptyFile() throws Exception
+    {
+        File emptyFile = tempFolder.newFile("empty.fits");
+
+        exception.expect(FitsException.class);
+        exception.expectMessage("ended before the end of its primary header");
+
+        parser.readPrimaryHeader(emptyFile);
+    }
+
+    @Test
+    public void testReadPrimaryHeaderNotFits() throws Exception
+    {
+        File textFile = tempFolder.newFile("notfits.fits");
+        byte[] text = new byte[FitsFileParser.BLOCK_SIZE];
+        Arrays.fill(text, (byte) 'x');
+        Files.write(textFile.toPath(), text);
+
+        exception.expect(FitsException.class);
+        exception.expectMessage("does not start with a FITS primary header");
+
+        parser.readPrimaryHeader(textFile);
+    }
+
+    @Test
+    public void testReadPrimaryHeaderWithoutEnd() throws Exception
+    {
+        File fitsFile = tempFolder.newFile("noend.fits");
+        byte[] block = new byte[FitsFileParser.BLOCK_SIZE];
+        Arrays.fill(block, (byte) ' ');
+        byte[] simple = "SIMPLE  =                    T".getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(simple, 0, block, 0, simple.length);
+        Files.write(fitsFile.toPath(), block);
+
+        exception.expect(FitsException.class);
+        exception.expectMessage("ended before the end of its primary header");
+
+        parser.readPrimaryHeader(fitsFile);
+    }
+}
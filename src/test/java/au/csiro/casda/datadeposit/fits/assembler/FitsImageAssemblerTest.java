@@ -25,6 +25,7 @@ import au.csiro.TestUtils;
 import au.csiro.casda.datadeposit.fits.FitsFileParser;
 import au.csiro.casda.datadeposit.fits.service.FitsImageService.FitsImportException;
 import au.csiro.casda.datadeposit.fits.service.FitsImageService.ProjectCodeMismatchException;
+import au.csiro.casda.datadeposit.fits.wcs.ImageGeometryCalculator;
 import au.csiro.casda.entity.observation.Cubelet;
 import au.csiro.casda.entity.observation.ImageCube;
 import au.csiro.casda.entity.observation.MomentMap;
@@ -329,6 +330,44 @@ public class FitsImageAssemblerTest
         assertThat(imageCube.getRestFrequency(), equalTo(1.420405745510E+09));  	
     }
 
+    @Test
+    public void testPopulateFitsObjectCalculatedGeometryMatchesImageGeometryCommand() throws Exception
+    {
+        assembler = createFitsImageAssembler(defaultImageGeometryCommandAndArgsElString);
+        assembler.populateFitsObject(imageCube, getTestFitsFile("image", "good", "VAST.SIN.4x4"));
+
+        ImageCube calculatedImageCube = new ImageCube();
+        calculatedImageCube.setProject(new Project("VAST"));
+        assembler = createFitsImageAssembler("");
+        assembler.populateFitsObject(calculatedImageCube, getTestFitsFile("image", "good", "VAST.SIN.4x4"));
+
+        assertThat(calculatedImageCube.getDimensions(), is(equalTo(imageCube.getDimensions())));
+        assertThat(calculatedImageCube.getSRegion(), is(equalTo(imageCube.getSRegion())));
+        assertThat(calculatedImageCube.getRaDeg(), is(equalTo(imageCube.getRaDeg())));
+        assertThat(calculatedImageCube.getDecDeg(), is(equalTo(imageCube.getDecDeg())));
+        assertThat(calculatedImageCube.getSFov(), is(equalTo(imageCube.getSFov())));
+        assertThat(calculatedImageCube.getNoOfPixels(), is(equalTo(imageCube.getNoOfPixels())));
+        assertThat(calculatedImageCube.getCellSize(), is(equalTo(imageCube.getCellSize())));
+        assertThat(calculatedImageCube.getEmMin(), is(equalTo(imageCube.getEmMin())));
+        assertThat(calculatedImageCube.getEmMax(), is(equalTo(imageCube.getEmMax())));
+        assertThat(calculatedImageCube.getCentreFrequency(), is(equalTo(imageCube.getCentreFrequency())));
+        assertThat(calculatedImageCube.getNoOfChannels(), is(equalTo(imageCube.getNoOfChannels())));
+        assertThat(calculatedImageCube.getStokesParameters(), is(equalTo("/I/")));
+    }
+
+    @Test
+    public void testPopulateFitsObjectCalculatedGeometryFailsWithoutCelestialAxes() throws Exception
+    {
+        assembler = createFitsImageAssembler("");
+
+        exception.expect(FitsImportException.class);
+        exception.expectMessage(
+                "Could not determine geometry of image cube from its WCS headers: Image does not have both RA and "
+                        + "DEC axes");
+
+        assembler.populateFitsObject(imageCube, getTestFitsFile("image", "good", "headers.basic"));
+    }
+
     @Test
     public void testPopulateFitsObjectImageGeometryEmpty() throws Exception
     {
@@ -1147,7 +1186,7 @@ public class FitsImageAssemblerTest
     private FitsImageAssembler createFitsImageAssembler(String imageGeometryCommandAndArgsElString)
     {
         return new FitsImageAssembler(imageGeometryCommandAndArgsElString, new FitsFileParser(),
-                new JavaProcessJobFactory());
+                new ImageGeometryCalculator(), new JavaProcessJobFactory());
     }
 
     private File getTestFitsFile(String fitsType, String dataKind, String testName)
@@ -1,17 +1,27 @@
 package au.csiro.casda.datadeposit.fits.service;
 
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 import static org.hamcrest.CoreMatchers.endsWith;
+import static org.hamcrest.CoreMatchers.everyItem;
 import static org.hamcrest.CoreMatchers.is;
 
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import org.junit.Rule;
@@ -19,6 +29,7 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 
 import au.csiro.casda.datadeposit.DepositState;
 import au.csiro.casda.datadeposit.ParentType;
@@ -185,10 +196,11 @@ public class FitsImageServiceTest
 
         ArgumentCaptor<File> fileCaptor = ArgumentCaptor.forClass(File.class);
         ArgumentCaptor<Spectrum> spectrumCaptor = ArgumentCaptor.forClass(Spectrum.class);
-        verify(assembler).populateFitsObject(spectrumCaptor.capture(), fileCaptor.capture());
+        verify(assembler).readFitsMetadata(fileCaptor.capture());
+        verify(assembler).applyFitsMetadata(spectrumCaptor.capture(), any());
         assertThat(spectrumCaptor.getValue(), is(spectrum));
         assertThat(fileCaptor.getValue().toString(), endsWith(spectrumFilename));
-        verify(spectrumRepository).save(spectrum);
+        verify(spectrumRepository).save(Arrays.asList(spectrum));
     }
 
     @Test
@@ -223,10 +235,11 @@ public class FitsImageServiceTest
 
         ArgumentCaptor<File> fileCaptor = ArgumentCaptor.forClass(File.class);
         ArgumentCaptor<Spectrum> spectrumCaptor = ArgumentCaptor.forClass(Spectrum.class);
-        verify(assembler).populateFitsObject(spectrumCaptor.capture(), fileCaptor.capture());
+        verify(assembler).readFitsMetadata(fileCaptor.capture());
+        verify(assembler).applyFitsMetadata(spectrumCaptor.capture(), any());
         assertThat(spectrumCaptor.getValue(), is(spectrum));
         assertThat(fileCaptor.getValue().toString(), is(parentPath.getPath()));
-        verify(spectrumRepository).save(spectrum);
+        verify(spectrumRepository).save(Arrays.asList(spectrum));
     }
 
     @Test
@@ -259,12 +272,100 @@ public class FitsImageServiceTest
 
         ArgumentCaptor<File> fileCaptor = ArgumentCaptor.forClass(File.class);
         ArgumentCaptor<Spectrum> spectrumCaptor = ArgumentCaptor.forClass(Spectrum.class);
-        verify(assembler).populateFitsObject(spectrumCaptor.capture(), fileCaptor.capture());
+        verify(assembler).readFitsMetadata(fileCaptor.capture());
+        verify(assembler).applyFitsMetadata(spectrumCaptor.capture(), any());
         assertThat(spectrumCaptor.getValue(), is(spectrum));
         assertThat(fileCaptor.getValue().toString(), endsWith(spectrumFilename));
-        verify(spectrumRepository).save(spectrum);
+        verify(spectrumRepository).save(Arrays.asList(spectrum));
     }
-    
+
+    @Test
+    public void testUpdateSpectraWithFitsMetadataInParallelSavesTheSpectraInOrderedBatches() throws Exception
+    {
+        Integer sbid = 12345;
+        String imageCubeFilename = "cube.fits";
+
+        File parentFolder = tempFolder.newFolder(String.valueOf(sbid));
+        ImageCube imageCube = mock(ImageCube.class);
+        Observation observation = mock(Observation.class);
+        List<Spectrum> spectra = createSpectra(5, observation);
+        when(imageCube.getSpectra()).thenReturn(spectra);
+        when(imageCubeRepository.findByObservationSbidAndFilename(sbid, imageCubeFilename)).thenReturn(imageCube);
+
+        FitsImageAssembler assembler = mock(FitsImageAssembler.class);
+        // The FITS objects are only ever touched on the thread that owns the session
+        Thread testThread = Thread.currentThread();
+        List<Thread> applyThreads = Collections.synchronizedList(new ArrayList<>());
+        doAnswer((invocation) -> applyThreads.add(Thread.currentThread())).when(assembler)
+                .applyFitsMetadata(any(Spectrum.class), any());
+
+        new FitsImageService(imageCubeRepository, spectrumRepository, momentMapRepository, cubeletRepository,
+                assembler, 3, 2).updateSpectraWithFitsMetadata(sbid, imageCubeFilename, parentFolder,
+                        ParentType.OBSERVATION, false);
+
+        for (Spectrum spectrum : spectra)
+        {
+            verify(assembler).readFitsMetadata(new File(parentFolder, spectrum.getFilename()));
+            verify(assembler).applyFitsMetadata(eq(spectrum), any());
+            verify(spectrum).setDepositState(any(DepositState.class));
+        }
+        assertThat(applyThreads, everyItem(is(testThread)));
+        InOrder inOrder = inOrder(spectrumRepository);
+        inOrder.verify(spectrumRepository).save(spectra.subList(0, 2));
+        inOrder.verify(spectrumRepository).save(spectra.subList(2, 4));
+        inOrder.verify(spectrumRepository).save(spectra.subList(4, 5));
+        verifyNoMoreInteractions(spectrumRepository);
+    }
+
+    @Test
+    public void testUpdateSpectraWithFitsMetadataInParallelThrowsTheFirstFailure() throws Exception
+    {
+        Integer sbid = 12345;
+        String imageCubeFilename = "cube.fits";
+
+        File parentFolder = tempFolder.newFolder(String.valueOf(sbid));
+        ImageCube imageCube = mock(ImageCube.class);
+        Observation observation = mock(Observation.class);
+        List<Spectrum> spectra = createSpectra(4, observation);
+        when(imageCube.getSpectra()).thenReturn(spectra);
+        when(imageCubeRepository.findByObservationSbidAndFilename(sbid, imageCubeFilename)).thenReturn(imageCube);
+
+        FitsImageAssembler assembler = mock(FitsImageAssembler.class);
+        File spectrum1 = new File(parentFolder, spectra.get(1).getFilename());
+        File spectrum3 = new File(parentFolder, spectra.get(3).getFilename());
+        doThrow(new FitsImageService.FitsImportException("spectrum 1 is broken")).when(assembler)
+                .readFitsMetadata(spectrum1);
+        doThrow(new FileNotFoundException("spectrum 3 is missing")).when(assembler).readFitsMetadata(spectrum3);
+
+        try
+        {
+            new FitsImageService(imageCubeRepository, spectrumRepository, momentMapRepository, cubeletRepository,
+                    assembler, 2, 1).updateSpectraWithFitsMetadata(sbid, imageCubeFilename, parentFolder,
+                            ParentType.OBSERVATION, false);
+            fail("Expected a FitsImportException");
+        }
+        catch (FitsImageService.FitsImportException e)
+        {
+            assertThat(e.getMessage(), is("spectrum 1 is broken"));
+        }
+
+        verify(spectrumRepository).save(spectra.subList(0, 1));
+        verifyNoMoreInteractions(spectrumRepository);
+    }
+
+    private List<Spectrum> createSpectra(int count, Observation observation)
+    {
+        List<Spectrum> spectra = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+        {
+            Spectrum spectrum = mock(Spectrum.class);
+            when(spectrum.getFilename()).thenReturn("spectrum" + i + ".fits");
+            when(spectrum.getParent()).thenReturn(observation);
+            spectra.add(spectrum);
+        }
+        return spectra;
+    }
+
     
     @Test
     public void testUpdateMomentMapWithFitsMetadataForUnknownMomentMap() throws Exception
@@ -315,10 +416,11 @@ public class FitsImageServiceTest
 
         ArgumentCaptor<File> fileCaptor = ArgumentCaptor.forClass(File.class);
         ArgumentCaptor<MomentMap> momentMapCaptor = ArgumentCaptor.forClass(MomentMap.class);
-        verify(assembler).populateFitsObject(momentMapCaptor.capture(), fileCaptor.capture());
+        verify(assembler).readFitsMetadata(fileCaptor.capture());
+        verify(assembler).applyFitsMetadata(momentMapCaptor.capture(), any());
         assertThat(momentMapCaptor.getValue(), is(momentMap));
         assertThat(fileCaptor.getValue().toString(), endsWith(momentMapFilename));
-        verify(momentMapRepository).save(momentMap);
+        verify(momentMapRepository).save(Arrays.asList(momentMap));
     }
 
     @Test
@@ -353,10 +455,11 @@ public class FitsImageServiceTest
 
         ArgumentCaptor<File> fileCaptor = ArgumentCaptor.forClass(File.class);
         ArgumentCaptor<MomentMap> momentMapCaptor = ArgumentCaptor.forClass(MomentMap.class);
-        verify(assembler).populateFitsObject(momentMapCaptor.capture(), fileCaptor.capture());
+        verify(assembler).readFitsMetadata(fileCaptor.capture());
+        verify(assembler).applyFitsMetadata(momentMapCaptor.capture(), any());
         assertThat(momentMapCaptor.getValue(), is(momentMap));
         assertThat(fileCaptor.getValue().toString(), is(parentPath.getPath()));
-        verify(momentMapRepository).save(momentMap);
+        verify(momentMapRepository).save(Arrays.asList(momentMap));
     }
 
     @Test
@@ -387,10 +490,11 @@ public class FitsImageServiceTest
 
         ArgumentCaptor<File> fileCaptor = ArgumentCaptor.forClass(File.class);
         ArgumentCaptor<MomentMap> momentMapCaptor = ArgumentCaptor.forClass(MomentMap.class);
-        verify(assembler).populateFitsObject(momentMapCaptor.capture(), fileCaptor.capture());
+        verify(assembler).readFitsMetadata(fileCaptor.capture());
+        verify(assembler).applyFitsMetadata(momentMapCaptor.capture(), any());
         assertThat(momentMapCaptor.getValue(), is(momentMap));
         assertThat(fileCaptor.getValue().toString(), endsWith(momentMapFilename));
-        verify(momentMapRepository).save(momentMap);
+        verify(momentMapRepository).save(Arrays.asList(momentMap));
     }
 
     @Test
@@ -441,10 +545,11 @@ public class FitsImageServiceTest
 
         ArgumentCaptor<File> fileCaptor = ArgumentCaptor.forClass(File.class);
         ArgumentCaptor<Cubelet> cubeletCaptor = ArgumentCaptor.forClass(Cubelet.class);
-        verify(assembler).populateFitsObject(cubeletCaptor.capture(), fileCaptor.capture());
+        verify(assembler).readFitsMetadata(fileCaptor.capture());
+        verify(assembler).applyFitsMetadata(cubeletCaptor.capture(), any());
         assertThat(cubeletCaptor.getValue(), is(cubelet));
         assertThat(fileCaptor.getValue().toString(), endsWith(cubeletFilename));
-        verify(cubeletRepository).save(cubelet);
+        verify(cubeletRepository).save(Arrays.asList(cubelet));
     }
 
     @Test
@@ -479,10 +584,11 @@ public class FitsImageServiceTest
 
         ArgumentCaptor<File> fileCaptor = ArgumentCaptor.forClass(File.class);
         ArgumentCaptor<Cubelet> cubeletCaptor = ArgumentCaptor.forClass(Cubelet.class);
-        verify(assembler).populateFitsObject(cubeletCaptor.capture(), fileCaptor.capture());
+        verify(assembler).readFitsMetadata(fileCaptor.capture());
+        verify(assembler).applyFitsMetadata(cubeletCaptor.capture(), any());
         assertThat(cubeletCaptor.getValue(), is(cubelet));
         assertThat(fileCaptor.getValue().toString(), is(parentPath.getPath()));
-        verify(cubeletRepository).save(cubelet);
+        verify(cubeletRepository).save(Arrays.asList(cubelet));
     }
 
     @Test
@@ -513,9 +619,10 @@ public class FitsImageServiceTest
 
         ArgumentCaptor<File> fileCaptor = ArgumentCaptor.forClass(File.class);
         ArgumentCaptor<Cubelet> cubeletCaptor = ArgumentCaptor.forClass(Cubelet.class);
-        verify(assembler).populateFitsObject(cubeletCaptor.capture(), fileCaptor.capture());
+        verify(assembler).readFitsMetadata(fileCaptor.capture());
+        verify(assembler).applyFitsMetadata(cubeletCaptor.capture(), any());
         assertThat(cubeletCaptor.getValue(), is(cubelet));
         assertThat(fileCaptor.getValue().toString(), endsWith(cubeletFilename));
-        verify(cubeletRepository).save(cubelet);
+        verify(cubeletRepository).save(Arrays.asList(cubelet));
     }
 }
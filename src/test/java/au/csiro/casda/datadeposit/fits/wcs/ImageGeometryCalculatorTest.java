@@ -0,0 +1,222 @@
+package au.csiro.casda.datadeposit.fits.wcs;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+
+import nom.tam.fits.FitsException;
+import nom.tam.fits.Header;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import au.csiro.casda.datadeposit.fits.FitsFileParser;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * Tests for ImageGeometryCalculator. The sample images' geometries are compared with the output of the wcslib based
+ * image geometry tool for the same images.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+public class ImageGeometryCalculatorTest
+{
+    /** The tool writes 14 significant figures, so only the last digit may differ through rounding. */
+    private static final double TOLERANCE = 1e-10;
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    private ImageGeometryCalculator calculator = new ImageGeometryCalculator();
+
+    @Test
+    public void testImageMatchesImageGeometryTool() throws Exception
+    {
+        JsonNode geometry = calculator.calculateGeometry(readHeader("src/test/resources/image/good/VAST.SIN.4x4.fits"));
+
+        assertThat(geometry, is(readToolOutput("src/test/resources/image/good/VAST.SIN.4x4.json")));
+    }
+
+    @Test
+    public void testSpectrumMatchesImageGeometryTool() throws Exception
+    {
+        JsonNode geometry = calculator
+                .calculateGeometry(readHeader("src/test/resources/spectra/good/beta.image2.001.sir.fits"));
+        JsonNode expected = readToolOutput("src/test/resources/spectra/good/beta.image2.001.sir.json");
+
+        assertPositionsMatch(geometry, expected);
+        for (int i = 0; i < 4; i++)
+        {
+            JsonNode axis = geometry.get("axes").get(i);
+            JsonNode expectedAxis = expected.get("axes").get(i);
+            assertThat(axis.get("name"), is(expectedAxis.get("name")));
+            assertThat(axis.get("numPixels"), is(expectedAxis.get("numPixels")));
+            assertThat(axis.get("pixelUnit"), is(expectedAxis.get("pixelUnit")));
+            // This version of the tool wrote the absolute pixel size of the celestial axes
+            assertThat(Math.abs(axis.get("pixelSize").asDouble()),
+                    closeTo(Math.abs(expectedAxis.get("pixelSize").asDouble()), TOLERANCE));
+            for (String field : new String[] { "centre", "min", "max" })
+            {
+                if (expectedAxis.has(field))
+                {
+                    assertThat(axis.get(field).asDouble(),
+                            closeTo(expectedAxis.get(field).asDouble(), Math.abs(expectedAxis.get(field).asDouble()
+                                    * TOLERANCE)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCubeletMatchesImageGeometryTool() throws Exception
+    {
+        JsonNode geometry = calculator.calculateGeometry(readHeader("src/test/resources/cubelet/good/cube_01.fits"));
+        JsonNode expected = readToolOutput("src/test/resources/cubelet/good/cube_01.json");
+
+        assertPositionsMatch(geometry, expected);
+        assertThat(geometry.get("axes").size(), is(4));
+        assertThat(geometry.get("axes").get(0).get("numPixels").asText(), is("30"));
+        assertThat(geometry.get("axes").get(1).get("numPixels").asText(), is("17"));
+        assertThat(geometry.get("axes").get(2).get("numPixels").asText(), is("1"));
+        assertThat(geometry.get("axes").get(3).get("name").asText(), is("STOKES"));
+    }
+
+    @Test
+    public void testTanProjection() throws Exception
+    {
+        Header header = createHeader("TAN", 1.0 / 3600);
+        header.addValue("CRPIX1", 50.5, "");
+        header.addValue("CRPIX2", 50.5, "");
+
+        JsonNode geometry = calculator.calculateGeometry(header);
+
+        // The reference pixel is at the centre of the image
+        assertThat(geometry.get("centre").get("RA").asDouble(), closeTo(150, TOLERANCE));
+        assertThat(geometry.get("centre").get("DEC").asDouble(), closeTo(-30, TOLERANCE));
+        // Along the DEC axis through the reference point the latitude is CRVAL2 + atan of the offset
+        header.addValue("CRPIX1", 0.5, "");
+        geometry = calculator.calculateGeometry(header);
+        assertThat(geometry.get("corners").get(3).get("RA").asDouble(), closeTo(150, TOLERANCE));
+        assertThat(geometry.get("corners").get(3).get("DEC").asDouble(),
+                closeTo(-30 + Math.toDegrees(Math.atan(Math.toRadians(50.0 / 3600))), TOLERANCE));
+    }
+
+    @Test
+    public void testCdMatrixMatchesPcMatrix() throws Exception
+    {
+        Header pcHeader = createHeader("SIN", 1.0 / 3600);
+        pcHeader.addValue("PC1_1", Math.cos(0.1), "");
+        pcHeader.addValue("PC1_2", -Math.sin(0.1), "");
+        pcHeader.addValue("PC2_1", Math.sin(0.1), "");
+        pcHeader.addValue("PC2_2", Math.cos(0.1), "");
+        Header cdHeader = createHeader("SIN", 1.0 / 3600);
+        cdHeader.deleteKey("CDELT1");
+        cdHeader.deleteKey("CDELT2");
+        cdHeader.addValue("CD1_1", -Math.cos(0.1) / 3600, "");
+        cdHeader.addValue("CD1_2", Math.sin(0.1) / 3600, "");
+        cdHeader.addValue("CD2_1", Math.sin(0.1) / 3600, "");
+        cdHeader.addValue("CD2_2", Math.cos(0.1) / 3600, "");
+
+        JsonNode pcGeometry = calculator.calculateGeometry(pcHeader);
+        JsonNode cdGeometry = calculator.calculateGeometry(cdHeader);
+
+        assertPositionsMatch(cdGeometry, pcGeometry);
+        assertThat(cdGeometry.get("axes").get(0).get("pixelSize"), is(pcGeometry.get("axes").get(0).get("pixelSize")));
+    }
+
+    @Test
+    public void testUnsupportedProjection() throws Exception
+    {
+        exception.expect(FitsException.class);
+        exception.expectMessage("Unsupported projection CAR");
+
+        calculator.calculateGeometry(createHeader("CAR", 1.0 / 3600));
+    }
+
+    @Test
+    public void testUnsupportedCelestialAxes() throws Exception
+    {
+        Header header = createHeader("SIN", 1.0 / 3600);
+        header.addValue("CTYPE1", "GLON-SIN", "");
+        header.addValue("CTYPE2", "GLAT-SIN", "");
+
+        exception.expect(FitsException.class);
+        exception.expectMessage("Unsupported celestial axis type GLON-SIN for axis 1");
+
+        calculator.calculateGeometry(header);
+    }
+
+    @Test
+    public void testCornerOutsideProjection() throws Exception
+    {
+        // 100 pixels of 1 degree can't be projected orthographically
+        Header header = createHeader("SIN", 1.0);
+
+        exception.expect(FitsException.class);
+        exception.expectMessage("is outside the valid region of the SIN projection");
+
+        calculator.calculateGeometry(header);
+    }
+
+    private static Header createHeader(String projection, double pixelSize) throws Exception
+    {
+        Header header = new Header();
+        header.addValue("SIMPLE", true, "");
+        header.addValue("BITPIX", -32, "");
+        header.addValue("NAXIS", 2, "");
+        header.addValue("NAXIS1", 100, "");
+        header.addValue("NAXIS2", 100, "");
+        header.addValue("CTYPE1", "RA---" + projection, "");
+        header.addValue("CRVAL1", 150.0, "");
+        header.addValue("CDELT1", -pixelSize, "");
+        header.addValue("CRPIX1", 1.0, "");
+        header.addValue("CTYPE2", "DEC--" + projection, "");
+        header.addValue("CRVAL2", -30.0, "");
+        header.addValue("CDELT2", pixelSize, "");
+        header.addValue("CRPIX2", 1.0, "");
+        return header;
+    }
+
+    private static void assertPositionsMatch(JsonNode geometry, JsonNode expected)
+    {
+        assertPositionMatches(geometry.get("centre"), expected.get("centre"));
+        assertThat(geometry.get("corners").size(), is(4));
+        for (int i = 0; i < 4; i++)
+        {
+            assertPositionMatches(geometry.get("corners").get(i), expected.get("corners").get(i));
+        }
+    }
+
+    private static void assertPositionMatches(JsonNode position, JsonNode expected)
+    {
+        assertThat(position.get("RA").asDouble(), closeTo(expected.get("RA").asDouble(), TOLERANCE));
+        assertThat(position.get("DEC").asDouble(), closeTo(expected.get("DEC").asDouble(), TOLERANCE));
+    }
+
+    private static Header readHeader(String path) throws Exception
+    {
+        return new FitsFileParser().readPrimaryHeader(new File(path)).getHeader();
+    }
+
+    private static JsonNode readToolOutput(String path) throws Exception
+    {
+        return new ObjectMapper().readTree(new File(path));
+    }
+}
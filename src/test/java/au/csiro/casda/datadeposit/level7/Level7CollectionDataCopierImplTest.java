@@ -4,8 +4,6 @@ import static org.hamcrest.Matchers.hasEntry;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
-import static org.mockito.Matchers.anyVararg;
-import static org.mockito.Mockito.when;
 
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.nullValue;
@@ -25,7 +23,7 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import au.csiro.casda.datadeposit.catalogue.level7.Level7CollectionRepository;
-import au.csiro.casda.datadeposit.service.InlineScriptService;
+import au.csiro.casda.datadeposit.service.ChecksumService;
 import au.csiro.casda.entity.observation.Cubelet;
 import au.csiro.casda.entity.observation.EncapsulationFile;
 import au.csiro.casda.entity.observation.ImageCube;
@@ -64,17 +62,14 @@ public class Level7CollectionDataCopierImplTest
     @Mock
     private ProcessJobFactory processJobFactory;
 
-    @Mock
-    private InlineScriptService inlineScriptService;
-
     private Level7CollectionDataCopierImpl dataCopier;
     
     @Before
     public void setup()
     {
         MockitoAnnotations.initMocks(this);
-        dataCopier = new Level7CollectionDataCopierImpl(level7CollectionRepository, processJobFactory, "{}", "",
-                inlineScriptService);
+        dataCopier = new Level7CollectionDataCopierImpl(level7CollectionRepository, processJobFactory, "{}",
+                new ChecksumService());
 
     }
     @Test
@@ -117,8 +112,6 @@ public class Level7CollectionDataCopierImplTest
         createFileOfSize(icFolder, "ic1.fits", 3200);
         createFileOfSize(icFolder, "ic1.png",800);
         createFileOfSize(icFolder, "ic2.fits", 1024);
-        when(inlineScriptService.callScriptInline(anyVararg())).thenReturn("1 2 3");
-        
 
         dataCopier.createImageCubesForFiles(level7Collection, icFolder.getParent(), imageCubeFolderName);
         List<ImageCube> imageCubes = level7Collection.getImageCubes();
@@ -157,8 +150,6 @@ public class Level7CollectionDataCopierImplTest
         File thumb1 = createFileOfSize(specFolder, "spec1.png",800);
         File thumb2 = createFileOfSize(specFolder, "unmatched.png",800);
         createFileOfSize(specFolder, "spec2.fits", 1024);
-        when(inlineScriptService.callScriptInline(anyVararg())).thenReturn("1 2 3");
-        
 
         dataCopier.createSpectraForFiles(level7Collection, specFolder.getParent(), spectraFolderName, 0);
         List<Spectrum> spectra = level7Collection.getSpectra();
@@ -187,6 +178,11 @@ public class Level7CollectionDataCopierImplTest
         // Check the thumbnail deletion
         assertThat("Used thumbnail image retained", thumb1.exists(),  is(true));
         assertThat("Unused thumbnail image deleted", thumb2.exists(),  is(false));
+
+        // Check the checksums were created
+        assertThat(new File(specFolder, "spec1.fits.checksum").exists(), is(true));
+        assertThat(new File(specFolder, "spec1.png.checksum").exists(), is(true));
+        assertThat(new File(specFolder, "spec2.fits.checksum").exists(), is(true));
     }
 
     @Test
@@ -201,7 +197,6 @@ public class Level7CollectionDataCopierImplTest
         File thumb3 = createFileOfSize(momFolder, "mom1.jpeg",800);
         createFileOfSize(momFolder, "mom2.fits", 1024);
         createFileOfSize(momFolder, "mom2.fits.checksum", 1);
-        when(inlineScriptService.callScriptInline(anyVararg())).thenReturn("1 2 3");
 
         dataCopier.createMomentMapsForFiles(level7Collection, momFolder.getParent(), momentMapsFolderName, 0);
         List<MomentMap> momentMaps = level7Collection.getMomentMaps();
@@ -245,7 +240,6 @@ public class Level7CollectionDataCopierImplTest
         File thumb3 = createFileOfSize(cubeletsFolder, "cube1.jpeg",800);
         createFileOfSize(cubeletsFolder, "cube2.fits", 1024);
         createFileOfSize(cubeletsFolder, "cube2.fits.checksum", 1);
-        when(inlineScriptService.callScriptInline(anyVararg())).thenReturn("1 2 3");
 
         dataCopier.createCubeletsForFiles(level7Collection, cubeletsFolder.getParent(), cubeletsFolderName, 0);
         List<Cubelet> cubelets = level7Collection.getCubelets();
@@ -0,0 +1,111 @@
+package au.csiro.casda.datadeposit.service;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * Tests for ChecksumService. The expected values were produced by calc_checksum.sh.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+public class ChecksumServiceTest
+{
+    private static final String QUICK_BROWN_FOX = "The quick brown fox jumps over the lazy dog";
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Test
+    public void testEmptyFile() throws Exception
+    {
+        Path file = tempFolder.newFile("empty.fits").toPath();
+
+        assertThat(new ChecksumService().calculateChecksum(file),
+                is("00000000 da39a3ee5e6b4b0d3255bfef95601890afd80709 0"));
+    }
+
+    @Test
+    public void testSmallFile() throws Exception
+    {
+        Path file = writeFile("small.txt", QUICK_BROWN_FOX.getBytes(StandardCharsets.UTF_8));
+
+        assertThat(new ChecksumService().calculateChecksum(file),
+                is("414fa339 2fd4e1c67a2d28fced849ee1bb76e7391b93eb12 2b"));
+    }
+
+    @Test
+    public void testFileLargerThanBufferGivesSameChecksum() throws Exception
+    {
+        byte[] data = new byte[100000];
+        new Random(42).nextBytes(data);
+        Path file = writeFile("random.bin", data);
+
+        String expected = "3ed04c18 79216ceb63c53a5b9e89e57717a6412dfd8a34ee 186a0";
+
+        assertThat(new ChecksumService().calculateChecksum(file), is(expected));
+        assertThat(new ChecksumService(1000).calculateChecksum(file), is(expected));
+        assertThat(new ChecksumService(4093).calculateChecksum(file), is(expected));
+    }
+
+    @Test
+    public void testCreateChecksumFile() throws Exception
+    {
+        Path file = writeFile("small.txt", QUICK_BROWN_FOX.getBytes(StandardCharsets.UTF_8));
+
+        File checksumFile = new ChecksumService().createChecksumFile(file);
+
+        assertThat(checksumFile.getName(), is("small.txt.checksum"));
+        assertThat(new String(Files.readAllBytes(checksumFile.toPath()), StandardCharsets.UTF_8),
+                is("414fa339 2fd4e1c67a2d28fced849ee1bb76e7391b93eb12 2b"));
+    }
+
+    @Test
+    public void testMissingFile() throws Exception
+    {
+        exception.expect(NoSuchFileException.class);
+
+        new ChecksumService().calculateChecksum(tempFolder.getRoot().toPath().resolve("missing.fits"));
+    }
+
+    @Test
+    public void testInvalidBufferSize()
+    {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("expected bufferSize >= 1");
+
+        new ChecksumService(0);
+    }
+
+    private Path writeFile(String name, byte[] data) throws IOException
+    {
+        return Files.write(tempFolder.getRoot().toPath().resolve(name), data);
+    }
+}
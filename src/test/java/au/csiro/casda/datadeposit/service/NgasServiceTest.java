@@ -14,18 +14,31 @@ package au.csiro.casda.datadeposit.service;
 
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.contains;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.CharEncoding;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.http.ResponseEntity;
@@ -34,9 +47,14 @@ import org.springframework.web.client.RestTemplate;
 import au.csiro.casda.datadeposit.service.NgasService.ServiceCallException;
 import au.csiro.casda.datadeposit.service.NgasService.Status;
 
+import com.sun.net.httpserver.HttpServer;
+
 public class NgasServiceTest
 {
 
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
     @Mock
     RestTemplate restTemplate;
 
@@ -86,6 +104,49 @@ public class NgasServiceTest
         assertThat(service.getStatus("fileId1234").wasSuccess(), is(false));
     }
 
+    @Test
+    public void testPooledCallsReuseTheConnection() throws Exception
+    {
+        byte[] content = new byte[500000];
+        new Random(42).nextBytes(content);
+        File file = tempFolder.newFile("image1.fits");
+        Files.write(file.toPath(), content);
+        String statusResponse = getNgasResponse("ngas_file_status_example.xml");
+        List<String> requests = Collections.synchronizedList(new ArrayList<>());
+        Set<Integer> clientPorts = Collections.synchronizedSet(new HashSet<>());
+        ByteArrayOutputStream archived = new ByteArrayOutputStream();
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", (exchange) -> {
+            requests.add(exchange.getRequestMethod() + " " + exchange.getRequestURI());
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            IOUtils.copy(exchange.getRequestBody(), archived);
+            byte[] response = statusResponse.getBytes(CharEncoding.UTF_8);
+            exchange.sendResponseHeaders(200, response.length);
+            exchange.getResponseBody().write(response);
+            exchange.close();
+        });
+        server.start();
+        try
+        {
+            NgasService service =
+                    new NgasService("localhost", String.valueOf(server.getAddress().getPort()), 4, 4, 1000, 10000);
+
+            assertThat(service.archiveFile("image1.fits", file.toPath()).wasSuccess(), is(true));
+            assertThat(service.registerFile("/staging", "image2.fits").wasSuccess(), is(true));
+            assertThat(service.getStatus("image1.fits").wasSuccess(), is(true));
+        }
+        finally
+        {
+            server.stop(0);
+        }
+
+        assertThat(requests, contains("POST /ARCHIVE?filename=image1.fits", "GET /REGISTER?path=/staging/image2.fits",
+                "GET /STATUS?file_id=image2.fits", "GET /STATUS?file_id=image1.fits"));
+        assertThat(archived.toByteArray(), is(content));
+        assertThat(clientPorts.size(), is(1));
+    }
+
     private String getNgasResponse(String name) throws IOException, URISyntaxException
     {
         URL url = getClass().getResource("/ngas/" + name);
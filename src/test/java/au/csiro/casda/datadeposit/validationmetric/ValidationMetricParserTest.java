@@ -75,7 +75,7 @@ public class ValidationMetricParserTest
     {
         MockitoAnnotations.initMocks(this);
         parser = new ValidationMetricParser(observationRepository, validationMetricValueRepository, 
-       		 evaluationFileRepository, validationMetricRepository);
+       		 evaluationFileRepository, validationMetricRepository, 2);
     }
     
     public class ValidCases
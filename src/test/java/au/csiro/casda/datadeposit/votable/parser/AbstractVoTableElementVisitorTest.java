@@ -13,19 +13,36 @@ package au.csiro.casda.datadeposit.votable.parser;
  */
 
 
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasItems;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
+import java.math.BigInteger;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Collectors;
+
+import net.ivoa.vo.DataType;
+import net.ivoa.vo.Field;
+import net.ivoa.vo.Table;
+import net.ivoa.vo.Td;
+import net.ivoa.vo.Tr;
 
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import au.csiro.casda.datadeposit.votable.parser.AbstractVoTableElementVisitor.MalformedVoTableException;
+import au.csiro.casda.datadeposit.votable.parser.AbstractVoTableElementVisitor.VisitorAction;
+
 public class AbstractVoTableElementVisitorTest
 {
 
@@ -139,4 +156,306 @@ public class AbstractVoTableElementVisitorTest
         AbstractVoTableElementVisitor.loadConstraintsFile("invalid/yml/char_field_without_maxarraysize.yml",
                 paramsMetadata, fieldsMetadata);
     }
+
+    @Test
+    public void testErrorsAreCountedAsTheyAreRecorded()
+    {
+        AbstractVoTableElementVisitor visitor = new TestVisitor();
+        Field field = new Field();
+        field.setName("flux");
+
+        assertThat(visitor.hasErrors(), is(false));
+        visitor.recordRowError(2, createError(visitor, "row 2"));
+        visitor.recordCellError(1, field, createError(visitor, "cell 1"));
+        visitor.recordParamError("Catalogue Name", createError(visitor, "param"));
+        visitor.recordVoTableError(createError(visitor, "table"));
+        // Duplicate table errors are ignored
+        visitor.recordVoTableError(createError(visitor, "table"));
+
+        assertThat(visitor.hasErrors(), is(true));
+        assertThat(visitor.getErrorCount(), is(4));
+        assertThat(getMessages(visitor), contains("Error in TABLE : table", "Error in TABLE : param",
+                "Error in TABLE : cell 1", "Error in TABLE : row 2"));
+    }
+
+    @Test
+    public void testRowErrorsBeyondTheLimitAreCountedButNotKept()
+    {
+        AbstractVoTableElementVisitor visitor = new TestVisitor();
+        visitor.setMaxRecordedRowErrors(2);
+        Field field = new Field();
+        field.setName("flux");
+
+        for (int i = 0; i < 5; i++)
+        {
+            visitor.recordCellError(i, field, createError(visitor, "cell " + i));
+        }
+        visitor.recordParamError("Catalogue Name", createError(visitor, "param"));
+
+        assertThat(visitor.getErrorCount(), is(6));
+        assertThat(getMessages(visitor), contains("Error in TABLE : param", "Error in TABLE : cell 0",
+                "Error in TABLE : cell 1",
+                "Error in TABLE : 3 further row errors were found but not reported (the limit is 2)"));
+        // The row whose error was discarded must still be treated as being in error
+        assertThat(visitor.hasErrorsForRow(4), is(true));
+        assertThat(visitor.hasErrorsForCell(4, field), is(true));
+    }
+
+    @Test
+    public void testRowCellsAreParsedByTheirFieldDatatype()
+    {
+        TestVisitor visitor = new TestVisitor();
+        visitor.visit(new Table());
+        visitor.visit(createField("name", DataType.CHAR, "*"));
+        VisitableVoTableField fluxField = createField("flux", DataType.FLOAT, null);
+        visitor.visit(fluxField);
+        visitor.visit(createField("flag", DataType.BOOLEAN, null));
+        visitor.visit(createField("count", DataType.SHORT, null));
+        visitRow(visitor, " Sgr A* ", "1.5", "T", " 3 ");
+        visitRow(visitor, "", " ", "?", "");
+        visitRow(visitor, "bad", "abc", "F", "1");
+        visitRow(visitor, "short", "1", "F");
+        visitor.stop();
+
+        assertThat(visitor.processedValues.size(), is(2));
+        assertThat(visitor.processedValues.get(0), is(new Object[] { "Sgr A*", 1.5f, Boolean.TRUE, (short) 3 }));
+        assertThat(visitor.processedStrings.get(0), is(new String[] { "Sgr A*", "1.5", "t", "3" }));
+        // The reused row must not leak the values of the previous row
+        assertThat(visitor.processedValues.get(1), is(new Object[] { null, null, null, null }));
+        assertThat(visitor.processedStrings.get(1), is(new String[] { null, null, null, null }));
+        assertThat(visitor.hasErrorsForCell(2, fluxField), is(true));
+        assertThat(visitor.hasErrorsForRow(3), is(true));
+        assertThat(visitor.getErrorCount(), is(2));
+    }
+
+    @Test
+    public void testRowsConvertedByAPoolOfThreadsAreProcessedAsIfConvertedByOneThread()
+    {
+        TestVisitor visitor = new TestVisitor();
+        visitLargeTable(visitor);
+        TestVisitor pipelinedVisitor = new TestVisitor();
+        pipelinedVisitor.setConversionThreads(3);
+        visitLargeTable(pipelinedVisitor);
+
+        assertThat(pipelinedVisitor.processedValues.size(), is(visitor.processedValues.size()));
+        for (int i = 0; i < visitor.processedValues.size(); i++)
+        {
+            assertThat(pipelinedVisitor.processedValues.get(i), is(visitor.processedValues.get(i)));
+            assertThat(pipelinedVisitor.processedStrings.get(i), is(visitor.processedStrings.get(i)));
+        }
+        assertThat(pipelinedVisitor.getErrorCount(), is(visitor.getErrorCount()));
+        assertThat(getMessages(pipelinedVisitor), is(getMessages(visitor)));
+        assertThat(getMessages(visitor), hasItems("Error in 1501st TR : Missing TD",
+                "Error in 2nd TD (FIELD 'flux') of 1001st TR : Value 'bad' is not a 'float'",
+                "Error in 2004th TR : Additional TD"));
+    }
+
+    @Test
+    public void testRowsConvertedByAPoolOfThreadsStopAtTheFirstErrorWhenFailingFast()
+    {
+        TestVisitor visitor = new TestVisitor(true);
+        visitor.setConversionThreads(3);
+        try
+        {
+            visitLargeTable(visitor);
+            fail("MalformedVoTableException expected");
+        }
+        catch (MalformedVoTableException e)
+        {
+            assertThat(e.getMessage(),
+                    is("Error in 2nd TD (FIELD 'flux') of 1001st TR : Value 'bad' is not a 'float'"));
+        }
+        assertThat(visitor.processedValues.size(), is(1000));
+        assertThat(visitor.processedValues.get(999)[0], is(999));
+    }
+
+    @Test
+    public void testTableSmallerThanAChunkIsConvertedWithoutStartingThePool()
+    {
+        TestVisitor visitor = new TestVisitor();
+        visitor.setConversionThreads(3);
+        long conversionThreadsBefore = countRowConversionThreads();
+
+        visitor.visit(new Table());
+        visitor.visit(createField("index", DataType.INT, null));
+        visitor.visit(createField("flux", DataType.FLOAT, null));
+        for (int i = 0; i < 10; i++)
+        {
+            visitRow(visitor, String.valueOf(i), i == 5 ? "bad" : String.valueOf(i / 4.0));
+        }
+        visitor.stop();
+
+        assertThat(countRowConversionThreads(), is(lessThanOrEqualTo(conversionThreadsBefore)));
+        assertThat(visitor.processedValues.size(), is(9));
+        assertThat(visitor.processedValues.get(8)[0], is(9));
+        assertThat(getMessages(visitor),
+                contains("Error in 2nd TD (FIELD 'flux') of 6th TR : Value 'bad' is not a 'float'"));
+    }
+
+    @Test
+    public void testDecodedCellsAreParsedWithoutTheirText()
+    {
+        TestVisitor visitor = new TestVisitor();
+        visitor.visit(new Table());
+        visitor.visit(createField("flux", DataType.FLOAT, null));
+        visitor.visit(createField("flag", DataType.BOOLEAN, null));
+        visitor.visit(createField("count", DataType.LONG, null));
+        VisitableVoTableField widthField = createField("ra", DataType.DOUBLE, null);
+        widthField.setWidth(BigInteger.valueOf(4));
+        visitor.visit(widthField);
+        visitDecodedRow(visitor, 1.25f, Boolean.FALSE, 12345678901L, 1.5);
+        visitDecodedRow(visitor, 2.5f, Boolean.TRUE, -1L, 1.5e-7);
+        visitor.stop();
+
+        assertThat(visitor.processedValues.size(), is(1));
+        assertThat(visitor.processedValues.get(0), is(new Object[] { 1.25f, Boolean.FALSE, 12345678901L, 1.5 }));
+        assertThat(visitor.processedStrings.get(0), is(new String[] { "1.25", "f", "12345678901", "1.5" }));
+        assertThat(getMessages(visitor),
+                contains("Error in 4th TD (FIELD 'ra') of 2nd TR : Value '0.00000015' is wider than 4 chars"));
+    }
+
+    @Test
+    public void testTypedValueAccessors()
+    {
+        assertThat(AbstractVoTableElementVisitor.floatValue(1.5d), is(1.5f));
+        assertThat(AbstractVoTableElementVisitor.doubleValue(1.5f), is(1.5d));
+        assertThat(AbstractVoTableElementVisitor.doubleValue("2.5"), is(2.5d));
+        assertThat(AbstractVoTableElementVisitor.shortValue(7), is((short) 7));
+        assertThat(AbstractVoTableElementVisitor.intValue((short) 7), is(7));
+        assertThat(AbstractVoTableElementVisitor.longValue("12345678901"), is(12345678901L));
+        assertThat(AbstractVoTableElementVisitor.stringValue(42), is("42"));
+
+        thrown.expect(NumberFormatException.class);
+        AbstractVoTableElementVisitor.shortValue(Integer.valueOf(Short.MAX_VALUE + 1));
+    }
+
+    private static VisitableVoTableField createField(String name, DataType datatype, String arraysize)
+    {
+        VisitableVoTableField field = new VisitableVoTableField();
+        field.setName(name);
+        field.setDatatype(datatype);
+        field.setArraysize(arraysize);
+        return field;
+    }
+
+    private static void visitRow(AbstractVoTableElementVisitor visitor, String... values)
+    {
+        visitor.visit(new Tr());
+        for (String value : values)
+        {
+            Td cell = new Td();
+            cell.setValue(value);
+            visitor.visit(cell);
+        }
+    }
+
+    private static void visitDecodedRow(AbstractVoTableElementVisitor visitor, Object... values)
+    {
+        visitor.visit(new Tr());
+        for (Object value : values)
+        {
+            visitor.visit(new DecodedVoTableCell(value));
+        }
+    }
+
+    /*
+     * Visits a table of 2500 rows (more than one chunk of the row conversion pipeline) with errors in rows 1001, 1501
+     * and 2004.
+     */
+    private static void visitLargeTable(AbstractVoTableElementVisitor visitor)
+    {
+        visitor.visit(new Table());
+        visitor.visit(createField("index", DataType.INT, null));
+        visitor.visit(createField("flux", DataType.FLOAT, null));
+        for (int i = 0; i < 2500; i++)
+        {
+            switch (i)
+            {
+            case 1000:
+                visitRow(visitor, String.valueOf(i), "bad");
+                break;
+            case 1500:
+                visitRow(visitor, String.valueOf(i));
+                break;
+            case 2003:
+                visitRow(visitor, String.valueOf(i), "1.5", "extra");
+                break;
+            default:
+                visitRow(visitor, String.valueOf(i), i % 7 == 0 ? "" : String.valueOf(i / 4.0));
+            }
+        }
+        visitor.stop();
+    }
+
+    private static long countRowConversionThreads()
+    {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter((thread) -> "votable-row-conversion".equals(thread.getName())).count();
+    }
+
+    private static MalformedVoTableException createError(AbstractVoTableElementVisitor visitor, String message)
+    {
+        return new MalformedVoTableException(visitor, VisitorAction.VISIT_TABLE, null, message);
+    }
+
+    private static List<String> getMessages(AbstractVoTableElementVisitor visitor)
+    {
+        return visitor.getErrors().stream().map(Throwable::getMessage).collect(Collectors.toList());
+    }
+
+    /**
+     * A visitor without any constraints that accumulates errors and keeps a copy of each processed row.
+     */
+    private static class TestVisitor extends AbstractVoTableElementVisitor
+    {
+        private final List<Object[]> processedValues = new ArrayList<>();
+
+        private final List<String[]> processedStrings = new ArrayList<>();
+
+        TestVisitor()
+        {
+            this(false);
+        }
+
+        TestVisitor(boolean failFast)
+        {
+            super(failFast);
+        }
+
+        @Override
+        protected List<ParamConstraint> getParamConstraints()
+        {
+            return new ArrayList<>();
+        }
+
+        @Override
+        protected List<FieldConstraint> getFieldConstraints()
+        {
+            return new ArrayList<>();
+        }
+
+        @Override
+        protected void processParams(Collection<VisitableVoTableParam> params)
+        {
+        }
+
+        @Override
+        protected void processFields(List<VisitableVoTableField> fields)
+        {
+        }
+
+        @Override
+        protected void processRow(ParsedVoTableRow row)
+        {
+            Object[] values = new Object[row.size()];
+            String[] strings = new String[row.size()];
+            for (int i = 0; i < row.size(); i++)
+            {
+                values[i] = row.getParsedValue(i);
+                strings[i] = row.getValue(i);
+            }
+            processedValues.add(values);
+            processedStrings.add(strings);
+        }
+    }
 }
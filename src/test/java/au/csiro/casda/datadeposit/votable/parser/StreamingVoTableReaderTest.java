@@ -0,0 +1,494 @@
+package au.csiro.casda.datadeposit.votable.parser;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.xml.XMLConstants;
+import javax.xml.bind.JAXBElement;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+
+import net.ivoa.vo.AnyTEXT;
+import net.ivoa.vo.CoordinateSystem;
+import net.ivoa.vo.Field;
+import net.ivoa.vo.Param;
+import net.ivoa.vo.Table;
+import net.ivoa.vo.Td;
+import net.ivoa.vo.Tr;
+import net.ivoa.vo.VoTable;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.xml.sax.SAXException;
+
+/**
+ * Tests for StreamingVoTableReader.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+public class StreamingVoTableReaderTest
+{
+    private static final String HEADER = "<?xml version=\"1.0\"?>"
+            + "<VOTABLE version=\"1.3\" xmlns=\"http://www.ivoa.net/xml/VOTable/v1.3\">"
+            + "<COOSYS ID=\"J2000\" equinox=\"J2000\" system=\"eq_FK5\"/>";
+
+    private static final String BINARY_FIELDS = "<FIELD name=\"id\" datatype=\"int\"><VALUES null=\"-1\"/></FIELD>"
+            + "<FIELD name=\"flux\" datatype=\"float\"/><FIELD name=\"flag\" datatype=\"boolean\"/>"
+            + "<FIELD name=\"name\" datatype=\"char\" arraysize=\"*\"/>"
+            + "<FIELD name=\"pair\" datatype=\"double\" arraysize=\"2\"/>";
+
+    private static final String FITS_FIELDS = "<FIELD name=\"id\" datatype=\"int\"/>"
+            + "<FIELD name=\"name\" datatype=\"char\" arraysize=\"*\"/><FIELD name=\"flux\" datatype=\"float\"/>";
+
+    private static final int FITS_CARD_SIZE = 80;
+
+    private static final int FITS_BLOCK_SIZE = 2880;
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private Schema schema;
+
+    private RecordingVisitor visitor;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        schema = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema(
+                new StreamSource(getClass().getClassLoader().getResourceAsStream("schemas/VOTable-1.3.xsd")));
+        visitor = new RecordingVisitor();
+    }
+
+    @Test
+    public void testElementsAreVisitedInDocumentOrder() throws Exception
+    {
+        read(HEADER + "<RESOURCE><TABLE name=\"  my   table \"><DESCRIPTION>A table</DESCRIPTION>"
+                + "<PARAM name=\"imageFile\" datatype=\"char\" arraysize=\"*\" value=\"image.fits\"/>"
+                + "<FIELD name=\"ra\" datatype=\"double\" unit=\"deg\" ref=\"J2000\" width=\"10\" precision=\"3\">"
+                + "<DESCRIPTION>Right ascension</DESCRIPTION></FIELD>"
+                + "<FIELD name=\"flag\" datatype=\"boolean\"/>"
+                + "<DATA><TABLEDATA><TR><TD> 12.345 </TD><TD/></TR><TR><TD>1.0</TD><TD>T</TD></TR></TABLEDATA></DATA>"
+                + "</TABLE></RESOURCE></VOTABLE>", schema);
+
+        assertThat(visitor.visits,
+                contains("VOTABLE", "TABLE my table [A table]", "PARAM imageFile=image.fits",
+                        "FIELD ra double deg 10 3 J2000 [Right ascension]",
+                        "FIELD flag boolean null null null null null", "TR", "TD ' 12.345 '", "TD ''", "TR", "TD '1.0'", "TD 'T'", "STOP"));
+    }
+
+    @Test
+    public void testDocumentIsReadWithoutASchema() throws Exception
+    {
+        read(HEADER + "<RESOURCE><TABLE><FIELD name=\"ra\" datatype=\"double\"/>"
+                + "<DATA><TABLEDATA><TR><TD>1</TD></TR></TABLEDATA></DATA></TABLE></RESOURCE></VOTABLE>", null);
+
+        assertThat(visitor.visits, contains("VOTABLE", "TABLE null []",
+                "FIELD ra double null null null null null", "TR", "TD '1'", "STOP"));
+    }
+
+    @Test
+    public void testInvalidDocumentThrowsSchemaValidationException() throws Exception
+    {
+        thrown.expect(SAXException.class);
+        thrown.expectMessage("Attribute 'extra' is not allowed to appear in element 'FIELD'");
+
+        read(HEADER + "<RESOURCE><TABLE><FIELD name=\"ra\" datatype=\"double\" extra=\"1\"/>"
+                + "</TABLE></RESOURCE></VOTABLE>", schema);
+    }
+
+    @Test
+    public void testSchemaValidationExceptionIsThrownOnceTheInvalidContentIsReached() throws Exception
+    {
+        try
+        {
+            read(HEADER + "<RESOURCE><TABLE><FIELD name=\"ra\" datatype=\"double\"/>"
+                    + "<DATA><TABLEDATA><TR><TD>1</TD></TR><TR><TD>2</TD><BOGUS/></TR></TABLEDATA></DATA>"
+                    + "</TABLE></RESOURCE></VOTABLE>", schema);
+        }
+        catch (SAXException e)
+        {
+            assertThat(visitor.visits, contains("VOTABLE", "TABLE null []", "FIELD ra double null null null null null",
+                    "TR", "TD '1'", "TR", "TD '2'"));
+            return;
+        }
+        throw new AssertionError("Expected SAXException");
+    }
+
+    @Test
+    public void testReadAheadVisitsElementsInDocumentOrderOnTheCallingThread() throws Exception
+    {
+        String document = createTableDataDocument(2500, "");
+        read(document, schema);
+        List<String> expectedVisits = visitor.visits;
+        visitor = new RecordingVisitor();
+
+        readAhead(document, schema);
+
+        assertThat(visitor.visits, is(expectedVisits));
+        assertThat(visitor.threads, contains(Thread.currentThread()));
+    }
+
+    @Test
+    public void testReadAheadThrowsSchemaValidationExceptionOnceTheInvalidContentIsReached() throws Exception
+    {
+        try
+        {
+            readAhead(createTableDataDocument(2500, "<BOGUS/>"), schema);
+        }
+        catch (SAXException e)
+        {
+            assertThat(visitor.visits.size(), is(3 + 2500 * 2));
+            assertThat(visitor.visits.get(visitor.visits.size() - 1), is("TD '2499'"));
+            return;
+        }
+        throw new AssertionError("Expected SAXException");
+    }
+
+    @Test
+    public void testReadAheadStopsReadingWhenTheVisitorFails() throws Exception
+    {
+        visitor = new RecordingVisitor()
+        {
+            @Override
+            public void visit(Td cell)
+            {
+                if ("1500".equals(cell.getValue()))
+                {
+                    throw new IllegalStateException("Visitor failed");
+                }
+                super.visit(cell);
+            }
+        };
+        try
+        {
+            readAhead(createTableDataDocument(100000, ""), schema);
+        }
+        catch (IllegalStateException e)
+        {
+            assertThat(e.getMessage(), is("Visitor failed"));
+            assertThat(Thread.getAllStackTraces().keySet().stream()
+                    .filter((thread) -> "votable-reader".equals(thread.getName())).collect(Collectors.toList()),
+                    is(empty()));
+            return;
+        }
+        throw new AssertionError("Expected IllegalStateException");
+    }
+
+    @Test
+    public void testMissingResourceThrowsException() throws Exception
+    {
+        thrown.expect(RuntimeException.class);
+        thrown.expectMessage("VOTABLE is a missing a RESOURCE element");
+
+        // The schema also requires a RESOURCE, so this can only be reached without one
+        read(HEADER + "</VOTABLE>", null);
+    }
+
+    @Test
+    public void testMultipleResourcesThrowsException() throws Exception
+    {
+        thrown.expect(RuntimeException.class);
+        thrown.expectMessage("Cannot process more than one RESOURCE element in a VOTABLE");
+
+        read(HEADER + "<RESOURCE><TABLE><FIELD name=\"ra\" datatype=\"double\"/></TABLE></RESOURCE>"
+                + "<RESOURCE><TABLE><FIELD name=\"ra\" datatype=\"double\"/></TABLE></RESOURCE></VOTABLE>", schema);
+    }
+
+    @Test
+    public void testMultipleTablesThrowsException() throws Exception
+    {
+        thrown.expect(RuntimeException.class);
+        thrown.expectMessage("Can only process a single TABLE element under a RESOURCE");
+
+        read(HEADER + "<RESOURCE><TABLE><FIELD name=\"ra\" datatype=\"double\"/></TABLE>"
+                + "<TABLE><FIELD name=\"ra\" datatype=\"double\"/></TABLE></RESOURCE></VOTABLE>", schema);
+    }
+
+    @Test
+    public void testUnsupportedTableContentThrowsException() throws Exception
+    {
+        thrown.expect(RuntimeException.class);
+        thrown.expectMessage("Can only process DESCRIPTION, PARAM, FIELD, and DATA elements of the RESOURCE element");
+
+        read(HEADER + "<RESOURCE><TABLE><INFO name=\"a\" value=\"b\"/><FIELD name=\"ra\" datatype=\"double\"/>"
+                + "</TABLE></RESOURCE></VOTABLE>", schema);
+    }
+
+    @Test
+    public void testUnsupportedDataSerialisationThrowsException() throws Exception
+    {
+        thrown.expect(RuntimeException.class);
+        thrown.expectMessage("Can only process STREAM elements whose content is base64 encoded");
+
+        read(HEADER + "<RESOURCE><TABLE><FIELD name=\"ra\" datatype=\"double\"/>"
+                + "<DATA><BINARY><STREAM encoding=\"gzip\">AAAA</STREAM></BINARY></DATA>"
+                + "</TABLE></RESOURCE></VOTABLE>", schema);
+    }
+
+    @Test
+    public void testBinaryDataIsVisitedAsTableData() throws Exception
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        writeBinaryRow(data, 42, 1.25f, 'T', "abc", 1.5e-7, 2.0);
+        writeBinaryRow(data, -1, Float.NaN, '?', "", Double.NaN, 3.0);
+
+        read(HEADER + "<RESOURCE><TABLE>" + BINARY_FIELDS + "<DATA><BINARY><STREAM encoding=\"base64\">\n"
+                + Base64.getMimeEncoder().encodeToString(bytes.toByteArray())
+                + "\n</STREAM></BINARY></DATA></TABLE></RESOURCE></VOTABLE>", schema);
+
+        assertThat(visitor.visits.subList(7, visitor.visits.size()), contains("TR", "TD '42'", "TD '1.25'",
+                "TD 'T'", "TD 'abc'", "TD '0.00000015 2'", "TR", "TD ''", "TD ''", "TD ''", "TD ''", "TD 'NaN 3'",
+                "STOP"));
+        // Scalar numbers and booleans are visited with their decoded values, so they needn't be parsed again
+        assertThat(visitor.decodedValues, contains(42, 1.25f, Boolean.TRUE));
+    }
+
+    @Test
+    public void testBinary2NullFlagsAreVisitedAsEmptyCells() throws Exception
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeByte(0b01010000); // The 2nd and 4th fields are null
+        writeBinaryRow(data, 7, 0f, 'F', "xyz", 1.0, 2.0);
+
+        read(HEADER + "<RESOURCE><TABLE>" + BINARY_FIELDS + "<DATA><BINARY2><STREAM encoding=\"base64\">"
+                + Base64.getEncoder().encodeToString(bytes.toByteArray())
+                + "</STREAM></BINARY2></DATA></TABLE></RESOURCE></VOTABLE>", schema);
+
+        assertThat(visitor.visits.subList(7, visitor.visits.size()),
+                contains("TR", "TD '7'", "TD ''", "TD 'F'", "TD ''", "TD '1 2'", "STOP"));
+    }
+
+    @Test
+    public void testTruncatedBinaryDataThrowsException() throws Exception
+    {
+        thrown.expect(XMLStreamException.class);
+        thrown.expectMessage("Malformed BINARY data: Unexpected end of BINARY data in row 2");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        writeBinaryRow(data, 42, 1.25f, 'T', "abc", 1.5e-7, 2.0);
+        data.writeInt(43);
+
+        read(HEADER + "<RESOURCE><TABLE>" + BINARY_FIELDS + "<DATA><BINARY><STREAM encoding=\"base64\">"
+                + Base64.getEncoder().encodeToString(bytes.toByteArray())
+                + "</STREAM></BINARY></DATA></TABLE></RESOURCE></VOTABLE>", schema);
+    }
+
+    @Test
+    public void testFitsDataIsVisitedAsTableData() throws Exception
+    {
+        read(HEADER + "<RESOURCE><TABLE>" + FITS_FIELDS + "<DATA><FITS><STREAM encoding=\"base64\">"
+                + Base64.getMimeEncoder().encodeToString(createFitsTable())
+                + "</STREAM></FITS></DATA></TABLE></RESOURCE></VOTABLE>", schema);
+
+        assertThat(visitor.visits.subList(5, visitor.visits.size()), contains("TR", "TD '1'", "TD 'first'",
+                "TD '0.5'", "TR", "TD ''", "TD 'second'", "TD ''", "STOP"));
+    }
+
+    @Test
+    public void testFitsDataIsReadFromAFileRelativeToTheDocument() throws Exception
+    {
+        File fitsFile = tempFolder.newFile("catalogue.fits");
+        Files.write(fitsFile.toPath(), createFitsTable());
+        String document = HEADER + "<RESOURCE><TABLE>" + FITS_FIELDS
+                + "<DATA><FITS extnum=\"1\"><STREAM href=\"catalogue.fits\"/></FITS></DATA>"
+                + "</TABLE></RESOURCE></VOTABLE>";
+
+        new StreamingVoTableReader(new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8)), schema,
+                new File(tempFolder.getRoot(), "catalogue.xml").toURI()).read(visitor);
+
+        assertThat(visitor.visits.subList(5, visitor.visits.size()), contains("TR", "TD '1'", "TD 'first'",
+                "TD '0.5'", "TR", "TD ''", "TD 'second'", "TD ''", "STOP"));
+    }
+
+    private static void writeBinaryRow(DataOutputStream data, int id, float flux, char flag, String name,
+            double first, double second) throws IOException
+    {
+        data.writeInt(id);
+        data.writeFloat(flux);
+        data.writeByte(flag);
+        data.writeInt(name.length());
+        data.writeBytes(name);
+        data.writeDouble(first);
+        data.writeDouble(second);
+    }
+
+    /*
+     * A FITS file with an empty primary HDU and a BINTABLE of FITS_FIELDS with two rows.
+     */
+    private static byte[] createFitsTable() throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        writeFitsHeader(bytes, "SIMPLE  =                    T", "BITPIX  =                    8",
+                "NAXIS   =                    0", "EXTEND  =                    T");
+        writeFitsHeader(bytes, "XTENSION= 'BINTABLE'", "BITPIX  =                    8",
+                "NAXIS   =                    2", "NAXIS1  =                   18", "NAXIS2  =                    2",
+                "PCOUNT  =                    0", "GCOUNT  =                    1", "TFIELDS =                    3",
+                "TFORM1  = 'J       '", "TNULL1  =                   -9", "TFORM2  = '10A     '",
+                "TFORM3  = 'E       '");
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeInt(1);
+        data.writeBytes("first     ");
+        data.writeFloat(0.5f);
+        data.writeInt(-9);
+        data.writeBytes("second\0\0\0\0");
+        data.writeFloat(Float.NaN);
+        data.write(new byte[FITS_BLOCK_SIZE - 2 * 18]);
+        return bytes.toByteArray();
+    }
+
+    private static void writeFitsHeader(ByteArrayOutputStream bytes, String... cards) throws IOException
+    {
+        StringBuilder header = new StringBuilder();
+        for (String card : cards)
+        {
+            header.append(StringUtils.rightPad(card, FITS_CARD_SIZE));
+        }
+        header.append(StringUtils.rightPad("END", FITS_CARD_SIZE));
+        bytes.write(StringUtils.rightPad(header.toString(), FITS_BLOCK_SIZE).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private void read(String document, Schema schema) throws Exception
+    {
+        new StreamingVoTableReader(new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8)), schema)
+                .read(visitor);
+    }
+
+    private void readAhead(String document, Schema schema) throws Exception
+    {
+        StreamingVoTableReader reader =
+                new StreamingVoTableReader(new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8)), schema);
+        reader.setReadAhead(true);
+        reader.read(visitor);
+    }
+
+    /*
+     * Creates a document whose table has the given number of rows, with the given content after the last cell.
+     */
+    private static String createTableDataDocument(int rowCount, String trailingContent)
+    {
+        StringBuilder document = new StringBuilder(HEADER);
+        document.append("<RESOURCE><TABLE><FIELD name=\"id\" datatype=\"int\"/><DATA><TABLEDATA>");
+        for (int i = 0; i < rowCount; i++)
+        {
+            document.append("<TR><TD>").append(i).append("</TD>");
+            document.append(i == rowCount - 1 ? trailingContent : "").append("</TR>");
+        }
+        return document.append("</TABLEDATA></DATA></TABLE></RESOURCE></VOTABLE>").toString();
+    }
+
+    /**
+     * Records a summary of each visit.
+     */
+    private static class RecordingVisitor implements VoTableElementVisitor
+    {
+        private final List<String> visits = new ArrayList<>();
+
+        private final Set<Thread> threads = new HashSet<>();
+
+        private final List<Object> decodedValues = new ArrayList<>();
+
+        @Override
+        public void visit(VoTable voTable)
+        {
+            record("VOTABLE");
+        }
+
+        @Override
+        public void visit(Param param)
+        {
+            record("PARAM " + param.getName() + "=" + param.getValue());
+        }
+
+        @Override
+        public void visit(Field field)
+        {
+            String summary = String.format("FIELD %s %s %s %s %s %s", field.getName(), field.getDatatype().value(),
+                    field.getUnit(), field.getWidth(), field.getPrecision(),
+                    field.getRef() == null ? null : ((CoordinateSystem) field.getRef()).getID());
+            record(summary
+                    + (field.getDESCRIPTION() == null ? " null" : " " + field.getDESCRIPTION().getContent()));
+        }
+
+        @Override
+        public void visit(Table table)
+        {
+            List<Object> description = new ArrayList<>();
+            for (JAXBElement<?> element : table.getContent())
+            {
+                if ("DESCRIPTION".equals(element.getName().getLocalPart()))
+                {
+                    description.addAll(((AnyTEXT) element.getValue()).getContent());
+                }
+            }
+            record("TABLE " + table.getName() + " " + description);
+        }
+
+        @Override
+        public void visit(Tr row)
+        {
+            record("TR");
+        }
+
+        @Override
+        public void visit(Td cell)
+        {
+            record("TD '" + cell.getValue() + "'");
+            if (cell instanceof DecodedVoTableCell)
+            {
+                decodedValues.add(((DecodedVoTableCell) cell).getDecodedValue());
+            }
+        }
+
+        @Override
+        public void stop()
+        {
+            record("STOP");
+        }
+
+        private void record(String visit)
+        {
+            visits.add(visit);
+            threads.add(Thread.currentThread());
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package au.csiro.casda.datadeposit.worker;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import au.csiro.casda.datadeposit.AbstractArgumentsDrivenCommandLineToolTest;
+import au.csiro.casda.datadeposit.ArgumentsDrivenCommandLineTool;
+import au.csiro.casda.datadeposit.CommandLineTool;
+import au.csiro.casda.datadeposit.worker.DepositWorkerProtocol.Request;
+import au.csiro.casda.datadeposit.worker.DepositWorkerProtocol.Response;
+
+/*
+ * #%L
+ * CSIRO ASKAP Science Data Archive
+ * %%
+ * Copyright (C) 2015 Commonwealth Scientific and Industrial Research Organisation (CSIRO) ABN 41 687 119 230.
+ * %%
+ * Licensed under the CSIRO Open Source License Agreement (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License in the LICENSE file.
+ * #L%
+ */
+
+/**
+ * Tests for DepositWorker and DepositWorkerClient.
+ * <p>
+ * Copyright 2016, CSIRO Australia. All rights reserved.
+ */
+public class DepositWorkerTest extends AbstractArgumentsDrivenCommandLineToolTest
+{
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    private static CyclicBarrier barrier;
+
+    private Path secretFile;
+
+    private DepositWorker worker;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        worker = new DepositWorker()
+        {
+            @Override
+            protected Class<? extends CommandLineTool> getToolClass(String toolName)
+            {
+                return "test_tool".equals(toolName) ? TestTool.class : null;
+            }
+
+            @Override
+            protected CommandLineTool createTool(Class<? extends CommandLineTool> toolClass)
+            {
+                return new TestTool();
+            }
+        };
+        secretFile = tempFolder.getRoot().toPath().resolve(".casda").resolve("deposit_worker.secret");
+        worker.loadSecret(secretFile);
+        System.setProperty(DepositWorkerProtocol.SECRET_FILE_PROPERTY, secretFile.toString());
+    }
+
+    @After
+    public void tearDown()
+    {
+        System.clearProperty(DepositWorkerProtocol.SECRET_FILE_PROPERTY);
+    }
+
+    @Override
+    protected ArgumentsDrivenCommandLineTool<?> createCommmandLineImporter()
+    {
+        return new DepositWorker();
+    }
+
+    @Test
+    public void testExitCodeAndOutputOfToolAreReturned()
+    {
+        Response response = worker.runJob(request("test_tool", "exit", "3", "an argument"));
+
+        assertThat(response.getExitCode(), is(3));
+        assertThat(new String(response.getStdout(), StandardCharsets.UTF_8), is("out: an argument\n"));
+        assertThat(new String(response.getStderr(), StandardCharsets.UTF_8), is("err: an argument\n"));
+    }
+
+    @Test
+    public void testFirstExitCodeIsReturnedWhenToolCatchesTheExit()
+    {
+        assertThat(worker.runJob(request("test_tool", "swallow-exit", "2", "")).getExitCode(), is(2));
+    }
+
+    @Test
+    public void testToolReturningNormallyIsSuccessful()
+    {
+        assertThat(worker.runJob(request("test_tool", "return", "0", "")).getExitCode(), is(0));
+    }
+
+    @Test
+    public void testUnexpectedExceptionIsFailure()
+    {
+        assertThat(worker.runJob(request("test_tool", "throw", "0", "")).getExitCode(), is(1));
+    }
+
+    @Test
+    public void testUnknownToolIsFailure()
+    {
+        Response response = worker.runJob(request("no_such_tool"));
+
+        assertThat(response.getExitCode(), is(1));
+        assertThat(new String(response.getStderr(), StandardCharsets.UTF_8),
+                containsString("Unknown tool 'no_such_tool'"));
+    }
+
+    @Test
+    public void testRelativePathFromAnotherDirectoryIsRejected() throws Exception
+    {
+        File clientDirectory = tempFolder.newFolder("client");
+        new File(clientDirectory, "observation.xml").createNewFile();
+
+        for (String path : new String[] { "observation.xml", "data/observation.xml" })
+        {
+            Response response = worker.runJob(
+                    requestFrom(clientDirectory, "test_tool", "-infile", path, "0", path));
+
+            assertThat(response.getExitCode(), is(1));
+            assertThat(response.getStdout().length, is(0));
+            assertThat(new String(response.getStderr(), StandardCharsets.UTF_8),
+                    containsString("Argument '" + path + "' is a relative path"));
+        }
+    }
+
+    @Test
+    public void testAbsolutePathOrPlainValueFromAnotherDirectoryIsAccepted() throws Exception
+    {
+        File clientDirectory = tempFolder.newFolder("client");
+        String path = new File(clientDirectory, "observation.xml").getAbsolutePath();
+
+        assertThat(worker.runJob(requestFrom(clientDirectory, "test_tool", "exit", "0", path))
+                .getExitCode(), is(0));
+        assertThat(worker.runJob(requestFrom(clientDirectory, "test_tool", "exit", "0", "12345"))
+                .getExitCode(), is(0));
+    }
+
+    @Test
+    public void testRelativePathFromTheWorkersDirectoryIsAccepted()
+    {
+        assertThat(worker.runJob(request("test_tool", "exit", "0", "src/test/resources")).getExitCode(), is(0));
+    }
+
+    @Test
+    public void testSystemExitIsNotTrappedOutsideOfAJob()
+    {
+        worker.runJob(request("test_tool", "exit", "0", ""));
+
+        // Would throw if an exit from this thread was trapped
+        System.getSecurityManager().checkExit(0);
+    }
+
+    @Test
+    public void testJobsRunConcurrentlyWithTheirOwnOutput() throws Exception
+    {
+        barrier = new CyclicBarrier(2);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try
+        {
+            Future<Response> first = executor.submit(() -> worker.runJob(request("test_tool", "await", "0", "first")));
+            Future<Response> second =
+                    executor.submit(() -> worker.runJob(request("test_tool", "await", "5", "second")));
+
+            // Each job waits for the other to start, so they would fail if run one at a time
+            assertThat(first.get().getExitCode(), is(0));
+            assertThat(new String(first.get().getStdout(), StandardCharsets.UTF_8), is("out: first\n"));
+            assertThat(second.get().getExitCode(), is(5));
+            assertThat(new String(second.get().getStdout(), StandardCharsets.UTF_8), is("out: second\n"));
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testOutputAndExitOfThreadStartedByAJobBelongToTheJob()
+    {
+        Response response = worker.runJob(request("test_tool", "thread-exit", "6", "an argument"));
+
+        assertThat(response.getExitCode(), is(6));
+        assertThat(new String(response.getStdout(), StandardCharsets.UTF_8),
+                is("out: an argument\nthread: an argument\n"));
+    }
+
+    @Test
+    public void testClientRunsJobOnWorker() throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+        int exitCode = submitToWorker(new String[] { "test_tool", "exit", "4", "\u00fcn\u00efcode arg" }, out, err);
+
+        assertThat(exitCode, is(4));
+        assertThat(out.toString("UTF-8"), is("out: \u00fcn\u00efcode arg\n"));
+        assertThat(err.toString("UTF-8"), is("err: \u00fcn\u00efcode arg\n"));
+    }
+
+    @Test
+    public void testSecretFileIsCreatedReadableOnlyByItsOwner() throws Exception
+    {
+        assertThat(Files.getPosixFilePermissions(secretFile), is(PosixFilePermissions.fromString("rw-------")));
+        assertThat(DepositWorkerProtocol.readSecret(secretFile).length() > 0, is(true));
+        assertThat(DepositWorkerProtocol.readOrCreateSecret(secretFile),
+                is(DepositWorkerProtocol.readSecret(secretFile)));
+    }
+
+    @Test
+    public void testSecretFileAccessibleByOthersIsRefused() throws Exception
+    {
+        Files.setPosixFilePermissions(secretFile, PosixFilePermissions.fromString("rw-r-----"));
+
+        exception.expect(IOException.class);
+        exception.expectMessage("must only be accessible by its owner");
+        worker.loadSecret(secretFile);
+    }
+
+    @Test
+    public void testClientWithWrongSecretIsNotAuthorised() throws Exception
+    {
+        File wrongSecretFile = tempFolder.newFile("wrong.secret");
+        Files.write(wrongSecretFile.toPath(), "not the secret".getBytes(StandardCharsets.UTF_8));
+        System.setProperty(DepositWorkerProtocol.SECRET_FILE_PROPERTY, wrongSecretFile.getPath());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+        int exitCode = submitToWorker(new String[] { "test_tool", "exit", "0", "an argument" }, out, err);
+
+        assertThat(exitCode, is(1));
+        assertThat(out.size(), is(0));
+        assertThat(err.toString("UTF-8"), containsString("Not authorised to run jobs on the deposit_worker"));
+    }
+
+    @Test
+    public void testClientWithoutSecretFileFails()
+    {
+        System.setProperty(DepositWorkerProtocol.SECRET_FILE_PROPERTY,
+                new File(tempFolder.getRoot(), "missing.secret").getPath());
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+        assertThat(DepositWorkerClient.submit(new String[] { "7117", "test_tool" }, System.out, new PrintStream(err)),
+                is(1));
+        assertThat(err.toString(), containsString("Could not read the deposit worker's secret"));
+    }
+
+    @Test
+    public void testClientUsage()
+    {
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+        assertThat(DepositWorkerClient.submit(new String[] { "fits_import" }, System.out, new PrintStream(err)), is(1));
+        assertThat(err.toString(), containsString("Usage: deposit_worker_client <port> <tool_name>"));
+    }
+
+    private static Request request(String toolName, String... args)
+    {
+        return requestFrom(new File(System.getProperty("user.dir")), toolName, args);
+    }
+
+    private static Request requestFrom(File workingDirectory, String toolName, String... args)
+    {
+        return new Request("secret", workingDirectory.getPath(), toolName, args);
+    }
+
+    /*
+     * Submits a job with the client to the worker, which serves it on a local port.
+     */
+    private int submitToWorker(String[] args, ByteArrayOutputStream out, ByteArrayOutputStream err) throws Exception
+    {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (ServerSocket serverSocket = new ServerSocket(0, 0, InetAddress.getLoopbackAddress()))
+        {
+            Future<?> served = executor.submit(() -> {
+                try (Socket socket = serverSocket.accept())
+                {
+                    worker.serve(socket);
+                }
+                return null;
+            });
+            String[] clientArgs = new String[args.length + 1];
+            clientArgs[0] = String.valueOf(serverSocket.getLocalPort());
+            System.arraycopy(args, 0, clientArgs, 1, args.length);
+
+            int exitCode = DepositWorkerClient.submit(clientArgs, new PrintStream(out, true, "UTF-8"),
+                    new PrintStream(err, true, "UTF-8"));
+
+            served.get();
+            return exitCode;
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * A tool that behaves according to its arguments: action, exit code, message.
+     */
+    public static class TestTool extends CommandLineTool
+    {
+        @Override
+        public void run(String... args)
+        {
+            System.out.println("out: " + args[2]);
+            System.err.println("err: " + args[2]);
+            switch (args[0])
+            {
+            case "exit":
+                System.exit(Integer.parseInt(args[1]));
+                break;
+            case "swallow-exit":
+                try
+                {
+                    System.exit(Integer.parseInt(args[1]));
+                }
+                catch (RuntimeException e)
+                {
+                    System.exit(Integer.parseInt(args[1]) + 1);
+                }
+                break;
+            case "throw":
+                throw new IllegalStateException("unexpected");
+            case "await":
+                try
+                {
+                    barrier.await(10, TimeUnit.SECONDS);
+                }
+                catch (Exception e)
+                {
+                    throw new IllegalStateException(e);
+                }
+                System.exit(Integer.parseInt(args[1]));
+                break;
+            case "thread-exit":
+                Thread thread = new Thread(() -> {
+                    System.out.println("thread: " + args[2]);
+                    System.exit(Integer.parseInt(args[1]));
+                });
+                thread.start();
+                try
+                {
+                    thread.join();
+                }
+                catch (InterruptedException e)
+                {
+                    throw new IllegalStateException(e);
+                }
+                break;
+            default:
+                break;
+            }
+        }
+    }
+}